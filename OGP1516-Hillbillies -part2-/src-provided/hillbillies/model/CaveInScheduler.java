@@ -0,0 +1,395 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.*;
+import hillbillies.util.BorderSearch;
+
+/**
+ * A class of cave-in schedulers, finding the solid cubes of a world that are no longer connected to a border after a cube was
+ * removed, and making them cave-in, a bounded amount of work per advance of time.
+ *
+ * @invar	The maximum number of steps per advance of each cave-in scheduler is strictly positive.
+ * 			| getMaxNbStepsPerAdvance() > 0
+ * @invar	The maximum number of microseconds per advance of each cave-in scheduler is not negative.
+ * 			| getMaxNbMicrosPerAdvance() >= 0
+ * @note	Each scheduled cube is a task: from each solid neighbour of it, a depth-first search over the solid cubes looks for a
+ * 			border. The searches are taken by a searcher of the border search of the world, one cube at a time, and the search in
+ * 			progress and the position among the tasks are kept between advances, so a search through a whole mountain is spread over as many advances as it
+ * 			needs. One step is visiting one cube, starting a search or making one cube cave-in; an advance stops after the
+ * 			maximum number of steps or, if that is not zero, the maximum number of microseconds.
+ * @note	Tasks are searched in the order in which they were scheduled and the cubes that are found not to be connected
+ * 			cave-in in the order in which they were found, so the order of cave-ins does not depend on the budget, only the number
+ * 			of cave-ins per advance does.
+ * @note	Classifications of cubes are shared by all searches until the world changes near them other than by this scheduler:
+ * 			making cubes that are not connected passable never changes whether other cubes are connected, and a classification
+ * 			only depends on the cubes that were visited and the cubes adjacent to those. After a change within or next to the
+ * 			box of the cubes visited since the classifications were last dropped, the search in progress starts over; if a cube
+ * 			became solid within or next to the box of the cubes that are waiting to cave-in, those are searched again, since they
+ * 			might be connected now. Changes elsewhere in the world do not affect this scheduler, so they cannot keep it from
+ * 			finishing its searches.
+ */
+public class CaveInScheduler {
+
+	/**
+	 * Initialize this new cave-in scheduler for the given world with the given budget per advance.
+	 * @param world	The world of this new cave-in scheduler.
+	 * @param maxNbStepsPerAdvance	The maximum number of steps per advance of this new cave-in scheduler.
+	 * @param maxNbMicrosPerAdvance	The maximum number of microseconds per advance of this new cave-in scheduler.
+	 * @effect	The budget of this new cave-in scheduler is set to the given budget.
+	 * 			| this.setBudget(maxNbStepsPerAdvance, maxNbMicrosPerAdvance)
+	 * @post	No cube is scheduled in this new cave-in scheduler.
+	 * @throws NullPointerException
+	 * 			The given world is not effective.
+	 */
+	public CaveInScheduler(World world, int maxNbStepsPerAdvance, long maxNbMicrosPerAdvance)
+			throws NullPointerException, IllegalArgumentException {
+		if(world == null)
+			throw new NullPointerException();
+		this.setBudget(maxNbStepsPerAdvance, maxNbMicrosPerAdvance);
+		this.world = world;
+		this.nbX = world.getNbCubesX();
+		this.nbY = world.getNbCubesY();
+		this.nbZ = world.getNbCubesZ();
+		this.searcher = world.getBorderSearch().newSearcher((x, y, z) -> world.isSolidCube(x, y, z));
+	}
+
+	/**
+	 * Return the world of this cave-in scheduler.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Variable registering the world of this cave-in scheduler.
+	 */
+	private final World world;
+
+	/**
+	 * Variables registering the dimensions of the world of this cave-in scheduler.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	/**
+	 * Return the maximum number of steps per advance of this cave-in scheduler.
+	 */
+	@Basic
+	public int getMaxNbStepsPerAdvance() {
+		return this.maxNbStepsPerAdvance;
+	}
+
+	/**
+	 * Return the maximum number of microseconds per advance of this cave-in scheduler, or zero if the time of an advance is not
+	 * bounded.
+	 */
+	@Basic
+	public long getMaxNbMicrosPerAdvance() {
+		return this.maxNbMicrosPerAdvance;
+	}
+
+	/**
+	 * Set the budget per advance of this cave-in scheduler.
+	 * @param maxNbStepsPerAdvance	The new maximum number of steps per advance.
+	 * @param maxNbMicrosPerAdvance	The new maximum number of microseconds per advance, or zero to only bound the number of steps.
+	 * @post	| new.getMaxNbStepsPerAdvance() == maxNbStepsPerAdvance
+	 * @post	| new.getMaxNbMicrosPerAdvance() == maxNbMicrosPerAdvance
+	 * @throws IllegalArgumentException
+	 * 			The given maximum number of steps is not strictly positive or the given maximum number of microseconds is negative.
+	 */
+	public void setBudget(int maxNbStepsPerAdvance, long maxNbMicrosPerAdvance) throws IllegalArgumentException {
+		if(maxNbStepsPerAdvance <= 0)
+			throw new IllegalArgumentException("A cave-in scheduler must be able to take at least one step per advance!");
+		if(maxNbMicrosPerAdvance < 0)
+			throw new IllegalArgumentException("The time of an advance cannot be negative!");
+		this.maxNbStepsPerAdvance = maxNbStepsPerAdvance;
+		this.maxNbMicrosPerAdvance = maxNbMicrosPerAdvance;
+	}
+
+	/**
+	 * Variables registering the budget per advance of this cave-in scheduler.
+	 */
+	private int maxNbStepsPerAdvance;
+	private long maxNbMicrosPerAdvance;
+
+	/**
+	 * Check whether this cave-in scheduler has no work left.
+	 * @return	| result == (this.getNbScheduledCubes() == 0) && (this.getNbPendingCaveIns() == 0)
+	 */
+	public boolean isIdle() {
+		return (this.getNbScheduledCubes() == 0) && (this.getNbPendingCaveIns() == 0);
+	}
+
+	/**
+	 * Return the number of scheduled cubes of which the neighbours are not yet all searched.
+	 */
+	public int getNbScheduledCubes() {
+		return this.tasks.size() + ((this.task >= 0) ? 1 : 0);
+	}
+
+	/**
+	 * Return the number of cubes that were found not to be connected to a border and that did not cave-in yet.
+	 */
+	public int getNbPendingCaveIns() {
+		return this.pendingCaveIns.size();
+	}
+
+	/**
+	 * Schedule a search from the neighbours of the cube at the given position, which was made passable.
+	 * @param x	The x coordinate of the cube.
+	 * @param y	The y coordinate of the cube.
+	 * @param z	The z coordinate of the cube.
+	 * @post	The given cube is searched after all cubes that were scheduled before it.
+	 * @throws IllegalArgumentException
+	 * 			The given coordinates are out of the bounds of the world of this cave-in scheduler.
+	 */
+	public void schedule(int x, int y, int z) throws IllegalArgumentException {
+		if(! this.isInWorld(x, y, z))
+			throw new IllegalArgumentException("Coordinates out of bounds!");
+		this.tasks.add(this.getIndex(x, y, z));
+	}
+
+	/**
+	 * Register that the cube at the given position of the world of this cave-in scheduler changed, other than by a cave-in of
+	 * this scheduler.
+	 * @param x	The x coordinate of the changed cube.
+	 * @param y	The y coordinate of the changed cube.
+	 * @param z	The z coordinate of the changed cube.
+	 * @param isSolid	Whether the cube became solid.
+	 * @post	If the given cube lies within or next to the box of the cubes visited since the classifications were last dropped,
+	 * 			the classifications of cubes are dropped at the start of the next advance.
+	 * @post	If the cube became solid and lies within or next to the box of the cubes that are waiting to cave-in, those cubes
+	 * 			are searched again from the start of the next advance.
+	 */
+	public void markChanged(int x, int y, int z, boolean isSolid) {
+		if(this.isAdvancing)
+			return;
+		if(this.searcher.isNearVisited(x, y, z))
+			this.isChanged = true;
+		if(isSolid && this.isNearPendingCaveIn(x, y, z)){
+			this.isChanged = true;
+			this.isSolidified = true;
+		}
+	}
+
+	/**
+	 * Check whether the cube at the given position lies within or next to the box of the cubes that are waiting to cave-in.
+	 */
+	@Model
+	private boolean isNearPendingCaveIn(int x, int y, int z) {
+		return (! this.pendingCaveIns.isEmpty()) && (x >= this.pendingBounds[0] - 1) && (y >= this.pendingBounds[1] - 1)
+				&& (z >= this.pendingBounds[2] - 1) && (x <= this.pendingBounds[3] + 1) && (y <= this.pendingBounds[4] + 1)
+				&& (z <= this.pendingBounds[5] + 1);
+	}
+
+	/**
+	 * Variable registering the box {minX, minY, minZ, maxX, maxY, maxZ} of the cubes that were found not to be connected since
+	 * there were last no cubes waiting to cave-in.
+	 */
+	private final int[] pendingBounds = new int[6];
+
+	/**
+	 * Variables registering whether the world changed since the last advance, and whether a cube became solid.
+	 */
+	private boolean isChanged;
+	private boolean isSolidified;
+
+	/**
+	 * Variable registering whether this cave-in scheduler is making cubes cave-in.
+	 */
+	private boolean isAdvancing;
+
+	/**
+	 * An interface for actions on a cube, given by its coordinates.
+	 */
+	public static interface CubeAction {
+		/**
+		 * Apply this action to the cube with the given coordinates, and return whether it changed the cube.
+		 */
+		public boolean apply(int x, int y, int z);
+	}
+
+	/**
+	 * Search and make cubes cave-in within the budget of this cave-in scheduler.
+	 * @param caveIn	The action making a cube that is not connected to a border cave-in.
+	 * @return	The number of cubes that were changed by the given action during this advance.
+	 * @note	Cubes that are found not to be connected cave-in before any further search, so they fall as soon as they are
+	 * 			found. An advance does not create any object, besides growing the stack of a search.
+	 */
+	public int advance(CubeAction caveIn) {
+		if(this.isChanged)
+			this.startClassification();
+		if(this.isIdle())
+			return 0;
+		int nbCaveIns = 0;
+		long deadline = System.nanoTime() + this.getMaxNbMicrosPerAdvance()*1000;
+		this.isAdvancing = true;
+		try {
+			for(int step = 0; step < this.getMaxNbStepsPerAdvance(); step++){
+				boolean isCaveIn = ! this.pendingCaveIns.isEmpty();
+				if((this.getMaxNbMicrosPerAdvance() > 0) && (isCaveIn || ((step & 63) == 63)) && (System.nanoTime() > deadline))
+					break;
+				if(isCaveIn){
+					int index = this.pendingCaveIns.remove();
+					int x = index % this.nbX, y = (index / this.nbX) % this.nbY, z = index / (this.nbX*this.nbY);
+					if(caveIn.apply(x, y, z))
+						nbCaveIns++;
+				}
+				else if(! this.step())
+					break;
+			}
+		}
+		finally {
+			this.isAdvancing = false;
+		}
+		return nbCaveIns;
+	}
+
+	/**
+	 * Drop all classifications of cubes and start the search in progress over. If a cube became solid since the last
+	 * advance, the cubes that are waiting to cave-in are scheduled again.
+	 */
+	@Model
+	private void startClassification() {
+		if(this.searcher.isSearching())
+			this.candidate--;
+		this.searcher.startClassification();
+		if(this.isSolidified){
+			while(! this.pendingCaveIns.isEmpty())
+				this.tasks.add(this.pendingCaveIns.remove());
+		}
+		this.isChanged = false;
+		this.isSolidified = false;
+	}
+
+	/**
+	 * Take one step of the searches of this cave-in scheduler.
+	 * @return	False if and only if there was no search to take a step in.
+	 */
+	@Model
+	private boolean step() {
+		if(this.searcher.isSearching()){
+			int result = this.searcher.step();
+			if(result != BorderSearch.IN_PROGRESS)
+				this.finishSearch(result == BorderSearch.CONNECTED);
+			return true;
+		}
+		if(this.task >= 0){
+			if(this.candidate == BorderSearch.NB_DIRECTIONS)
+				this.task = -1;
+			else
+				this.searcher.startFromNeighbour(this.task, this.candidate++, -1);
+			return true;
+		}
+		if(! this.tasks.isEmpty()){
+			this.task = this.tasks.remove();
+			this.candidate = 0;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Classify the cubes visited by the search in progress and end it. If they are not connected, they are added to the cubes
+	 * that are waiting to cave-in.
+	 */
+	@Model
+	private void finishSearch(boolean isConnected) {
+		this.searcher.finish(isConnected);
+		if(! isConnected){
+			for(int i = 0; i < this.searcher.getNbVisited(); i++){
+				int index = this.searcher.getVisited(i);
+				int x = index % this.nbX, y = (index / this.nbX) % this.nbY, z = index / (this.nbX*this.nbY);
+				if(this.pendingCaveIns.isEmpty()){
+					this.pendingBounds[0] = this.pendingBounds[3] = x;
+					this.pendingBounds[1] = this.pendingBounds[4] = y;
+					this.pendingBounds[2] = this.pendingBounds[5] = z;
+				}
+				else {
+					this.pendingBounds[0] = Math.min(this.pendingBounds[0], x);
+					this.pendingBounds[1] = Math.min(this.pendingBounds[1], y);
+					this.pendingBounds[2] = Math.min(this.pendingBounds[2], z);
+					this.pendingBounds[3] = Math.max(this.pendingBounds[3], x);
+					this.pendingBounds[4] = Math.max(this.pendingBounds[4], y);
+					this.pendingBounds[5] = Math.max(this.pendingBounds[5], z);
+				}
+				this.pendingCaveIns.add(index);
+			}
+		}
+	}
+
+	@Model
+	private boolean isInWorld(int x, int y, int z) {
+		return (x >= 0) && (y >= 0) && (z >= 0) && (x < this.nbX) && (y < this.nbY) && (z < this.nbZ);
+	}
+
+	@Model
+	private int getIndex(int x, int y, int z) {
+		return x + this.nbX*(y + this.nbY*z);
+	}
+
+	/**
+	 * Variables registering the scheduled cubes that were not taken yet, the scheduled cube of which the neighbours are being
+	 * searched (or -1 if there is none) and the index of the next neighbour of it to search.
+	 */
+	private final IntQueue tasks = new IntQueue();
+	private int task = -1;
+	private int candidate;
+
+	/**
+	 * Variable registering the cubes that were found not to be connected and that did not cave-in yet, in the order in which
+	 * they were found.
+	 */
+	private final IntQueue pendingCaveIns = new IntQueue();
+
+	/**
+	 * Variable registering the searcher of this cave-in scheduler, whose classifications are shared by all searches until the
+	 * world changes, and whose search in progress is kept between advances.
+	 */
+	private final BorderSearch.Searcher searcher;
+
+	@Override
+	public String toString() {
+		return "CaveInScheduler[scheduled=" + this.getNbScheduledCubes() + ", pending=" + this.getNbPendingCaveIns() + "]";
+	}
+
+	/**
+	 * A class of first-in first-out queues of primitive integers, in a growing circular array.
+	 */
+	private static class IntQueue {
+
+		private int[] elements = new int[16];
+
+		private int head;
+
+		private int size;
+
+		private boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		private int size() {
+			return this.size;
+		}
+
+		private void add(int element) {
+			if(this.size == this.elements.length){
+				int[] elements = new int[2*this.size];
+				for(int i = 0; i < this.size; i++)
+					elements[i] = this.elements[(this.head + i) % this.elements.length];
+				this.elements = elements;
+				this.head = 0;
+			}
+			this.elements[(this.head + this.size++) % this.elements.length] = element;
+		}
+
+		private int remove() {
+			int element = this.elements[this.head];
+			this.head = (this.head + 1) % this.elements.length;
+			this.size--;
+			return element;
+		}
+	}
+
+}
@@ -0,0 +1,353 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import be.kuleuven.cs.som.annotate.*;
+import hillbillies.util.PagedIntArray;
+
+/**
+ * A class of component maps, registering for each standing position of a world the walkable component it belongs to.
+ *
+ * @note	Two standing positions belong to the same component if and only if a unit can walk from one to the other. Every standing
+ * 			cube has a label, and labels are merged with a union-find structure, so two cubes belong to the same component if and
+ * 			only if their labels have the same root.
+ * @note	A terrain change only affects the steps within two cubes of the changed cube. New steps merge labels. When a step or
+ * 			standing position is lost, the affected standing cubes of each component are first reconnected by a search within a
+ * 			small box around the change; only if that fails, their components are labelled again by a flood fill, which is
+ * 			postponed until the next query so that a cascade of changes is handled at once.
+ */
+public class ComponentMap {
+
+	/**
+	 * Initialize this new component map for the given world.
+	 * @param world	The world of this new component map.
+	 * @post	Each standing position of the given world is labelled with its component.
+	 * @throws NullPointerException
+	 * 			The given world is not effective.
+	 */
+	public ComponentMap(World world) throws NullPointerException {
+		this.world = world;
+		this.nbX = world.getNbCubesX();
+		this.nbY = world.getNbCubesY();
+		this.nbZ = world.getNbCubesZ();
+		int size = this.nbX*this.nbY*this.nbZ;
+		this.labels = new PagedIntArray(size, NO_COMPONENT);
+		this.stamps = new PagedIntArray(size, 0);
+		this.neighbourDeltas = new int[PathFinder.ADJACENT_OFFSETS.length];
+		for(int direction = 0; direction < this.neighbourDeltas.length; direction++){
+			int[] offset = PathFinder.ADJACENT_OFFSETS[direction];
+			this.neighbourDeltas[direction] = offset[0] + this.nbX*(offset[1] + this.nbY*offset[2]);
+		}
+		PagedIntArray masks = this.getMasks();
+		this.nextStamp();
+		for(int index = masks.skipDefaultPages(0); index < size; index = masks.skipDefaultPages(index + 1))
+			if(((masks.get(index) & ReachabilityMap.STANDING) != 0) && (this.labels.get(index) == NO_COMPONENT))
+				this.flood(index, this.newLabel());
+	}
+
+	/**
+	 * Return the world of this component map.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Variable registering the world of this component map.
+	 */
+	private final World world;
+
+	/**
+	 * Variables registering the dimensions of the world of this component map.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	/**
+	 * Return the component of the cube with the given coordinates.
+	 * @param x	The x coordinate of the cube.
+	 * @param y	The y coordinate of the cube.
+	 * @param z	The z coordinate of the cube.
+	 * @return	A number identifying the component of the given cube, NO_COMPONENT if the cube is no standing position. Two standing
+	 * 			cubes have the same number if and only if a unit can walk from one to the other.
+	 * @throws ArrayIndexOutOfBoundsException
+	 * 			The given coordinates do not lie within the world of this component map.
+	 * @note	The number of a component may change when the terrain changes.
+	 */
+	public int getComponent(int x, int y, int z) throws ArrayIndexOutOfBoundsException {
+		if((x < 0) || (y < 0) || (z < 0) || (x >= this.nbX) || (y >= this.nbY) || (z >= this.nbZ))
+			throw new ArrayIndexOutOfBoundsException();
+		this.relabel();
+		int label = this.labels.get(x + this.nbX*(y + this.nbY*z));
+		return (label == NO_COMPONENT) ? NO_COMPONENT : this.find(label);
+	}
+
+	/**
+	 * Check whether a unit can walk between the cubes of the given positions.
+	 * @param position1	The first position.
+	 * @param position2	The second position.
+	 * @return	True if and only if both positions are standing positions of the same component.
+	 */
+	public boolean areConnected(PositionVector position1, PositionVector position2) {
+		int component = this.getComponent((int) position1.getXArgument(), (int) position1.getYArgument(),
+				(int) position1.getZArgument());
+		return (component != NO_COMPONENT) && (component == this.getComponent((int) position2.getXArgument(),
+				(int) position2.getYArgument(), (int) position2.getZArgument()));
+	}
+
+	/**
+	 * Return the (integer) positions of all cubes of the component of the cube of the given position.
+	 * @param position	The given position.
+	 * @return	A list with the positions of all standing positions a unit can walk to from the given position, the given position
+	 * 			included. An empty list if the given position is no standing position.
+	 * @note	The component is collected by a flood fill, so this is only cheap for small components.
+	 */
+	public List<PositionVector> getComponentPositions(PositionVector position) {
+		this.relabel();
+		List<PositionVector> positions = new ArrayList<PositionVector>();
+		int start = (int) position.getXArgument() + this.nbX*((int) position.getYArgument() + this.nbY*(int) position.getZArgument());
+		if(this.labels.get(start) == NO_COMPONENT)
+			return positions;
+		this.nextStamp();
+		PagedIntArray masks = this.getMasks();
+		int tail = this.visit(start, 0);
+		for(int head = 0; head < tail; head++){
+			int current = this.queue[head];
+			positions.add(new PositionVector(current % this.nbX, (current / this.nbX) % this.nbY, current / (this.nbX*this.nbY)));
+			for(int direction = 0; direction < this.neighbourDeltas.length; direction++)
+				if(((masks.get(current) & (1 << direction)) != 0)
+						&& (this.stamps.get(current + this.neighbourDeltas[direction]) != this.stamp))
+					tail = this.visit(current + this.neighbourDeltas[direction], tail);
+		}
+		return positions;
+	}
+
+	/**
+	 * Return the number of flood fills this component map did to label components again.
+	 */
+	@Basic
+	public long getNbRelabels() {
+		return this.nbRelabels;
+	}
+
+	/**
+	 * Variable registering the number of flood fills this component map did to label components again.
+	 */
+	private long nbRelabels;
+
+	/**
+	 * Update the components around the cube with the given coordinates after it has changed.
+	 * @param x	The x coordinate of the changed cube.
+	 * @param y	The y coordinate of the changed cube.
+	 * @param z	The z coordinate of the changed cube.
+	 * @param isLost	Whether a step or a standing position was lost by the change.
+	 * @post	The standing cubes within two cubes of the given cube are labelled, cubes that are no longer standing are not.
+	 * @post	The components of standing cubes that are connected by a new step are merged.
+	 * @post	If steps were lost, the components that might have been split are labelled again before the next query.
+	 * @note	The reachability map of the world must already be updated.
+	 */
+	public void update(int x, int y, int z, boolean isLost) {
+		PagedIntArray masks = this.getMasks();
+		int minX = Math.max(0, x - 2), maxX = Math.min(this.nbX - 1, x + 2);
+		int minY = Math.max(0, y - 2), maxY = Math.min(this.nbY - 1, y + 2);
+		int minZ = Math.max(0, z - 2), maxZ = Math.min(this.nbZ - 1, z + 2);
+		List<Integer> seeds = new ArrayList<Integer>();
+		for(int cz = minZ; cz <= maxZ; cz++)
+			for(int cy = minY; cy <= maxY; cy++)
+				for(int cx = minX; cx <= maxX; cx++){
+					int index = cx + this.nbX*(cy + this.nbY*cz);
+					if((masks.get(index) & ReachabilityMap.STANDING) == 0)
+						this.labels.set(index, NO_COMPONENT);
+					else{
+						if(this.labels.get(index) == NO_COMPONENT)
+							this.labels.set(index, this.newLabel());
+						seeds.add(index);
+					}
+				}
+		for(int index : seeds)
+			for(int direction = 0; direction < this.neighbourDeltas.length; direction++){
+				int neighbour = index + this.neighbourDeltas[direction];
+				if(((masks.get(index) & (1 << direction)) != 0) && (this.labels.get(neighbour) != NO_COMPONENT))
+					this.union(this.labels.get(index), this.labels.get(neighbour));
+			}
+		if(isLost && (! this.areLocallyConnected(seeds, x, y, z)))
+			this.pendingSeeds.addAll(seeds);
+	}
+
+	/**
+	 * Check whether the given standing cubes of each component are still connected within a small box around the given cube.
+	 */
+	@Model
+	private boolean areLocallyConnected(List<Integer> seeds, int x, int y, int z) {
+		PagedIntArray masks = this.getMasks();
+		this.nextStamp();
+		for(int seed : seeds){
+			if(this.stamps.get(seed) == this.stamp)
+				continue;
+			int label = this.find(this.labels.get(seed));
+			int tail = this.visit(seed, 0);
+			for(int head = 0; head < tail; head++){
+				int current = this.queue[head];
+				int cx = current % this.nbX, cy = (current / this.nbX) % this.nbY, cz = current / (this.nbX*this.nbY);
+				for(int direction = 0; direction < this.neighbourDeltas.length; direction++){
+					int[] offset = PathFinder.ADJACENT_OFFSETS[direction];
+					int neighbour = current + this.neighbourDeltas[direction];
+					if(((masks.get(current) & (1 << direction)) != 0) && (this.stamps.get(neighbour) != this.stamp)
+							&& (Math.abs(cx + offset[0] - x) <= LOCAL_RADIUS) && (Math.abs(cy + offset[1] - y) <= LOCAL_RADIUS)
+							&& (Math.abs(cz + offset[2] - z) <= LOCAL_RADIUS))
+						tail = this.visit(neighbour, tail);
+				}
+			}
+			for(int other : seeds)
+				if((this.stamps.get(other) != this.stamp) && (this.find(this.labels.get(other)) == label))
+					return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Constant registering the radius of the box in which lost steps are bypassed before components are labelled again.
+	 */
+	private static final int LOCAL_RADIUS = 4;
+
+	/**
+	 * Label the components of all pending seeds again.
+	 */
+	@Model
+	private void relabel() {
+		if(this.pendingSeeds.isEmpty())
+			return;
+		PagedIntArray masks = this.getMasks();
+		this.nextStamp();
+		for(int seed : this.pendingSeeds)
+			if(((masks.get(seed) & ReachabilityMap.STANDING) != 0) && (this.stamps.get(seed) != this.stamp)){
+				this.flood(seed, this.newLabel());
+				this.nbRelabels++;
+			}
+		this.pendingSeeds.clear();
+	}
+
+	/**
+	 * Variable registering the standing cubes of which the component must be labelled again.
+	 */
+	private final List<Integer> pendingSeeds = new ArrayList<Integer>();
+
+	/**
+	 * Give all cubes of the component of the cube with the given index the given label.
+	 * @note	The cubes are marked with the current stamp, the stamp is not advanced, so cubes flooded since the last advance
+	 * 			are not visited again.
+	 */
+	@Model
+	private void flood(int start, int label) {
+		PagedIntArray masks = this.getMasks();
+		int tail = this.visit(start, 0);
+		for(int head = 0; head < tail; head++){
+			int current = this.queue[head];
+			this.labels.set(current, label);
+			for(int direction = 0; direction < this.neighbourDeltas.length; direction++)
+				if(((masks.get(current) & (1 << direction)) != 0)
+						&& (this.stamps.get(current + this.neighbourDeltas[direction]) != this.stamp))
+					tail = this.visit(current + this.neighbourDeltas[direction], tail);
+		}
+	}
+
+	/**
+	 * Mark the cube with the given index as visited and append it to the queue at the given position.
+	 * @return	The new length of the queue.
+	 */
+	@Model
+	private int visit(int index, int tail) {
+		if(tail == this.queue.length)
+			this.queue = Arrays.copyOf(this.queue, 2*this.queue.length);
+		this.stamps.set(index, this.stamp);
+		this.queue[tail] = index;
+		return tail + 1;
+	}
+
+	/**
+	 * Start a new round of visits.
+	 */
+	@Model
+	private void nextStamp() {
+		if(this.stamp == Integer.MAX_VALUE){
+			this.stamps.clear();
+			this.stamp = 0;
+		}
+		this.stamp++;
+	}
+
+	/**
+	 * Variables registering the visits of the searches of this component map.
+	 */
+	private final PagedIntArray stamps;
+	private int stamp;
+	private int[] queue = new int[64];
+
+	/**
+	 * Return the masks of the reachability map of the world of this component map.
+	 */
+	@Model
+	private PagedIntArray getMasks() {
+		return this.getWorld().getReachabilityMap().getMasks();
+	}
+
+	/**
+	 * Variable registering the index differences between a cube and its neighbours, per direction.
+	 */
+	private final int[] neighbourDeltas;
+
+	/**
+	 * Variable registering the label of each cube, NO_COMPONENT for cubes that are no standing position.
+	 */
+	private final PagedIntArray labels;
+
+	/**
+	 * Constant registering the component of cubes that are no standing position.
+	 */
+	public static final int NO_COMPONENT = -1;
+
+	/**
+	 * Return a new label, that is the root of its own set.
+	 */
+	@Model
+	private int newLabel() {
+		if(this.nbLabels == this.parents.length)
+			this.parents = Arrays.copyOf(this.parents, 2*this.parents.length);
+		this.parents[this.nbLabels] = this.nbLabels;
+		return this.nbLabels++;
+	}
+
+	/**
+	 * Return the root of the set of the given label.
+	 */
+	@Model
+	private int find(int label) {
+		while(this.parents[label] != label){
+			this.parents[label] = this.parents[this.parents[label]];
+			label = this.parents[label];
+		}
+		return label;
+	}
+
+	/**
+	 * Merge the sets of the given labels.
+	 */
+	@Model
+	private void union(int label1, int label2) {
+		int root1 = this.find(label1);
+		int root2 = this.find(label2);
+		if(root1 != root2)
+			this.parents[Math.max(root1, root2)] = Math.min(root1, root2);
+	}
+
+	/**
+	 * Variables registering the parent of each label in the union-find structure and the number of labels in use.
+	 */
+	private int[] parents = new int[16];
+	private int nbLabels;
+
+}
@@ -0,0 +1,179 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A class of cube contents, registering the units, boulders and logs in a single cube of a world, each in a bucket of its own.
+ *
+ * @invar	Each bucket of each cube content is either not effective or not empty.
+ *
+ * @note	A world only keeps cube contents for the cubes that hold at least one object, so empty cubes take no memory. The
+ * 			buckets are small lists that are only created for the kinds of objects the cube actually holds; checking whether a
+ * 			cube contains a boulder or a log does not iterate over its objects.
+ */
+class CubeContent {
+
+	/**
+	 * Initialize this new cube content as an empty cube content.
+	 */
+	CubeContent() {
+	}
+
+	/**
+	 * Add the given object to this cube content.
+	 * @param object	The given object.
+	 * @post	This cube content contains the given object.
+	 * @throws	NullPointerException
+	 * 			The given object is not effective.
+	 */
+	void add(GameObject object) throws NullPointerException {
+		if(object instanceof Unit){
+			if(this.units == null)
+				this.units = new ArrayList<Unit>(1);
+			if(! this.units.contains(object))
+				this.units.add((Unit) object);
+		}
+		else if(object instanceof Boulder){
+			if(this.boulders == null)
+				this.boulders = new ArrayList<Boulder>(1);
+			if(! this.boulders.contains(object))
+				this.boulders.add((Boulder) object);
+		}
+		else if(object instanceof Log){
+			if(this.logs == null)
+				this.logs = new ArrayList<Log>(1);
+			if(! this.logs.contains(object))
+				this.logs.add((Log) object);
+		}
+		else if(object == null)
+			throw new NullPointerException();
+	}
+
+	/**
+	 * Remove the given object from this cube content.
+	 * @param object	The given object.
+	 * @return	True if and only if this cube content contained the given object.
+	 * @post	This cube content does not contain the given object.
+	 */
+	boolean remove(GameObject object) {
+		boolean isRemoved = false;
+		if((object instanceof Unit) && (this.units != null)){
+			isRemoved = this.units.remove(object);
+			if(this.units.isEmpty())
+				this.units = null;
+		}
+		else if((object instanceof Boulder) && (this.boulders != null)){
+			isRemoved = this.boulders.remove(object);
+			if(this.boulders.isEmpty())
+				this.boulders = null;
+		}
+		else if((object instanceof Log) && (this.logs != null)){
+			isRemoved = this.logs.remove(object);
+			if(this.logs.isEmpty())
+				this.logs = null;
+		}
+		return isRemoved;
+	}
+
+	/**
+	 * Check whether this cube content contains the given object.
+	 * @param object	The given object.
+	 */
+	boolean contains(GameObject object) {
+		if(object instanceof Unit)
+			return (this.units != null) && this.units.contains(object);
+		if(object instanceof Boulder)
+			return (this.boulders != null) && this.boulders.contains(object);
+		if(object instanceof Log)
+			return (this.logs != null) && this.logs.contains(object);
+		return false;
+	}
+
+	/**
+	 * Check whether this cube content is empty.
+	 */
+	boolean isEmpty() {
+		return (this.units == null) && (this.boulders == null) && (this.logs == null);
+	}
+
+	/**
+	 * Return the number of objects in this cube content.
+	 */
+	int getNbObjects() {
+		return ((this.units == null) ? 0 : this.units.size()) + ((this.boulders == null) ? 0 : this.boulders.size())
+				+ ((this.logs == null) ? 0 : this.logs.size());
+	}
+
+	/**
+	 * Check whether this cube content contains a boulder.
+	 */
+	boolean containsBoulder() {
+		return this.boulders != null;
+	}
+
+	/**
+	 * Check whether this cube content contains a log.
+	 */
+	boolean containsLog() {
+		return this.logs != null;
+	}
+
+	/**
+	 * Return a boulder of this cube content.
+	 * @return	A boulder of this cube content, or null if it contains no boulder.
+	 */
+	Boulder getABoulder() {
+		return (this.boulders == null) ? null : this.boulders.get(0);
+	}
+
+	/**
+	 * Return a log of this cube content.
+	 * @return	A log of this cube content, or null if it contains no log.
+	 */
+	Log getALog() {
+		return (this.logs == null) ? null : this.logs.get(0);
+	}
+
+	/**
+	 * Return the units of this cube content.
+	 * @return	An unmodifiable list of the units of this cube content.
+	 */
+	List<Unit> getUnits() {
+		if(this.units == null)
+			return Collections.emptyList();
+		return Collections.unmodifiableList(this.units);
+	}
+
+	/**
+	 * Return a new set with all objects of this cube content.
+	 */
+	HashSet<GameObject> toSet() {
+		HashSet<GameObject> set = new HashSet<GameObject>();
+		if(this.units != null)
+			set.addAll(this.units);
+		if(this.boulders != null)
+			set.addAll(this.boulders);
+		if(this.logs != null)
+			set.addAll(this.logs);
+		return set;
+	}
+
+	/**
+	 * Variable registering the units of this cube content, if any.
+	 */
+	private List<Unit> units;
+
+	/**
+	 * Variable registering the boulders of this cube content, if any.
+	 */
+	private List<Boulder> boulders;
+
+	/**
+	 * Variable registering the logs of this cube content, if any.
+	 */
+	private List<Log> logs;
+
+}
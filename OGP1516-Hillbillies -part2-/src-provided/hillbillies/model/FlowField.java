@@ -0,0 +1,175 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of flow fields, registering for the cubes of a world the next step on a shortest walkable path to a common destination.
+ *
+ * @invar	The number of users of each flow field is not negative.
+ * 			| getNbUsers() >= 0
+ * @note	A flow field is computed by a single search that starts in its destination, so all units that move to the same
+ * 			destination can share it instead of each searching their own path. The world of a flow field counts the units that use
+ * 			it and drops it when the last of them releases it or when the terrain changes, after which it is no longer valid.
+ */
+public class FlowField {
+
+	/**
+	 * Initialize this new flow field for the given destination and start positions.
+	 * @param world	The world of this new flow field.
+	 * @param destination	The destination of this new flow field.
+	 * @param startPositions	The start positions that must be covered by this new flow field.
+	 * @post	The destination of this new flow field is the cube position of the given destination.
+	 * @post	This new flow field is valid and has no users.
+	 * @effect	The directions of this new flow field are computed by the path finder of the given world.
+	 * 			| world.getPathFinder().computeFlowField(destination, startPositions)
+	 * @throws IllegalArgumentException
+	 * 			The given destination is not a valid standing position in the given world.
+	 * @throws NullPointerException
+	 * 			The given world, destination or start positions are not effective.
+	 */
+	public FlowField(World world, PositionVector destination, Collection<PositionVector> startPositions)
+			throws IllegalArgumentException, NullPointerException {
+		this.destination = PositionVector.getIntegerPositionVector(destination);
+		this.pathFinder = world.getPathFinder();
+		this.directions = this.pathFinder.computeFlowField(this.destination, startPositions);
+		this.valid = true;
+	}
+
+	/**
+	 * Return the (integer) position of the destination cube of this flow field.
+	 */
+	@Basic @Immutable
+	public PositionVector getDestination() {
+		return this.destination;
+	}
+
+	/**
+	 * Variable registering the (integer) position of the destination cube of this flow field.
+	 */
+	private final PositionVector destination;
+
+	/**
+	 * Variable registering the path finder of the world of this flow field.
+	 */
+	private final PathFinder pathFinder;
+
+	/**
+	 * Variable registering for each cube index the index of the direction in the adjacent offsets of the next step.
+	 */
+	private final byte[] directions;
+
+	/**
+	 * Constant registering the direction of a cube that was not reached.
+	 */
+	static final byte NO_DIRECTION = -1;
+
+	/**
+	 * Constant registering the direction of the destination cube.
+	 */
+	static final byte AT_DESTINATION = (byte) PathFinder.ADJACENT_OFFSETS.length;
+
+	/**
+	 * Check whether this flow field is still valid.
+	 * @note	A flow field is no longer valid after the terrain of its world has changed.
+	 */
+	@Basic
+	public boolean isValid() {
+		return this.valid;
+	}
+
+	/**
+	 * Mark this flow field as no longer valid.
+	 * @post	This flow field is no longer valid.
+	 * 			| ! new.isValid()
+	 */
+	void invalidate() {
+		this.valid = false;
+	}
+
+	/**
+	 * Variable registering whether this flow field is still valid.
+	 */
+	private boolean valid;
+
+	/**
+	 * Return the number of units that use this flow field.
+	 */
+	@Basic
+	public int getNbUsers() {
+		return this.nbUsers;
+	}
+
+	/**
+	 * Register a new user of this flow field.
+	 * @post	The number of users of this flow field is increased by one.
+	 * 			| new.getNbUsers() == this.getNbUsers() + 1
+	 */
+	void addUser() {
+		this.nbUsers++;
+	}
+
+	/**
+	 * Remove a user of this flow field.
+	 * @post	The number of users of this flow field is decreased by one, if it had any.
+	 * 			| new.getNbUsers() == Math.max(0, this.getNbUsers() - 1)
+	 */
+	void removeUser() {
+		if(this.nbUsers > 0)
+			this.nbUsers--;
+	}
+
+	/**
+	 * Variable registering the number of units that use this flow field.
+	 */
+	private int nbUsers;
+
+	/**
+	 * Check whether this flow field covers the cube of the given position.
+	 * @param position	The position to check.
+	 * @return	True if and only if the given position lies within the world of this flow field and the next step from its cube to
+	 * 			the destination is registered.
+	 */
+	public boolean covers(PositionVector position) {
+		int x = (int) position.getXArgument();
+		int y = (int) position.getYArgument();
+		int z = (int) position.getZArgument();
+		if((x < 0) || (y < 0) || (z < 0) || (x >= this.pathFinder.getWorld().getNbCubesX())
+				|| (y >= this.pathFinder.getWorld().getNbCubesY()) || (z >= this.pathFinder.getWorld().getNbCubesZ()))
+			return false;
+		return (this.directions[this.pathFinder.getIndex(x, y, z)] != NO_DIRECTION);
+	}
+
+	/**
+	 * Return the path from the cube of the given start position to the destination of this flow field.
+	 * @param startPosition	The given start position.
+	 * @return	A list of the (integer) positions of the cubes that are passed by following the next steps of this flow field from the
+	 * 			cube of the given start position, start and destination included.
+	 * @throws IllegalArgumentException
+	 * 			This flow field does not cover the given start position.
+	 * 			| ! covers(startPosition)
+	 */
+	public List<PositionVector> getPath(PositionVector startPosition) throws IllegalArgumentException {
+		if(! this.covers(startPosition))
+			throw new IllegalArgumentException("The flow field does not cover this position!");
+		List<PositionVector> path = new ArrayList<PositionVector>();
+		int x = (int) startPosition.getXArgument();
+		int y = (int) startPosition.getYArgument();
+		int z = (int) startPosition.getZArgument();
+		int index = this.pathFinder.getIndex(x, y, z);
+		path.add(new PositionVector(x, y, z));
+		while(this.directions[index] != AT_DESTINATION){
+			int[] offset = PathFinder.ADJACENT_OFFSETS[this.directions[index]];
+			x += offset[0];
+			y += offset[1];
+			z += offset[2];
+			index = this.pathFinder.getIndex(x, y, z);
+			path.add(new PositionVector(x, y, z));
+		}
+		return path;
+	}
+
+}
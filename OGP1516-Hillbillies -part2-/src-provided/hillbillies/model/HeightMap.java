@@ -0,0 +1,115 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of height maps, registering a set of cubes of a world per column, so that the highest registered cube of a column
+ * at or below a given height can be found without walking down the column.
+ *
+ * @note	Each column (x, y) keeps one bit per z coordinate, in consecutive words of 64 bits. Finding the highest registered cube
+ * 			at or below a given height looks at one word per 64 cubes of the column, so in worlds of at most 64 cubes high it is
+ * 			a single word lookup. Registering or unregistering a cube takes constant time and does not allocate.
+ */
+public class HeightMap {
+
+	/**
+	 * Initialize this new height map for a world of the given dimensions.
+	 * @param nbX	The number of cubes of the world in the x direction.
+	 * @param nbY	The number of cubes of the world in the y direction.
+	 * @param nbZ	The number of cubes of the world in the z direction.
+	 * @post	No cube is registered in this new height map.
+	 */
+	public HeightMap(int nbX, int nbY, int nbZ) {
+		this.nbX = nbX;
+		this.nbZ = nbZ;
+		this.nbWords = (nbZ + 63) >>> 6;
+		this.bits = new long[nbX*nbY*this.nbWords];
+	}
+
+	/**
+	 * Variables registering the dimensions of the world of this height map.
+	 */
+	private final int nbX;
+	private final int nbZ;
+
+	/**
+	 * Register or unregister the cube with the given coordinates.
+	 * @param x	The x coordinate of the cube.
+	 * @param y	The y coordinate of the cube.
+	 * @param z	The z coordinate of the cube.
+	 * @param isRegistered	Whether the cube must be registered.
+	 * @post	The cube is registered if and only if the given flag is true.
+	 * 			| new.contains(x, y, z) == isRegistered
+	 */
+	public void set(int x, int y, int z, boolean isRegistered) {
+		int word = this.getColumnStart(x, y) + (z >>> 6);
+		if(isRegistered)
+			this.bits[word] |= (1L << z);
+		else
+			this.bits[word] &= ~(1L << z);
+	}
+
+	/**
+	 * Check whether the cube with the given coordinates is registered in this height map.
+	 */
+	public boolean contains(int x, int y, int z) {
+		return ((this.bits[this.getColumnStart(x, y) + (z >>> 6)] >>> z) & 1L) != 0;
+	}
+
+	/**
+	 * Return the z coordinate of the highest registered cube of the given column.
+	 * @param x	The x coordinate of the column.
+	 * @param y	The y coordinate of the column.
+	 * @return	The z coordinate of the highest registered cube of the given column, or -1 if no cube of it is registered.
+	 * 			| result == this.getHighestAtOrBelow(x, y, nbZ-1)
+	 */
+	public int getHighest(int x, int y) {
+		return this.getHighestAtOrBelow(x, y, this.nbZ-1);
+	}
+
+	/**
+	 * Return the z coordinate of the highest registered cube of the given column at or below the given height.
+	 * @param x	The x coordinate of the column.
+	 * @param y	The y coordinate of the column.
+	 * @param z	The given height. Heights above the world are treated as the top of the world.
+	 * @return	The highest z coordinate at most the given height of which the cube in the given column is registered, or -1 if
+	 * 			there is no such cube.
+	 * 			| if (result != -1)
+	 * 			| 	then (result <= z) && this.contains(x, y, result) &&
+	 * 			|		(for each i in result+1..z: ! this.contains(x, y, i))
+	 */
+	public int getHighestAtOrBelow(int x, int y, int z) {
+		if(z < 0)
+			return -1;
+		if(z >= this.nbZ)
+			z = this.nbZ-1;
+		int start = this.getColumnStart(x, y);
+		int word = z >>> 6;
+		long bits = this.bits[start + word] & (-1L >>> (63 - (z & 63)));
+		while(bits == 0){
+			if(--word < 0)
+				return -1;
+			bits = this.bits[start + word];
+		}
+		return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+	}
+
+	/**
+	 * Return the index of the first word of the given column.
+	 */
+	@Model
+	private int getColumnStart(int x, int y) {
+		return (x + this.nbX*y)*this.nbWords;
+	}
+
+	/**
+	 * Variable registering the number of words of each column.
+	 */
+	private final int nbWords;
+
+	/**
+	 * Variable registering the registered cubes, one bit per cube, column by column.
+	 */
+	private final long[] bits;
+
+}
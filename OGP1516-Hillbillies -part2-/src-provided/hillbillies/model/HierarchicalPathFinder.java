@@ -0,0 +1,452 @@
+package hillbillies.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import be.kuleuven.cs.som.annotate.*;
+import hillbillies.util.PagedIntArray;
+
+/**
+ * A class of hierarchical path finders, planning long paths in a world on an abstract graph of clusters of cubes.
+ *
+ * @invar	The cluster size of each hierarchical path finder is strictly positive.
+ * 			| getClusterSize() > 0
+ * @note	The world is cut into cubic clusters of a fixed size. The standing positions inside a cluster are divided into regions,
+ * 			such that two standing positions belong to the same region if and only if a unit can walk from one to the other without
+ * 			leaving the cluster. Regions are the nodes of the abstract graph, two regions are connected if a unit can step from one to
+ * 			the other across a cluster border. A long path is planned on that graph first and is then refined by the path finder of
+ * 			the world, which may only pass the clusters on the abstract path.
+ * @note	A terrain change only marks the clusters within two cubes of the changed cube as changed. The regions of those clusters
+ * 			and their connections are recomputed before the next path is planned, the rest of the abstract graph is kept.
+ */
+public class HierarchicalPathFinder {
+
+	/**
+	 * Initialize this new hierarchical path finder for the given world.
+	 * @param world	The world in which this new hierarchical path finder plans paths.
+	 * @param clusterSize	The length of the side of the clusters of this new hierarchical path finder.
+	 * @post	The world of this new hierarchical path finder is the given world.
+	 * @post	The cluster size of this new hierarchical path finder is the given cluster size.
+	 * @post	Every cluster of this new hierarchical path finder is marked as changed.
+	 * @throws NullPointerException
+	 * 			The given world is not effective.
+	 * @throws IllegalArgumentException
+	 * 			The given cluster size is not strictly positive.
+	 */
+	public HierarchicalPathFinder(World world, int clusterSize) throws NullPointerException, IllegalArgumentException {
+		if(world == null)
+			throw new NullPointerException();
+		if(clusterSize <= 0)
+			throw new IllegalArgumentException("The cluster size must be strictly positive!");
+		this.world = world;
+		this.clusterSize = clusterSize;
+		this.nbX = world.getNbCubesX();
+		this.nbY = world.getNbCubesY();
+		this.nbZ = world.getNbCubesZ();
+		this.nbClustersX = (this.nbX + clusterSize - 1) / clusterSize;
+		this.nbClustersY = (this.nbY + clusterSize - 1) / clusterSize;
+		this.nbClustersZ = (this.nbZ + clusterSize - 1) / clusterSize;
+		int nbClusters = this.nbClustersX*this.nbClustersY*this.nbClustersZ;
+		this.clusterRegions = new int[nbClusters][];
+		this.changedClusters = new boolean[nbClusters];
+		for(int cluster = 0; cluster < nbClusters; cluster++)
+			this.markChanged(cluster);
+	}
+
+	/**
+	 * Return the world of this hierarchical path finder.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Variable registering the world of this hierarchical path finder.
+	 */
+	private final World world;
+
+	/**
+	 * Return the length of the side of the clusters of this hierarchical path finder.
+	 */
+	@Basic @Immutable
+	public int getClusterSize() {
+		return this.clusterSize;
+	}
+
+	/**
+	 * Variable registering the length of the side of the clusters of this hierarchical path finder.
+	 */
+	private final int clusterSize;
+
+	/**
+	 * Variables registering the dimensions of the world of this hierarchical path finder.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	/**
+	 * Variables registering the number of clusters along each axis.
+	 */
+	private final int nbClustersX;
+	private final int nbClustersY;
+	private final int nbClustersZ;
+
+	/**
+	 * Return the number of regions in the abstract graph of this hierarchical path finder.
+	 * @note	Changed clusters are not taken into account until the next path is planned.
+	 */
+	public int getNbRegions() {
+		return this.regions.size() - this.freeRegionIds.size();
+	}
+
+	/**
+	 * Return the number of times a cluster of this hierarchical path finder was (re)computed.
+	 */
+	@Basic
+	public long getNbClusterUpdates() {
+		return this.nbClusterUpdates;
+	}
+
+	/**
+	 * Variable registering the number of times a cluster of this hierarchical path finder was (re)computed.
+	 */
+	private long nbClusterUpdates;
+
+	/**
+	 * Return the shortest walkable path from a given start position to a given destination, as planned on the abstract graph.
+	 * @param startPosition	The given start position.
+	 * @param destination	The given destination.
+	 * @return	A list of the (integer) positions of the cubes on a walkable path from the cube of the given start position to the
+	 * 			cube of the given destination, start and destination included, that only passes the clusters of the regions on the
+	 * 			shortest abstract path. An empty list if there is no walkable path between both cubes.
+	 * @effect	The changed clusters of this hierarchical path finder are updated.
+	 * @throws IllegalArgumentException
+	 * 			The given positions are not valid standing positions in the world of this hierarchical path finder.
+	 */
+	public List<PositionVector> findPath(PositionVector startPosition, PositionVector destination) throws IllegalArgumentException {
+		if((! this.getWorld().isValidStandingPosition(startPosition)) || (! this.getWorld().isValidStandingPosition(destination)))
+			throw new IllegalArgumentException();
+		this.update();
+		PathFinder pathFinder = this.getWorld().getPathFinder();
+		int startRegion = this.regionIds.get(pathFinder.getIndex((int) startPosition.getXArgument(),
+				(int) startPosition.getYArgument(), (int) startPosition.getZArgument()));
+		int goalRegion = this.regionIds.get(pathFinder.getIndex((int) destination.getXArgument(),
+				(int) destination.getYArgument(), (int) destination.getZArgument()));
+		boolean[] corridor = this.searchCorridor(startRegion, goalRegion);
+		if(corridor == null)
+			return new ArrayList<PositionVector>();
+		List<PositionVector> path = pathFinder.findPath(startPosition, destination, corridor, this.getClusterSize());
+		if(path.isEmpty())
+			path = pathFinder.findPath(startPosition, destination);
+		return path;
+	}
+
+	/**
+	 * Mark the clusters affected by a change of the cube at the given position as changed.
+	 * @param x	The x coordinate of the changed cube.
+	 * @param y	The y coordinate of the changed cube.
+	 * @param z	The z coordinate of the changed cube.
+	 * @effect	Every cluster that contains a cube within two cubes of the given cube is marked as changed.
+	 * @note	Whether a unit can step between two cubes only depends on the cubes adjacent to its target and the cubes in between,
+	 * 			so only steps that start within two cubes of the changed cube can be affected.
+	 */
+	public void markChanged(int x, int y, int z) {
+		int minX = Math.max(0, x - 2) / this.getClusterSize(), maxX = Math.min(this.nbX - 1, x + 2) / this.getClusterSize();
+		int minY = Math.max(0, y - 2) / this.getClusterSize(), maxY = Math.min(this.nbY - 1, y + 2) / this.getClusterSize();
+		int minZ = Math.max(0, z - 2) / this.getClusterSize(), maxZ = Math.min(this.nbZ - 1, z + 2) / this.getClusterSize();
+		for(int cz = minZ; cz <= maxZ; cz++)
+			for(int cy = minY; cy <= maxY; cy++)
+				for(int cx = minX; cx <= maxX; cx++)
+					this.markChanged(cx + this.nbClustersX*(cy + this.nbClustersY*cz));
+	}
+
+	/**
+	 * Mark the cluster with the given index as changed.
+	 */
+	@Model
+	private void markChanged(int cluster) {
+		if(! this.changedClusters[cluster]){
+			this.changedClusters[cluster] = true;
+			this.changedClusterList.add(cluster);
+		}
+	}
+
+	/**
+	 * Variables registering which clusters of this hierarchical path finder have changed since the last update.
+	 */
+	private final boolean[] changedClusters;
+	private final List<Integer> changedClusterList = new ArrayList<Integer>();
+
+	/**
+	 * Recompute the regions and connections of all changed clusters of this hierarchical path finder.
+	 * @post	No cluster of this hierarchical path finder is marked as changed.
+	 */
+	@Model
+	private void update() {
+		if(this.changedClusterList.isEmpty())
+			return;
+		if(this.regionIds == null)
+			this.regionIds = new PagedIntArray(this.nbX*this.nbY*this.nbZ, NO_REGION);
+		for(int cluster : this.changedClusterList)
+			this.removeRegions(cluster);
+		for(int cluster : this.changedClusterList)
+			this.labelRegions(cluster);
+		for(int cluster : this.changedClusterList){
+			this.connectRegions(cluster);
+			this.changedClusters[cluster] = false;
+		}
+		this.nbClusterUpdates += this.changedClusterList.size();
+		this.changedClusterList.clear();
+	}
+
+	/**
+	 * Remove the regions of the cluster with the given index from the abstract graph.
+	 */
+	@Model
+	private void removeRegions(int cluster) {
+		int[] ids = this.clusterRegions[cluster];
+		if(ids == null)
+			return;
+		for(int id : ids){
+			for(int neighbour : this.regions.get(id).neighbours)
+				this.regions.get(neighbour).neighbours.remove(id);
+			this.regions.set(id, null);
+			this.freeRegionIds.push(id);
+		}
+		this.clusterRegions[cluster] = null;
+	}
+
+	/**
+	 * Divide the standing positions of the cluster with the given index into regions.
+	 */
+	@Model
+	private void labelRegions(int cluster) {
+		PathFinder pathFinder = this.getWorld().getPathFinder();
+		int[] bounds = this.getBounds(cluster);
+		for(int z = bounds[2]; z < bounds[5]; z++)
+			for(int y = bounds[1]; y < bounds[4]; y++)
+				for(int x = bounds[0]; x < bounds[3]; x++)
+					this.regionIds.set(pathFinder.getIndex(x, y, z), NO_REGION);
+		if(this.queue == null)
+			this.queue = new int[this.getClusterSize()*this.getClusterSize()*this.getClusterSize()];
+		List<Integer> ids = new ArrayList<Integer>();
+		for(int z = bounds[2]; z < bounds[5]; z++)
+			for(int y = bounds[1]; y < bounds[4]; y++)
+				for(int x = bounds[0]; x < bounds[3]; x++){
+					int index = pathFinder.getIndex(x, y, z);
+					if((this.regionIds.get(index) != NO_REGION) || (! pathFinder.isStandingCube(index)))
+						continue;
+					int id = this.newRegionId();
+					ids.add(id);
+					this.regionIds.set(index, id);
+					this.queue[0] = index;
+					int head = 0, tail = 1;
+					double sumX = 0, sumY = 0, sumZ = 0;
+					while(head < tail){
+						int current = this.queue[head++];
+						sumX += current % this.nbX;
+						sumY += (current / this.nbX) % this.nbY;
+						sumZ += current / (this.nbX*this.nbY);
+						for(int direction = 0; direction < PathFinder.ADJACENT_OFFSETS.length; direction++){
+							if(! pathFinder.canStep(current, direction))
+								continue;
+							int neighbour = pathFinder.getNeighbour(current, direction);
+							if((this.regionIds.get(neighbour) == NO_REGION) && (this.getCluster(neighbour) == cluster)){
+								this.regionIds.set(neighbour, id);
+								this.queue[tail++] = neighbour;
+							}
+						}
+					}
+					this.regions.set(id, new Region(sumX/tail, sumY/tail, sumZ/tail));
+				}
+		int[] clusterIds = new int[ids.size()];
+		for(int i = 0; i < clusterIds.length; i++)
+			clusterIds[i] = ids.get(i);
+		this.clusterRegions[cluster] = clusterIds;
+	}
+
+	/**
+	 * Connect the regions of the cluster with the given index to the regions of the adjacent clusters a unit can step to.
+	 * @note	Steps are symmetric between standing positions, so connections only have to be computed from one side.
+	 */
+	@Model
+	private void connectRegions(int cluster) {
+		PathFinder pathFinder = this.getWorld().getPathFinder();
+		int[] bounds = this.getBounds(cluster);
+		for(int z = bounds[2]; z < bounds[5]; z++)
+			for(int y = bounds[1]; y < bounds[4]; y++)
+				for(int x = bounds[0]; x < bounds[3]; x++){
+					if((x != bounds[0]) && (y != bounds[1]) && (z != bounds[2]) && (x != bounds[3] - 1) && (y != bounds[4] - 1)
+							&& (z != bounds[5] - 1))
+						continue;
+					int index = pathFinder.getIndex(x, y, z);
+					int id = this.regionIds.get(index);
+					if(id == NO_REGION)
+						continue;
+					for(int direction = 0; direction < PathFinder.ADJACENT_OFFSETS.length; direction++){
+						if(! pathFinder.canStep(index, direction))
+							continue;
+						int neighbour = pathFinder.getNeighbour(index, direction);
+						if(this.getCluster(neighbour) != cluster){
+							int neighbourId = this.regionIds.get(neighbour);
+							this.regions.get(id).neighbours.add(neighbourId);
+							this.regions.get(neighbourId).neighbours.add(id);
+						}
+					}
+				}
+	}
+
+	/**
+	 * Return the clusters on the shortest abstract path between the given regions.
+	 * @param startRegion	The id of the start region.
+	 * @param goalRegion	The id of the goal region.
+	 * @return	For each cluster whether it contains a region on the shortest abstract path from the start region to the goal region,
+	 * 			null if there is no such path.
+	 */
+	@Model
+	private boolean[] searchCorridor(int startRegion, int goalRegion) {
+		int nbIds = this.regions.size();
+		double[] costs = new double[nbIds];
+		int[] parents = new int[nbIds];
+		Arrays.fill(costs, Double.POSITIVE_INFINITY);
+		Region goal = this.regions.get(goalRegion);
+		PriorityQueue<double[]> open = new PriorityQueue<double[]>(16, (a, b) -> Double.compare(a[0], b[0]));
+		costs[startRegion] = 0.0;
+		parents[startRegion] = startRegion;
+		open.add(new double[] {this.regions.get(startRegion).distanceTo(goal), startRegion});
+		while(! open.isEmpty()){
+			double[] entry = open.poll();
+			int current = (int) entry[1];
+			if(current == goalRegion){
+				boolean[] corridor = new boolean[this.clusterRegions.length];
+				for(int id = goalRegion; ; id = parents[id]){
+					corridor[this.regions.get(id).cluster] = true;
+					if(id == startRegion)
+						return corridor;
+				}
+			}
+			Region region = this.regions.get(current);
+			if(entry[0] > costs[current] + region.distanceTo(goal))
+				continue;
+			for(int neighbour : region.neighbours){
+				Region next = this.regions.get(neighbour);
+				double cost = costs[current] + region.distanceTo(next);
+				if(cost < costs[neighbour]){
+					costs[neighbour] = cost;
+					parents[neighbour] = current;
+					open.add(new double[] {cost + next.distanceTo(goal), neighbour});
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return the bounds of the cluster with the given index, as its lowest coordinates followed by its exclusive highest ones.
+	 */
+	@Model
+	private int[] getBounds(int cluster) {
+		int cx = cluster % this.nbClustersX;
+		int cy = (cluster / this.nbClustersX) % this.nbClustersY;
+		int cz = cluster / (this.nbClustersX*this.nbClustersY);
+		int size = this.getClusterSize();
+		return new int[] {cx*size, cy*size, cz*size, Math.min(this.nbX, (cx + 1)*size), Math.min(this.nbY, (cy + 1)*size),
+				Math.min(this.nbZ, (cz + 1)*size)};
+	}
+
+	/**
+	 * Return the index of the cluster containing the cube with the given index.
+	 */
+	@Model
+	private int getCluster(int index) {
+		int x = index % this.nbX;
+		int y = (index / this.nbX) % this.nbY;
+		int z = index / (this.nbX*this.nbY);
+		return (x / this.getClusterSize()) + this.nbClustersX*((y / this.getClusterSize())
+				+ this.nbClustersY*(z / this.getClusterSize()));
+	}
+
+	/**
+	 * Return a new region id, reusing the id of a removed region if possible.
+	 */
+	@Model
+	private int newRegionId() {
+		if(! this.freeRegionIds.isEmpty())
+			return this.freeRegionIds.pop();
+		this.regions.add(null);
+		return this.regions.size() - 1;
+	}
+
+	/**
+	 * Variable registering the region id of each cube, NO_REGION for cubes that are no standing position.
+	 */
+	private PagedIntArray regionIds;
+
+	/**
+	 * Constant registering the region id of cubes that are no standing position.
+	 */
+	private static final int NO_REGION = -1;
+
+	/**
+	 * Variable registering the ids of the regions of each cluster.
+	 */
+	private final int[][] clusterRegions;
+
+	/**
+	 * Variable registering the regions of this hierarchical path finder by id, null for unused ids.
+	 */
+	private final List<Region> regions = new ArrayList<Region>();
+
+	/**
+	 * Variable registering the ids of removed regions.
+	 */
+	private final Deque<Integer> freeRegionIds = new ArrayDeque<Integer>();
+
+	/**
+	 * Variable registering the queue used while dividing a cluster into regions.
+	 */
+	private int[] queue;
+
+	/**
+	 * A class of regions, registering their centre and the ids of the regions they are connected to.
+	 */
+	private class Region {
+
+		private Region(double x, double y, double z) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.cluster = HierarchicalPathFinder.this.getCluster(HierarchicalPathFinder.this.getWorld().getPathFinder()
+					.getIndex((int) x, (int) y, (int) z));
+		}
+
+		private final double x;
+
+		private final double y;
+
+		private final double z;
+
+		private final int cluster;
+
+		private final Set<Integer> neighbours = new HashSet<Integer>();
+
+		/**
+		 * Return the distance between the centres of this region and the given region.
+		 */
+		private double distanceTo(Region other) {
+			double dx = this.x - other.x;
+			double dy = this.y - other.y;
+			double dz = this.z - other.z;
+			return Math.sqrt(dx*dx + dy*dy + dz*dz);
+		}
+	}
+
+}
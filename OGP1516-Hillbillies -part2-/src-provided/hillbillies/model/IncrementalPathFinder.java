@@ -0,0 +1,452 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of incremental path finders, determining the shortest walkable paths from a moving start to a fixed destination of a
+ * world and repairing them after the terrain of that world has changed.
+ *
+ * @note	The search is a D* Lite search. It runs backwards from the destination and keeps for every cube it has visited the cost
+ * 			of the shortest path to the destination (g) and a one-step lookahead of that cost (rhs). When cubes of the world
+ * 			change, only the cubes of which the steps may have changed are updated and the search only continues as far as these
+ * 			changes affect the path from the current start, instead of searching the whole path again.
+ * @note	Steps, step costs and the estimate of the remaining cost are the same as those of the path finder of the world.
+ */
+public class IncrementalPathFinder {
+
+	/**
+	 * Initialize this new incremental path finder for the given destination in the given world.
+	 * @param world	The world of this new incremental path finder.
+	 * @param destination	The destination of this new incremental path finder.
+	 * @post	The world of this new incremental path finder is the given world.
+	 * @post	The destination of this new incremental path finder is the cube position of the given destination.
+	 * @throws IllegalArgumentException
+	 * 			The given destination is not a valid standing position in the given world.
+	 * @throws NullPointerException
+	 * 			The given world or destination is not effective.
+	 */
+	public IncrementalPathFinder(World world, PositionVector destination) throws IllegalArgumentException, NullPointerException {
+		if(! world.isValidStandingPosition(destination))
+			throw new IllegalArgumentException("The destination is not a valid standing position!");
+		this.world = world;
+		this.pathFinder = world.getPathFinder();
+		this.destination = PositionVector.getIntegerPositionVector(destination);
+		this.goal = this.getIndex(this.destination);
+		this.getNode(this.goal).rhs = 0;
+		this.insert(this.goal);
+	}
+
+	/**
+	 * Return the world of this incremental path finder.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Variable registering the world of this incremental path finder.
+	 */
+	private final World world;
+
+	/**
+	 * Variable registering the path finder of the world of this incremental path finder.
+	 */
+	private final PathFinder pathFinder;
+
+	/**
+	 * Return the (integer) position of the destination of this incremental path finder.
+	 */
+	@Basic @Immutable
+	public PositionVector getDestination() {
+		return this.destination;
+	}
+
+	/**
+	 * Variable registering the (integer) position of the destination of this incremental path finder.
+	 */
+	private final PositionVector destination;
+
+	/**
+	 * Variable registering the index of the destination cube of this incremental path finder.
+	 */
+	private final int goal;
+
+	/**
+	 * Return the shortest walkable path from the given start position to the destination of this incremental path finder.
+	 * @param startPosition	The given start position.
+	 * @return	A list of the (integer) positions of the cubes on the shortest walkable path from the cube of the given start
+	 * 			position to the destination of this incremental path finder, start and destination included. An empty list if the
+	 * 			destination can't be reached from the start position.
+	 * @effect	The changes of the terrain that were registered since the previous search are taken into account.
+	 * @throws IllegalArgumentException
+	 * 			The given start position is not a valid standing position in the world of this incremental path finder or is the
+	 * 			destination of this incremental path finder.
+	 */
+	public List<PositionVector> findPath(PositionVector startPosition) throws IllegalArgumentException {
+		if((! this.getWorld().isValidStandingPosition(startPosition))
+				|| this.getDestination().equals(PositionVector.getIntegerPositionVector(startPosition)))
+			throw new IllegalArgumentException();
+		int start = this.getIndex(startPosition);
+		if((this.lastStart >= 0) && (this.lastStart != start))
+			this.modifier += this.estimate(this.lastStart, start);
+		this.lastStart = start;
+		this.applyChanges();
+		this.nbExpandedNodes = 0;
+		this.computeShortestPath(start);
+		List<PositionVector> path = new ArrayList<PositionVector>();
+		if(this.getG(start) == INFINITY)
+			return path;
+		int current = start;
+		path.add(this.getPosition(current));
+		while((current != this.goal) && (path.size() <= this.nodes.size())){
+			int next = -1;
+			double best = INFINITY;
+			for(int direction = 0; direction < PathFinder.ADJACENT_OFFSETS.length; direction++)
+				if(this.pathFinder.canStep(current, direction)){
+					int neighbour = this.pathFinder.getNeighbour(current, direction);
+					double cost = PathFinder.STEP_COSTS[direction] + this.getG(neighbour);
+					if(cost < best){
+						best = cost;
+						next = neighbour;
+					}
+				}
+			if(next < 0)
+				return new ArrayList<PositionVector>();
+			current = next;
+			path.add(this.getPosition(current));
+		}
+		if(current != this.goal)
+			return new ArrayList<PositionVector>();
+		return path;
+	}
+
+	/**
+	 * Register a change of the cube with the given coordinates.
+	 * @param x	The x coordinate of the changed cube.
+	 * @param y	The y coordinate of the changed cube.
+	 * @param z	The z coordinate of the changed cube.
+	 * @post	The cubes of which the steps may have changed are updated before the next search of this incremental path finder.
+	 */
+	public void markChanged(int x, int y, int z) {
+		this.changes.add(new int[] {x, y, z});
+	}
+
+	/**
+	 * Check whether changes of the terrain were registered since the previous search of this incremental path finder.
+	 */
+	public boolean hasChanges() {
+		return (! this.changes.isEmpty());
+	}
+
+	/**
+	 * Variable registering the coordinates of the cubes that changed since the previous search.
+	 */
+	private final List<int[]> changes = new ArrayList<int[]>();
+
+	/**
+	 * Return the number of cubes that were expanded during the previous search of this incremental path finder.
+	 */
+	@Basic
+	public int getNbExpandedNodes() {
+		return this.nbExpandedNodes;
+	}
+
+	/**
+	 * Variable registering the number of cubes that were expanded during the previous search.
+	 */
+	private int nbExpandedNodes;
+
+	/**
+	 * Update all visited or standing cubes of which the steps may have changed since the previous search.
+	 * @note	The steps of a cube only depend on the cubes within two cubes of it. Standing cubes that were not visited yet are
+	 * 			updated as well, since they may have gained a step to a visited cube.
+	 */
+	@Model
+	private void applyChanges() {
+		World world = this.getWorld();
+		for(int[] change : this.changes)
+			for(int z = Math.max(0, change[2] - 2); z <= Math.min(world.getNbCubesZ() - 1, change[2] + 2); z++)
+				for(int y = Math.max(0, change[1] - 2); y <= Math.min(world.getNbCubesY() - 1, change[1] + 2); y++)
+					for(int x = Math.max(0, change[0] - 2); x <= Math.min(world.getNbCubesX() - 1, change[0] + 2); x++){
+						int index = this.pathFinder.getIndex(x, y, z);
+						if(this.nodes.containsKey(index) || this.pathFinder.isStandingCube(index))
+							this.updateNode(index);
+					}
+		this.changes.clear();
+	}
+
+	/**
+	 * Expand cubes until the cost of the given start is known.
+	 */
+	@Model
+	private void computeShortestPath(int start) {
+		while(true){
+			Entry top = this.peek();
+			if(top == null)
+				return;
+			Node startNode = this.nodes.get(start);
+			double startRhs = (startNode == null) ? INFINITY : startNode.rhs;
+			double startG = (startNode == null) ? INFINITY : startNode.g;
+			if((! isSmaller(top.key1, top.key2, this.key1(start), Math.min(startG, startRhs))) && (startRhs == startG))
+				return;
+			this.open.poll();
+			int current = top.index;
+			Node node = this.nodes.get(current);
+			node.isOpen = false;
+			this.nbExpandedNodes++;
+			double newKey1 = this.key1(current);
+			double newKey2 = Math.min(node.g, node.rhs);
+			if(compare(top.key1, top.key2, newKey1, newKey2) < 0)
+				this.insert(current);
+			else if(node.g > node.rhs){
+				node.g = node.rhs;
+				this.updatePredecessors(current);
+			}
+			else{
+				node.g = INFINITY;
+				this.updateNode(current);
+				this.updatePredecessors(current);
+			}
+		}
+	}
+
+	/**
+	 * Update the cubes from which a step to the cube with the given index can be taken.
+	 */
+	@Model
+	private void updatePredecessors(int index) {
+		int nbDirections = PathFinder.ADJACENT_OFFSETS.length;
+		for(int direction = 0; direction < nbDirections; direction++){
+			int[] offset = PathFinder.ADJACENT_OFFSETS[direction];
+			if(! this.isInWorld(index, offset))
+				continue;
+			int neighbour = this.pathFinder.getNeighbour(index, direction);
+			if(this.pathFinder.canStep(neighbour, nbDirections - 1 - direction))
+				this.updateNode(neighbour);
+		}
+	}
+
+	/**
+	 * Recompute the lookahead cost of the cube with the given index and put it in the open set if it is inconsistent.
+	 */
+	@Model
+	private void updateNode(int index) {
+		Node node = this.getNode(index);
+		if(index != this.goal){
+			double rhs = INFINITY;
+			for(int direction = 0; direction < PathFinder.ADJACENT_OFFSETS.length; direction++)
+				if(this.pathFinder.canStep(index, direction))
+					rhs = Math.min(rhs, PathFinder.STEP_COSTS[direction] + this.getG(this.pathFinder.getNeighbour(index, direction)));
+			node.rhs = rhs;
+		}
+		node.isOpen = false;
+		if(node.g != node.rhs)
+			this.insert(index);
+	}
+
+	/**
+	 * Put the cube with the given index in the open set with its current key.
+	 */
+	@Model
+	private void insert(int index) {
+		Node node = this.getNode(index);
+		node.isOpen = true;
+		node.key1 = this.key1(index);
+		node.key2 = Math.min(node.g, node.rhs);
+		this.open.add(new Entry(index, node.key1, node.key2));
+	}
+
+	/**
+	 * Return the entry of the open set with the smallest key, after dropping the entries that are out of date.
+	 */
+	@Model
+	private Entry peek() {
+		Entry top = this.open.peek();
+		while(top != null){
+			Node node = this.nodes.get(top.index);
+			if(node.isOpen && (node.key1 == top.key1) && (node.key2 == top.key2))
+				return top;
+			this.open.poll();
+			top = this.open.peek();
+		}
+		return null;
+	}
+
+	/**
+	 * Return the first part of the key of the cube with the given index.
+	 */
+	@Model
+	private double key1(int index) {
+		Node node = this.getNode(index);
+		return Math.min(node.g, node.rhs) + this.estimate(this.lastStart, index) + this.modifier;
+	}
+
+	/**
+	 * Compare the keys (a1, a2) and (b1, b2) lexicographically.
+	 */
+	private static int compare(double a1, double a2, double b1, double b2) {
+		if(a1 != b1)
+			return (a1 < b1) ? -1 : 1;
+		return Double.compare(a2, b2);
+	}
+
+	/**
+	 * Check whether the key (a1, a2) is smaller than the key (b1, b2), ignoring rounding errors in the first part of the keys.
+	 */
+	private static boolean isSmaller(double a1, double a2, double b1, double b2) {
+		if(Math.abs(a1 - b1) > EPSILON)
+			return (a1 < b1);
+		return (a2 < b2);
+	}
+
+	/**
+	 * Constant registering the largest difference between keys that is considered a rounding error.
+	 */
+	private static final double EPSILON = 1e-6;
+
+	/**
+	 * Variable registering the open set of this incremental path finder.
+	 * @note	Entries are not removed when the key of their cube changes; entries that are out of date are skipped.
+	 */
+	private final PriorityQueue<Entry> open = new PriorityQueue<Entry>(
+			(entry1, entry2) -> compare(entry1.key1, entry1.key2, entry2.key1, entry2.key2));
+
+	/**
+	 * Variable registering the start of the previous search, -1 before the first search.
+	 */
+	private int lastStart = -1;
+
+	/**
+	 * Variable registering the sum of the estimates between the successive starts of this incremental path finder.
+	 */
+	private double modifier;
+
+	/**
+	 * Return the 3D octile distance between the cubes with the given indices, 0 if one of both is not known yet.
+	 */
+	@Model
+	private double estimate(int index1, int index2) {
+		if((index1 < 0) || (index2 < 0))
+			return 0;
+		int nbX = this.getWorld().getNbCubesX();
+		int nbY = this.getWorld().getNbCubesY();
+		int dx = Math.abs((index1 % nbX) - (index2 % nbX));
+		int dy = Math.abs(((index1 / nbX) % nbY) - ((index2 / nbX) % nbY));
+		int dz = Math.abs((index1 / (nbX*nbY)) - (index2 / (nbX*nbY)));
+		int max = Math.max(dx, Math.max(dy, dz));
+		int min = Math.min(dx, Math.min(dy, dz));
+		int mid = dx + dy + dz - max - min;
+		return (max - mid) + (mid - min)*SQRT2 + min*SQRT3;
+	}
+
+	/**
+	 * Constants registering the costs of diagonal steps, rounded in the same way as the step costs of the path finders.
+	 */
+	private static final double SQRT2 = (float) Math.sqrt(2);
+	private static final double SQRT3 = (float) Math.sqrt(3);
+
+	/**
+	 * Return the cost to the destination of the cube with the given index, as known so far.
+	 */
+	@Model
+	private double getG(int index) {
+		Node node = this.nodes.get(index);
+		return (node == null) ? INFINITY : node.g;
+	}
+
+	/**
+	 * Return the node of the cube with the given index, creating it if it was not visited yet.
+	 */
+	@Model
+	private Node getNode(int index) {
+		Node node = this.nodes.get(index);
+		if(node == null){
+			node = new Node();
+			this.nodes.put(index, node);
+		}
+		return node;
+	}
+
+	/**
+	 * Variable registering the nodes of the cubes this incremental path finder has visited, by cube index.
+	 */
+	private final Map<Integer, Node> nodes = new HashMap<Integer, Node>();
+
+	/**
+	 * Constant registering the cost of cubes from which the destination can't be reached.
+	 */
+	private static final double INFINITY = Double.POSITIVE_INFINITY;
+
+	/**
+	 * Check whether the cube at the given offset of the cube with the given index lies within the world.
+	 */
+	@Model
+	private boolean isInWorld(int index, int[] offset) {
+		int nbX = this.getWorld().getNbCubesX();
+		int nbY = this.getWorld().getNbCubesY();
+		int x = (index % nbX) + offset[0];
+		int y = ((index / nbX) % nbY) + offset[1];
+		int z = (index / (nbX*nbY)) + offset[2];
+		return (x >= 0) && (y >= 0) && (z >= 0) && (x < nbX) && (y < nbY) && (z < this.getWorld().getNbCubesZ());
+	}
+
+	/**
+	 * Return the index of the cube of the given position.
+	 */
+	@Model
+	private int getIndex(PositionVector position) {
+		return this.pathFinder.getIndex((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument());
+	}
+
+	/**
+	 * Return the (integer) position of the cube with the given index.
+	 */
+	@Model
+	private PositionVector getPosition(int index) {
+		int nbX = this.getWorld().getNbCubesX();
+		int nbY = this.getWorld().getNbCubesY();
+		return new PositionVector(index % nbX, (index / nbX) % nbY, index / (nbX*nbY));
+	}
+
+	/**
+	 * A class of search nodes, registering the costs and key of a visited cube.
+	 */
+	private static class Node {
+
+		private double g = INFINITY;
+
+		private double rhs = INFINITY;
+
+		private double key1;
+
+		private double key2;
+
+		private boolean isOpen;
+	}
+
+	/**
+	 * A class of entries of the open set.
+	 */
+	private static class Entry {
+
+		private Entry(int index, double key1, double key2) {
+			this.index = index;
+			this.key1 = key1;
+			this.key2 = key2;
+		}
+
+		private final int index;
+
+		private final double key1;
+
+		private final double key2;
+	}
+
+}
@@ -0,0 +1,276 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of path caches, remembering the paths between pairs of cubes that were determined in a world.
+ *
+ * @invar	The maximum number of paths of each path cache is strictly positive.
+ * 			| getMaxNbPaths() > 0
+ * @invar	The maximum number of cubes of each path cache is strictly positive.
+ * 			| getMaxNbCubes() > 0
+ * @note	The cache is bounded both in the number of paths and in the total number of cubes on those paths; when one of both
+ * 			bounds is exceeded, the least recently used paths are evicted. Paths are stored as arrays of cube indices together with
+ * 			their bounding box, so that a terrain change only drops the paths that cross or border the changed cube.
+ */
+public class PathCache {
+
+	/**
+	 * Initialize this new path cache with the given bounds.
+	 * @param world	The world of which this new path cache stores paths.
+	 * @param maxNbPaths	The maximum number of paths for this new path cache.
+	 * @param maxNbCubes	The maximum total number of cubes on the paths of this new path cache.
+	 * @throws IllegalArgumentException
+	 * 			One of the given bounds is not strictly positive.
+	 * @throws NullPointerException
+	 * 			The given world is not effective.
+	 */
+	public PathCache(World world, int maxNbPaths, int maxNbCubes) throws IllegalArgumentException, NullPointerException {
+		if(world == null)
+			throw new NullPointerException();
+		if((maxNbPaths <= 0) || (maxNbCubes <= 0))
+			throw new IllegalArgumentException("The bounds of a path cache must be strictly positive!");
+		this.nbX = world.getNbCubesX();
+		this.nbY = world.getNbCubesY();
+		this.maxNbPaths = maxNbPaths;
+		this.maxNbCubes = maxNbCubes;
+	}
+
+	/**
+	 * Variables registering the dimensions of the world of this path cache.
+	 */
+	private final int nbX;
+	private final int nbY;
+
+	/**
+	 * Return the maximum number of paths of this path cache.
+	 */
+	@Basic @Immutable
+	public int getMaxNbPaths() {
+		return this.maxNbPaths;
+	}
+
+	/**
+	 * Variable registering the maximum number of paths of this path cache.
+	 */
+	private final int maxNbPaths;
+
+	/**
+	 * Return the maximum total number of cubes on the paths of this path cache.
+	 */
+	@Basic @Immutable
+	public int getMaxNbCubes() {
+		return this.maxNbCubes;
+	}
+
+	/**
+	 * Variable registering the maximum total number of cubes on the paths of this path cache.
+	 */
+	private final int maxNbCubes;
+
+	/**
+	 * Return the number of paths in this path cache.
+	 */
+	public int getNbPaths() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Return the total number of cubes on the paths in this path cache.
+	 */
+	@Basic
+	public int getNbCubes() {
+		return this.nbCubes;
+	}
+
+	/**
+	 * Variable registering the total number of cubes on the paths in this path cache.
+	 */
+	private int nbCubes;
+
+	/**
+	 * Return the cached path between the cubes of the given positions.
+	 * @param start	The given start position.
+	 * @param destination	The given destination.
+	 * @return	A new list with the positions of the cubes of the cached path from the cube of the given start position to the cube
+	 * 			of the given destination, null if no such path is cached.
+	 * @effect	The number of hits of this cache is increased if the path is cached, the number of misses otherwise.
+	 */
+	public List<PositionVector> get(PositionVector start, PositionVector destination) {
+		Entry entry = this.entries.get(this.getKey(start, destination));
+		if(entry == null){
+			this.nbMisses++;
+			return null;
+		}
+		this.nbHits++;
+		List<PositionVector> path = new ArrayList<PositionVector>(entry.path.length);
+		for(int index : entry.path)
+			path.add(new PositionVector(index % this.nbX, (index / this.nbX) % this.nbY, index / (this.nbX*this.nbY)));
+		return path;
+	}
+
+	/**
+	 * Store the given path in this path cache.
+	 * @param path	The given path, starting in its start cube and ending in its destination.
+	 * @effect	The given path is stored under its first and last position, replacing any path that was stored under them. The least
+	 * 			recently used paths are evicted as long as this cache exceeds one of its bounds.
+	 * @note	Empty paths are not stored, any terrain change could make their destination reachable.
+	 */
+	public void put(List<PositionVector> path) {
+		if(path.isEmpty() || (path.size() > this.getMaxNbCubes()))
+			return;
+		int[] indices = new int[path.size()];
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+		for(int i = 0; i < indices.length; i++){
+			int x = (int) path.get(i).getXArgument();
+			int y = (int) path.get(i).getYArgument();
+			int z = (int) path.get(i).getZArgument();
+			indices[i] = x + this.nbX*(y + this.nbY*z);
+			minX = Math.min(minX, x); minY = Math.min(minY, y); minZ = Math.min(minZ, z);
+			maxX = Math.max(maxX, x); maxY = Math.max(maxY, y); maxZ = Math.max(maxZ, z);
+		}
+		Entry entry = new Entry(indices, new int[] {minX, minY, minZ, maxX, maxY, maxZ});
+		Entry old = this.entries.put(this.getKey(path.get(0), path.get(path.size() - 1)), entry);
+		if(old != null)
+			this.nbCubes -= old.path.length;
+		this.nbCubes += indices.length;
+		Iterator<Entry> iterator = this.entries.values().iterator();
+		while((this.entries.size() > this.getMaxNbPaths()) || (this.nbCubes > this.getMaxNbCubes())){
+			Entry eldest = iterator.next();
+			this.nbCubes -= eldest.path.length;
+			iterator.remove();
+			this.nbEvictions++;
+		}
+	}
+
+	/**
+	 * Drop all cached paths that cross or border the cube at the given position.
+	 * @param x	The x coordinate of the changed cube.
+	 * @param y	The y coordinate of the changed cube.
+	 * @param z	The z coordinate of the changed cube.
+	 * @effect	Every cached path of which a cube is the given cube or is adjacent to it is removed from this cache and the number of
+	 * 			invalidations is increased by the number of removed paths.
+	 * @note	Whether a step of a path can be taken only depends on the cubes adjacent to its target cube and the cubes in between,
+	 * 			so other paths stay walkable.
+	 */
+	public void invalidate(int x, int y, int z) {
+		Iterator<Entry> iterator = this.entries.values().iterator();
+		while(iterator.hasNext()){
+			Entry entry = iterator.next();
+			if(entry.borders(x, y, z, this.nbX, this.nbY)){
+				this.nbCubes -= entry.path.length;
+				iterator.remove();
+				this.nbInvalidations++;
+			}
+		}
+	}
+
+	/**
+	 * Remove all paths from this path cache.
+	 */
+	public void clear() {
+		this.entries.clear();
+		this.nbCubes = 0;
+	}
+
+	/**
+	 * Return the number of requested paths that were found in this path cache.
+	 */
+	@Basic
+	public long getNbHits() {
+		return this.nbHits;
+	}
+
+	/**
+	 * Return the number of requested paths that were not found in this path cache.
+	 */
+	@Basic
+	public long getNbMisses() {
+		return this.nbMisses;
+	}
+
+	/**
+	 * Return the number of paths that were dropped from this path cache because of a terrain change.
+	 */
+	@Basic
+	public long getNbInvalidations() {
+		return this.nbInvalidations;
+	}
+
+	/**
+	 * Return the number of paths that were dropped from this path cache to stay within its bounds.
+	 */
+	@Basic
+	public long getNbEvictions() {
+		return this.nbEvictions;
+	}
+
+	/**
+	 * Variables registering the counters of this path cache.
+	 */
+	private long nbHits;
+	private long nbMisses;
+	private long nbInvalidations;
+	private long nbEvictions;
+
+	@Override
+	public String toString() {
+		return "PathCache[paths=" + this.getNbPaths() + ", cubes=" + this.getNbCubes() + ", hits=" + this.getNbHits() + ", misses="
+				+ this.getNbMisses() + ", invalidations=" + this.getNbInvalidations() + ", evictions=" + this.getNbEvictions() + "]";
+	}
+
+	/**
+	 * Return the key under which the path between the cubes of the given positions is stored.
+	 */
+	@Model
+	private long getKey(PositionVector start, PositionVector destination) {
+		long startIndex = (int) start.getXArgument() + this.nbX*((int) start.getYArgument() + this.nbY*(int) start.getZArgument());
+		long destinationIndex = (int) destination.getXArgument() + this.nbX*((int) destination.getYArgument()
+				+ this.nbY*(int) destination.getZArgument());
+		return (startIndex << 32) | destinationIndex;
+	}
+
+	/**
+	 * Variable registering the cached paths of this path cache, in order of least recent use.
+	 */
+	private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+
+	/**
+	 * A class of cached paths, registering the indices of their cubes and their bounding box.
+	 */
+	private static class Entry {
+
+		private Entry(int[] path, int[] bounds) {
+			this.path = path;
+			this.bounds = bounds;
+		}
+
+		private final int[] path;
+
+		private final int[] bounds;
+
+		/**
+		 * Check whether this path crosses or borders the cube at the given position.
+		 */
+		private boolean borders(int x, int y, int z, int nbX, int nbY) {
+			if((x < this.bounds[0] - 1) || (y < this.bounds[1] - 1) || (z < this.bounds[2] - 1) || (x > this.bounds[3] + 1)
+					|| (y > this.bounds[4] + 1) || (z > this.bounds[5] + 1))
+				return false;
+			for(int index : this.path){
+				int dx = (index % nbX) - x;
+				int dy = ((index / nbX) % nbY) - y;
+				int dz = (index / (nbX*nbY)) - z;
+				if((Math.abs(dx) <= 1) && (Math.abs(dy) <= 1) && (Math.abs(dz) <= 1))
+					return true;
+			}
+			return false;
+		}
+	}
+
+}
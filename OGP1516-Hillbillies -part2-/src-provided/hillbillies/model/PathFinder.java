@@ -0,0 +1,647 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+import be.kuleuven.cs.som.annotate.*;
+import hillbillies.util.PagedIntArray;
+
+/**
+ * A class of path finders, determining the shortest walkable path between two standing positions of a world.
+ *
+ * @invar	The world of each path finder must be a valid world for any path finder.
+ * 			| isValidWorld(getWorld())
+ * @note	The search is an A* search over the cubes of the world. A step to one of the 26 adjacent cubes costs the distance
+ * 			between the centres of both cubes, the estimate of the remaining cost is the (admissible) 3D octile distance.
+ * 			Whether a step can be taken is a single bit test on the masks of the reachability map of the world.
+ * 			Cubes are identified by their index x + y*nbX + z*nbX*nbY and all bookkeeping of a search is kept in paged primitive
+ * 			arrays that are reused for every search, so expanding a cube does not create any object once its page exists.
+ */
+public class PathFinder {
+
+	/**
+	 * Initialize this new path finder for a given world.
+	 * @param world	The world for this new path finder.
+	 * @post	The world of this new path finder is the given world.
+	 * 			| new.getWorld() == world
+	 * @throws NullPointerException
+	 * 			The given world is not effective.
+	 * 			| ! isValidWorld(world)
+	 */
+	public PathFinder(World world) throws NullPointerException {
+		if(! isValidWorld(world))
+			throw new NullPointerException();
+		this.world = world;
+		this.nbX = world.getNbCubesX();
+		this.nbY = world.getNbCubesY();
+		this.nbZ = world.getNbCubesZ();
+		this.neighbourDeltas = new int[ADJACENT_OFFSETS.length];
+		for(int direction = 0; direction < ADJACENT_OFFSETS.length; direction++){
+			int[] offset = ADJACENT_OFFSETS[direction];
+			this.neighbourDeltas[direction] = this.delta(offset[0], offset[1], offset[2]);
+		}
+	}
+
+	/**
+	 * Return the world of this path finder.
+	 */
+	@Basic @Raw @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Check whether the given world is a valid world for any path finder.
+	 * @param world	The world to check.
+	 * @return	| result == (world != null)
+	 */
+	public static boolean isValidWorld(World world) {
+		return (world != null);
+	}
+
+	/**
+	 * Variable registering the world of this path finder.
+	 */
+	private final World world;
+
+	/**
+	 * Variables registering the dimensions of the world of this path finder.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	/**
+	 * Return the index of the cube with the given coordinates.
+	 * @param x	The x coordinate of the cube.
+	 * @param y	The y coordinate of the cube.
+	 * @param z	The z coordinate of the cube.
+	 * @return	| result == x + y*nbX + z*nbX*nbY
+	 */
+	public int getIndex(int x, int y, int z) {
+		return x + this.nbX*(y + this.nbY*z);
+	}
+
+	/**
+	 * Return the difference in index between a cube and the cube at the given offset of it.
+	 */
+	@Model
+	private int delta(int dx, int dy, int dz) {
+		return dx + this.nbX*(dy + this.nbY*dz);
+	}
+
+	/**
+	 * Return the shortest walkable path from a given start position to a given destination.
+	 * @param startPosition	The given start position.
+	 * @param destination	The given destination.
+	 * @return	A list of the (integer) positions of the cubes on the shortest walkable path from the cube of the given start
+	 * 			position to the cube of the given destination, start and destination included. An empty list if the destination
+	 * 			can't be reached from the start position.
+	 * @throws IllegalArgumentException
+	 * 			The given positions are not valid standing positions in the world of this path finder.
+	 */
+	public List<PositionVector> findPath(PositionVector startPosition, PositionVector destination) throws IllegalArgumentException {
+		return this.findPath(startPosition, destination, null, 1);
+	}
+
+	/**
+	 * Return the shortest walkable path from a given start position to a given destination that stays within the given clusters.
+	 * @param startPosition	The given start position.
+	 * @param destination	The given destination.
+	 * @param allowedClusters	For each cluster of cubes, whether the path may pass it. If not effective, every cube may be passed.
+	 * @param clusterSize	The length of the side of a cluster of cubes.
+	 * @return	A list of the (integer) positions of the cubes on the shortest walkable path from the cube of the given start
+	 * 			position to the cube of the given destination that only passes cubes of allowed clusters, start and destination
+	 * 			included. An empty list if there is no such path.
+	 * @throws IllegalArgumentException
+	 * 			The given positions are not valid standing positions in the world of this path finder.
+	 */
+	public List<PositionVector> findPath(PositionVector startPosition, PositionVector destination, boolean[] allowedClusters,
+			int clusterSize) throws IllegalArgumentException {
+		if((! this.isStandingPosition(startPosition)) || (! this.isStandingPosition(destination)))
+			throw new IllegalArgumentException();
+		int start = this.getIndex((int) startPosition.getXArgument(), (int) startPosition.getYArgument(),
+				(int) startPosition.getZArgument());
+		int goal = this.getIndex((int) destination.getXArgument(), (int) destination.getYArgument(),
+				(int) destination.getZArgument());
+		if(! this.search(start, goal, allowedClusters, clusterSize))
+			return new ArrayList<PositionVector>();
+		return this.getPath(start, goal);
+	}
+
+	/**
+	 * Return the path from the cube with the first given index to the cube with the second given index, by following the
+	 * parents of the last search back from the second cube.
+	 */
+	@Model
+	private List<PositionVector> getPath(int start, int goal) {
+		List<PositionVector> path = new ArrayList<PositionVector>();
+		int length = 1;
+		for(int index = goal; index != start; index = this.parents.get(index))
+			length++;
+		PositionVector[] positions = new PositionVector[length];
+		int index = goal;
+		for(int i = length - 1; i >= 0; i--){
+			positions[i] = this.getPosition(index);
+			index = this.parents.get(index);
+		}
+		path.addAll(Arrays.asList(positions));
+		return path;
+	}
+
+	/**
+	 * Return the shortest walkable path from a given start position to the nearest cube that satisfies the given condition.
+	 * @param startPosition	The given start position.
+	 * @param isTarget	The condition on the index of a cube.
+	 * @param maxCost	The maximal length of the path.
+	 * @return	A list of the (integer) positions of the cubes on the shortest walkable path from the cube of the given start
+	 * 			position to the nearest cube that satisfies the given condition and can be reached by a path that is not longer
+	 * 			than the given maximal length, start and target included. An empty list if there is no such cube.
+	 * @throws IllegalArgumentException
+	 * 			The given start position is not a valid standing position in the world of this path finder.
+	 * @note	The search is a single Dijkstra search from the start that stops at the first cube that satisfies the condition,
+	 * 			so it does not depend on the number of candidate cubes.
+	 */
+	public List<PositionVector> findNearest(PositionVector startPosition, IntPredicate isTarget, float maxCost)
+			throws IllegalArgumentException {
+		if(! this.isStandingPosition(startPosition))
+			throw new IllegalArgumentException();
+		int start = this.getIndex((int) startPosition.getXArgument(), (int) startPosition.getYArgument(),
+				(int) startPosition.getZArgument());
+		this.prepareSearch();
+		this.nbExpandedNodes = 0;
+		PagedIntArray masks = this.getMasks();
+		this.open(start, start, 0.0f, 0.0f);
+		while(this.heapSize > 0){
+			int current = this.poll();
+			if(isTarget.test(current))
+				return this.getPath(start, current);
+			this.nbExpandedNodes++;
+			int mask = masks.get(current);
+			float cost = this.getCost(current);
+			for(int direction = 0; direction < ADJACENT_OFFSETS.length; direction++){
+				if((mask & (1 << direction)) == 0)
+					continue;
+				int neighbour = current + this.neighbourDeltas[direction];
+				if((this.stamps.get(neighbour) == this.searchStamp) && (this.heapIndices.get(neighbour) == CLOSED))
+					continue;
+				float newCost = cost + STEP_COSTS[direction];
+				if((newCost > maxCost) || ((this.stamps.get(neighbour) == this.searchStamp) && (newCost >= this.getCost(neighbour))))
+					continue;
+				this.open(neighbour, current, newCost, newCost);
+			}
+		}
+		return new ArrayList<PositionVector>();
+	}
+
+	/**
+	 * Return the directions of the shortest walkable paths from the cubes of the given start positions to a given destination.
+	 * @param destination	The given destination.
+	 * @param startPositions	The given start positions.
+	 * @return	An array that registers for each cube index the index of the direction in the adjacent offsets of the next cube on a
+	 * 			shortest walkable path from that cube to the cube of the given destination. The cube of the destination itself
+	 * 			registers FlowField.AT_DESTINATION, cubes that were not reached register FlowField.NO_DIRECTION. The cubes of all
+	 * 			given start positions from which the destination can be reached are reached.
+	 * @throws IllegalArgumentException
+	 * 			The given destination is not a valid standing position in the world of this path finder.
+	 * @note	The search is a single Dijkstra search starting in the destination, that stops as soon as the cubes of all start
+	 * 			positions have been expanded. Steps between standing positions can be taken in both directions, so the search may
+	 * 			follow the steps in reverse.
+	 */
+	public byte[] computeFlowField(PositionVector destination, Collection<PositionVector> startPositions)
+			throws IllegalArgumentException {
+		if(! this.isStandingPosition(destination))
+			throw new IllegalArgumentException();
+		int goal = this.getIndex((int) destination.getXArgument(), (int) destination.getYArgument(),
+				(int) destination.getZArgument());
+		Set<Integer> starts = new HashSet<Integer>();
+		for(PositionVector position : startPositions)
+			if(this.isStandingPosition(position))
+				starts.add(this.getIndex((int) position.getXArgument(), (int) position.getYArgument(),
+						(int) position.getZArgument()));
+		byte[] directions = new byte[this.nbX*this.nbY*this.nbZ];
+		Arrays.fill(directions, FlowField.NO_DIRECTION);
+		this.prepareSearch();
+		this.nbExpandedNodes = 0;
+		int nbRemainingStarts = starts.size();
+		PagedIntArray masks = this.getMasks();
+		this.open(goal, goal, 0.0f, 0.0f);
+		while((this.heapSize > 0) && (nbRemainingStarts > 0)){
+			int current = this.poll();
+			directions[current] = (current == goal) ? FlowField.AT_DESTINATION : this.getDirection(current, this.parents.get(current));
+			if(starts.contains(current))
+				nbRemainingStarts--;
+			this.nbExpandedNodes++;
+			int mask = masks.get(current);
+			float cost = this.getCost(current);
+			for(int direction = 0; direction < ADJACENT_OFFSETS.length; direction++){
+				if((mask & (1 << direction)) == 0)
+					continue;
+				int neighbour = current + this.neighbourDeltas[direction];
+				if((this.stamps.get(neighbour) == this.searchStamp) && (this.heapIndices.get(neighbour) == CLOSED))
+					continue;
+				float newCost = cost + STEP_COSTS[direction];
+				if((this.stamps.get(neighbour) == this.searchStamp) && (newCost >= this.getCost(neighbour)))
+					continue;
+				this.open(neighbour, current, newCost, newCost);
+			}
+		}
+		return directions;
+	}
+
+	/**
+	 * Return the index of the direction in the adjacent offsets that leads from the cube with the first given index to the
+	 * adjacent cube with the second given index.
+	 */
+	@Model
+	private byte getDirection(int from, int to) {
+		int dx = (to % this.nbX) - (from % this.nbX);
+		int dy = ((to / this.nbX) % this.nbY) - ((from / this.nbX) % this.nbY);
+		int dz = (to / (this.nbX*this.nbY)) - (from / (this.nbX*this.nbY));
+		int direction = (dz + 1)*9 + (dy + 1)*3 + (dx + 1);
+		return (byte) ((direction > ADJACENT_OFFSETS.length / 2) ? direction - 1 : direction);
+	}
+
+	/**
+	 * Check whether the given position is a standing position in the terrain this path finder searches.
+	 * @param position	The position to check.
+	 * @return	True if and only if the given position lies within the world of this path finder and its cube is a standing position.
+	 */
+	@Model
+	private boolean isStandingPosition(PositionVector position) {
+		if((position.getXArgument() < 0) || (position.getYArgument() < 0) || (position.getZArgument() < 0)
+				|| (position.getXArgument() >= this.nbX) || (position.getYArgument() >= this.nbY)
+				|| (position.getZArgument() >= this.nbZ))
+			return false;
+		return this.isStandingCube(this.getIndex((int) position.getXArgument(), (int) position.getYArgument(),
+				(int) position.getZArgument()));
+	}
+
+	/**
+	 * Check whether the cube with the given index is a standing position.
+	 * @param index	The index of the cube.
+	 * @return	True if and only if the cube is passable and is at the bottom of the world or has a solid adjacent cube.
+	 */
+	public boolean isStandingCube(int index) {
+		return ((this.getMasks().get(index) & ReachabilityMap.STANDING) != 0);
+	}
+
+	/**
+	 * Check whether a unit standing in the cube with the given index can step to its adjacent cube in the given direction.
+	 * @param index	The index of the cube.
+	 * @param direction	The index of the direction in the adjacent offsets.
+	 * @return	True if and only if the adjacent cube lies within the world, is a standing position and there is no solid cube on
+	 * 			the way between both cube centres.
+	 */
+	public boolean canStep(int index, int direction) {
+		return ((this.getMasks().get(index) & (1 << direction)) != 0);
+	}
+
+	/**
+	 * Return the index of the adjacent cube of the cube with the given index in the given direction.
+	 * @param index	The index of the cube.
+	 * @param direction	The index of the direction in the adjacent offsets.
+	 * @return	The index of the adjacent cube, which is only meaningful if that cube lies within the world.
+	 */
+	public int getNeighbour(int index, int direction) {
+		return index + this.neighbourDeltas[direction];
+	}
+
+	/**
+	 * Return the number of cubes that were expanded by the last search of this path finder.
+	 */
+	@Basic
+	public int getNbExpandedNodes() {
+		return this.nbExpandedNodes;
+	}
+
+	/**
+	 * Variable registering the number of cubes that were expanded by the last search of this path finder.
+	 */
+	private int nbExpandedNodes;
+
+	/**
+	 * Return the (integer) position of the cube with the given index.
+	 */
+	@Model
+	private PositionVector getPosition(int index) {
+		int x = index % this.nbX;
+		int y = (index / this.nbX) % this.nbY;
+		int z = index / (this.nbX*this.nbY);
+		return new PositionVector(x, y, z);
+	}
+
+	/**
+	 * Search the shortest walkable path between the cubes with the given indices.
+	 * @param start	The index of the start cube.
+	 * @param goal	The index of the goal cube.
+	 * @param allowedClusters	For each cluster of cubes, whether the search may pass it, or null if it may pass every cube.
+	 * @param clusterSize	The length of the side of a cluster of cubes.
+	 * @return	True if and only if a path was found, in which case following the parents from the goal leads back to the start.
+	 */
+	@Model
+	private boolean search(int start, int goal, boolean[] allowedClusters, int clusterSize) {
+		int nbClustersX = (this.nbX + clusterSize - 1) / clusterSize;
+		int nbClustersY = (this.nbY + clusterSize - 1) / clusterSize;
+		this.prepareSearch();
+		this.nbExpandedNodes = 0;
+		int goalX = goal % this.nbX;
+		int goalY = (goal / this.nbX) % this.nbY;
+		int goalZ = goal / (this.nbX*this.nbY);
+		PagedIntArray masks = this.getMasks();
+		this.open(start, start, 0.0f, this.estimate(start, goalX, goalY, goalZ));
+		while(this.heapSize > 0){
+			int current = this.poll();
+			if(current == goal)
+				return true;
+			this.nbExpandedNodes++;
+			int mask = masks.get(current);
+			int x = current % this.nbX;
+			int y = (current / this.nbX) % this.nbY;
+			int z = current / (this.nbX*this.nbY);
+			float cost = this.getCost(current);
+			for(int direction = 0; direction < ADJACENT_OFFSETS.length; direction++){
+				if((mask & (1 << direction)) == 0)
+					continue;
+				if(allowedClusters != null){
+					int[] offset = ADJACENT_OFFSETS[direction];
+					if(! allowedClusters[((x + offset[0]) / clusterSize) + nbClustersX*(((y + offset[1]) / clusterSize)
+							+ nbClustersY*((z + offset[2]) / clusterSize))])
+						continue;
+				}
+				int neighbour = current + this.neighbourDeltas[direction];
+				if((this.stamps.get(neighbour) == this.searchStamp) && (this.heapIndices.get(neighbour) == CLOSED))
+					continue;
+				float newCost = cost + STEP_COSTS[direction];
+				if((this.stamps.get(neighbour) == this.searchStamp) && (newCost >= this.getCost(neighbour)))
+					continue;
+				this.open(neighbour, current, newCost, newCost + this.estimate(neighbour, goalX, goalY, goalZ));
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the masks of the reachability map this path finder searches, indexed by cube index.
+	 */
+	@Model
+	private PagedIntArray getMasks() {
+		if(this.snapshot != null)
+			return this.snapshot;
+		return this.getWorld().getReachabilityMap().getMasks();
+	}
+
+	/**
+	 * Return the 3D octile distance between the cube with the given index and the goal with the given coordinates.
+	 * @return	The length of the shortest path between both cubes if no cube would be solid, going diagonally through 3 axes as
+	 * 			long as possible, then diagonally through 2 axes and finally straight.
+	 */
+	@Model
+	private float estimate(int index, int goalX, int goalY, int goalZ) {
+		int dx = Math.abs((index % this.nbX) - goalX);
+		int dy = Math.abs(((index / this.nbX) % this.nbY) - goalY);
+		int dz = Math.abs((index / (this.nbX*this.nbY)) - goalZ);
+		int max = Math.max(dx, Math.max(dy, dz));
+		int min = Math.min(dx, Math.min(dy, dz));
+		int mid = dx + dy + dz - max - min;
+		return (max - mid) + (mid - min)*SQRT2 + min*SQRT3;
+	}
+
+	/**
+	 * Return the cost of the path to the cube with the given index found by the current search.
+	 */
+	@Model
+	private float getCost(int index) {
+		return Float.intBitsToFloat(this.costs.get(index));
+	}
+
+	/**
+	 * Return the estimated cost of the path through the cube with the given index of the current search.
+	 */
+	@Model
+	private float getEstimate(int index) {
+		return Float.intBitsToFloat(this.estimates.get(index));
+	}
+
+	/**
+	 * Make sure the bookkeeping arrays exist and start a new search generation, so that all cubes count as unvisited.
+	 */
+	@Model
+	private void prepareSearch() {
+		if(this.costs == null){
+			int size = this.nbX*this.nbY*this.nbZ;
+			this.costs = new PagedIntArray(size, 0);
+			this.estimates = new PagedIntArray(size, 0);
+			this.parents = new PagedIntArray(size, 0);
+			this.stamps = new PagedIntArray(size, 0);
+			this.heapIndices = new PagedIntArray(size, 0);
+		}
+		if(this.searchStamp == Integer.MAX_VALUE){
+			this.stamps.clear();
+			this.searchStamp = 0;
+		}
+		this.searchStamp++;
+		this.heapSize = 0;
+	}
+
+	/**
+	 * Add the cube with the given index to the open set, or lower its cost if it is already in it.
+	 */
+	@Model
+	private void open(int index, int parent, float cost, float estimate) {
+		boolean inHeap = (this.stamps.get(index) == this.searchStamp);
+		this.stamps.set(index, this.searchStamp);
+		this.costs.set(index, Float.floatToRawIntBits(cost));
+		this.estimates.set(index, Float.floatToRawIntBits(estimate));
+		this.parents.set(index, parent);
+		if(inHeap){
+			this.siftUp(this.heapIndices.get(index));
+		}
+		else{
+			if(this.heapSize == this.heap.length)
+				this.heap = Arrays.copyOf(this.heap, 2*this.heap.length);
+			this.heap[this.heapSize] = index;
+			this.heapIndices.set(index, this.heapSize);
+			this.heapSize++;
+			this.siftUp(this.heapSize - 1);
+		}
+	}
+
+	/**
+	 * Remove the cube with the lowest estimate from the open set, mark it as closed and return its index.
+	 */
+	@Model
+	private int poll() {
+		int result = this.heap[0];
+		this.heapSize--;
+		if(this.heapSize > 0){
+			this.heap[0] = this.heap[this.heapSize];
+			this.heapIndices.set(this.heap[0], 0);
+			this.siftDown(0);
+		}
+		this.heapIndices.set(result, CLOSED);
+		return result;
+	}
+
+	@Model
+	private void siftUp(int position) {
+		int index = this.heap[position];
+		while(position > 0){
+			int parentPosition = (position - 1) >>> 1;
+			int parent = this.heap[parentPosition];
+			if(! this.precedes(index, parent))
+				break;
+			this.heap[position] = parent;
+			this.heapIndices.set(parent, position);
+			position = parentPosition;
+		}
+		this.heap[position] = index;
+		this.heapIndices.set(index, position);
+	}
+
+	@Model
+	private void siftDown(int position) {
+		int index = this.heap[position];
+		int half = this.heapSize >>> 1;
+		while(position < half){
+			int child = 2*position + 1;
+			int right = child + 1;
+			if((right < this.heapSize) && this.precedes(this.heap[right], this.heap[child]))
+				child = right;
+			if(! this.precedes(this.heap[child], index))
+				break;
+			this.heap[position] = this.heap[child];
+			this.heapIndices.set(this.heap[position], position);
+			position = child;
+		}
+		this.heap[position] = index;
+		this.heapIndices.set(index, position);
+	}
+
+	/**
+	 * Check whether the cube with the first given index should be expanded before the cube with the second given index.
+	 * @return	True if the estimate of the first cube is lower, or if both are equal and the first cube is further from its start.
+	 */
+	@Model
+	private boolean precedes(int first, int second) {
+		float firstEstimate = this.getEstimate(first);
+		float secondEstimate = this.getEstimate(second);
+		if(firstEstimate != secondEstimate)
+			return (firstEstimate < secondEstimate);
+		return (this.getCost(first) > this.getCost(second));
+	}
+
+	/**
+	 * Let this path finder search the given snapshot of the reachability map of its world instead of the map itself.
+	 * @param snapshot	A copy of the masks of the reachability map of the world of this path finder, or null to search the
+	 * 					reachability map itself.
+	 * @post	The searches of this path finder only step where the given snapshot allows it.
+	 * @note	A path finder that searches a snapshot does not read its world, so it can search while the world changes.
+	 */
+	void setSnapshot(PagedIntArray snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * Variable registering the snapshot this path finder searches, null if it searches the reachability map of its world.
+	 */
+	private PagedIntArray snapshot;
+
+	/**
+	 * Variables registering the bookkeeping of the searches of this path finder, indexed by cube index.
+	 * @note	Costs and estimates are registered as the bits of their float values. Only the pages of cubes a search has reached
+	 * 			are allocated, so the bookkeeping takes memory in proportion to the regions of the world that have been searched.
+	 */
+	private PagedIntArray costs;
+	private PagedIntArray estimates;
+	private PagedIntArray parents;
+	private PagedIntArray stamps;
+	private PagedIntArray heapIndices;
+
+	/**
+	 * Variables registering the binary heap of open cubes of this path finder.
+	 */
+	private int[] heap = new int[64];
+	private int heapSize;
+
+	/**
+	 * Variable registering the generation of the current search, cubes with another stamp are unvisited.
+	 */
+	private int searchStamp;
+
+	/**
+	 * Variable registering the index differences between a cube and its neighbours, per direction.
+	 */
+	private final int[] neighbourDeltas;
+
+	/**
+	 * Constant registering the heap index of a cube that has been expanded.
+	 */
+	private static final int CLOSED = -1;
+
+	private static final float SQRT2 = (float) Math.sqrt(2);
+	private static final float SQRT3 = (float) Math.sqrt(3);
+
+	/**
+	 * Constant registering the offsets of the 26 adjacent cubes of a cube.
+	 */
+	static final int[][] ADJACENT_OFFSETS = adjacentOffsets();
+
+	/**
+	 * Constant registering for each of the adjacent offsets the distance between the centres of both cubes.
+	 */
+	static final float[] STEP_COSTS = stepCosts();
+
+	/**
+	 * Constant registering for each of the adjacent offsets the offsets of the cubes a straight line between both
+	 * cube centres passes (besides both cubes themselves).
+	 */
+	static final int[][][] CORNER_OFFSETS = cornerOffsets();
+
+	private static int[][] adjacentOffsets() {
+		int[][] offsets = new int[26][];
+		int i = 0;
+		for(int dz = -1; dz <= 1; dz++)
+			for(int dy = -1; dy <= 1; dy++)
+				for(int dx = -1; dx <= 1; dx++)
+					if((dx != 0) || (dy != 0) || (dz != 0))
+						offsets[i++] = new int[] {dx, dy, dz};
+		return offsets;
+	}
+
+	private static float[] stepCosts() {
+		float[] costs = new float[ADJACENT_OFFSETS.length];
+		for(int i = 0; i < costs.length; i++){
+			int[] offset = ADJACENT_OFFSETS[i];
+			costs[i] = (float) Math.sqrt(Math.abs(offset[0]) + Math.abs(offset[1]) + Math.abs(offset[2]));
+		}
+		return costs;
+	}
+
+	private static int[][][] cornerOffsets() {
+		int[][][] corners = new int[ADJACENT_OFFSETS.length][][];
+		for(int i = 0; i < corners.length; i++){
+			int[] offset = ADJACENT_OFFSETS[i];
+			List<int[]> result = new ArrayList<int[]>();
+			// every combination of a part of the axes of the offset, the empty and the complete combination excluded
+			for(int axes = 1; axes < 7; axes++){
+				int[] corner = {((axes & 1) != 0) ? offset[0] : 0, ((axes & 2) != 0) ? offset[1] : 0,
+						((axes & 4) != 0) ? offset[2] : 0};
+				boolean isEmpty = (corner[0] == 0) && (corner[1] == 0) && (corner[2] == 0);
+				boolean isComplete = Arrays.equals(corner, offset);
+				boolean isKnown = false;
+				for(int[] known : result)
+					isKnown = isKnown || Arrays.equals(known, corner);
+				if((! isEmpty) && (! isComplete) && (! isKnown))
+					result.add(corner);
+			}
+			corners[i] = result.toArray(new int[result.size()][]);
+		}
+		return corners;
+	}
+}
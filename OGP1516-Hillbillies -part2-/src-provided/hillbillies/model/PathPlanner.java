@@ -0,0 +1,289 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import be.kuleuven.cs.som.annotate.*;
+import hillbillies.util.PagedIntArray;
+
+/**
+ * A class of path planners, determining the paths of the units of a world on a pool of worker threads.
+ *
+ * @invar	The number of workers of each path planner is strictly positive.
+ * 			| getNbWorkers() > 0
+ * @note	A request is searched on a snapshot of the reachability map of the world, taken when the request is submitted, so
+ * 			workers never read the world while it changes. Completed paths are only applied by applyCompletedPaths, which the
+ * 			world calls at the start of each advance of time; a path that can no longer be walked on the current terrain is
+ * 			stale and is requested again, whereas a path that is not touched by the changes since its snapshot is applied.
+ * 			Each unit has at most one pending request: a new request supersedes the previous one, which is cancelled.
+ */
+public class PathPlanner {
+
+	/**
+	 * Initialize this new path planner for the given world with the given number of workers.
+	 * @param world	The world of this new path planner.
+	 * @param nbWorkers	The number of workers of this new path planner.
+	 * @post	The world of this new path planner is the given world.
+	 * @post	The number of workers of this new path planner is the given number of workers.
+	 * @throws NullPointerException
+	 * 			The given world is not effective.
+	 * @throws IllegalArgumentException
+	 * 			The given number of workers is not strictly positive.
+	 */
+	public PathPlanner(World world, int nbWorkers) throws NullPointerException, IllegalArgumentException {
+		if(world == null)
+			throw new NullPointerException();
+		if(nbWorkers <= 0)
+			throw new IllegalArgumentException("A path planner needs at least one worker!");
+		this.world = world;
+		this.nbWorkers = nbWorkers;
+		this.executor = Executors.newFixedThreadPool(nbWorkers, runnable -> {
+			Thread thread = new Thread(runnable, "path-planner-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Return the world of this path planner.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Variable registering the world of this path planner.
+	 */
+	private final World world;
+
+	/**
+	 * Return the number of workers of this path planner.
+	 */
+	@Basic @Immutable
+	public int getNbWorkers() {
+		return this.nbWorkers;
+	}
+
+	/**
+	 * Variable registering the number of workers of this path planner.
+	 */
+	private final int nbWorkers;
+
+	/**
+	 * Variable registering the worker threads of this path planner.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Variable registering the number of worker threads created by any path planner.
+	 */
+	private static final AtomicInteger threadNumber = new AtomicInteger();
+
+	/**
+	 * Request the path from the position of the given unit to the given destination.
+	 * @param unit	The given unit.
+	 * @param destination	The given destination.
+	 * @effect	The pending request of the given unit, if any, is cancelled.
+	 * 			| this.cancel(unit)
+	 * @effect	A new request for the given unit is searched by one of the workers of this path planner, on the current snapshot of
+	 * 			the terrain of its world.
+	 * @throws IllegalStateException
+	 * 			This path planner has been shut down.
+	 */
+	public void submit(Unit unit, PositionVector destination) throws IllegalStateException {
+		if(this.isShutDown())
+			throw new IllegalStateException("The path planner has been shut down!");
+		this.cancel(unit);
+		Request request = new Request(unit, unit.getCubePositionVector(), PositionVector.getIntegerPositionVector(destination),
+				this.getWorld().getTerrainVersion(), this.getWorld().getReachabilitySnapshot());
+		this.pendingRequests.put(unit, request);
+		request.future = this.executor.submit(() -> this.search(request));
+	}
+
+	/**
+	 * Cancel the pending request of the given unit.
+	 * @param unit	The given unit.
+	 * @post	The given unit has no pending request. Its former request is cancelled and its path will not be applied.
+	 * @effect	If the given unit had a pending request, it stops waiting for its path.
+	 * 			| unit.applyPlannedPath(destination, new ArrayList<PositionVector>())
+	 */
+	public void cancel(Unit unit) {
+		Request request = this.pendingRequests.remove(unit);
+		if(request != null){
+			request.cancelled = true;
+			request.future.cancel(false);
+			unit.applyPlannedPath(request.destination, new ArrayList<PositionVector>());
+		}
+	}
+
+	/**
+	 * Check whether the given unit has a pending request.
+	 */
+	public boolean hasPendingRequest(Unit unit) {
+		return this.pendingRequests.containsKey(unit);
+	}
+
+	/**
+	 * Variable registering the pending request of each unit.
+	 */
+	private final Map<Unit, Request> pendingRequests = new HashMap<Unit, Request>();
+
+	/**
+	 * Apply the paths that were completed by the workers of this path planner.
+	 * @effect	The path of every completed request that was not cancelled is applied to its unit, if it can still be walked on
+	 * 			the current terrain of the world of this path planner. The path is stored in the path cache of that world.
+	 * 			| unit.applyPlannedPath(destination, path)
+	 * @effect	Every completed request that is stale is submitted again, if its unit still waits for it.
+	 * @note	A found path is stale if its unit left the start of the path or if the path can no longer be walked on the
+	 * 			reachability map of the world. No path is stale if it was searched on an older terrain, since the change may
+	 * 			have opened a path.
+	 */
+	public void applyCompletedPaths() {
+		List<Request> requests = new ArrayList<Request>();
+		for(Request request = this.completedRequests.poll(); request != null; request = this.completedRequests.poll())
+			requests.add(request);
+		for(Request request : requests){
+			if(request.cancelled || (this.pendingRequests.get(request.unit) != request))
+				continue;
+			this.pendingRequests.remove(request.unit);
+			if(! request.unit.isPlanning())
+				continue;
+			if(this.isStale(request)){
+				this.nbStaleResults++;
+				this.submit(request.unit, request.destination);
+				continue;
+			}
+			this.getWorld().getPathCache().put(request.path);
+			request.unit.applyPlannedPath(request.destination, request.path);
+		}
+	}
+
+	/**
+	 * Check whether the given completed request is stale.
+	 * @param request	The given request.
+	 * @return	True if the unit of the given request left the start of the request.
+	 * 			| if(! request.start.equals(request.unit.getCubePositionVector()))
+	 * 			|	then result == true
+	 * @return	Otherwise, if no path was found, true if and only if the terrain changed since the request was submitted.
+	 * 			| else if(request.path.isEmpty())
+	 * 			|	then result == (request.terrainVersion != getWorld().getTerrainVersion())
+	 * @return	Otherwise, true if and only if the found path can no longer be walked on the current terrain.
+	 * 			| else result == ! getWorld().getReachabilityMap().isWalkable(request.path)
+	 */
+	private boolean isStale(Request request) {
+		if(! request.start.equals(request.unit.getCubePositionVector()))
+			return true;
+		if(request.path.isEmpty())
+			return request.terrainVersion != this.getWorld().getTerrainVersion();
+		return ! this.getWorld().getReachabilityMap().isWalkable(request.path);
+	}
+
+	/**
+	 * Return the number of completed requests that have not been applied yet.
+	 */
+	public int getNbCompletedRequests() {
+		return this.completedRequests.size();
+	}
+
+	/**
+	 * Variable registering the requests that were completed by the workers of this path planner.
+	 */
+	private final Queue<Request> completedRequests = new ConcurrentLinkedQueue<Request>();
+
+	/**
+	 * Return the number of completed requests that were stale and were submitted again.
+	 */
+	@Basic
+	public long getNbStaleResults() {
+		return this.nbStaleResults;
+	}
+
+	/**
+	 * Variable registering the number of completed requests that were stale.
+	 */
+	private long nbStaleResults;
+
+	/**
+	 * Stop the workers of this path planner.
+	 * @post	This path planner is shut down and all pending requests are cancelled.
+	 * @effect	The units with a pending request stop waiting for their path.
+	 */
+	public void shutDown() {
+		for(Unit unit : new ArrayList<Unit>(this.pendingRequests.keySet()))
+			this.cancel(unit);
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Check whether this path planner is shut down.
+	 */
+	public boolean isShutDown() {
+		return this.executor.isShutdown();
+	}
+
+	/**
+	 * Search the path of the given request, on a worker thread.
+	 */
+	@Model
+	private void search(Request request) {
+		if(request.cancelled)
+			return;
+		PathFinder pathFinder = this.pathFinders.get();
+		pathFinder.setSnapshot(request.snapshot);
+		try{
+			request.path = pathFinder.findPath(request.start, request.destination);
+		}
+		catch (IllegalArgumentException exc){
+			request.path = new ArrayList<PositionVector>();
+		}
+		finally{
+			pathFinder.setSnapshot(null);
+		}
+		this.completedRequests.add(request);
+	}
+
+	/**
+	 * Variable registering the path finder of each worker thread.
+	 */
+	private final ThreadLocal<PathFinder> pathFinders = ThreadLocal.withInitial(() -> new PathFinder(this.getWorld()));
+
+	/**
+	 * A class of path requests.
+	 */
+	private static class Request {
+
+		private Request(Unit unit, PositionVector start, PositionVector destination, long terrainVersion, PagedIntArray snapshot) {
+			this.unit = unit;
+			this.start = start;
+			this.destination = destination;
+			this.terrainVersion = terrainVersion;
+			this.snapshot = snapshot;
+		}
+
+		private final Unit unit;
+
+		private final PositionVector start;
+
+		private final PositionVector destination;
+
+		private final long terrainVersion;
+
+		private final PagedIntArray snapshot;
+
+		private volatile boolean cancelled;
+
+		private Future<?> future;
+
+		private List<PositionVector> path;
+	}
+
+}
@@ -0,0 +1,174 @@
+package hillbillies.model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of path subscriptions, registering for each cube of a world the units of which the queued path passes that cube.
+ *
+ * @note	A step between two adjacent cubes can only be lost by a change of a cube within one cube of the cube the step starts
+ * 			or ends in, so the units that must check their path after a change of a cube are exactly the subscribers of the cubes
+ * 			within one cube of it. Finding them does not depend on the number of units or the length of their paths.
+ */
+public class PathSubscriptions {
+
+	/**
+	 * Initialize this new set of path subscriptions for the given world.
+	 * @param world	The world of this new set of path subscriptions.
+	 * @post	This new set of path subscriptions has no subscribers.
+	 * @throws NullPointerException
+	 * 			The given world is not effective.
+	 */
+	public PathSubscriptions(World world) throws NullPointerException {
+		this.world = world;
+		this.nbX = world.getNbCubesX();
+		this.nbY = world.getNbCubesY();
+		this.nbZ = world.getNbCubesZ();
+	}
+
+	/**
+	 * Return the world of this set of path subscriptions.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Variable registering the world of this set of path subscriptions.
+	 */
+	private final World world;
+
+	/**
+	 * Variables registering the dimensions of the world of this set of path subscriptions.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	/**
+	 * Subscribe the given unit to the cubes of the given path.
+	 * @param unit	The given unit.
+	 * @param path	The given path.
+	 * @effect	The given unit is unsubscribed from all cubes first.
+	 * 			| this.unsubscribe(unit)
+	 * @post	The given unit is a subscriber of the cubes of all positions of the given path.
+	 */
+	public void subscribe(Unit unit, List<PositionVector> path) {
+		this.unsubscribe(unit);
+		if(path.isEmpty())
+			return;
+		Set<Integer> cubes = new HashSet<Integer>();
+		for(PositionVector position : path){
+			int index = this.getIndex(position);
+			cubes.add(index);
+			Set<Unit> subscribers = this.subscribers.get(index);
+			if(subscribers == null){
+				subscribers = new HashSet<Unit>();
+				this.subscribers.put(index, subscribers);
+			}
+			subscribers.add(unit);
+		}
+		this.subscriptions.put(unit, cubes);
+	}
+
+	/**
+	 * Unsubscribe the given unit from the cube of the given position.
+	 * @param unit	The given unit.
+	 * @param position	The given position.
+	 * @post	The given unit is no subscriber of the cube of the given position.
+	 */
+	public void unsubscribe(Unit unit, PositionVector position) {
+		Set<Integer> cubes = this.subscriptions.get(unit);
+		if(cubes == null)
+			return;
+		int index = this.getIndex(position);
+		if(cubes.remove(index))
+			this.removeSubscriber(index, unit);
+		if(cubes.isEmpty())
+			this.subscriptions.remove(unit);
+	}
+
+	/**
+	 * Unsubscribe the given unit from all cubes.
+	 * @param unit	The given unit.
+	 * @post	The given unit is no subscriber of any cube.
+	 */
+	public void unsubscribe(Unit unit) {
+		Set<Integer> cubes = this.subscriptions.remove(unit);
+		if(cubes != null)
+			for(int index : cubes)
+				this.removeSubscriber(index, unit);
+	}
+
+	/**
+	 * Remove the given unit from the subscribers of the cube with the given index.
+	 */
+	@Model
+	private void removeSubscriber(int index, Unit unit) {
+		Set<Unit> subscribers = this.subscribers.get(index);
+		subscribers.remove(unit);
+		if(subscribers.isEmpty())
+			this.subscribers.remove(index);
+	}
+
+	/**
+	 * Return the units of which the path may be affected by a change of the cube with the given coordinates.
+	 * @param x	The x coordinate of the changed cube.
+	 * @param y	The y coordinate of the changed cube.
+	 * @param z	The z coordinate of the changed cube.
+	 * @return	The set of all subscribers of the cubes within one cube of the given cube.
+	 */
+	public Set<Unit> getAffectedUnits(int x, int y, int z) {
+		Set<Unit> units = new HashSet<Unit>();
+		if(this.subscribers.isEmpty())
+			return units;
+		for(int cz = Math.max(0, z - 1); cz <= Math.min(this.nbZ - 1, z + 1); cz++)
+			for(int cy = Math.max(0, y - 1); cy <= Math.min(this.nbY - 1, y + 1); cy++)
+				for(int cx = Math.max(0, x - 1); cx <= Math.min(this.nbX - 1, x + 1); cx++){
+					Set<Unit> subscribers = this.subscribers.get(cx + this.nbX*(cy + this.nbY*cz));
+					if(subscribers != null)
+						units.addAll(subscribers);
+				}
+		return units;
+	}
+
+	/**
+	 * Check whether the given unit is a subscriber of the cube of the given position.
+	 */
+	public boolean isSubscribed(Unit unit, PositionVector position) {
+		Set<Integer> cubes = this.subscriptions.get(unit);
+		return (cubes != null) && cubes.contains(this.getIndex(position));
+	}
+
+	/**
+	 * Return the number of units that are subscribed to at least one cube.
+	 */
+	public int getNbSubscribedUnits() {
+		return this.subscriptions.size();
+	}
+
+	/**
+	 * Variable registering the subscribers of each cube, by cube index.
+	 */
+	private final Map<Integer, Set<Unit>> subscribers = new HashMap<Integer, Set<Unit>>();
+
+	/**
+	 * Variable registering the indices of the cubes each unit is subscribed to.
+	 */
+	private final Map<Unit, Set<Integer>> subscriptions = new HashMap<Unit, Set<Integer>>();
+
+	/**
+	 * Return the index of the cube of the given position.
+	 */
+	@Model
+	private int getIndex(PositionVector position) {
+		return (int) position.getXArgument() + this.nbX*((int) position.getYArgument() + this.nbY*(int) position.getZArgument());
+	}
+
+}
@@ -0,0 +1,121 @@
+package hillbillies.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import be.kuleuven.cs.som.annotate.*;
+import hillbillies.util.PagedIntArray;
+
+/**
+ * A class of position samplers, registering a set of cubes of a world from which a cube can be drawn at random.
+ *
+ * @invar	The slot of each registered cube holds the index of that cube.
+ * 			| for each i in 0..getNbPositions()-1: slots.get(indices[i]) == i
+ *
+ * @note	The registered cubes are kept in a dense array of cube indices, together with the slot of each cube in that array.
+ * 			Adding a cube appends it; removing a cube moves the last registered cube into its slot. Adding, removing, checking
+ * 			and drawing a cube therefore take constant time.
+ * @note	The array of cube indices grows with the number of registered cubes and the slots are kept in pages, so a sampler of
+ * 			the cubes along the surface of a large world only takes memory for that surface.
+ */
+public class PositionSampler {
+
+	/**
+	 * Initialize this new position sampler for a world of the given dimensions.
+	 * @param nbX	The number of cubes of the world in the x direction.
+	 * @param nbY	The number of cubes of the world in the y direction.
+	 * @param nbZ	The number of cubes of the world in the z direction.
+	 * @post	No cube is registered in this new position sampler.
+	 */
+	public PositionSampler(int nbX, int nbY, int nbZ) {
+		this.nbX = nbX;
+		this.nbY = nbY;
+		this.slots = new PagedIntArray(nbX*nbY*nbZ, -1);
+	}
+
+	/**
+	 * Variables registering the dimensions of the world of this position sampler.
+	 */
+	private final int nbX;
+	private final int nbY;
+
+	/**
+	 * Register or unregister the cube with the given coordinates.
+	 * @param x	The x coordinate of the cube.
+	 * @param y	The y coordinate of the cube.
+	 * @param z	The z coordinate of the cube.
+	 * @param isRegistered	Whether the cube must be registered.
+	 * @post	The cube is registered if and only if the given flag is true.
+	 * 			| new.contains(x, y, z) == isRegistered
+	 */
+	public void set(int x, int y, int z, boolean isRegistered) {
+		int index = x + this.nbX*(y + this.nbY*z);
+		int slot = this.slots.get(index);
+		if(isRegistered && (slot < 0)){
+			if(this.nbPositions == this.indices.length)
+				this.indices = Arrays.copyOf(this.indices, 2*this.indices.length);
+			this.indices[this.nbPositions] = index;
+			this.slots.set(index, this.nbPositions++);
+		}
+		else if((! isRegistered) && (slot >= 0)){
+			int last = this.indices[--this.nbPositions];
+			this.indices[slot] = last;
+			this.slots.set(last, slot);
+			this.slots.set(index, -1);
+		}
+	}
+
+	/**
+	 * Check whether the cube with the given coordinates is registered in this position sampler.
+	 */
+	public boolean contains(int x, int y, int z) {
+		return this.slots.get(x + this.nbX*(y + this.nbY*z)) >= 0;
+	}
+
+	/**
+	 * Return the number of cubes registered in this position sampler.
+	 */
+	@Basic
+	public int getNbPositions() {
+		return this.nbPositions;
+	}
+
+	/**
+	 * Return the index of a cube drawn uniformly at random from the registered cubes.
+	 * @param generator	The random generator to draw with.
+	 * @return	The index x + y*nbX + z*nbX*nbY of one of the registered cubes, or -1 if no cube is registered.
+	 */
+	public int sampleIndex(Random generator) {
+		if(this.nbPositions == 0)
+			return -1;
+		return this.indices[generator.nextInt(this.nbPositions)];
+	}
+
+	/**
+	 * Return the position of a cube drawn uniformly at random from the registered cubes.
+	 * @param generator	The random generator to draw with.
+	 * @return	The position of one of the registered cubes, or null if no cube is registered.
+	 */
+	public PositionVector sample(Random generator) {
+		int index = this.sampleIndex(generator);
+		if(index < 0)
+			return null;
+		return new PositionVector(index % this.nbX, (index / this.nbX) % this.nbY, index / (this.nbX*this.nbY));
+	}
+
+	/**
+	 * Variable registering the indices of the registered cubes, in their first getNbPositions() slots.
+	 */
+	private int[] indices = new int[16];
+
+	/**
+	 * Variable registering the slot of each cube in the indices, or -1 for cubes that are not registered, by cube index.
+	 */
+	private final PagedIntArray slots;
+
+	/**
+	 * Variable registering the number of registered cubes.
+	 */
+	private int nbPositions;
+
+}
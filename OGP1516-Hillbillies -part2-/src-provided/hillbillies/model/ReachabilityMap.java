@@ -0,0 +1,222 @@
+package hillbillies.model;
+
+import java.util.List;
+
+import be.kuleuven.cs.som.annotate.*;
+import hillbillies.util.PagedIntArray;
+
+/**
+ * A class of reachability maps, registering for each cube of a world which of its adjacent cubes a unit can step to.
+ *
+ * @note	Each cube has a mask of 32 bits. Bit i is set if and only if the cube is passable, its adjacent cube at
+ * 			PathFinder.ADJACENT_OFFSETS[i] lies within the world and is a standing position, and no cube on the straight line
+ * 			between both cube centres is solid. The STANDING bit is set if and only if the cube itself is a standing position.
+ * @note	The mask of a cube only depends on the cubes within two cubes of it, so a terrain change only requires the masks of
+ * 			the 5x5x5 cubes around the changed cube to be recomputed.
+ */
+public class ReachabilityMap {
+
+	/**
+	 * Initialize this new reachability map for the given world.
+	 * @param world	The world of this new reachability map.
+	 * @post	The mask of each cube of this new reachability map is computed from the current terrain of the given world.
+	 * @throws NullPointerException
+	 * 			The given world is not effective.
+	 * @note	The masks are computed in parallel, one page of masks at a time per thread.
+	 */
+	public ReachabilityMap(World world) throws NullPointerException {
+		this.world = world;
+		this.nbX = world.getNbCubesX();
+		this.nbY = world.getNbCubesY();
+		this.nbZ = world.getNbCubesZ();
+		this.masks = new PagedIntArray(this.nbX*this.nbY*this.nbZ, 0);
+		this.masks.fill(index -> this.computeStanding(index % this.nbX, (index / this.nbX) % this.nbY,
+				index / (this.nbX*this.nbY)) ? STANDING : 0);
+		this.masks.fill(index -> this.masks.get(index) | this.computeSteps(index % this.nbX, (index / this.nbX) % this.nbY,
+				index / (this.nbX*this.nbY)));
+	}
+
+	/**
+	 * Return the world of this reachability map.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Variable registering the world of this reachability map.
+	 */
+	private final World world;
+
+	/**
+	 * Variables registering the dimensions of the world of this reachability map.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	/**
+	 * Return the mask of the cube with the given coordinates.
+	 * @param x	The x coordinate of the cube.
+	 * @param y	The y coordinate of the cube.
+	 * @param z	The z coordinate of the cube.
+	 * @throws ArrayIndexOutOfBoundsException
+	 * 			The given coordinates do not lie within the world of this reachability map.
+	 */
+	public int getMask(int x, int y, int z) throws ArrayIndexOutOfBoundsException {
+		if((x < 0) || (y < 0) || (z < 0) || (x >= this.nbX) || (y >= this.nbY) || (z >= this.nbZ))
+			throw new ArrayIndexOutOfBoundsException();
+		return this.masks.get(this.getIndex(x, y, z));
+	}
+
+	/**
+	 * Check whether the cube with the given coordinates is a standing position.
+	 * @return	| result == ((getMask(x, y, z) & STANDING) != 0)
+	 */
+	public boolean isStanding(int x, int y, int z) throws ArrayIndexOutOfBoundsException {
+		return ((this.getMask(x, y, z) & STANDING) != 0);
+	}
+
+	/**
+	 * Check whether a unit can step from the cube with the given coordinates to its adjacent cube in the given direction.
+	 * @param direction	The index of the direction in the adjacent offsets.
+	 * @return	| result == ((getMask(x, y, z) & (1 << direction)) != 0)
+	 */
+	public boolean canStep(int x, int y, int z, int direction) throws ArrayIndexOutOfBoundsException {
+		return ((this.getMask(x, y, z) & (1 << direction)) != 0);
+	}
+
+	/**
+	 * Check whether a unit can walk along the given path.
+	 * @param path	The given path.
+	 * @return	True if and only if a unit can step from the cube of each position of the given path to the cube of the next
+	 * 			position.
+	 */
+	public boolean isWalkable(List<PositionVector> path) {
+		for(int i = 1; i < path.size(); i++){
+			int x = (int) path.get(i - 1).getXArgument();
+			int y = (int) path.get(i - 1).getYArgument();
+			int z = (int) path.get(i - 1).getZArgument();
+			int dx = (int) path.get(i).getXArgument() - x;
+			int dy = (int) path.get(i).getYArgument() - y;
+			int dz = (int) path.get(i).getZArgument() - z;
+			if((Math.abs(dx) > 1) || (Math.abs(dy) > 1) || (Math.abs(dz) > 1) || ((dx == 0) && (dy == 0) && (dz == 0)))
+				return false;
+			int direction = (dz + 1)*9 + (dy + 1)*3 + (dx + 1);
+			if(! this.canStep(x, y, z, (direction > 13) ? direction - 1 : direction))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Return the masks of this reachability map, indexed by cube index.
+	 * @note	The returned array is the array of this reachability map itself and must not be modified.
+	 */
+	PagedIntArray getMasks() {
+		return this.masks;
+	}
+
+	/**
+	 * Variable registering the mask of each cube, indexed by x + y*nbX + z*nbX*nbY.
+	 * @note	Only cubes near a solid cube have a mask other than 0, so the pages of masks that lie in open air or within solid
+	 * 			terrain are never allocated.
+	 */
+	private final PagedIntArray masks;
+
+	/**
+	 * Constant registering the bit of a mask that is set for standing positions.
+	 */
+	public static final int STANDING = 1 << 26;
+
+	/**
+	 * Recompute the masks around the cube with the given coordinates after it has changed.
+	 * @param x	The x coordinate of the changed cube.
+	 * @param y	The y coordinate of the changed cube.
+	 * @param z	The z coordinate of the changed cube.
+	 * @post	The masks of all cubes within two cubes of the given cube are computed from the current terrain of the world of
+	 * 			this reachability map.
+	 * @return	True if and only if a bit was cleared in one of the recomputed masks, that is if a step or a standing position was
+	 * 			lost by the change.
+	 */
+	public boolean update(int x, int y, int z) {
+		int[] before = new int[125];
+		int i = 0;
+		for(int cz = Math.max(0, z - 2); cz <= Math.min(this.nbZ - 1, z + 2); cz++)
+			for(int cy = Math.max(0, y - 2); cy <= Math.min(this.nbY - 1, y + 2); cy++)
+				for(int cx = Math.max(0, x - 2); cx <= Math.min(this.nbX - 1, x + 2); cx++)
+					before[i++] = this.masks.get(this.getIndex(cx, cy, cz));
+		for(int cz = Math.max(0, z - 1); cz <= Math.min(this.nbZ - 1, z + 1); cz++)
+			for(int cy = Math.max(0, y - 1); cy <= Math.min(this.nbY - 1, y + 1); cy++)
+				for(int cx = Math.max(0, x - 1); cx <= Math.min(this.nbX - 1, x + 1); cx++)
+					this.masks.set(this.getIndex(cx, cy, cz), this.computeStanding(cx, cy, cz) ? STANDING : 0);
+		boolean isLost = false;
+		i = 0;
+		for(int cz = Math.max(0, z - 2); cz <= Math.min(this.nbZ - 1, z + 2); cz++)
+			for(int cy = Math.max(0, y - 2); cy <= Math.min(this.nbY - 1, y + 2); cy++)
+				for(int cx = Math.max(0, x - 2); cx <= Math.min(this.nbX - 1, x + 2); cx++){
+					int index = this.getIndex(cx, cy, cz);
+					int mask = (this.masks.get(index) & STANDING) | this.computeSteps(cx, cy, cz);
+					this.masks.set(index, mask);
+					isLost = isLost || ((before[i++] & ~mask) != 0);
+				}
+		return isLost;
+	}
+
+	/**
+	 * Check whether the cube with the given coordinates is a standing position in the current terrain.
+	 * @return	True if and only if the cube is passable and is at the bottom of the world or has a solid adjacent cube.
+	 */
+	@Model
+	private boolean computeStanding(int x, int y, int z) {
+		if(this.getWorld().isSolidCube(x, y, z))
+			return false;
+		if(z == 0)
+			return true;
+		for(int[] offset : PathFinder.ADJACENT_OFFSETS){
+			int nx = x + offset[0];
+			int ny = y + offset[1];
+			int nz = z + offset[2];
+			if((nx >= 0) && (ny >= 0) && (nz >= 0) && (nx < this.nbX) && (ny < this.nbY) && (nz < this.nbZ)
+					&& this.getWorld().isSolidCube(nx, ny, nz))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Return the direction bits of the mask of the cube with the given coordinates in the current terrain.
+	 * @note	The standing bits of the adjacent cubes must be up to date.
+	 */
+	@Model
+	private int computeSteps(int x, int y, int z) {
+		if(this.getWorld().isSolidCube(x, y, z))
+			return 0;
+		int steps = 0;
+		for(int direction = 0; direction < PathFinder.ADJACENT_OFFSETS.length; direction++){
+			int[] offset = PathFinder.ADJACENT_OFFSETS[direction];
+			int nx = x + offset[0];
+			int ny = y + offset[1];
+			int nz = z + offset[2];
+			if((nx < 0) || (ny < 0) || (nz < 0) || (nx >= this.nbX) || (ny >= this.nbY) || (nz >= this.nbZ)
+					|| ((this.masks.get(this.getIndex(nx, ny, nz)) & STANDING) == 0))
+				continue;
+			boolean isClear = true;
+			for(int[] corner : PathFinder.CORNER_OFFSETS[direction])
+				isClear = isClear && (! this.getWorld().isSolidCube(x + corner[0], y + corner[1], z + corner[2]));
+			if(isClear)
+				steps |= (1 << direction);
+		}
+		return steps;
+	}
+
+	/**
+	 * Return the index of the cube with the given coordinates.
+	 */
+	@Model
+	private int getIndex(int x, int y, int z) {
+		return x + this.nbX*(y + this.nbY*z);
+	}
+
+}
@@ -0,0 +1,389 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import be.kuleuven.cs.som.annotate.*;
+import hillbillies.util.BorderSearch;
+
+/**
+ * A class of support analyses, answering for the solid cubes of a world which other solid cubes would no longer be connected to
+ * a border of the world if they were removed, without changing the world.
+ *
+ * @invar	The maximum number of entries of each support analysis is strictly positive.
+ * 			| getMaxNbEntries() > 0
+ * @note	Removing a cube only disconnects cubes of which every path of solid cubes to a border passes through it. For each solid
+ * 			neighbour of the removed cube, a depth-first search over the solid cubes looks for a border, exactly as a real cave-in
+ * 			would; the neighbours from which no border is found fall together with everything they reach. The searches are taken
+ * 			by a searcher of the border search of the world, so they mark the cubes they visit in the same array as the other
+ * 			searches of the world.
+ * @note	The outcome of the searches only depends on the solidity of the cubes they visited and of the cubes adjacent to those,
+ * 			so each result is cached together with the bounding box of the visited cubes, and a terrain change only drops the
+ * 			results of which that box borders the changed cube. The least recently used results are evicted beyond the maximum
+ * 			number of entries.
+ * @note	Each result is registered in every chunk of 16x16x16 cubes that its box, extended by one cube, overlaps, so a terrain
+ * 			change only checks the results registered in the chunk of the changed cube. Results of which the box overlaps more
+ * 			than MAX_NB_INDEXED_CHUNKS chunks are kept in a separate list that every change checks.
+ */
+public class SupportAnalysis {
+
+	/**
+	 * Initialize this new support analysis for the given world with the given maximum number of entries.
+	 * @param world	The world of this new support analysis.
+	 * @param maxNbEntries	The maximum number of cached results of this new support analysis.
+	 * @throws IllegalArgumentException
+	 * 			The given maximum number of entries is not strictly positive.
+	 * @throws NullPointerException
+	 * 			The given world is not effective.
+	 */
+	public SupportAnalysis(World world, int maxNbEntries) throws IllegalArgumentException, NullPointerException {
+		if(world == null)
+			throw new NullPointerException();
+		if(maxNbEntries <= 0)
+			throw new IllegalArgumentException("The maximum number of entries of a support analysis must be strictly positive!");
+		this.world = world;
+		this.nbX = world.getNbCubesX();
+		this.nbY = world.getNbCubesY();
+		this.nbZ = world.getNbCubesZ();
+		this.maxNbEntries = maxNbEntries;
+		this.searcher = world.getBorderSearch().newSearcher((nx, ny, nz) -> world.isSolidCube(nx, ny, nz));
+	}
+
+	/**
+	 * Return the world of this support analysis.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Variable registering the world of this support analysis.
+	 */
+	private final World world;
+
+	/**
+	 * Variables registering the dimensions of the world of this support analysis.
+	 */
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	/**
+	 * Return the maximum number of cached results of this support analysis.
+	 */
+	@Basic @Immutable
+	public int getMaxNbEntries() {
+		return this.maxNbEntries;
+	}
+
+	/**
+	 * Variable registering the maximum number of cached results of this support analysis.
+	 */
+	private final int maxNbEntries;
+
+	/**
+	 * Return the number of cached results of this support analysis.
+	 */
+	public int getNbEntries() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Return the positions of the solid cubes that would no longer be connected to a border if the cube with the given
+	 * coordinates were removed.
+	 * @param x	The x coordinate of the cube.
+	 * @param y	The y coordinate of the cube.
+	 * @param z	The z coordinate of the cube.
+	 * @return	A new list with the positions of the cubes that would cave-in together with the given cube, not including the given
+	 * 			cube itself, or an empty list if the given cube is not solid.
+	 * @throws	IllegalArgumentException
+	 * 			The given coordinates are out of the bounds of the world of this support analysis.
+	 */
+	public List<PositionVector> getUnsupported(int x, int y, int z) throws IllegalArgumentException {
+		int[] unsupported = this.getEntry(x, y, z).unsupported;
+		List<PositionVector> result = new ArrayList<PositionVector>(unsupported.length);
+		for(int index : unsupported)
+			result.add(new PositionVector(index % this.nbX, (index / this.nbX) % this.nbY, index / (this.nbX*this.nbY)));
+		return result;
+	}
+
+	/**
+	 * Return the number of solid cubes that would no longer be connected to a border if the cube with the given coordinates
+	 * were removed.
+	 * @param x	The x coordinate of the cube.
+	 * @param y	The y coordinate of the cube.
+	 * @param z	The z coordinate of the cube.
+	 * @return	| result == this.getUnsupported(x, y, z).size()
+	 * @throws	IllegalArgumentException
+	 * 			The given coordinates are out of the bounds of the world of this support analysis.
+	 */
+	public int getNbUnsupported(int x, int y, int z) throws IllegalArgumentException {
+		return this.getEntry(x, y, z).unsupported.length;
+	}
+
+	/**
+	 * Drop all cached results that depend on the cube at the given position.
+	 * @param x	The x coordinate of the changed cube.
+	 * @param y	The y coordinate of the changed cube.
+	 * @param z	The z coordinate of the changed cube.
+	 * @effect	Every cached result of which the bounding box of the visited cubes contains or borders the given cube is removed
+	 * 			from this support analysis and the number of invalidations is increased by the number of removed results.
+	 */
+	public void invalidate(int x, int y, int z) {
+		List<Entry> chunkEntries = this.entriesByChunk.get(this.getChunkKey(x >> CHUNK_BITS, y >> CHUNK_BITS, z >> CHUNK_BITS));
+		if(chunkEntries != null)
+			this.invalidate(chunkEntries, x, y, z);
+		this.invalidate(this.largeEntries, x, y, z);
+	}
+
+	/**
+	 * Drop the results in the given list that depend on the cube at the given position.
+	 * @note	The list is traversed from its end, so that removing a result from it does not skip any other result.
+	 */
+	@Model
+	private void invalidate(List<Entry> candidates, int x, int y, int z) {
+		for(int i = candidates.size() - 1; i >= 0; i--){
+			Entry entry = candidates.get(i);
+			if(entry.borders(x, y, z)){
+				this.entries.remove(entry.index);
+				this.unregister(entry);
+				this.nbInvalidations++;
+			}
+		}
+	}
+
+	/**
+	 * Remove all results from this support analysis.
+	 */
+	public void clear() {
+		this.entries.clear();
+		this.entriesByChunk.clear();
+		this.largeEntries.clear();
+	}
+
+	/**
+	 * Return the number of queries that were answered from the cached results of this support analysis.
+	 */
+	@Basic
+	public long getNbHits() {
+		return this.nbHits;
+	}
+
+	/**
+	 * Return the number of queries that had to be searched.
+	 */
+	@Basic
+	public long getNbMisses() {
+		return this.nbMisses;
+	}
+
+	/**
+	 * Return the number of results that were dropped from this support analysis because of a terrain change.
+	 */
+	@Basic
+	public long getNbInvalidations() {
+		return this.nbInvalidations;
+	}
+
+	/**
+	 * Variables registering the counters of this support analysis.
+	 */
+	private long nbHits;
+	private long nbMisses;
+	private long nbInvalidations;
+
+	@Override
+	public String toString() {
+		return "SupportAnalysis[entries=" + this.getNbEntries() + ", hits=" + this.getNbHits() + ", misses=" + this.getNbMisses()
+				+ ", invalidations=" + this.getNbInvalidations() + "]";
+	}
+
+	/**
+	 * Return the cached or newly computed result for the cube with the given coordinates.
+	 * @throws	IllegalArgumentException
+	 * 			The given coordinates are out of the bounds of the world of this support analysis.
+	 */
+	@Model
+	private Entry getEntry(int x, int y, int z) throws IllegalArgumentException {
+		if((x < 0) || (y < 0) || (z < 0) || (x >= this.nbX) || (y >= this.nbY) || (z >= this.nbZ))
+			throw new IllegalArgumentException("Coordinates out of bounds!");
+		int index = this.getIndex(x, y, z);
+		Entry entry = this.entries.get(index);
+		if(entry != null){
+			this.nbHits++;
+			return entry;
+		}
+		this.nbMisses++;
+		entry = this.analyse(x, y, z);
+		this.entries.put(index, entry);
+		this.register(entry);
+		if(this.entries.size() > this.getMaxNbEntries()){
+			Iterator<Entry> iterator = this.entries.values().iterator();
+			this.unregister(iterator.next());
+			iterator.remove();
+		}
+		return entry;
+	}
+
+	/**
+	 * Register the given result in the chunks that its box, extended by one cube, overlaps, or in the list of large results if
+	 * those are more than MAX_NB_INDEXED_CHUNKS.
+	 */
+	@Model
+	private void register(Entry entry) {
+		int[] chunks = this.getChunkBounds(entry);
+		if((long) (chunks[3] - chunks[0] + 1)*(chunks[4] - chunks[1] + 1)*(chunks[5] - chunks[2] + 1) > MAX_NB_INDEXED_CHUNKS){
+			this.largeEntries.add(entry);
+			return;
+		}
+		for(int cz = chunks[2]; cz <= chunks[5]; cz++)
+			for(int cy = chunks[1]; cy <= chunks[4]; cy++)
+				for(int cx = chunks[0]; cx <= chunks[3]; cx++)
+					this.entriesByChunk.computeIfAbsent(this.getChunkKey(cx, cy, cz), key -> new ArrayList<Entry>()).add(entry);
+	}
+
+	/**
+	 * Remove the given result from the chunks or the list of large results it was registered in.
+	 */
+	@Model
+	private void unregister(Entry entry) {
+		int[] chunks = this.getChunkBounds(entry);
+		if((long) (chunks[3] - chunks[0] + 1)*(chunks[4] - chunks[1] + 1)*(chunks[5] - chunks[2] + 1) > MAX_NB_INDEXED_CHUNKS){
+			this.largeEntries.remove(entry);
+			return;
+		}
+		for(int cz = chunks[2]; cz <= chunks[5]; cz++)
+			for(int cy = chunks[1]; cy <= chunks[4]; cy++)
+				for(int cx = chunks[0]; cx <= chunks[3]; cx++){
+					int key = this.getChunkKey(cx, cy, cz);
+					List<Entry> chunkEntries = this.entriesByChunk.get(key);
+					chunkEntries.remove(entry);
+					if(chunkEntries.isEmpty())
+						this.entriesByChunk.remove(key);
+				}
+	}
+
+	/**
+	 * Return the chunk coordinates {minX, minY, minZ, maxX, maxY, maxZ} of the chunks that the box of the given result,
+	 * extended by one cube and clipped to the world, overlaps.
+	 */
+	@Model
+	private int[] getChunkBounds(Entry entry) {
+		return new int[] { Math.max(entry.bounds[0] - 1, 0) >> CHUNK_BITS, Math.max(entry.bounds[1] - 1, 0) >> CHUNK_BITS,
+				Math.max(entry.bounds[2] - 1, 0) >> CHUNK_BITS, Math.min(entry.bounds[3] + 1, this.nbX - 1) >> CHUNK_BITS,
+				Math.min(entry.bounds[4] + 1, this.nbY - 1) >> CHUNK_BITS, Math.min(entry.bounds[5] + 1, this.nbZ - 1) >> CHUNK_BITS };
+	}
+
+	@Model
+	private int getChunkKey(int cx, int cy, int cz) {
+		int nbChunksX = ((this.nbX - 1) >> CHUNK_BITS) + 1, nbChunksY = ((this.nbY - 1) >> CHUNK_BITS) + 1;
+		return cx + nbChunksX*(cy + nbChunksY*cz);
+	}
+
+	/**
+	 * Return the result for the cube with the given coordinates, searching from each of its solid neighbours as if the cube
+	 * were removed.
+	 */
+	@Model
+	private Entry analyse(int x, int y, int z) {
+		int[] bounds = new int[] {x, y, z, x, y, z};
+		if(! this.world.isSolidCube(x, y, z))
+			return new Entry(this.getIndex(x, y, z), new int[0], bounds);
+		this.searcher.startClassification();
+		int removed = this.getIndex(x, y, z);
+		int nbUnsupported = 0;
+		for(int direction = 0; direction < BorderSearch.NB_DIRECTIONS; direction++){
+			if(! this.searcher.startFromNeighbour(removed, direction, removed))
+				continue;
+			boolean isConnected = this.searcher.run();
+			this.searcher.finish(isConnected);
+			if(! isConnected){
+				for(int i = 0; i < this.searcher.getNbVisited(); i++){
+					if(nbUnsupported == this.unsupported.length)
+						this.unsupported = Arrays.copyOf(this.unsupported, 2*nbUnsupported);
+					this.unsupported[nbUnsupported++] = this.searcher.getVisited(i);
+				}
+			}
+		}
+		int[] visitedBounds = this.searcher.getBounds();
+		for(int i = 0; i < 3; i++){
+			bounds[i] = Math.min(bounds[i], visitedBounds[i]);
+			bounds[i + 3] = Math.max(bounds[i + 3], visitedBounds[i + 3]);
+		}
+		return new Entry(removed, Arrays.copyOf(this.unsupported, nbUnsupported), bounds);
+	}
+
+	@Model
+	private int getIndex(int x, int y, int z) {
+		return x + this.nbX*(y + this.nbY*z);
+	}
+
+	/**
+	 * Variable registering the searcher of this support analysis, whose classifications are those of the current query.
+	 */
+	private final BorderSearch.Searcher searcher;
+
+	/**
+	 * Variable registering the reusable unsupported cubes of the queries.
+	 */
+	private int[] unsupported = new int[64];
+
+	/**
+	 * Variable registering the cached results of this support analysis by cube index, in order of least recent use.
+	 */
+	private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true);
+
+	/**
+	 * Variable registering the cached results of this support analysis by the key of each chunk that their box, extended by
+	 * one cube, overlaps.
+	 */
+	private final HashMap<Integer, List<Entry>> entriesByChunk = new HashMap<Integer, List<Entry>>();
+
+	/**
+	 * Variable registering the cached results of this support analysis of which the box overlaps too many chunks to index.
+	 */
+	private final List<Entry> largeEntries = new ArrayList<Entry>();
+
+	/**
+	 * Constant registering the number of bits of a cube coordinate that select a cube within its chunk.
+	 */
+	private static final int CHUNK_BITS = 4;
+
+	/**
+	 * Constant registering the maximum number of chunks in which a result is registered.
+	 */
+	private static final int MAX_NB_INDEXED_CHUNKS = 64;
+
+	/**
+	 * A class of cached results, registering the index of the removed cube, the indices of the unsupported cubes and the
+	 * bounding box of the visited cubes.
+	 */
+	private static class Entry {
+
+		private Entry(int index, int[] unsupported, int[] bounds) {
+			this.index = index;
+			this.unsupported = unsupported;
+			this.bounds = bounds;
+		}
+
+		private final int index;
+
+		private final int[] unsupported;
+
+		private final int[] bounds;
+
+		/**
+		 * Check whether the bounding box of this result contains or borders the cube at the given position.
+		 */
+		private boolean borders(int x, int y, int z) {
+			return (x >= this.bounds[0] - 1) && (y >= this.bounds[1] - 1) && (z >= this.bounds[2] - 1) && (x <= this.bounds[3] + 1)
+					&& (y <= this.bounds[4] + 1) && (z <= this.bounds[5] + 1);
+		}
+	}
+
+}
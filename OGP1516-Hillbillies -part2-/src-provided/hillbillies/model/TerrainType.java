@@ -0,0 +1,93 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * An enumeration of terrain types, describing the behaviour that all cubes of the same terrain type share.
+ *
+ * @note	A world only stores the number of the terrain type of each cube; the position and content of a cube are kept by the
+ * 			world itself. The four terrain types are shared by all cubes, so looking up the behaviour of a cube or changing its
+ * 			terrain type never creates an object.
+ */
+public enum TerrainType {
+
+	AIR(0, false),
+	ROCK(1, true) {
+		@Override
+		public Material createCaveInItem(PositionVector position) throws NullPointerException {
+			return new Boulder(PositionVector.centrePosition(position));
+		}
+	},
+	TREE(2, true) {
+		@Override
+		public Material createCaveInItem(PositionVector position) throws NullPointerException {
+			return new Log(PositionVector.centrePosition(position));
+		}
+	},
+	WORKSHOP(3, false);
+
+	/**
+	 * Initialize this new terrain type with the given number and solidity.
+	 */
+	private TerrainType(int number, boolean isSolid) {
+		this.number = number;
+		this.isSolid = isSolid;
+	}
+
+	/**
+	 * Return the number of this terrain type.
+	 */
+	@Basic @Immutable
+	public int getNumber() {
+		return this.number;
+	}
+
+	/**
+	 * Variable registering the number of this terrain type.
+	 */
+	private final int number;
+
+	/**
+	 * Check whether cubes of this terrain type are solid.
+	 */
+	@Basic @Immutable
+	public boolean isSolid() {
+		return this.isSolid;
+	}
+
+	/**
+	 * Variable registering whether cubes of this terrain type are solid.
+	 */
+	private final boolean isSolid;
+
+	/**
+	 * Return the item that spawns when a cube of this terrain type at the given position caves in.
+	 * @param position	The given position.
+	 * @return	A boulder in the centre of the cube at the given position for rock, a log in the centre of the cube at the given
+	 * 			position for trees.
+	 * @throws	IllegalStateException
+	 * 			No item spawns when a cube of this terrain type caves in.
+	 * @throws	NullPointerException
+	 * 			The given position is not effective.
+	 */
+	public Material createCaveInItem(PositionVector position) throws IllegalStateException, NullPointerException {
+		throw new IllegalStateException("This terrain type doesn't spawn anything, when it collapses!");
+	}
+
+	/**
+	 * Return the terrain type with the given number.
+	 * @param number	The given number.
+	 * @return	The terrain type with the given number, or air if no terrain type has the given number.
+	 */
+	public static TerrainType fromNumber(int number) {
+		if((number < 0) || (number >= TYPES.length))
+			return AIR;
+		return TYPES[number];
+	}
+
+	/**
+	 * Variable registering all terrain types, by number.
+	 */
+	private static final TerrainType[] TYPES = values();
+
+}
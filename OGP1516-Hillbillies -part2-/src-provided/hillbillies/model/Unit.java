@@ -879,8 +879,12 @@ public class Unit extends GameObject {
 		String status = this.getActivityStatus();
 		if(status == null)
 			return;
-		if((this.getUnitPosition().equals(this.getNextPosition()) && (this.getUnitPosition().equals(this.getDestination()))))
+		if((this.getUnitPosition().equals(this.getNextPosition()) && (this.getUnitPosition().equals(this.getDestination())))){
 			this.getQueue().clear();
+			this.getWorld().getPathSubscriptions().unsubscribe(this);
+			this.releaseFlowField();
+			this.releaseIncrementalPathFinder();
+		}
 		if(status.equals("fall"))
 			//Unit fell 1 cube
 			if((this.getUnitPosition().equals(this.getNextPosition())) && (this.getUnitPosition().equals(this.getDestination()))){
@@ -901,6 +905,9 @@ public class Unit extends GameObject {
 				this.fall();
 				this.advanceTime(time);
 		}
+		else if(status.equals("planning")){
+			//this unit waits for its path to be planned
+		}
 		else if ((status.equals("default") && (this.getDefaultBehaviour() == true) && ((this.getUnitPosition()).equals(this.getNextPosition())
 				&& (this.getUnitPosition()).equals(this.getDestination())))){
 				this.randomBehaviour();
@@ -956,15 +963,19 @@ public class Unit extends GameObject {
 	/**
 	 * Let this unit move to a given position.
 	 * @param destination	The given destination.
-	 * @effect	If this unit changed course or wasn't moving yet, the path to the given destination is determined and set as this
-	 * 			unit's path. The difference vector between this unit's current position (also the first element in its path) and
+	 * @effect	If this unit changed course, wasn't moving yet or must repair its path after a change of the terrain, the path to
+	 * 			the given destination is determined and set as this unit's path, and this unit subscribes to the cubes of that path
+	 * 			in the path subscriptions of its world. This unit unsubscribes from the cube it leaves. The difference vector between this unit's current position (also the first element in its path) and
 	 * 			the next element in its path is calculated. The first element of its path is removed from its path. This unit
 	 * 			moves to the adjacent cube that is located at the difference vector.
-	 * 			| if((this.getQueue().isEmpty()) || (! this.getQueue().contains(PositionVector.getIntegerPositionVector(destination))))
-	 * 			| 		this.setQueue(this.getWorld().determinePath(this.getUnitPosition(), destination))
+	 * 			| if((this.getQueue().isEmpty()) || (! this.getQueue().contains(PositionVector.getIntegerPositionVector(destination)))
+	 * 			| 		|| this.mustRepairPath())
+	 * 			| 		this.setQueue(this.determinePath(destination))
+	 * 			| 		this.getWorld().getPathSubscriptions().subscribe(this, this.getQueue())
 	 * 			| 		this.setDestination(PositionVector.centrePosition(destination))
 	 * 			| PositionVector position = this.getQueue().get(0)
 	 * 			| this.getQueue().remove(0)
+	 * 			| this.getWorld().getPathSubscriptions().unsubscribe(this, this.getCubePositionVector())
 	 * 			| PositionVector differenceVector = PositionVector.calcDifferenceVector(position, this.getQueue().get(0))
 	 * 			| this.moveToAdjacent(differenceVector)
 	 * @throws IllegalArgumentException
@@ -981,16 +992,27 @@ public class Unit extends GameObject {
 					|| (this.getCubePositionVector().equals(PositionVector.getIntegerPositionVector(destination))))
 				throw new IllegalArgumentException("MoveTo exception");
 			//unit starts moving or changed destination
-			if((this.getQueue().isEmpty()) || (! this.getQueue().contains(PositionVector.getIntegerPositionVector(destination)))){
-					this.setQueue(this.getWorld().determinePath(this.getUnitPosition(), destination));
-					if(this.getQueue().isEmpty())
+			if((this.getQueue().isEmpty()) || (! this.getQueue().contains(PositionVector.getIntegerPositionVector(destination)))
+					|| this.mustRepairPath()){
+					List<PositionVector> path = this.determinePath(destination);
+					if(path == null){
+						this.setActivityStatus("planning");
+						return;
+					}
+					this.setQueue(path);
+					this.getWorld().getPathSubscriptions().subscribe(this, path);
+					if(this.getQueue().isEmpty()){
+						this.releaseFlowField();
+						this.releaseIncrementalPathFinder();
 						return;
+					}
 					this.setDestination(PositionVector.centrePosition(destination));
 					this.getQueue().remove(0);
 			}
 			//this unit's position is removed from the path
 			PositionVector position = this.getQueue().get(0);
 			this.getQueue().remove(0);
+			this.getWorld().getPathSubscriptions().unsubscribe(this, this.getCubePositionVector());
 			PositionVector differenceVector = PositionVector.calcDifferenceVector(this.getCubePositionVector(), position);
 			this.moveToAdjacent(differenceVector);
 		}
@@ -999,6 +1021,220 @@ public class Unit extends GameObject {
 		}
 	}
 	
+	/**
+	 * Let this unit move to a given position, following the given flow field.
+	 * @param destination	The given destination.
+	 * @param flowField	The given flow field.
+	 * @effect	The flow field this unit used so far is released.
+	 * 			| this.releaseFlowField()
+	 * @post	If the given flow field is valid and leads to the cube of the given destination, this unit uses the given flow field
+	 * 			and is registered as one of its users.
+	 * @effect	This unit's path is cleared and this unit moves to the given destination.
+	 * 			| this.getQueue().clear()
+	 * 			| this.getWorld().getPathSubscriptions().unsubscribe(this)
+	 * 			| this.moveTo(destination)
+	 * @throws NullPointerException
+	 * 			The given destination or flow field is not effective.
+	 * 			| (destination == null) || (flowField == null)
+	 */
+	public void moveTo(PositionVector destination, FlowField flowField) throws NullPointerException{
+		this.releaseFlowField();
+		if(flowField.isValid() && flowField.getDestination().equals(PositionVector.getIntegerPositionVector(destination))){
+			this.flowField = flowField;
+			flowField.addUser();
+		}
+		this.getQueue().clear();
+		this.getWorld().getPathSubscriptions().unsubscribe(this);
+		this.moveTo(destination);
+	}
+	
+	/**
+	 * Return the path from this unit's position to the given destination.
+	 * @param destination	The given destination.
+	 * @return	The path given by this unit's flow field if it is still valid, leads to the cube of the given destination and covers
+	 * 			this unit's cube. Otherwise, if the units of this unit's world repair their paths incrementally, the path given by
+	 * 			this unit's incremental path finder to the given destination. Otherwise, if this unit's world plans paths
+	 * 			asynchronously, the path in the path cache of this unit's world or null if it is not cached, or else the path as
+	 * 			determined by this unit's world.
+	 * @effect	If this unit's flow field can't be used, it is released.
+	 * @effect	If this unit's incremental path finder does not lead to the given destination or is not used, it is released. If the
+	 * 			units of this unit's world repair their paths incrementally and this unit has no incremental path finder, a new one
+	 * 			to the given destination is registered in this unit's world.
+	 * @effect	If this unit's flow field can't be used, this unit's world plans paths asynchronously and the path is not cached, the
+	 * 			path is requested from the path planner of this unit's world.
+	 * 			| this.getWorld().getPathPlanner().submit(this, destination)
+	 * @throws IllegalArgumentException
+	 * 			The path can't be determined by this unit's world.
+	 */
+	@Model
+	private List<PositionVector> determinePath(PositionVector destination) throws IllegalArgumentException{
+		FlowField flowField = this.getFlowField();
+		if(flowField != null){
+			if(flowField.isValid() && flowField.getDestination().equals(PositionVector.getIntegerPositionVector(destination))
+					&& flowField.covers(this.getCubePositionVector()))
+				return flowField.getPath(this.getCubePositionVector());
+			this.releaseFlowField();
+		}
+		IncrementalPathFinder incrementalPathFinder = this.getIncrementalPathFinder();
+		if((incrementalPathFinder != null) && ((! this.getWorld().isIncrementalReplanning())
+				|| (! incrementalPathFinder.getDestination().equals(PositionVector.getIntegerPositionVector(destination)))))
+			this.releaseIncrementalPathFinder();
+		if(this.getWorld().isIncrementalReplanning()){
+			if(this.getIncrementalPathFinder() == null){
+				this.incrementalPathFinder = new IncrementalPathFinder(this.getWorld(), destination);
+				this.getWorld().addIncrementalPathFinder(this.incrementalPathFinder);
+			}
+			return this.incrementalPathFinder.findPath(this.getCubePositionVector());
+		}
+		if(this.getWorld().getPathPlanner() != null){
+			if(this.getUnitPosition().equals(destination))
+				throw new IllegalArgumentException();
+			List<PositionVector> path = this.getWorld().getPathCache().get(this.getCubePositionVector(),
+					PositionVector.getIntegerPositionVector(destination));
+			if(path != null)
+				return path;
+			this.getWorld().getPathPlanner().submit(this, destination);
+			return null;
+		}
+		return this.getWorld().determinePath(this.getUnitPosition(), destination);
+	}
+	
+	/**
+	 * Check whether this unit waits for its path to be planned.
+	 * @return	| result == "planning".equals(this.getActivityStatus())
+	 */
+	public boolean isPlanning() {
+		return "planning".equals(this.getActivityStatus());
+	}
+	
+	/**
+	 * Let this unit follow the given planned path to the given destination.
+	 * @param destination	The destination of the given path.
+	 * @param path	The given path, starting in this unit's cube.
+	 * @effect	If this unit waits for its path to be planned, it stops waiting. If the given path is not empty, it is set as this
+	 * 			unit's path, the centre of the given destination as its destination, and this unit moves to the second cube of
+	 * 			the path.
+	 * 			| this.setActivityStatus("default")
+	 * 			| this.setQueue(path)
+	 * 			| this.getWorld().getPathSubscriptions().subscribe(this, path)
+	 * 			| this.setDestination(PositionVector.centrePosition(destination))
+	 * 			| this.moveToAdjacent(PositionVector.calcDifferenceVector(this.getCubePositionVector(), path.get(1)))
+	 */
+	void applyPlannedPath(PositionVector destination, List<PositionVector> path) {
+		if(! this.isPlanning())
+			return;
+		this.setActivityStatus("default");
+		if(path.size() < 2)
+			return;
+		try{
+			this.setQueue(new ArrayList<PositionVector>(path));
+			this.getWorld().getPathSubscriptions().subscribe(this, path);
+			this.setDestination(PositionVector.centrePosition(destination));
+			this.getQueue().remove(0);
+			PositionVector position = this.getQueue().remove(0);
+			this.getWorld().getPathSubscriptions().unsubscribe(this, this.getCubePositionVector());
+			this.moveToAdjacent(PositionVector.calcDifferenceVector(this.getCubePositionVector(), position));
+		}
+		catch (IllegalArgumentException exc){
+			
+		}
+	}
+	
+	/**
+	 * Return the flow field this unit follows.
+	 */
+	@Basic @Raw
+	public FlowField getFlowField() {
+		return this.flowField;
+	}
+	
+	/**
+	 * Stop using this unit's flow field.
+	 * @effect	If this unit uses a flow field, it is released in this unit's world.
+	 * 			| if(this.getFlowField() != null)
+	 * 			| 	this.getWorld().releaseFlowField(this.getFlowField())
+	 * @post	This unit no longer uses a flow field.
+	 * 			| new.getFlowField() == null
+	 */
+	@Model
+	private void releaseFlowField() {
+		if(this.flowField != null){
+			this.getWorld().releaseFlowField(this.flowField);
+			this.flowField = null;
+		}
+	}
+	
+	/**
+	 * Variable registering the flow field this unit follows.
+	 */
+	private FlowField flowField;
+	
+	/**
+	 * Return the incremental path finder this unit uses to repair its path.
+	 */
+	@Basic @Raw
+	public IncrementalPathFinder getIncrementalPathFinder() {
+		return this.incrementalPathFinder;
+	}
+	
+	/**
+	 * Check whether this unit must repair its path.
+	 * @return	True if and only if this unit's path was invalidated by a change of the terrain and this unit can no longer walk
+	 * 			from its cube along its path.
+	 * @post	This unit's path is no longer invalidated.
+	 * 			| ! new.isPathInvalidated()
+	 */
+	@Model
+	private boolean mustRepairPath() {
+		if(! this.isPathInvalidated())
+			return false;
+		this.pathInvalidated = false;
+		List<PositionVector> path = new ArrayList<PositionVector>();
+		path.add(this.getCubePositionVector());
+		path.addAll(this.getQueue());
+		return (! this.getWorld().getReachabilityMap().isWalkable(path));
+	}
+	
+	/**
+	 * Check whether this unit's path was invalidated by a change of the terrain since this unit last checked it.
+	 */
+	@Basic @Raw
+	public boolean isPathInvalidated() {
+		return this.pathInvalidated;
+	}
+	
+	/**
+	 * Let this unit check its path when it reaches its next cube.
+	 * @post	| new.isPathInvalidated()
+	 */
+	void invalidatePath() {
+		this.pathInvalidated = true;
+	}
+	
+	/**
+	 * Variable registering whether this unit's path was invalidated by a change of the terrain.
+	 */
+	private boolean pathInvalidated;
+	
+	/**
+	 * Stop using this unit's incremental path finder.
+	 * @effect	If this unit uses an incremental path finder, it is removed from this unit's world.
+	 * @post	This unit no longer uses an incremental path finder.
+	 * 			| new.getIncrementalPathFinder() == null
+	 */
+	@Model
+	private void releaseIncrementalPathFinder() {
+		if(this.incrementalPathFinder != null){
+			this.getWorld().removeIncrementalPathFinder(this.incrementalPathFinder);
+			this.incrementalPathFinder = null;
+		}
+	}
+	
+	/**
+	 * Variable registering the incremental path finder this unit uses to repair its path.
+	 */
+	private IncrementalPathFinder incrementalPathFinder;
+	
 	/**
 	 * Return the base speed of this unit.
 	 * @return	The base speed of this unit calculated with a formula using the strength, agility and effective weight of this unit.
@@ -1172,13 +1408,14 @@ public class Unit extends GameObject {
 	 * @return 
 	 *       | result == ((activityStatus.equals("move") || (activityStatus.equals("work")) || 
 	 *		 |					(activityStatus.equals("rest")) || (activityStatus.equals("attack")) ||
+	 *		 |					(activityStatus.equals("planning")) ||
 	 *		 |						 (activityStatus.equals("default")) || (activityStatus.equals("fall"))))
 	 */
 	@Override
 	protected boolean isValidActivityStatus(String activityStatus) {
 		return ((activityStatus.equals("move") || (activityStatus.equals("work")) || 
 					(activityStatus.equals("rest")) || (activityStatus.equals("attack")) ||
-					(super.isValidActivityStatus(activityStatus))));
+					(activityStatus.equals("planning")) || (super.isValidActivityStatus(activityStatus))));
 	}
 	
 	/**
@@ -2516,10 +2753,17 @@ public class Unit extends GameObject {
 	 *			| 	action = generator.nextInt(3)
 	 *			| if (action == 0)
 	 *			| 	int sprint = generator.nextInt(2)
-	 *			|  	this.moveTo(this.moveTo(this.getWorld().randomStandingPosition())
+	 *			| 	if(this.getWorld().isValidStandingPosition(this.getCubePositionVector()))
+	 *			|  		this.moveTo(this.getWorld().randomStandingPosition(this.getCubePositionVector()))
+	 *			| 	else if(this.getWorld().getNbStandingPositions() > 0)
+	 *			|  		this.moveTo(this.getWorld().randomStandingPosition())
 	 *			|  	this.setSprint(sprint == 1)
 	 *			| if (action == 1)
-	 *			|  	this.work(PositionVector.sum(this.randomAdjacent(),this.getCubePositionVector()));
+	 *			|	target = PositionVector.sum(this.randomAdjacent(),this.getCubePositionVector())
+	 *			|	if (this.wouldCollapseMany(target))
+	 *			|		action = 2
+	 *			|	else
+	 *			|  		this.work(target)
 	 *			| if (action == 2) 
 	 *			|  	this.rest()
 	 *			| if (action == 3)
@@ -2534,17 +2778,50 @@ public class Unit extends GameObject {
 			action = generator.nextInt(3);
 		if (action == 0){
 			int sprint = generator.nextInt(2);
-			this.moveTo(this.getWorld().randomStandingPosition());
+			if(this.getWorld().isValidStandingPosition(this.getCubePositionVector()))
+				this.moveTo(this.getWorld().randomStandingPosition(this.getCubePositionVector()));
+			else if(this.getWorld().getNbStandingPositions() > 0)
+				this.moveTo(this.getWorld().randomStandingPosition());
 			this.setSprint(sprint == 1);
 		}
-		if (action == 1)
-			this.work(PositionVector.sum(this.randomAdjacent(),this.getCubePositionVector()));
+		if (action == 1){
+			PositionVector target = PositionVector.sum(this.randomAdjacent(),this.getCubePositionVector());
+			if(this.wouldCollapseMany(target))
+				action = 2;
+			else
+				this.work(target);
+		}
 		if (action == 2) 
 			this.rest();
 		if (action == 3)
 			this.attack(potentialEnemy);
 	}
 	
+	/**
+	 * Check whether working at the given position would make more than the maximum number of cubes of default behaviour
+	 * cave-in.
+	 * @param position	The given position.
+	 * @return	True if and only if the given position is a valid position of this unit's world and removing the cube at it would
+	 * 			leave more than the maximum number of cubes of default behaviour without connection to a border.
+	 * 			| result == this.getWorld().isValidPosition(position) &&
+	 * 			|	(this.getWorld().getNbCubesUnsupportedWithout(x, y, z) > maxNbDefaultCaveIns)
+	 * @note	The check does not change the world and its result is cached by the world's support analysis, so units with default
+	 * 			behaviour can look at it every time they choose to work.
+	 */
+	@Raw
+	private boolean wouldCollapseMany(PositionVector position) {
+		if(! this.getWorld().isValidPosition(position))
+			return false;
+		return this.getWorld().getNbCubesUnsupportedWithout((int) position.getXArgument(), (int) position.getYArgument(),
+				(int) position.getZArgument()) > maxNbDefaultCaveIns;
+	}
+	
+	/**
+	 * Variable registering the maximum number of cubes that may cave-in together with a cube a unit with default behaviour works
+	 * at.
+	 */
+	private static int maxNbDefaultCaveIns = 8;
+	
 	/**
 	 * Return a given attribute value, transformed to be a legal initial attribute value.
 	 * @param attributeValue	The given attribute value.
@@ -2812,21 +3089,16 @@ public class Unit extends GameObject {
 	 * @return	True if and only if this unit does not occupy a cube at the bottom of it's world (z = 0), does not have 
 	 * 			a solid cube underneath the cube it's occupying and does not have any adjacent solid cube.
 	 * 			| result == (! this.getCubePosition()[2] == 0) 
-	 * 			| 	&& (! this.getWorld().isSolidPosition(new PositionVector(cubePositionVector.getXArgument(),
-	 *			|			cubePositionVector.getYArgument(),cubePositionVector.getZArgument()-1.0)))
-	 * 			|		&& (this.getWorld().hasSolidAdjacent(this.getWorld().getCube(this.getCubePosition()[0],
-	 * 			|														this.getCubePosition()[1],this.getCubePosition()[2])))
+	 * 			|	&& (! this.getWorld().hasSolidAdjacent(this.getCubePosition()[0], this.getCubePosition()[1],
+	 * 			|		this.getCubePosition()[2]))
+	 * @note	The cube underneath the cube this unit occupies is one of its adjacent cubes, so it needs no separate check.
 	 */
 	@Override
 	protected boolean fallCheck(){
-		if(this.getCubePosition()[2] == 0)
-			return false;
-		PositionVector cubePositionVector = this.getCubePositionVector();
-		if(this.getWorld().isSolidPosition(new PositionVector(cubePositionVector.getXArgument(),cubePositionVector.getYArgument(),
-				cubePositionVector.getZArgument()-1.0)))
-			return false;
 		int[] cubePosition = this.getCubePosition();
-		return (! this.getWorld().hasSolidAdjacent(this.getWorld().getCube(cubePosition[0],cubePosition[1],cubePosition[2])));
+		if(cubePosition[2] == 0)
+			return false;
+		return (! this.getWorld().hasSolidAdjacent(cubePosition[0], cubePosition[1], cubePosition[2]));
 	}
 	
 	/**
@@ -2834,6 +3106,11 @@ public class Unit extends GameObject {
 	 * @effect	This unit drops all objects from it's inventory at it's position and  is then removed from it's faction.
 	 * 			It's activity status, velocity, destination, faction, name, next position, world, 
 	 * 			path and work position are given the null reference. It's double hp and stamina are set 0.
+	 * 			The flow field and the incremental path finder this unit uses are released and its path subscriptions are
+	 * 			removed first.
+	 * 			| this.releaseFlowField()
+	 * 			| this.releaseIncrementalPathFinder()
+	 * 			| this.getWorld().getPathSubscriptions().unsubscribe(this)
 	 * 			| this.emptyInventory(this.getUnitPosition())
 	 * 			| this.getFaction().removeUnit(this)
 	 * 			| this.activityStatus = null
@@ -2852,6 +3129,11 @@ public class Unit extends GameObject {
 	protected void terminate() throws IllegalStateException {
 		if(this.isTerminated())
 			throw new IllegalStateException("Already terminated.");
+		this.releaseFlowField();
+		this.releaseIncrementalPathFinder();
+		this.getWorld().getPathSubscriptions().unsubscribe(this);
+		if(this.getWorld().getPathPlanner() != null)
+			this.getWorld().getPathPlanner().cancel(this);
 		this.emptyInventory(this.getUnitPosition());
 		this.activityStatus = null;
 		this.destination = null;
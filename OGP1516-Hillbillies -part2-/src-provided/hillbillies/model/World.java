@@ -1,6 +1,7 @@
 package hillbillies.model;
 
 import java.util.*;
+import java.util.function.IntPredicate;
 
 import be.kuleuven.cs.som.annotate.*;
 import hillbillies.part2.listener.*;
@@ -11,12 +12,8 @@ import ogp.framework.util.Util;
 /**
  * A class of worlds.
  * 
- * @invar  The terrain matrix of each world must be a valid terrain matrix for any
- *         world.
- *       | isValidTerrainMatrix(getTerrainMatrix())
- * @invar  The cube matrix of this world must be a valid cube matrix for this
- *         world.
- *       | isValidCubeMatrix(getCubeMatrix())
+ * @invar  Each world has at least one cube in each direction.
+ *       | (getNbCubesX() > 0) && (getNbCubesY() > 0) && (getNbCubesZ() > 0)
  * @invar  Each cube can have its connected to border checker as connected to border checker.
  *       | canHaveAsConnectedToBorder(this.getConnectedToBorder())
  * @invar  The number of units of each world must be a valid number of units for any
@@ -43,40 +40,104 @@ public class World {
 	 *         The terrain matrix for this new world.
 	 * @param	modelListener 
 	 * 			The terrainChangeListener for this new world.
-	 * @effect The terrain matrix of this new world is set to
-	 *         the given terrain matrix.
-	 *       | this.setTerrainMatrix(terrainTypes)
+	 * @effect	This new world is initialized with a chunked store holding the terrain types of the given terrain matrix as its
+	 * 			terrain and a new chunked store as the store of its connected to border checker.
+	 *       | this(createTerrain(terrainTypes), new ChunkedVoxelStore(terrainTypes.length, terrainTypes[0].length, 
+	 *       |		terrainTypes[0][0].length, 0), modelListener)
+	 * @throws NullPointerException
+	 * 			The given terrain matrix is not effective.
+	 *       | ! isValidTerrainMatrix(terrainTypes)
+	 */
+	public World(int[][][] terrainTypes, TerrainChangeListener modelListener)
+			throws NullPointerException {
+		this(createTerrain(terrainTypes), new ChunkedVoxelStore(terrainTypes.length, terrainTypes[0].length, 
+				terrainTypes[0][0].length, 0), modelListener);
+	}
+	
+	/**
+	 * Initialize this new world with the given terrain.
+	 *
+	 * @param	terrain
+	 * 			The store holding the terrain type of each cube of this new world.
+	 * @param	modelListener 
+	 * 			The terrainChangeListener for this new world.
+	 * @effect	This new world is initialized with the given terrain and a new chunked store as the store of its connected to
+	 * 			border checker.
+	 *       | this(terrain, new ChunkedVoxelStore(terrain.getNbX(), terrain.getNbY(), terrain.getNbZ(), 0), modelListener)
+	 * @throws	NullPointerException
+	 * 			The given terrain is not effective.
+	 */
+	public World(VoxelStore terrain, TerrainChangeListener modelListener) throws NullPointerException {
+		this(terrain, new ChunkedVoxelStore(terrain.getNbX(), terrain.getNbY(), terrain.getNbZ(), 0), modelListener);
+	}
+	
+	/**
+	 * Initialize this new world with the given terrain and the given store for its connected to border checker.
+	 *
+	 * @param	terrain
+	 * 			The store holding the terrain type of each cube of this new world.
+	 * @param	borderStates
+	 * 			The store in which the connected to border checker of this new world keeps its state. Its values are recomputed
+	 * 			from the given terrain, whatever they were before.
+	 * @param	modelListener 
+	 * 			The terrainChangeListener for this new world.
+	 * @post	The number of cubes of this new world in each direction is the size of the given terrain in that direction.
+	 * @post	The terrain types of this new world are read from and written to the given terrain.
 	 * @post	The modelListener of this new world equals the given modelListener.
 	 * 			| this.modelListener.equals(modelListener)
-	 * @effect	The cube matrix of this world is initialized.
-	 * @effect	Initializes this world's connected to border checker.
-	 * @effect	This world's terrain is made valid.
+	 * @effect	This world's terrain is made valid, which initializes this world's connected to border checker.
+	 * @effect	The reachability map of this world is built from the terrain.
+	 * @effect	The path finder, hierarchical path finder and path cache of this new world are initialized.
 	 * @effect The unit set of this new world is set to an empty hash set.
 	 * @effect The material set of this new world is set to an empty hash set.
 	 * @effect The faction set of this new world is set to a new hash set.
-	 */
-	public World(int[][][] terrainTypes, TerrainChangeListener modelListener)
-			throws NullPointerException {
+	 * @throws	NullPointerException
+	 * 			The given terrain or the given store is not effective.
+	 * @throws	IllegalArgumentException
+	 * 			The given store does not have the dimensions of the given terrain.
+	 * @note	With memory-mapped stores, only the terrain bytes and the connected to border bytes of this world live outside the
+	 * 			heap. The maps derived from them are built on the heap by passes over the whole world: the solid bits and the
+	 * 			height maps are dense, while the reachability map, the component map, the position samplers and the path finders
+	 * 			keep their values in pages that are only allocated for the regions of the world that need them.
+	 * @note	The terrain and the connected to border state are each loaded in a single pass over the world, and chunked stores
+	 * 			are filled in parallel slabs. The connected to border state is rebuilt on every construction, so every value of
+	 * 			a memory-mapped border store is written each time a world is built on it.
+	 */
+	public World(VoxelStore terrain, VoxelStore borderStates, TerrainChangeListener modelListener)
+			throws NullPointerException, IllegalArgumentException {
+		if((borderStates.getNbX() != terrain.getNbX()) || (borderStates.getNbY() != terrain.getNbY())
+				|| (borderStates.getNbZ() != terrain.getNbZ()))
+			throw new IllegalArgumentException("The given stores do not have the same dimensions!");
 		this.setUnitSet(new HashSet<Unit>());
 		this.setMaterialSet(new HashSet<Material>());
 		this.setFactionSet(new HashSet<>());
-		this.setTerrainMatrix(terrainTypes);
+		this.nbCubesX = terrain.getNbX();
+		this.nbCubesY = terrain.getNbY();
+		this.nbCubesZ = terrain.getNbZ();
+		this.terrain = terrain;
 		this.modelListener = modelListener;
-		this.initializeCubeMatrix();
-		this.connectedToBorder = new ConnectedToBorder(this.getNbCubesX(), this.getNbCubesY(), this.getNbCubesZ());
-		this.initializeConnectedToBorder();
+		this.changedCubeBits = new long[(this.nbCubesX*this.nbCubesY*this.nbCubesZ + 63) >>> 6];
+		this.borderSearch = new BorderSearch(this.nbCubesX, this.nbCubesY, this.nbCubesZ);
+		this.connectedToBorder = new ConnectedToBorder(borderStates, this.borderSearch);
 		this.makeValidTerrain();
+		this.solids = new long[(this.nbCubesX*this.nbCubesY*this.nbCubesZ + 63) >>> 6];
+		this.solidHeights = new HeightMap(this.nbCubesX, this.nbCubesY, this.nbCubesZ);
+		this.terrainHeights = new HeightMap(this.nbCubesX, this.nbCubesY, this.nbCubesZ);
+		this.initializeSolids();
+		this.reachabilityMap = new ReachabilityMap(this);
+		this.standingSampler = new PositionSampler(this.nbCubesX, this.nbCubesY, this.nbCubesZ);
+		this.spawnSampler = new PositionSampler(this.nbCubesX, this.nbCubesY, this.nbCubesZ);
+		this.initializePositionSamplers();
+		this.componentMap = new ComponentMap(this);
+		this.pathSubscriptions = new PathSubscriptions(this);
+		this.pathFinder = new PathFinder(this);
+		this.pathCache = new PathCache(this, maxNbCachedPaths, maxNbCachedCubes);
+		this.supportAnalysis = new SupportAnalysis(this, maxNbSupportEntries);
+		this.caveInScheduler = new CaveInScheduler(this, maxNbCaveInStepsPerAdvance, maxNbCaveInMicrosPerAdvance);
+		this.hierarchicalPathFinder = new HierarchicalPathFinder(this, clusterSize);
 	}
 	
 	
-	/**
-	 * Return the terrain matrix of this world.
-	 */
-	@Basic @Raw
-	public int[][][] getTerrainMatrix() {
-		return this.terrainTypes;
-	}
-	
 	/**
 	 * Check whether the given terrain matrix is a valid terrain matrix for
 	 * any world.
@@ -90,128 +151,145 @@ public class World {
 		return (terrainTypes != null);
 	}
 	
-	/**
-	 * Set the terrain matrix of this world to the given terrain matrix.
-	 * 
-	 * @param  terrainTypes
-	 *         The new terrain matrix for this world.
-	 * @post   The terrain matrix of this new world is equal to
-	 *         the given terrain matrix.
-	 *       | new.getTerrainMatrix() == terrainTypes
-	 * @throws NullPointerException
-	 *         The given terrain matrix is not a valid terrain matrix for any
-	 *         world.
-	 *       | ! isValidTerrainMatrix(getTerrainMatrix())
-	 */
-	@Raw
-	public void setTerrainMatrix(int[][][] terrainTypes) 
-			throws NullPointerException {
-		if (! isValidTerrainMatrix(terrainTypes))
-			throw new NullPointerException();
-		this.terrainTypes = terrainTypes;
-	}
-	
-	/**
-	 * Variable registering the terrain matrix of this world.
-	 */
-	private int[][][] terrainTypes;
-	
 	/**
 	 * Return the number of cubes this world has in the x direction.
-	 * @return	The x length of this world's terrain matrix.
 	 */
+	@Basic @Raw @Immutable
 	public int getNbCubesX() {
-		return this.getTerrainMatrix().length;
+		return this.nbCubesX;
 	}
 	
 	/**
 	 * Return the number of cubes this world has in the y direction.
-	 * @return	The y length of this world's terrain matrix.
 	 */
+	@Basic @Raw @Immutable
 	public int getNbCubesY() {
-		return this.getTerrainMatrix()[0].length;
+		return this.nbCubesY;
 	}
 	
 	/**
 	 * Return the number of cubes this world has in the z direction.
-	 * @return	The z length of this world's terrain matrix.
 	 */
+	@Basic @Raw @Immutable
 	public int getNbCubesZ() {
-		return this.getTerrainMatrix()[0][0].length;
+		return this.nbCubesZ;
 	}
 	
+	/**
+	 * Variables registering the number of cubes of this world in the x, y and z direction.
+	 */
+	private final int nbCubesX;
+	private final int nbCubesY;
+	private final int nbCubesZ;
+	
 	private TerrainChangeListener modelListener;
 	
 	/**
-	 * Return the cube matrix of this world.
+	 * Register the cube with the given index as changed since the last notification of this world's model listener.
+	 * @param index	The index of the changed cube.
+	 * @post	The cube is part of the next batch of changed cubes, once, after the cubes that were registered before it.
 	 */
-	@Basic @Raw
-	public Cube[][][] getCubeMatrix() {
-		return this.cubeMatrix;
+	@Model
+	private void registerTerrainChange(int index) {
+		if((this.changedCubeBits[index >>> 6] & (1L << index)) != 0)
+			return;
+		this.changedCubeBits[index >>> 6] |= (1L << index);
+		if(this.nbChangedCubes == this.changedCubes.length)
+			this.changedCubes = Arrays.copyOf(this.changedCubes, 2*this.nbChangedCubes);
+		this.changedCubes[this.nbChangedCubes++] = index;
 	}
 	
 	/**
-	 * Check whether the given cube matrix is a valid cube matrix for
-	 * any world.
-	 *  
-	 * @param  cube matrix
-	 *         The cube matrix to check.
-	 * @return 
-	 *       | result == (cubeMatrix != null) && (cubeMatrix.length == this.getNbCubesX()
-	 *       				&& (cubeMatrix[0].length == this.getNbCubesY() && (cubeMatrix[0][0].length == this.getNbCubesZ()))
-	*/
-	public boolean isValidCubeMatrix(Cube[][][] cubeMatrix) {
-		return (cubeMatrix != null) && (cubeMatrix.length == this.getNbCubesX()
-				&& (cubeMatrix[0].length == this.getNbCubesY()) && (cubeMatrix[0][0].length == this.getNbCubesZ()));
+	 * Notify this world's model listener of the cubes that changed since its last notification, unless time is advancing.
+	 * @effect	If time is not advancing in this world, the registered changes are notified.
+	 * 			| if (! this.isAdvancingTime)
+	 * 			|	then this.flushTerrainChanges()
+	 * @note	While time advances, changes are only registered, so that all changes of an advance of time reach the listener in a
+	 * 			single batch at its end.
+	 */
+	@Model
+	private void notifyTerrainChanges() {
+		if(! this.isAdvancingTime)
+			this.flushTerrainChanges();
 	}
 	
 	/**
-	 * Set the cube matrix of this world to the given cube matrix.
-	 * 
-	 * @param  cubeMatrix
-	 *         The new cube matrix for this world.
-	 * @post   The cube matrix of this new world is equal to
-	 *         the given cube matrix.
-	 *       | new.getCubeMatrix() == cubeMatrix
-	 * @throws NullPointerException
-	 *         The given cube matrix is not a valid cube matrix for any
-	 *         world.
-	 *       | ! isValidCubeMatrix(getCubeMatrix())
+	 * Notify this world's model listener of all cubes that changed since its last notification, at once.
+	 * @effect	If any cube changed, the model listener of this world is notified of a batch of the changed cubes, in the order in
+	 * 			which they were registered, after which no cube is registered as changed.
+	 * 			| if (nbChangedCubes > 0)
+	 * 			|	then this.modelListener.notifyTerrainChanged(
+	 * 			|		new TerrainChangeBatch(this.getNbCubesX(), this.getNbCubesY(), changedCubes))
 	 */
-	@Raw
-	public void setCubeMatrix(Cube[][][] cubeMatrix) 
-			throws NullPointerException {
-		if (! isValidCubeMatrix(cubeMatrix))
+	@Model
+	private void flushTerrainChanges() {
+		if(this.nbChangedCubes == 0)
+			return;
+		int[] indices = Arrays.copyOf(this.changedCubes, this.nbChangedCubes);
+		for(int index : indices)
+			this.changedCubeBits[index >>> 6] &= ~(1L << index);
+		this.nbChangedCubes = 0;
+		this.modelListener.notifyTerrainChanged(new TerrainChangeBatch(this.getNbCubesX(), this.getNbCubesY(), indices));
+	}
+	
+	/**
+	 * Variable registering for each cube of this world whether it changed since the last notification, one bit per cube by
+	 * cube index.
+	 */
+	private final long[] changedCubeBits;
+	
+	/**
+	 * Variables registering the indices of the cubes that changed since the last notification, in the order in which they
+	 * were registered, in the first nbChangedCubes elements.
+	 */
+	private int[] changedCubes = new int[64];
+	private int nbChangedCubes;
+	
+	/**
+	 * Variable registering whether time is advancing in this world.
+	 */
+	private boolean isAdvancingTime;
+	
+	/**
+	 * Return a chunked store holding the terrain types of the given terrain matrix.
+	 * @param terrainTypes	The given terrain matrix.
+	 * @return	A store of which each value is the terrain type of the given terrain matrix at the same position.
+	 * @throws	NullPointerException
+	 * 			The given terrain matrix is not effective.
+	 */
+	@Model
+	private static VoxelStore createTerrain(int[][][] terrainTypes) throws NullPointerException {
+		if(! isValidTerrainMatrix(terrainTypes))
 			throw new NullPointerException();
-		this.cubeMatrix = cubeMatrix;
+		VoxelStore terrain = new ChunkedVoxelStore(terrainTypes.length, terrainTypes[0].length, terrainTypes[0][0].length, 0);
+		terrain.fill((x, y, z) -> terrainTypes[x][y][z] & 0xFF);
+		return terrain;
 	}
 	
 	/**
-	 * Initialize the cube matrix of this world.
-	 * @effect	This world's cube matrix is created and a type of cube is mapped to each cell of it, according to each element 
-	 * of this world's terrain matrix.
+	 * Return the index of the cube with the given coordinates in this world.
+	 * @return	| result == x + y*getNbCubesX() + z*getNbCubesX()*getNbCubesY()
 	 */
-	@Raw
-	private void initializeCubeMatrix() {
-		int[][][] terrainMatrix = this.getTerrainMatrix();
-		Cube[][][] cubeMatrix = 
-				new Cube[this.getNbCubesX()][this.getNbCubesY()][this.getNbCubesZ()];
-		int x = 0;
-		while (x < this.getNbCubesX()) {
-			int y = 0;
-			while (y < this.getNbCubesY()) {
-				int z = 0;
-				while (z < this.getNbCubesZ()) {
-					cubeMatrix[x][y][z] = this.mapCube(new PositionVector(x,y,z), terrainMatrix[x][y][z]);
-					z++;
-				}
-				y++;
-			}
-			x++;
-		}
-		this.setCubeMatrix(cubeMatrix);
+	@Model
+	private int getIndex(int x, int y, int z) {
+		return x + this.nbCubesX*(y + this.nbCubesY*z);
+	}
+	
+	/**
+	 * Check whether the given coordinates lie within this world.
+	 */
+	@Model
+	private boolean isInWorld(int x, int y, int z) {
+		return (x >= 0) && (y >= 0) && (z >= 0) && (x < this.nbCubesX) && (y < this.nbCubesY) && (z < this.nbCubesZ);
 	}
 	
+	/**
+	 * Variable registering the terrain type of each cube of this world.
+	 * @note	By default the terrain is kept in chunks of 16x16x16 cubes, of which the homogeneous ones only store a single
+	 * 			terrain type, so large regions of air or rock take almost no memory. Cubes are created from it on demand.
+	 */
+	private final VoxelStore terrain;
+	
 	/**
 	 * Return a cube with a given position, content and terrain type, for a given position, content and terrain number.
 	 * @param cubePosition	The given position.
@@ -236,23 +314,6 @@ public class World {
 		return cube;
 	}
 	
-	/**
-	 * Return a cube with a given position, being a specific terrain type cube, for a given position and terrain number.
-	 * @param cubePosition	The given position.
-	 * @param terrainNb	The given terrain number.
-	 * @return	An air, rock, tree or workshop cube, depending on the given terrain number, having the given position as its position.
-	 * When no valid terrain number is given, air is returned.
-	 */
-	@Raw @Model
-	private Cube mapCube(PositionVector cubePosition, int terrainNb) {
-		return this.mapCube(cubePosition, new HashSet<GameObject>(), terrainNb);
-	}
-	
-	/**
-	 * Variable registering the cube matrix of this world.
-	 */
-	private Cube[][][] cubeMatrix;
-	
 	/**
 	 * Return the cube at a given position.
 	 * @param x	The given x coordinate of the targeted cube.
@@ -261,13 +322,91 @@ public class World {
 	 * @return	The cube at the give position.
 	 * @throws	IllegalArgumentException
 	 * 			The given coordinates are out of the bounds of this world.
+	 * @note	The returned cube is a snapshot of the terrain and the content of this world at the given position, created by
+	 * 			this call. Objects are added to and removed from cubes through this world.
 	 */
 	public Cube getCube(int x, int y, int z) throws IllegalArgumentException {
-		if ((x < 0) || (y < 0) || (z <0) || (x > this.getNbCubesX()) || (y > this.getNbCubesY()) || (z > this.getNbCubesZ()))
+		if (! this.isInWorld(x, y, z))
 				throw new IllegalArgumentException("Coordinates out of bounds!");
-		return this.getCubeMatrix()[x][y][z];
+		int index = this.getIndex(x, y, z);
+		CubeContent content = this.contents.get(index);
+		return this.mapCube(new PositionVector(x, y, z), (content == null) ? new HashSet<GameObject>() : content.toSet(),
+				this.terrain.get(x, y, z));
+	}
+	
+	/**
+	 * Return the content of the cube at the given position.
+	 * @return	The content of the cube at the given position, or null if that cube contains no objects.
+	 * @throws	IllegalArgumentException
+	 * 			The given coordinates are out of the bounds of this world.
+	 */
+	@Model
+	private CubeContent getCubeContent(int x, int y, int z) throws IllegalArgumentException {
+		if (! this.isInWorld(x, y, z))
+			throw new IllegalArgumentException("Coordinates out of bounds!");
+		return this.contents.get(this.getIndex(x, y, z));
 	}
 	
+	/**
+	 * Return the content of the cube at the given position.
+	 * @see	getCubeContent(int, int, int)
+	 */
+	@Model
+	private CubeContent getCubeContent(PositionVector position) throws IllegalArgumentException, NullPointerException {
+		return this.getCubeContent((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument());
+	}
+	
+	/**
+	 * Add the given object to the content of the cube at the given position.
+	 * @throws	IllegalArgumentException
+	 * 			The given coordinates are out of the bounds of this world or the given object is not located in the cube at them.
+	 */
+	@Model
+	private void addContent(GameObject object, int x, int y, int z) throws IllegalArgumentException {
+		if (! this.isInWorld(x, y, z))
+			throw new IllegalArgumentException("Coordinates out of bounds!");
+		int[] cubePosition = object.getCubePosition();
+		if((cubePosition[0] != x) || (cubePosition[1] != y) || (cubePosition[2] != z))
+			throw new IllegalArgumentException("The given object is not located in this cube!");
+		int index = this.getIndex(x, y, z);
+		CubeContent content = this.contents.get(index);
+		if(content == null){
+			content = new CubeContent();
+			this.contents.put(index, content);
+		}
+		content.add(object);
+	}
+	
+	/**
+	 * Remove the given object from the content of the cube at the given position.
+	 * @return	True if and only if the cube at the given position contained the given object.
+	 */
+	@Model
+	private boolean removeContent(GameObject object, int x, int y, int z) {
+		int index = this.getIndex(x, y, z);
+		CubeContent content = this.contents.get(index);
+		if((content == null) || (! content.remove(object)))
+			return false;
+		if(content.isEmpty())
+			this.contents.remove(index);
+		return true;
+	}
+	
+	/**
+	 * Return the number of objects in the cube at the given position.
+	 */
+	@Model
+	private int getNbObjects(int x, int y, int z) throws IllegalArgumentException {
+		CubeContent content = this.getCubeContent(x, y, z);
+		return (content == null) ? 0 : content.getNbObjects();
+	}
+	
+	/**
+	 * Variable registering the content of the cubes of this world that contain objects, by cube index.
+	 * @note	Cubes without objects have no entry, so they take no memory.
+	 */
+	private final Map<Integer, CubeContent> contents = new HashMap<Integer, CubeContent>();
+	
 	/**
 	 * Return the terrain type of the cube at a given position.
 	 * @param x	The given x component of the targeted cube.
@@ -278,7 +417,171 @@ public class World {
 	 * 			The given coordinates are out of the bounds of this world.
 	 */
 	public int getCubeType(int x, int y, int z) throws IllegalArgumentException {
-		return this.getCube(x, y, z).getTerrainType();
+		if (! this.isInWorld(x, y, z))
+			throw new IllegalArgumentException("Coordinates out of bounds!");
+		return this.terrain.get(x, y, z);
+	}
+	
+	/**
+	 * Check whether the cube at a given position is solid, without creating any position.
+	 * @param x	The given x component of the targeted cube.
+	 * @param y The given y component of the targeted cube.
+	 * @param z The given z component of the targeted cube.
+	 * @return	True if and only if the cube at the given position is solid.
+	 * @throws	ArrayIndexOutOfBoundsException
+	 * 			The given coordinates are out of the bounds of this world.
+	 */
+	public boolean isSolidCube(int x, int y, int z) throws ArrayIndexOutOfBoundsException {
+		if (! this.isInWorld(x, y, z))
+			throw new ArrayIndexOutOfBoundsException();
+		int index = this.getIndex(x, y, z);
+		return ((this.solids[index >>> 6] >>> index) & 1L) != 0;
+	}
+	
+	/**
+	 * Initialize the solid bits and the height maps of this world from its terrain.
+	 * @post	The solid bit of each cube is set if and only if the terrain type of the cube is solid.
+	 * @post	Each cube is registered in the solid height map of this world if and only if it is solid, and in the terrain height
+	 * 			map of this world if and only if it is not air.
+	 */
+	@Raw @Model
+	private void initializeSolids() {
+		for(int z = 0; z < this.getNbCubesZ(); z++)
+			for(int y = 0; y < this.getNbCubesY(); y++)
+				for(int x = 0; x < this.getNbCubesX(); x++){
+					int terrainType = this.terrain.get(x, y, z);
+					if(isSolidType(terrainType)){
+						this.setSolid(this.getIndex(x, y, z), true);
+						this.solidHeights.set(x, y, z, true);
+					}
+					if(terrainType != TerrainType.AIR.getNumber())
+						this.terrainHeights.set(x, y, z, true);
+				}
+	}
+	
+	/**
+	 * Set the solid bit of the cube with the given index to the given flag.
+	 */
+	@Model
+	private void setSolid(int index, boolean isSolid) {
+		if(isSolid)
+			this.solids[index >>> 6] |= (1L << index);
+		else
+			this.solids[index >>> 6] &= ~(1L << index);
+	}
+	
+	/**
+	 * Variable registering for each cube of this world whether it is solid, one bit per cube by cube index.
+	 * @note	Solidity is asked for far more often than terrain types, by every standing check and every step of a path search,
+	 * 			so it is kept apart from the terrain in a form that only takes a single bit lookup.
+	 */
+	private final long[] solids;
+	
+	/**
+	 * Return the z coordinate of the highest solid cube of the given column.
+	 * @param x	The x coordinate of the column.
+	 * @param y	The y coordinate of the column.
+	 * @return	| result == this.getSolidZAtOrBelow(x, y, this.getNbCubesZ()-1)
+	 * @throws	IllegalArgumentException
+	 * 			The given column is out of the bounds of this world.
+	 */
+	public int getHighestSolidZ(int x, int y) throws IllegalArgumentException {
+		return this.getSolidZAtOrBelow(x, y, this.getNbCubesZ()-1);
+	}
+	
+	/**
+	 * Return the z coordinate of the highest solid cube of the given column at or below the given height.
+	 * @param x	The x coordinate of the column.
+	 * @param y	The y coordinate of the column.
+	 * @param z	The given height.
+	 * @return	The highest z coordinate at most the given height of which the cube in the given column is solid, or -1 if there is
+	 * 			no such cube.
+	 * 			| if (result != -1)
+	 * 			| 	then (result <= z) && this.isSolidCube(x, y, result) &&
+	 * 			|		(for each i in result+1..Math.min(z, this.getNbCubesZ()-1): ! this.isSolidCube(x, y, i))
+	 * @throws	IllegalArgumentException
+	 * 			The given column is out of the bounds of this world.
+	 * @note	This takes one lookup per 64 cubes of the column, instead of a walk down the column.
+	 */
+	public int getSolidZAtOrBelow(int x, int y, int z) throws IllegalArgumentException {
+		if (! this.isInWorld(x, y, 0))
+			throw new IllegalArgumentException("Coordinates out of bounds!");
+		return this.solidHeights.getHighestAtOrBelow(x, y, z);
+	}
+	
+	/**
+	 * Return the z coordinate of the highest cube of the given column at or below the given height that is not air.
+	 * @param x	The x coordinate of the column.
+	 * @param y	The y coordinate of the column.
+	 * @param z	The given height.
+	 * @return	The highest z coordinate at most the given height of which the cube in the given column is not air, or -1 if there
+	 * 			is no such cube.
+	 * 			| if (result != -1)
+	 * 			| 	then (result <= z) && (this.getCubeType(x, y, result) != TerrainType.AIR.getNumber()) &&
+	 * 			|		(for each i in result+1..Math.min(z, this.getNbCubesZ()-1): 
+	 * 			|			this.getCubeType(x, y, i) == TerrainType.AIR.getNumber())
+	 * @throws	IllegalArgumentException
+	 * 			The given column is out of the bounds of this world.
+	 */
+	public int getTerrainZAtOrBelow(int x, int y, int z) throws IllegalArgumentException {
+		if (! this.isInWorld(x, y, 0))
+			throw new IllegalArgumentException("Coordinates out of bounds!");
+		return this.terrainHeights.getHighestAtOrBelow(x, y, z);
+	}
+	
+	/**
+	 * Variable registering the solid cubes of this world per column.
+	 */
+	private final HeightMap solidHeights;
+	
+	/**
+	 * Variable registering the cubes of this world that are not air per column.
+	 */
+	private final HeightMap terrainHeights;
+	
+	/**
+	 * Check whether cubes of the given terrain type are solid.
+	 * @param terrainType	The given terrain type.
+	 * @return	| result == TerrainType.fromNumber(terrainType).isSolid()
+	 */
+	private static boolean isSolidType(int terrainType) {
+		return TerrainType.fromNumber(terrainType).isSolid();
+	}
+	
+	/**
+	 * Return the terrain type descriptor of the cube at a given position.
+	 * @param x	The given x component of the targeted cube.
+	 * @param y The given y component of the targeted cube.
+	 * @param z The given z component of the targeted cube.
+	 * @return	| result == TerrainType.fromNumber(this.getCubeType(x, y, z))
+	 * @throws	IllegalArgumentException
+	 * 			The given coordinates are out of the bounds of this world.
+	 */
+	public TerrainType getTerrainType(int x, int y, int z) throws IllegalArgumentException {
+		return TerrainType.fromNumber(this.getCubeType(x, y, z));
+	}
+	
+	/**
+	 * Return the terrain type descriptor of the cube with the given index.
+	 * @param index	The index of the targeted cube.
+	 * @return	| result == this.getTerrainType(index % getNbCubesX(), (index / getNbCubesX()) % getNbCubesY(),
+	 * 			|	index / (getNbCubesX()*getNbCubesY()))
+	 * @throws	IllegalArgumentException
+	 * 			The given index is not the index of a cube of this world.
+	 */
+	public TerrainType getTerrainType(int index) throws IllegalArgumentException {
+		if(! this.isValidCubeIndex(index))
+			throw new IllegalArgumentException("Index out of bounds!");
+		return TerrainType.fromNumber(this.terrain.get(index % this.nbCubesX, (index / this.nbCubesX) % this.nbCubesY,
+				index / (this.nbCubesX*this.nbCubesY)));
+	}
+	
+	/**
+	 * Check whether the given index is the index of a cube of this world.
+	 * @return	| result == (index >= 0) && (index < getNbCubesX()*getNbCubesY()*getNbCubesZ())
+	 */
+	public boolean isValidCubeIndex(int index) {
+		return (index >= 0) && (index < this.nbCubesX*this.nbCubesY*this.nbCubesZ);
 	}
 	
 	/**
@@ -287,42 +590,32 @@ public class World {
 	 * @param y The given y component of the targeted cube.
 	 * @param z The given z component of the targeted cube.
 	 * @param terrainType	The given terrain type.
-	 * @effect	The old cube is replaced by a new cube with the same position and the given terrain type.
+	 * @effect	The terrain type of the cube is replaced by the terrain type with the given number, or by air if there is no such
+	 * 			terrain type.
+	 * 			| this.replaceTerrainType(x, y, z, TerrainType.fromNumber(terrainType))
 	 * @throws IllegalArgumentException
 	 * 			The given coordinates are outside of this world.
 	 */
 	public void setCubeType(int x, int y, int z, int terrainType) throws IllegalArgumentException {
-		if(! this.isValidPosition(new PositionVector(x, y, z)))
+		if(! this.isInWorld(x, y, z))
 			throw new IllegalArgumentException("Position not in this world!");
-		Cube oldCube = this.getCube(x, y, z);
-		this.replaceCube(this.mapCube(oldCube.getPosition(), oldCube.getContent(), terrainType));
-	}
-	
-	/**
-	 * Initialize this world's connected to border checker, making it match this world's cube matrix on the aspect of solid 
-	 * and non-solid cubes.
-	 * @effect	Iterates over this world's cube matrix and changes all cells in connectedToBorder to passable, where the respective
-	 * cube is passable.
-	 */
-	private void initializeConnectedToBorder() {
-		Cube[][][] cubeMatrix = this.getCubeMatrix();
-		int x = 0;
-		while(x < this.getNbCubesX()){
-			int y = 0;
-			while(y < this.getNbCubesY()){
-				int z = 0;
-				while(z < this.getNbCubesZ()){
-					if (! cubeMatrix[x][y][z].isSolid()){
-						this.connectedToBorder.changeSolidToPassable(x, y, z);
-					}
-					z++;
-				}
-				y++;
-			}
-			x++;
-		}
+		this.replaceTerrainType(x, y, z, TerrainType.fromNumber(terrainType));
+	}
+	
+	/**
+	 * Return the border search of this world, in which the connected to border checker, the support analysis and the cave-in
+	 * scheduler of this world mark the cubes they search.
+	 */
+	@Basic @Raw @Immutable
+	public BorderSearch getBorderSearch() {
+		return this.borderSearch;
 	}
 	
+	/**
+	 * Variable registering the border search of this world.
+	 */
+	private final BorderSearch borderSearch;
+	
 	/**
 	 * Return the connected to border checker of this cube.
 	 */
@@ -350,35 +643,46 @@ public class World {
 	private final ConnectedToBorder connectedToBorder;
 	
 	/**
-	 * Check this world's terrain for solid cubes that are not connected to a border and make the cave-in.
-	 * @effect	Every solid cube in this world's cube matrix is checked to see if it's connected to a border. If not, it's caves-in.
+	 * Initialize this world's connected to border checker from this world's terrain and make the solid cubes that are not
+	 * connected to a border cave-in.
+	 * @effect	The connected to border checker of this world is initialized in one pass, making the passable cubes of this world
+	 * 			and the solid cubes that are not connected to a border passable.
+	 * 			| floatingCubes == this.getConnectedToBorder().initialize((x, y, z) -> ! isSolidType(terrain.get(x, y, z)))
+	 * @effect	Each floating cube is replaced by air, spawning its cave-in item with a chance of 0.25, and is registered as changed.
+	 * @effect	Notifies this world's model listener of all floating cubes at once.
+	 * 			| this.notifyTerrainChanges()
+	 * @note	The terrain is changed directly, before any of the structures that are derived from it are built, so the floating
+	 * 			cubes cave-in in a single batch instead of one by one.
 	 */
+	@Raw @Model
 	private void makeValidTerrain() {
-		Cube[][][] cubeMatrix = this.getCubeMatrix();
-		int x = 0;
-		while(x < this.getNbCubesX()){
-			int y = 0;
-			while(y < this.getNbCubesY()){
-				int z = 0;
-				while(z < this.getNbCubesZ()){
-					if(cubeMatrix[x][y][z].isSolid())
-						if(! this.connectedToBorder.isSolidConnectedToBorder(x, y, z))
-							this.singleCaveIn(x,y,z);
-					z++;
-				}
-				y++;
-			}
-			x++;
+		List<int[]> floatingCubes = this.getConnectedToBorder().initialize((x, y, z) -> ! isSolidType(this.terrain.get(x, y, z)));
+		for(int[] cube : floatingCubes){
+			TerrainType terrainType = TerrainType.fromNumber(this.terrain.get(cube[0], cube[1], cube[2]));
+			this.terrain.set(cube[0], cube[1], cube[2], TerrainType.AIR.getNumber());
+			this.registerTerrainChange(this.getIndex(cube[0], cube[1], cube[2]));
+			if(caveInItemCheck())
+				this.addMaterial(terrainType.createCaveInItem(new PositionVector(cube[0], cube[1], cube[2])));
 		}
+		this.notifyTerrainChanges();
 	}
 	
 	/**
 	 * Collapses the cube at a given position, letting it change in air and dropping a material.
 	 * @param position	The given position.
-	 * @effect	The cube at the given position caves-in, if there is no material spawned by the cave-in, a material is added in the
-	 * 			the center of the cube, a log if the cube was a tree, a boulder if the cube was a rock.
+	 * @effect	The cube at the given position is made passable in this world's connected to border checker, without searching
+	 * 			the cubes that are no longer connected because of it.
+	 * 			| this.getConnectedToBorder().markPassable(x, y, z)
+	 * @effect	The terrain type of the cube at the given position is replaced by air, and a material is added in the center of
+	 * 			the cube, a log if the cube was a tree, a boulder if the cube was a rock.
+	 * 			| this.replaceTerrainType(x, y, z, TerrainType.AIR)
+	 * @effect	The neighbours of the cube are scheduled to be searched by this world's cave-in scheduler, so that the cubes that
+	 * 			are no longer connected to a border cave-in during the next advances of time.
+	 * 			| this.getCaveInScheduler().schedule(x, y, z)
 	 * @throws IllegalArgumentException
 	 * 			The given position is not a valid position or the cube at the given position is not solid.
+	 * @note	Units collapse cubes while time advances, so the search for the cubes that fall is not done here: undermining a
+	 * 			whole mountain would otherwise stall a single advance of time for as long as the search takes.
 	 */
 	public void collapse(PositionVector	position) throws IllegalArgumentException {
 		if((! this.isValidPosition(position)) || (! this.isSolidPosition(position)))
@@ -387,24 +691,13 @@ public class World {
 		int x = (int) position.getXArgument();
 		int y = (int) position.getYArgument();
 		int z = (int) position.getZArgument();
-		int terrain = this.getCubeType(x,y,z);
-		Cube oldCube = this.getCube(x, y, z);
-		@SuppressWarnings("unchecked")
-		Set<GameObject> oldContent = (Set<GameObject>) oldCube.getContent().clone();
-		this.caveIn(x, y, z);
-		Cube newCube = this.getCube(x, y, z);
-		Set<GameObject> newContent = newCube.getContent();
-		boolean hasCaveInItem = (oldContent.size() < newContent.size());
-		if((terrain == 1) &&(! hasCaveInItem)){
-			Boulder boulder = new Boulder(PositionVector.centrePosition(new PositionVector(x, y, z)));
-			boulder.changeWorld(this);
-			this.addMaterial(boulder);
-		}
-		if((terrain == 2) &&(! hasCaveInItem)){
-			Log log = new Log(PositionVector.centrePosition(new PositionVector(x, y, z)));
-			log.changeWorld(this);	
-			this.addMaterial(log);
-		}
+		TerrainType terrainType = this.getTerrainType(x, y, z);
+		this.getConnectedToBorder().markPassable(x, y, z);
+		this.replaceTerrainType(x, y, z, TerrainType.AIR);
+		Material item = terrainType.createCaveInItem(new PositionVector(x, y, z));
+		item.changeWorld(this);
+		this.addMaterial(item);
+		this.getCaveInScheduler().schedule(x, y, z);
 	}
 	
 	/**
@@ -412,34 +705,81 @@ public class World {
 	 * @param x	The x coordinate of the targeted cube.
 	 * @param y	The y coordinate of the targeted cube.
 	 * @param z	The z coordinate of the targeted cube.
-	 * @effect	Creates a new air cube, injects the content of the old cube into it and adds the item that spawns by the cave-in
-	 * (if any is spawned) to it's content and finally replaces the old cube with the new air cube, adds a cave-in item if any is created
-	 * and propagates the cave in to neighboring cubes that should cave-in.
+	 * @effect	The cube and the solid cubes that are no longer connected to a border because of it cave-in in a single batch.
+	 * 			| this.caveInCubes([{x, y, z}])
 	 * @throws	IllegalStateException
 	 * 			The targeted cube is passable.
 	 * @throws	IllegalArgumentException
 	 * 			The given position is out of bounds.
-	 * @note	By propagating the cave-in, than rather making the whole terrain of this world valid again, this method has a better
-	 * 			performance.
 	 */
 	public void caveIn(int x, int y, int z) throws IllegalStateException, IllegalArgumentException {
-		PositionVector position = new PositionVector(x, y, z);
-		Cube cube = this.getCube(x,y,z);
-		if(! cube.isSolid())
+		if(! this.getTerrainType(x, y, z).isSolid())
 			throw new IllegalStateException("This cube is passable and thus cannot cave-in!");
-		HashSet<GameObject> content = cube.getContent();
-		int terrainType = cube.getTerrainType();
-		cube = new Air(position, content);
-		Material item = null;
-		if (caveInItemCheck() == true){
-			item = this.caveInItem(position, terrainType);
-			item.changeWorld(this);
+		List<int[]> cubes = new ArrayList<int[]>(1);
+		cubes.add(new int[] {x, y, z});
+		this.caveInCubes(cubes);
+	}
+	
+	/**
+	 * Makes the solid cubes at the given positions cave-in at once.
+	 * @param positions	The given positions.
+	 * @effect	The solid cubes at the given positions and the solid cubes that are no longer connected to a border because of
+	 * 			them cave-in in a single batch.
+	 * 			| this.caveInCubes({{x, y, z} | new PositionVector(x, y, z) in positions && this.isSolidCube(x, y, z)})
+	 * @throws	NullPointerException
+	 * 			The given collection or one of its positions is not effective.
+	 * @throws	IllegalArgumentException
+	 * 			One of the given positions is not a valid position for this world.
+	 * @note	Passable cubes at the given positions are ignored, so that for instance all cubes within some distance of an
+	 * 			explosion can be given.
+	 */
+	public void caveInAll(Collection<PositionVector> positions) throws NullPointerException, IllegalArgumentException {
+		List<int[]> cubes = new ArrayList<int[]>(positions.size());
+		for(PositionVector position : positions){
+			if(! this.isValidPosition(position))
+				throw new IllegalArgumentException("One of the given positions is not a valid position for this world!");
+			int x = (int) position.getXArgument();
+			int y = (int) position.getYArgument();
+			int z = (int) position.getZArgument();
+			if(this.isSolidCube(x, y, z))
+				cubes.add(new int[] {x, y, z});
 		}
-		List<int[]> others = this.getConnectedToBorder().changeSolidToPassable(x, y, z);
-		this.replaceCube(cube);
-		if(item != null)
-			this.addMaterial(item);
-		this.propagateCaveIn(others);
+		this.caveInCubes(cubes);
+	}
+	
+	/**
+	 * Make the given solid cubes cave-in, together with all solid cubes that are no longer connected to a border because of
+	 * them.
+	 * @param cubes	The coordinates of the given cubes, as arrays {x, y, z}.
+	 * @effect	The given cubes are made passable in this world's connected to border checker in a single change, which also makes
+	 * 			the cubes that are no longer connected to a border passable.
+	 * 			| floatingCubes == this.getConnectedToBorder().changeAllSolidToPassable(cubes)
+	 * @effect	Each given cube and each floating cube that is still solid is replaced by air, and the item that spawns by its
+	 * 			cave-in (if any is spawned) is added to this world.
+	 * 			| for each cube in cubes + floatingCubes:
+	 * 			|	if (this.isSolidCube(cube[0], cube[1], cube[2]))
+	 * 			|		then this.applyTerrainType(cube[0], cube[1], cube[2], TerrainType.AIR)
+	 * @effect	Notifies this world's model listener of all cubes that caved-in, at once.
+	 * 			| this.notifyTerrainChanges()
+	 * @note	One search over the solid cubes around all given cubes finds every floating cube, instead of a search per cube
+	 * 			that caves-in, so the work no longer grows quadratically with the size of a collapsing overhang.
+	 */
+	@Model
+	private void caveInCubes(List<int[]> cubes) {
+		List<int[]> floatingCubes = this.getConnectedToBorder().changeAllSolidToPassable(cubes);
+		for(List<int[]> list : Arrays.asList(cubes, floatingCubes))
+			for(int[] cube : list){
+				TerrainType terrainType = this.getTerrainType(cube[0], cube[1], cube[2]);
+				if(! terrainType.isSolid())
+					continue;
+				Material item = null;
+				if(caveInItemCheck())
+					item = terrainType.createCaveInItem(new PositionVector(cube[0], cube[1], cube[2]));
+				this.applyTerrainType(cube[0], cube[1], cube[2], TerrainType.AIR);
+				if(item != null)
+					this.addMaterial(item);
+			}
+		this.notifyTerrainChanges();
 	}
 	
 	/**
@@ -447,100 +787,143 @@ public class World {
 	 * @param x	The x coordinate of the targeted cube.
 	 * @param y	The y coordinate of the targeted cube.
 	 * @param z	The z coordinate of the targeted cube.
-	 * @effect	Creates a new air cube, injects the content of the old cube into it and adds the item that spawns by the cave-in
-	 * (if any is spawned) to it's content and finally replaces the old cube with the new air cube.
+	 * @effect	The terrain type of the cube is replaced by air and the item that spawns by the cave-in (if any is spawned) is
+	 * 			added to this world.
 	 * @throws	IllegalStateException
 	 * 			The targeted cube is passable.
 	 * @throws	IllegalArgumentException
 	 * 			The given position is out of bounds.
 	 */
 	public void singleCaveIn(int x, int y, int z) throws IllegalStateException, IllegalArgumentException {
-		PositionVector position = new PositionVector(x, y, z);
-		Cube cube = this.getCube(x,y,z);
-		if(! cube.isSolid())
+		TerrainType terrainType = this.getTerrainType(x, y, z);
+		if(! terrainType.isSolid())
 			throw new IllegalStateException("This cube is passable and thus cannot cave-in!");
-		HashSet<GameObject> content = cube.getContent();
-		int terrainType = cube.getTerrainType();
-		cube = new Air(position, content);
 		Material item = null;
 		if (caveInItemCheck() == true){
-			item = this.caveInItem(position, terrainType);
+			item = terrainType.createCaveInItem(new PositionVector(x, y, z));
 			item.changeWorld(this);
 		}
-		this.replaceCube(cube);
+		this.replaceTerrainType(x, y, z, TerrainType.AIR);
 		if(item != null)
 			this.addMaterial(item);
 	}
 	/**
-	 * Return whether by chance an item is spawned as a result of a cave-in.
-	 * @return	0.25 chance for true.
+	 * Make the cubes that this world's cave-in scheduler finds not to be connected to a border cave-in, within its budget.
+	 * @effect	The cave-in scheduler of this world advances, making each cube it found not to be connected cave-in.
+	 * 			| this.getCaveInScheduler().advance((x, y, z) -> this.caveInUnsupported(x, y, z))
+	 * @note	The cubes that cave-in are notified with the other changes of the advance of time.
 	 */
-	@Model @Raw
-	private boolean caveInItemCheck() {
-		boolean flag = false;
-		Random generator = new Random();
-		if (generator.nextInt(4) == 1)
-			flag = true;
-		return flag;
+	@Model
+	private void advanceCaveIns() {
+		this.getCaveInScheduler().advance((x, y, z) -> this.caveInUnsupported(x, y, z));
 	}
 	
 	/**
-	 * Return an item with a given position, the kind of item depends on the given terrain type.
-	 * @param position	The given position.
-	 * @param terrainType	The given terrain type.
-	 * @return	A boulder with the given position as its position, if the given terrain type is 1 or 
-	 * log with the given position as its position, if the given terrain type is 2.
-	 * @throws IllegalArgumentException
-	 * 			The given terrain type is neither 1 or 2.
-	 * @throws	NullPointerException
-	 * 			The given position is not effective.
+	 * Make the cube at the given position, which is not connected to a border, cave-in if it is still solid.
+	 * @param x	The x coordinate of the targeted cube.
+	 * @param y	The y coordinate of the targeted cube.
+	 * @param z	The z coordinate of the targeted cube.
+	 * @return	True if and only if the targeted cube was solid.
+	 * @effect	If the targeted cube is solid, it is made passable in this world's connected to border checker, its terrain type is
+	 * 			applied to be air and the item that spawns by its cave-in (if any is spawned) is added to this world.
+	 * 			| if (this.isSolidCube(x, y, z))
+	 * 			| 	then this.getConnectedToBorder().markPassable(x, y, z) &&
+	 * 			|		this.applyTerrainType(x, y, z, TerrainType.AIR)
+	 */
+	@Model
+	private boolean caveInUnsupported(int x, int y, int z) {
+		TerrainType terrainType = this.getTerrainType(x, y, z);
+		if(! terrainType.isSolid())
+			return false;
+		Material item = null;
+		if(caveInItemCheck())
+			item = terrainType.createCaveInItem(new PositionVector(x, y, z));
+		this.getConnectedToBorder().markPassable(x, y, z);
+		this.applyTerrainType(x, y, z, TerrainType.AIR);
+		if(item != null)
+			this.addMaterial(item);
+		return true;
+	}
+	
+	/**
+	 * Return whether by chance an item is spawned as a result of a cave-in.
+	 * @return	0.25 chance for true.
 	 */
 	@Model @Raw
-	private Material caveInItem(PositionVector position, int terrainType) throws IllegalArgumentException, NullPointerException {
-		if(terrainType == 1)
-			return new Boulder(PositionVector.centrePosition(position));
-		if(terrainType == 2)
-			return new Log(PositionVector.centrePosition(position));
-		else
-			throw new IllegalArgumentException("This terrain type doesn't spawn anything, when it collapses!");
+	private boolean caveInItemCheck() {
+		return (this.generator.nextInt(4) == 1);
 	}
 	
 	/**
-	 * Let the given new cube replace the old cube that is now occupying the new cube's position.
-	 * @param newCube	The given new cube.
-	 * @effect	The old cube at the new cube's position is replaced by the new cube in this world's cube matrix.
-	 * @effect	The terrain type of the old cube is replaced by that of the new cube in this world's terrain matrix.
+	 * Replace the terrain type of the cube at the given position by the given terrain type.
+	 * @param x	The x coordinate of the targeted cube.
+	 * @param y	The y coordinate of the targeted cube.
+	 * @param z	The z coordinate of the targeted cube.
+	 * @param terrainType	The given terrain type.
+	 * @effect	The terrain type is applied to the cube at the given position.
+	 * 			| this.applyTerrainType(x, y, z, terrainType)
 	 * @effect	Notifies this world's model listener that the terrain has changed.
+	 * 			| this.notifyTerrainChanges()
 	 * @throws NullPointerException
-	 * 			The given new cube is not effective.
+	 * 			The given terrain type is not effective.
 	 */
 	@Model
-	private void replaceCube(Cube newCube) throws NullPointerException {
-		int x = (int) newCube.getPosition().getXArgument();
-		int y = (int) newCube.getPosition().getYArgument();
-		int z = (int) newCube.getPosition().getZArgument();
-		this.getCubeMatrix()[x][y][z] = newCube;
-		this.getTerrainMatrix()[x][y][z] = newCube.getTerrainType();
-		this.modelListener.notifyTerrainChanged(x, y, z);
+	private void replaceTerrainType(int x, int y, int z, TerrainType terrainType) throws NullPointerException {
+		this.applyTerrainType(x, y, z, terrainType);
+		this.notifyTerrainChanges();
 	}
 	
 	/**
-	 * Causes cave-ins on the given positions if possible.
-	 * @param positionsList	The given position collection.
-	 * @effect	Checks all the given positions if they refer to a solid cube and if so, makes the cave-in.
+	 * Replace the terrain type of the cube at the given position by the given terrain type, without notifying this world's
+	 * model listener.
+	 * @param x	The x coordinate of the targeted cube.
+	 * @param y	The y coordinate of the targeted cube.
+	 * @param z	The z coordinate of the targeted cube.
+	 * @param terrainType	The given terrain type.
+	 * @post	The terrain type of the cube at the given position is the given terrain type.
+	 * @post	The cube at the given position is registered in the height maps of this world according to the given terrain type.
+	 * @effect	The masks around the given position are recomputed in this world's reachability map.
+	 * @effect	The standing and spawn positions around the given position are updated.
+	 * 			| this.updatePositionSamplers(x, y, z)
+	 * @effect	The components around the given position are updated in this world's component map.
+	 * @effect	The cached paths that cross or border the given position are dropped from this world's path cache.
+	 * @effect	The support results that depend on the given position are dropped from this world's support analysis.
+	 * 			| this.getSupportAnalysis().invalidate(x, y, z)
+	 * @effect	The change is registered in this world's cave-in scheduler.
+	 * 			| this.getCaveInScheduler().markChanged(x, y, z, terrainType.isSolid())
+	 * @effect	The clusters around the given position are marked as changed in this world's hierarchical path finder.
+	 * @effect	The flow fields of this world are dropped.
+	 * @effect	The change is registered in the incremental path finders of the units of this world.
+	 * @effect	The units of which the path passes a cube within one cube of the given position must check their path.
+	 * 			| for each unit in this.getPathSubscriptions().getAffectedUnits(x, y, z)
+	 * 			| 	unit.invalidatePath()
+	 * @post	The terrain version of this world is increased by one.
+	 * @effect	The cube at the given position is registered as changed, to be notified with the next batch of changes.
+	 * 			| this.registerTerrainChange(this.getIndex(x, y, z))
 	 * @throws NullPointerException
-	 * 			The given position is not effective.
-	 * @throws IllegalArgumentException
-	 * 			One of the positions in the given position collection is not solid.
+	 * 			The given terrain type is not effective.
+	 * @note	Changing a terrain type is a single write to the terrain of this world; no cube is created.
 	 */
-	private void propagateCaveIn(List<int[]> positionsList) throws NullPointerException, IllegalArgumentException {
-		for(int[] position : positionsList){
-			PositionVector vector = new PositionVector(position[0],position[1],position[2]);
-			if(! this.isValidPosition(vector))
-				throw new IllegalArgumentException("One of the given positions is not a valid position for this world!");
-			if(this.isSolidPosition(vector))
-				this.caveIn(position[0], position[1], position[2]);
-		}
+	@Model
+	private void applyTerrainType(int x, int y, int z, TerrainType terrainType) throws NullPointerException {
+		this.terrain.set(x, y, z, terrainType.getNumber());
+		this.setSolid(this.getIndex(x, y, z), terrainType.isSolid());
+		this.solidHeights.set(x, y, z, terrainType.isSolid());
+		this.terrainHeights.set(x, y, z, terrainType != TerrainType.AIR);
+		boolean isLost = this.getReachabilityMap().update(x, y, z);
+		this.updatePositionSamplers(x, y, z);
+		this.getComponentMap().update(x, y, z, isLost);
+		this.getPathCache().invalidate(x, y, z);
+		this.getSupportAnalysis().invalidate(x, y, z);
+		this.getCaveInScheduler().markChanged(x, y, z, terrainType.isSolid());
+		this.getHierarchicalPathFinder().markChanged(x, y, z);
+		this.dropFlowFields();
+		for(IncrementalPathFinder pathFinder : this.incrementalPathFinders)
+			pathFinder.markChanged(x, y, z);
+		for(Unit unit : this.getPathSubscriptions().getAffectedUnits(x, y, z))
+			unit.invalidatePath();
+		this.terrainVersion++;
+		this.registerTerrainChange(this.getIndex(x, y, z));
 	}
 	
 	/**
@@ -644,7 +1027,7 @@ public class World {
 			unit.changeWorld(this);
 			this.getUnitSet().add(unit);
 			int[] cubePosition = unit.getCubePosition();
-			this.getCube(cubePosition[0], cubePosition[1], cubePosition[2]).addAsContent(unit);
+			this.addContent(unit, cubePosition[0], cubePosition[1], cubePosition[2]);
 		}
 		catch (IllegalArgumentException exc){
 			
@@ -659,6 +1042,8 @@ public class World {
 	 * @param unit	The given unit.
 	 * @effect	The given unit is removed from this world's unit set and from this world's cube that had it as content, the given
 	 * 			unit's world is set to null.
+	 * @effect	The given unit is unsubscribed from all cubes in this world's path subscriptions.
+	 * 			| this.getPathSubscriptions().unsubscribe(unit)
 	 * @throws	IllegalArgumentException
 	 * 			This world does not have the given unit in it's unit set.
 	 * @throws	NullPointerException
@@ -671,8 +1056,9 @@ public class World {
 			throw new IllegalArgumentException("This world does not have the given unit as one of its units");
 		PositionVector unitCubePosition = unit.getCubePositionVector();
 		this.getUnitSet().remove(unit);
-		this.getCube((int) unitCubePosition.getXArgument(), (int) unitCubePosition.getYArgument(),
-				(int) unitCubePosition.getZArgument()).removeAsContent(unit);
+		this.getPathSubscriptions().unsubscribe(unit);
+		this.removeContent(unit, (int) unitCubePosition.getXArgument(), (int) unitCubePosition.getYArgument(),
+				(int) unitCubePosition.getZArgument());
 		unit.changeWorld(null);
 	}
 	
@@ -716,8 +1102,11 @@ public class World {
 	 * @result	A random center cube position is generated, a name according to the number units in this world is generated.
 	 * 			A unit with this generated name and position and with random attribute values is initialized and added to this world
 	 * 			and the unit's world is changed to this world. The unit is returned.
+	 * @throws	IllegalStateException
+	 * 			This world has no spawn positions.
+	 * 			| this.getNbSpawnPositions() == 0
 	 */
-	public Unit spawnUnit(boolean enableDefaultBehaviour) {
+	public Unit spawnUnit(boolean enableDefaultBehaviour) throws IllegalStateException {
 		PositionVector position = PositionVector.centrePosition(this.randomSpawnPosition());
 		String name = "Unit";
 		Unit unit = new Unit(position, name, this.autoFaction());
@@ -733,39 +1122,134 @@ public class World {
 	 * @return	A random position in integer coordinates, located in this world.
 	 */
 	public PositionVector randomPosition() {
-		Random generator = new Random();
-		int x = generator.nextInt(this.getNbCubesX());
-		int y = generator.nextInt(this.getNbCubesY());
-		int z = generator.nextInt(this.getNbCubesZ());
+		int x = this.generator.nextInt(this.getNbCubesX());
+		int y = this.generator.nextInt(this.getNbCubesY());
+		int z = this.generator.nextInt(this.getNbCubesZ());
 		return new PositionVector(x,y,z);
 	}
 	
+	/**
+	 * Variable registering the random generator of this world.
+	 */
+	private final Random generator = new Random();
+	
 	/**
 	 * Return a position at which a game object can stand.
-	 * @return	A position that is a valid standing position for a game object.
+	 * @return	A position drawn uniformly at random from the valid standing positions of this world.
+	 * @throws	IllegalStateException
+	 * 			This world has no valid standing positions.
+	 * 			| this.getNbStandingPositions() == 0
 	 */
-	public PositionVector randomStandingPosition() {
-		PositionVector position = this.randomPosition();
-		while(! isValidStandingPosition(position)){
-			position = this.randomPosition();
-		}
+	public PositionVector randomStandingPosition() throws IllegalStateException {
+		PositionVector position = this.standingSampler.sample(this.generator);
+		if(position == null)
+			throw new IllegalStateException("This world has no standing positions!");
 		return position;
 	}
 	
 	/**
-	 * Return a suitable spawn position for a unit.
-	 * @return	A position that is not solid, that is either at z = 1 or has a solid cube underneath.
-	 */
-	public PositionVector randomSpawnPosition(){
-		PositionVector position = this.randomPosition();
-		while(!(!this.isSolidPosition(position) 
-				&& ((((int) position.getZArgument() == 1) || ((int) position.getZArgument() == 0)) 
-						|| this.isSolidPosition(new PositionVector(position.getXArgument(),position.getYArgument(),position.getZArgument()-1))))){
-			position = this.randomPosition();
+	 * Return a position at which a game object can stand and that can be reached from the given position.
+	 * @param position	The given position.
+	 * @return	A random standing position in the component of the cube of the given position. Standing positions are first
+	 * 			drawn at random from this world; if that fails a limited number of times, the component is collected and one of its
+	 * 			positions is picked.
+	 * @throws	IllegalArgumentException
+	 * 			The given position is not a valid standing position in this world.
+	 * 			| ! isValidStandingPosition(position)
+	 */
+	public PositionVector randomStandingPosition(PositionVector position) throws IllegalArgumentException {
+		if(! this.isValidStandingPosition(position))
+			throw new IllegalArgumentException("The position is not a valid standing position!");
+		for(int i = 0; i < maxNbComponentSamples; i++){
+			PositionVector candidate = this.standingSampler.sample(this.generator);
+			if(this.getComponentMap().areConnected(position, candidate))
+				return candidate;
 		}
+		List<PositionVector> component = this.getComponentMap().getComponentPositions(position);
+		return component.get(this.generator.nextInt(component.size()));
+	}
+	
+	/**
+	 * Constant registering the number of random positions that are tried before the component of a position is collected.
+	 */
+	private static final int maxNbComponentSamples = 64;
+	
+	/**
+	 * Return a suitable spawn position for a unit.
+	 * @return	A position drawn uniformly at random from the positions that are not solid and that are either at z = 0 or z = 1
+	 * 			or have a solid cube underneath.
+	 * @throws	IllegalStateException
+	 * 			This world has no such positions.
+	 * 			| this.getNbSpawnPositions() == 0
+	 */
+	public PositionVector randomSpawnPosition() throws IllegalStateException {
+		PositionVector position = this.spawnSampler.sample(this.generator);
+		if(position == null)
+			throw new IllegalStateException("This world has no spawn positions!");
 		return position;
 	}
 	
+	/**
+	 * Return the number of valid standing positions of this world.
+	 */
+	public int getNbStandingPositions() {
+		return this.standingSampler.getNbPositions();
+	}
+	
+	/**
+	 * Return the number of spawn positions of this world.
+	 */
+	public int getNbSpawnPositions() {
+		return this.spawnSampler.getNbPositions();
+	}
+	
+	/**
+	 * Check whether a unit can spawn in the cube with the given coordinates.
+	 * @return	True if and only if the cube is not solid and is at z = 0 or z = 1 or has a solid cube underneath.
+	 */
+	@Model
+	private boolean isSpawnCube(int x, int y, int z) {
+		return (! this.isSolidCube(x, y, z)) && ((z <= 1) || this.isSolidCube(x, y, z - 1));
+	}
+	
+	/**
+	 * Register all standing and spawn positions of this world in its position samplers.
+	 */
+	@Raw @Model
+	private void initializePositionSamplers() {
+		for(int z = 0; z < this.getNbCubesZ(); z++)
+			for(int y = 0; y < this.getNbCubesY(); y++)
+				for(int x = 0; x < this.getNbCubesX(); x++){
+					this.standingSampler.set(x, y, z, this.getReachabilityMap().isStanding(x, y, z));
+					this.spawnSampler.set(x, y, z, this.isSpawnCube(x, y, z));
+				}
+	}
+	
+	/**
+	 * Update the position samplers of this world after the cube with the given coordinates has changed.
+	 * @post	The cubes within one cube of the given cube are registered as standing positions if and only if they are
+	 * 			standing positions in this world's reachability map.
+	 * @post	The given cube and the cube above it are registered as spawn positions if and only if units can spawn in them.
+	 * @note	Whether a cube is a standing position only depends on its adjacent cubes, and whether it is a spawn position only
+	 * 			depends on the cube underneath it, so no other cube is affected by the change.
+	 */
+	@Model
+	private void updatePositionSamplers(int x, int y, int z) {
+		for(int cz = Math.max(0, z - 1); cz <= Math.min(this.getNbCubesZ() - 1, z + 1); cz++)
+			for(int cy = Math.max(0, y - 1); cy <= Math.min(this.getNbCubesY() - 1, y + 1); cy++)
+				for(int cx = Math.max(0, x - 1); cx <= Math.min(this.getNbCubesX() - 1, x + 1); cx++)
+					this.standingSampler.set(cx, cy, cz, this.getReachabilityMap().isStanding(cx, cy, cz));
+		this.spawnSampler.set(x, y, z, this.isSpawnCube(x, y, z));
+		if(z + 1 < this.getNbCubesZ())
+			this.spawnSampler.set(x, y, z + 1, this.isSpawnCube(x, y, z + 1));
+	}
+	
+	/**
+	 * Variables registering the standing positions and the spawn positions of this world.
+	 */
+	private final PositionSampler standingSampler;
+	private final PositionSampler spawnSampler;
+	
 	/**
 	 * Check whether a game object could stand at the given position.
 	 * @param position	The given position.
@@ -779,15 +1263,8 @@ public class World {
 	public boolean isValidStandingPosition(PositionVector position) throws NullPointerException, IllegalArgumentException {
 		if(! this.isValidPosition(position))
 			throw new IllegalArgumentException("position is not located in this world!");
-		Cube cube = this.getCube((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument());
-		if(cube.isSolid())
-			return false;
-		if((int) position.getZArgument() == 0)
-			return true;
-		if(this.hasSolidAdjacent(cube))
-			return true;
-		else
-			return false;
+		return this.getReachabilityMap().isStanding((int) position.getXArgument(), (int) position.getYArgument(),
+				(int) position.getZArgument());
 	}
 	
 	/**
@@ -801,8 +1278,26 @@ public class World {
 	 */
 	public boolean hasSolidAdjacent(Cube cube) throws NullPointerException, IllegalArgumentException {
 		PositionVector cubePosition = cube.getPosition();
-		Set<PositionVector> allAdjacents = this.getAllAdjacentPositions(cubePosition);
-		return (! this.getSolidsFromPositionSet(allAdjacents).isEmpty());
+		if(! this.isValidPosition(cubePosition))
+			throw new IllegalArgumentException("The given cube is not from this world!");
+		return this.hasSolidAdjacent((int) cubePosition.getXArgument(), (int) cubePosition.getYArgument(),
+				(int) cubePosition.getZArgument());
+	}
+	
+	/**
+	 * Check whether the cube with the given coordinates has a solid adjacent cube.
+	 * @param x	The x coordinate of the given cube.
+	 * @param y	The y coordinate of the given cube.
+	 * @param z	The z coordinate of the given cube.
+	 * @return	True if and only if one of the adjacent cubes of the given cube that lie in this world is solid.
+	 */
+	public boolean hasSolidAdjacent(int x, int y, int z) {
+		for(int[] offset : PathFinder.ADJACENT_OFFSETS){
+			int nx = x + offset[0], ny = y + offset[1], nz = z + offset[2];
+			if(this.isInWorld(nx, ny, nz) && this.isSolidCube(nx, ny, nz))
+				return true;
+		}
+		return false;
 	}
 	
 	/**
@@ -864,6 +1359,10 @@ public class World {
 		if (! isValidMaterialSet(materialSet))
 			throw new NullPointerException();
 		this.materialSet = materialSet;
+		this.boulders.clear();
+		this.logs.clear();
+		for(Material material : materialSet)
+			this.registerMaterialType(material);
 	}
 	
 	/**
@@ -871,6 +1370,23 @@ public class World {
 	 */
 	private Set<Material> materialSet;
 	
+	/**
+	 * Register the given material in the boulders or the logs of this world, depending on its type.
+	 */
+	@Model
+	private void registerMaterialType(Material material) {
+		if(material instanceof Boulder)
+			this.boulders.add((Boulder) material);
+		else if(material instanceof Log)
+			this.logs.add((Log) material);
+	}
+	
+	/**
+	 * Variables registering the boulders and the logs of the material set of this world.
+	 */
+	private final Set<Boulder> boulders = new HashSet<Boulder>();
+	private final Set<Log> logs = new HashSet<Log>();
+	
 	/**
 	 * Add a given material to this world.
 	 * @param material	The given material.
@@ -879,8 +1395,8 @@ public class World {
 	 */
 	public void addMaterial(Material material){
 		this.getMaterialSet().add(material);
-		this.getCube(material.getCubePosition()[0], material.getCubePosition()[1], 
-				material.getCubePosition()[2]).addAsContent(material);
+		this.registerMaterialType(material);
+		this.addContent(material, material.getCubePosition()[0], material.getCubePosition()[1], material.getCubePosition()[2]);
 		material.changeWorld(this);
 	}
 	
@@ -899,8 +1415,9 @@ public class World {
 		if(! this.hasAsMaterial(material))
 			throw new IllegalArgumentException();
 		this.getMaterialSet().remove(material);
-		this.getCube(material.getCubePosition()[0], material.getCubePosition()[1], 
-				material.getCubePosition()[2]).removeAsContent(material);
+		this.boulders.remove(material);
+		this.logs.remove(material);
+		this.removeContent(material, material.getCubePosition()[0], material.getCubePosition()[1], material.getCubePosition()[2]);
 	}
 	
 	/**
@@ -931,26 +1448,45 @@ public class World {
 	/**
 	 * Advance the time for this world by a given amount of time.
 	 * @param dt	The given amount of time.
+	 * @effect	If this world plans paths asynchronously, the paths that were completed since the last advance of time are applied
+	 * 			first.
+	 * 			| if(this.getPathPlanner() != null)
+	 * 			| 	this.getPathPlanner().applyCompletedPaths()
+	 * @effect	The cubes that are found not to be connected to a border anymore cave-in, within the budget of this world's cave-in
+	 * 			scheduler.
+	 * 			| this.advanceCaveIns()
 	 * @effect	Time is advanced with the given amount of time for all units and and materials of this world. It's collections are 
 	 * 			cleaned.
+	 * @effect	The model listener of this world is notified of all cubes that changed during this advance of time, at once.
+	 * 			| this.flushTerrainChanges()
 	 * @throws	IllegalArgumentException
 	 * 			Time is negative.
 	 */
 	public void advanceTime(double dt)throws IllegalArgumentException {
 		if (dt < 0) 
 			throw new IllegalArgumentException();
-		double time = dt;
-		while(time > 0){
-			double t = time;
-			if(Util.fuzzyGreaterThanOrEqualTo(t, 0.2))
-				t = 0.19;
-			for(Unit unit : this.getUnitSet())
-				unit.advanceTime(t);
-			for(Material material : this.getMaterialSet())
-				material.advanceTime(t);
-			this.cleanCollections();
-			time = time - t;
+		this.isAdvancingTime = true;
+		try {
+			if(this.getPathPlanner() != null)
+				this.getPathPlanner().applyCompletedPaths();
+			this.advanceCaveIns();
+			double time = dt;
+			while(time > 0){
+				double t = time;
+				if(Util.fuzzyGreaterThanOrEqualTo(t, 0.2))
+					t = 0.19;
+				for(Unit unit : this.getUnitSet())
+					unit.advanceTime(t);
+				for(Material material : this.getMaterialSet())
+					material.advanceTime(t);
+				this.cleanCollections();
+				time = time - t;
+			}
+		}
+		finally {
+			this.isAdvancingTime = false;
 		}
+		this.flushTerrainChanges();
 	}
 	
 	/**
@@ -1122,7 +1658,7 @@ public class World {
 		int x = (int) position.getXArgument();
 		int y = (int) position.getYArgument();
 		int z = (int) position.getZArgument() - 1;
-		return this.getCube(x, y, z).getPosition();
+		return new PositionVector(x, y, z);
 	}
 	
 	/**
@@ -1174,28 +1710,7 @@ public class World {
 			throw new NullPointerException();
 		if(! this.isValidPosition(position))
 			throw new IllegalArgumentException("Not a valid position for this world!");
-		return this.getCube((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument()).isSolid();
-	}
-	
-	/**
-	 * Return the positions of solid cubes from a given set of positions.
-	 * @param positionSet	The given set of positions.
-	 * @return	A subset of the given position set, containing only the positions that refer to solid cubes.
-	 * @throws	NullPointerException
-	 * 			The given set of positions is not effective.
-	 * @throws	IllegalArgumentException
-	 * 			The given set of positions contains positions that are not valid positions for this world.
-	 */
-	private Set<PositionVector> getSolidsFromPositionSet(Set<PositionVector> positionSet) 
-			throws NullPointerException, IllegalArgumentException {
-		if(positionSet == null)
-			throw new NullPointerException();
-		Set<PositionVector> solidSet = new HashSet<PositionVector>();
-		for(PositionVector position : positionSet)	{
-			if(this.isSolidPosition(position))
-				solidSet.add(position);
-		}
-		return solidSet;
+		return this.isSolidCube((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument());
 	}
 	
 	/**
@@ -1230,13 +1745,10 @@ public class World {
 		if(((gameObject.getClass().equals(Unit.class)) && (! this.hasAsUnit((Unit) gameObject))) ||
 				((gameObject.getClass().equals(Material.class)) && (! this.hasAsMaterial((Material) gameObject))))
 			throw new IllegalArgumentException("This world does not contain the given unit!");
-		Cube oldCube = this.getCube((int) oldCubePosition.getXArgument(), (int) oldCubePosition.getYArgument(),
+		this.removeContent(gameObject, (int) oldCubePosition.getXArgument(), (int) oldCubePosition.getYArgument(),
 				(int) oldCubePosition.getZArgument());
-		if(oldCube.hasAsContent(gameObject))
-			oldCube.removeAsContent(gameObject);
-		Cube newCube = this.getCube((int) newCubePosition.getXArgument(), (int) newCubePosition.getYArgument(),
+		this.addContent(gameObject, (int) newCubePosition.getXArgument(), (int) newCubePosition.getYArgument(),
 				(int) newCubePosition.getZArgument());
-		newCube.addAsContent(gameObject);
 	}
 	
 	/**
@@ -1249,8 +1761,7 @@ public class World {
 	public boolean isWorkshop(PositionVector position) throws IllegalArgumentException {
 		if(! this.isValidPosition(position))
 			throw new IllegalArgumentException("The given position is not a valid position for this world.");
-		Cube cube = this.getCube((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument());
-		return (cube.getTerrainType() == 3);
+		return (this.getCubeType((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument()) == 3);
 	}
 	
 	/**
@@ -1263,8 +1774,7 @@ public class World {
 	public boolean isWood(PositionVector position) throws IllegalArgumentException {
 		if(! this.isValidPosition(position))
 			throw new IllegalArgumentException("The given position is not a valid position for this world.");
-		Cube cube = this.getCube((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument());
-		return (cube.getTerrainType() == 2);
+		return (this.getCubeType((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument()) == 2);
 	}
 	
 	/**
@@ -1277,8 +1787,7 @@ public class World {
 	public boolean isRock(PositionVector position) throws IllegalArgumentException {
 		if(! this.isValidPosition(position))
 			throw new IllegalArgumentException("The given position is not a valid position for this world.");
-		Cube cube = this.getCube((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument());
-		return (cube.getTerrainType() == 1);
+		return (this.getCubeType((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument()) == 1);
 	}
 	
 	/**
@@ -1291,8 +1800,8 @@ public class World {
 	public boolean containsBoulder(PositionVector position) throws IllegalArgumentException {
 		if(! this.isValidPosition(position))
 			throw new IllegalArgumentException("The given position is not a valid position for this world.");
-		Cube cube = this.getCube((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument());
-		return cube.containsBoulder();
+		CubeContent content = this.getCubeContent(position);
+		return (content != null) && content.containsBoulder();
 	}
 	
 	/**
@@ -1305,8 +1814,36 @@ public class World {
 	public boolean containsLog(PositionVector position) throws IllegalArgumentException {
 		if(! this.isValidPosition(position))
 			throw new IllegalArgumentException("The given position is not a valid position for this world.");
-		Cube cube = this.getCube((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument());
-		return cube.containsLog();
+		CubeContent content = this.getCubeContent(position);
+		return (content != null) && content.containsLog();
+	}
+	
+	/**
+	 * Check whether the cube with the given index contains a boulder.
+	 * @param index	The index of the targeted cube.
+	 * @return	True if and only if the cube with the given index contains a boulder.
+	 * @throws IllegalArgumentException
+	 * 			The given index is not the index of a cube of this world.
+	 */
+	public boolean containsBoulder(int index) throws IllegalArgumentException {
+		if(! this.isValidCubeIndex(index))
+			throw new IllegalArgumentException("Index out of bounds!");
+		CubeContent content = this.contents.get(index);
+		return (content != null) && content.containsBoulder();
+	}
+	
+	/**
+	 * Check whether the cube with the given index contains a log.
+	 * @param index	The index of the targeted cube.
+	 * @return	True if and only if the cube with the given index contains a log.
+	 * @throws IllegalArgumentException
+	 * 			The given index is not the index of a cube of this world.
+	 */
+	public boolean containsLog(int index) throws IllegalArgumentException {
+		if(! this.isValidCubeIndex(index))
+			throw new IllegalArgumentException("Index out of bounds!");
+		CubeContent content = this.contents.get(index);
+		return (content != null) && content.containsLog();
 	}
 	
 	
@@ -1320,8 +1857,7 @@ public class World {
 	public Boulder getABoulder(PositionVector position) throws IllegalArgumentException {
 		if(! this.containsBoulder(position))
 			throw new IllegalArgumentException("The given position does not contain a boulder!");
-		Cube cube = this.getCube((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument());
-		return cube.getABoulder();
+		return this.getCubeContent(position).getABoulder();
 	}
 	
 	/**
@@ -1334,8 +1870,7 @@ public class World {
 	public Log getALog(PositionVector position) throws IllegalArgumentException {
 		if(! this.containsLog(position))
 			throw new IllegalArgumentException("The given position does not contain a log!");
-		Cube cube = this.getCube((int) position.getXArgument(), (int) position.getYArgument(), (int) position.getZArgument());
-		return cube.getALog();
+		return this.getCubeContent(position).getALog();
 	}
 	
 	/**
@@ -1348,12 +1883,15 @@ public class World {
 	public Set<PositionVector> getAdjacentStandingPositions(PositionVector position) throws IllegalArgumentException {
 		if(! this.isValidPosition(position))
 			throw new IllegalArgumentException("The given position is not a valid position!");
-		Set<PositionVector> allAdjacents = this.getAllAdjacentPositions(position);
+		int x = (int) position.getXArgument();
+		int y = (int) position.getYArgument();
+		int z = (int) position.getZArgument();
 		Set<PositionVector> standingAdjacents = new HashSet<PositionVector>();
-		for(PositionVector adjacent : allAdjacents){
-			if(this.isValidStandingPosition(adjacent)){
-				standingAdjacents.add(adjacent);
-			}
+		for(int[] offset : PathFinder.ADJACENT_OFFSETS){
+			int nx = x + offset[0], ny = y + offset[1], nz = z + offset[2];
+			if((nx >= 0) && (ny >= 0) && (nz >= 0) && (nx < this.getNbCubesX()) && (ny < this.getNbCubesY())
+					&& (nz < this.getNbCubesZ()) && this.getReachabilityMap().isStanding(nx, ny, nz))
+				standingAdjacents.add(new PositionVector(nx, ny, nz));
 		}
 		return standingAdjacents;
 	}
@@ -1372,8 +1910,10 @@ public class World {
 		Set<Unit> adjacentUnits = new HashSet<Unit>();
 		adjacentStandingPositions.add(position);
 		for(PositionVector adjacent : adjacentStandingPositions){
-			Cube cube = this.getCube((int) adjacent.getXArgument(), (int) adjacent.getYArgument(), (int) adjacent.getZArgument());
-			for(Unit unit : cube.getUnits()){
+			CubeContent content = this.getCubeContent(adjacent);
+			if(content == null)
+				continue;
+			for(Unit unit : content.getUnits()){
 				if(! unit.isTerminated())
 					adjacentUnits.add(unit);
 			}
@@ -1410,12 +1950,7 @@ public class World {
 	 * @return	A set of all boulders that are in this unit's material set.
 	 */
 	public Set<Boulder> getBoulders() {
-		Set<Boulder> result = new HashSet<Boulder>();
-		for(Material material : this.getMaterialSet()){
-			if(material.getClass().equals(Boulder.class))
-				result.add((Boulder) material);
-		}
-		return result;
+		return new HashSet<Boulder>(this.boulders);
 	}
 	
 	/**
@@ -1423,12 +1958,7 @@ public class World {
 	 * @return	A set of all logs that are in this unit's material set.
 	 */
 	public Set<Log> getLogs() {
-		Set<Log> result = new HashSet<Log>();
-		for(Material material : this.getMaterialSet()){
-			if(material.getClass().equals(Log.class))
-				result.add((Log) material);
-		}
-		return result;
+		return new HashSet<Log>(this.logs);
 	}
 
 	/**
@@ -1451,6 +1981,12 @@ public class World {
 	public boolean hasSolidCornerInBetween(PositionVector position, PositionVector adjacent) throws IllegalArgumentException{
 		if(! this.areAdjacents(position,adjacent))
 			throw new IllegalArgumentException();
+		// the adjacent position is a reachable standing position
+		int x0 = (int) position.getXArgument(), y0 = (int) position.getYArgument(), z0 = (int) position.getZArgument();
+		int direction = ((int) adjacent.getZArgument() - z0 + 1)*9 + ((int) adjacent.getYArgument() - y0 + 1)*3 
+				+ ((int) adjacent.getXArgument() - x0 + 1);
+		if(this.getReachabilityMap().canStep(x0, y0, z0, (direction > 13) ? direction - 1 : direction))
+			return false;
 		// one of the given positions is solid
 		if((this.isSolidPosition(position)) || (this.isSolidPosition(adjacent)))
 			return true;
@@ -1523,11 +2059,16 @@ public class World {
 	public Set<PositionVector> getReachableAdjacents(PositionVector standingPosition) throws IllegalArgumentException{
 		if(! this.isValidStandingPosition(standingPosition))
 			throw new IllegalArgumentException();
-		Set<PositionVector> adjacentStandingPositions = this.getAdjacentStandingPositions(standingPosition);
+		int x = (int) standingPosition.getXArgument();
+		int y = (int) standingPosition.getYArgument();
+		int z = (int) standingPosition.getZArgument();
+		int mask = this.getReachabilityMap().getMask(x, y, z);
 		Set<PositionVector> reachablePositions = new HashSet<PositionVector>();
-		for(PositionVector position : adjacentStandingPositions){
-			if(! this.hasSolidCornerInBetween(standingPosition, position))
-				reachablePositions.add(position);
+		for(int direction = 0; direction < PathFinder.ADJACENT_OFFSETS.length; direction++){
+			if((mask & (1 << direction)) != 0){
+				int[] offset = PathFinder.ADJACENT_OFFSETS[direction];
+				reachablePositions.add(new PositionVector(x + offset[0], y + offset[1], z + offset[2]));
+			}
 		}
 		return reachablePositions;
 	}
@@ -1538,8 +2079,13 @@ public class World {
 	 * the given start position.
 	 * @param startPosition	The given start position.
 	 * @param destination	The given destination.
-	 * @return	The shortest walkable path (as a list) that is in the map of all the path possibilities.
-	 * @return	An empty list if the given destination can't be reached, starting from the given start position.
+	 * @return	A walkable path (as a list), as stored in this world's path cache or else as determined by this world's path
+	 * 			finder, in which case it is added to the path cache. The path is the shortest walkable path if both positions
+	 * 			lie at most the hierarchical distance apart along every axis. Paths between positions that lie further apart
+	 * 			are planned by this world's hierarchical path finder instead, and are only near-optimal: they stay within the
+	 * 			clusters of an abstract path, so they can be longer than the shortest walkable path.
+	 * @return	An empty list if the given destination can't be reached, starting from the given start position. This is known
+	 * 			without any search if both positions are standing positions of different components in this world's component map.
 	 * @throws IllegalArgumentException
 	 * 			The given start and/or destination are not valid standing positions in this world.
 	 * @throws	IllegalArgumentException
@@ -1550,45 +2096,460 @@ public class World {
 			throw new IllegalArgumentException();
 		PositionVector start = PositionVector.getIntegerPositionVector(startPosition);
 		PositionVector end = PositionVector.getIntegerPositionVector(destination);
-		Map<PositionVector,Integer> allPossibilities = this.getAllPathPossibilities(start, end);
-		List<PositionVector> path = new ArrayList<PositionVector>();
-		if(allPossibilities.isEmpty())
+		if(this.isValidPosition(start) && this.isValidPosition(end)){
+			int startComponent = this.getComponentMap().getComponent((int) start.getXArgument(), (int) start.getYArgument(),
+					(int) start.getZArgument());
+			int endComponent = this.getComponentMap().getComponent((int) end.getXArgument(), (int) end.getYArgument(),
+					(int) end.getZArgument());
+			if((startComponent != ComponentMap.NO_COMPONENT) && (endComponent != ComponentMap.NO_COMPONENT)
+					&& (startComponent != endComponent))
+				return new ArrayList<PositionVector>();
+		}
+		List<PositionVector> path = this.getPathCache().get(start, end);
+		if(path != null)
 			return path;
-		path.add(start);
-		allPossibilities.remove(start);
-		PositionVector i = start;
-		while(! i.equals(end)){
-			Set<PositionVector> reachables = this.getReachableAdjacents(i);
-			PositionVector best = null;
-			int distance = -1;
-			double accurateDistance = 0.0;
-			double distanceToDestination = 0.0;
-			for(PositionVector reachable: reachables){
-				if((allPossibilities.containsKey(reachable)) && ((allPossibilities.get(reachable) <= distance) || (distance == -1))){
-					if((allPossibilities.get(reachable) < distance) || (distance == -1)){
-						distance = allPossibilities.get(reachable);
-						accurateDistance = PositionVector.calcDistance(i, reachable);
-						distanceToDestination = PositionVector.calcDistance(reachable, end);
-						best = reachable;
-					}
-					else if((allPossibilities.get(reachable) == distance) && 
-							((PositionVector.calcDistance(i, reachable) < accurateDistance))){
-						accurateDistance = PositionVector.calcDistance(i, reachable);
-						distanceToDestination = PositionVector.calcDistance(reachable, end);
-						best = reachable;
-					}
-					else if((allPossibilities.get(reachable) == distance) && 
-							((PositionVector.calcDistance(i, reachable) == accurateDistance))
-							&& (PositionVector.calcDistance(reachable, end) <= distanceToDestination)){
-						distanceToDestination = PositionVector.calcDistance(reachable, end);
-						best = reachable;
-					}
-				}
+		if((Math.abs(start.getXArgument() - end.getXArgument()) > hierarchicalDistance)
+				|| (Math.abs(start.getYArgument() - end.getYArgument()) > hierarchicalDistance)
+				|| (Math.abs(start.getZArgument() - end.getZArgument()) > hierarchicalDistance))
+			path = this.getHierarchicalPathFinder().findPath(start, end);
+		else
+			path = this.getPathFinder().findPath(start, end);
+		this.getPathCache().put(path);
+		return new ArrayList<PositionVector>(path);
+	}
+	
+	/**
+	 * Return the shortest walkable path from the given position to the nearest cube of this world that satisfies the given
+	 * condition.
+	 * @param position	The given position.
+	 * @param condition	The given condition on the indices of cubes.
+	 * @return	The shortest walkable path from the cube of the given position to the nearest standing position of which the cube
+	 * 			satisfies the given condition, start and target included, as determined by this world's path finder. The last
+	 * 			position of the path is the position of the nearest matching cube. An empty list if no such cube can be reached.
+	 * 			| result == this.findNearest(position, condition, Double.POSITIVE_INFINITY)
+	 * @throws IllegalArgumentException
+	 * 			The given position is not a valid standing position in this world.
+	 * @throws NullPointerException
+	 * 			The given position or condition is not effective.
+	 */
+	public List<PositionVector> findNearest(PositionVector position, IntPredicate condition)
+			throws IllegalArgumentException, NullPointerException {
+		return this.findNearest(position, condition, Double.POSITIVE_INFINITY);
+	}
+	
+	/**
+	 * Return the shortest walkable path from the given position to the nearest cube of this world that satisfies the given
+	 * condition, if that path is not longer than the given maximal distance.
+	 * @param position	The given position.
+	 * @param condition	The given condition on the indices of cubes.
+	 * @param maxDistance	The given maximal distance.
+	 * @return	The shortest walkable path from the cube of the given position to the nearest standing position of which the cube
+	 * 			satisfies the given condition and that is at most the given maximal distance (in cubes) away when walking, start
+	 * 			and target included. An empty list if no such cube can be reached.
+	 * @throws IllegalArgumentException
+	 * 			The given position is not a valid standing position in this world.
+	 * @throws NullPointerException
+	 * 			The given position or condition is not effective.
+	 * @note	All candidates are found by a single search from the given position, for example
+	 * 			| findNearest(position, index -> containsLog(index))
+	 * 			| findNearest(position, index -> (getTerrainType(index) == TerrainType.WORKSHOP))
+	 * 			for the nearest log or workshop, instead of a search per candidate.
+	 * @note	The condition is tested on the index of each cube that the search expands, so it should read the terrain and
+	 * 			the content of that index directly instead of creating the cube with getCube.
+	 */
+	public List<PositionVector> findNearest(PositionVector position, IntPredicate condition, double maxDistance)
+			throws IllegalArgumentException, NullPointerException {
+		if(condition == null)
+			throw new NullPointerException();
+		if(! this.isValidStandingPosition(position))
+			throw new IllegalArgumentException("The position is not a valid standing position!");
+		return this.getPathFinder().findNearest(position, condition, (float) maxDistance);
+	}
+	
+	/**
+	 * Return the path finder of this world.
+	 */
+	@Basic @Raw @Immutable
+	public PathFinder getPathFinder() {
+		return this.pathFinder;
+	}
+	
+	/**
+	 * Variable registering the path finder of this world.
+	 */
+	private final PathFinder pathFinder;
+	
+	/**
+	 * Let the given units move to the given destination, sharing a single flow field.
+	 * @param units	The given units.
+	 * @param destination	The given destination.
+	 * @effect	A flow field to the cube of the given destination that covers the cube positions of the given units of this world is
+	 * 			acquired, and every given unit of this world moves to the given destination using that flow field.
+	 * 			| for each unit in units
+	 * 			| 	if(unit.getWorld() == this)
+	 * 			| 		unit.moveTo(destination, this.acquireFlowField(destination, cube positions of units))
+	 * @throws IllegalArgumentException
+	 * 			The given destination is not a valid standing position in this world.
+	 * @throws NullPointerException
+	 * 			The given units or destination are not effective.
+	 */
+	public void moveGroupTo(Collection<Unit> units, PositionVector destination) throws IllegalArgumentException, NullPointerException {
+		List<Unit> members = new ArrayList<Unit>();
+		List<PositionVector> startPositions = new ArrayList<PositionVector>();
+		for(Unit unit : units){
+			if(unit.getWorld() == this){
+				members.add(unit);
+				startPositions.add(unit.getCubePositionVector());
 			}
-			path.add(best);
-			i = best;
 		}
-		return path;
+		FlowField flowField = this.acquireFlowField(destination, startPositions);
+		for(Unit unit : members)
+			unit.moveTo(destination, flowField);
+		if(flowField.getNbUsers() == 0)
+			this.releaseFlowField(flowField);
+	}
+	
+	/**
+	 * Return a flow field of this world to the given destination that covers the given start positions.
+	 * @param destination	The given destination.
+	 * @param startPositions	The given start positions.
+	 * @return	The registered flow field to the cube of the given destination if it covers all given start positions, otherwise
+	 * 			a new flow field to that cube for the given start positions, which is registered instead.
+	 * @throws IllegalArgumentException
+	 * 			The given destination is not a valid standing position in this world.
+	 * @note	Units that still use a replaced flow field keep using it until they release it.
+	 */
+	public FlowField acquireFlowField(PositionVector destination, Collection<PositionVector> startPositions) 
+			throws IllegalArgumentException {
+		PositionVector cube = PositionVector.getIntegerPositionVector(destination);
+		FlowField flowField = this.flowFields.get(cube);
+		if(flowField != null){
+			boolean coversAll = true;
+			for(PositionVector position : startPositions)
+				coversAll = coversAll && flowField.covers(position);
+			if(coversAll)
+				return flowField;
+		}
+		flowField = new FlowField(this, cube, startPositions);
+		this.flowFields.put(cube, flowField);
+		return flowField;
+	}
+	
+	/**
+	 * Release the given flow field for one of its users.
+	 * @param flowField	The given flow field.
+	 * @effect	A user of the given flow field is removed.
+	 * 			| flowField.removeUser()
+	 * @effect	If the given flow field has no users left, it is no longer registered in this world.
+	 */
+	public void releaseFlowField(FlowField flowField) {
+		flowField.removeUser();
+		if((flowField.getNbUsers() == 0) && (this.flowFields.get(flowField.getDestination()) == flowField))
+			this.flowFields.remove(flowField.getDestination());
+	}
+	
+	/**
+	 * Return the number of flow fields that are registered in this world.
+	 */
+	public int getNbFlowFields() {
+		return this.flowFields.size();
+	}
+	
+	/**
+	 * Drop all flow fields of this world.
+	 * @effect	Every registered flow field is invalidated and no longer registered in this world.
+	 */
+	@Model
+	private void dropFlowFields() {
+		for(FlowField flowField : this.flowFields.values())
+			flowField.invalidate();
+		this.flowFields.clear();
+	}
+	
+	/**
+	 * Variable registering the flow fields of this world by their destination.
+	 */
+	private final Map<PositionVector, FlowField> flowFields = new HashMap<PositionVector, FlowField>();
+	
+	/**
+	 * Return the reachability map of this world.
+	 */
+	@Basic @Raw @Immutable
+	public ReachabilityMap getReachabilityMap() {
+		return this.reachabilityMap;
+	}
+	
+	/**
+	 * Variable registering the reachability map of this world.
+	 */
+	private final ReachabilityMap reachabilityMap;
+	
+	/**
+	 * Return the component map of this world.
+	 */
+	@Basic @Raw @Immutable
+	public ComponentMap getComponentMap() {
+		return this.componentMap;
+	}
+	
+	/**
+	 * Variable registering the component map of this world.
+	 */
+	private final ComponentMap componentMap;
+	
+	/**
+	 * Return the path subscriptions of this world.
+	 */
+	@Basic @Raw @Immutable
+	public PathSubscriptions getPathSubscriptions() {
+		return this.pathSubscriptions;
+	}
+	
+	/**
+	 * Variable registering the path subscriptions of the units of this world.
+	 */
+	private final PathSubscriptions pathSubscriptions;
+	
+	/**
+	 * Return the path planner of this world, null if this world plans paths synchronously.
+	 */
+	@Basic @Raw
+	public PathPlanner getPathPlanner() {
+		return this.pathPlanner;
+	}
+	
+	/**
+	 * Let this world plan the paths of its units asynchronously, on the given number of workers.
+	 * @param nbWorkers	The given number of workers.
+	 * @effect	The asynchronous path planning of this world is stopped first.
+	 * 			| this.stopAsynchronousPathPlanning()
+	 * @post	The path planner of this world is a new path planner for this world with the given number of workers.
+	 * @throws IllegalArgumentException
+	 * 			The given number of workers is not strictly positive.
+	 */
+	public void startAsynchronousPathPlanning(int nbWorkers) throws IllegalArgumentException {
+		this.stopAsynchronousPathPlanning();
+		this.pathPlanner = new PathPlanner(this, nbWorkers);
+	}
+	
+	/**
+	 * Let this world plan the paths of its units synchronously.
+	 * @effect	If this world has a path planner, it is shut down.
+	 * @post	This world has no path planner.
+	 * 			| new.getPathPlanner() == null
+	 */
+	public void stopAsynchronousPathPlanning() {
+		if(this.pathPlanner != null)
+			this.pathPlanner.shutDown();
+		this.pathPlanner = null;
+	}
+	
+	/**
+	 * Variable registering the path planner of this world.
+	 */
+	private PathPlanner pathPlanner;
+	
+	/**
+	 * Check whether the units of this world repair their paths incrementally after the terrain has changed.
+	 */
+	@Basic @Raw
+	public boolean isIncrementalReplanning() {
+		return this.incrementalReplanning;
+	}
+	
+	/**
+	 * Set whether the units of this world repair their paths incrementally after the terrain has changed.
+	 * @param incrementalReplanning	Whether the paths are repaired incrementally.
+	 * @post	| new.isIncrementalReplanning() == incrementalReplanning
+	 * @note	Units that repair their paths incrementally keep an incremental path finder to their destination, which is told
+	 * 			about every change of the terrain of this world.
+	 */
+	public void setIncrementalReplanning(boolean incrementalReplanning) {
+		this.incrementalReplanning = incrementalReplanning;
+	}
+	
+	/**
+	 * Variable registering whether the units of this world repair their paths incrementally.
+	 */
+	private boolean incrementalReplanning;
+	
+	/**
+	 * Register the given incremental path finder of a unit of this world.
+	 * @param pathFinder	The given incremental path finder.
+	 * @post	The given incremental path finder is told about every change of the terrain of this world.
+	 */
+	void addIncrementalPathFinder(IncrementalPathFinder pathFinder) {
+		this.incrementalPathFinders.add(pathFinder);
+	}
+	
+	/**
+	 * Remove the given incremental path finder of a unit of this world.
+	 * @param pathFinder	The given incremental path finder.
+	 * @post	The given incremental path finder is no longer told about changes of the terrain of this world.
+	 */
+	void removeIncrementalPathFinder(IncrementalPathFinder pathFinder) {
+		this.incrementalPathFinders.remove(pathFinder);
+	}
+	
+	/**
+	 * Return the number of incremental path finders of the units of this world.
+	 */
+	public int getNbIncrementalPathFinders() {
+		return this.incrementalPathFinders.size();
+	}
+	
+	/**
+	 * Variable registering the incremental path finders of the units of this world.
+	 */
+	private final Set<IncrementalPathFinder> incrementalPathFinders = new HashSet<IncrementalPathFinder>();
+	
+	/**
+	 * Return the terrain version of this world, which is increased every time a cube of this world is replaced.
+	 */
+	@Basic @Raw
+	public long getTerrainVersion() {
+		return this.terrainVersion;
+	}
+	
+	/**
+	 * Variable registering the terrain version of this world.
+	 */
+	private long terrainVersion;
+	
+	/**
+	 * Return a snapshot of the reachability map of this world.
+	 * @return	A snapshot of the masks of the reachability map of this world, indexed by cube index x + y*nbX + z*nbX*nbY.
+	 * @note	The snapshot is shared by all callers until the terrain of this world changes, so it must not be modified.
+	 * @note	A snapshot shares the pages of masks with the reachability map and a page is only copied when the reachability map
+	 * 			changes it, so a new snapshot after a terrain change costs a reference per page and a copy of the few pages
+	 * 			around the change, however large this world is.
+	 */
+	public PagedIntArray getReachabilitySnapshot() {
+		if((this.reachabilitySnapshot == null) || (this.reachabilitySnapshotVersion != this.getTerrainVersion())){
+			this.reachabilitySnapshot = this.getReachabilityMap().getMasks().snapshot();
+			this.reachabilitySnapshotVersion = this.getTerrainVersion();
+		}
+		return this.reachabilitySnapshot;
+	}
+	
+	/**
+	 * Variables registering the last snapshot of the reachability map of this world and the terrain version it was taken of.
+	 */
+	private PagedIntArray reachabilitySnapshot;
+	private long reachabilitySnapshotVersion;
+	
+	/**
+	 * Return the hierarchical path finder of this world.
+	 */
+	@Basic @Raw @Immutable
+	public HierarchicalPathFinder getHierarchicalPathFinder() {
+		return this.hierarchicalPathFinder;
+	}
+	
+	/**
+	 * Variable registering the hierarchical path finder of this world.
+	 */
+	private final HierarchicalPathFinder hierarchicalPathFinder;
+	
+	/**
+	 * Variable registering the cluster size of the hierarchical path finder of any world.
+	 */
+	private static int clusterSize = 8;
+	
+	/**
+	 * Variable registering the distance along some axis beyond which the paths of any world are planned by its hierarchical
+	 * path finder.
+	 * @note	Paths over a few clusters are planned exactly, since the detour of a hierarchical path is largest compared to its
+	 * 			length when the path only crosses a few cluster borders.
+	 */
+	private static int hierarchicalDistance = 4*clusterSize;
+	
+	/**
+	 * Return the path cache of this world.
+	 */
+	@Basic @Raw @Immutable
+	public PathCache getPathCache() {
+		return this.pathCache;
+	}
+	
+	/**
+	 * Variable registering the path cache of this world.
+	 */
+	private final PathCache pathCache;
+	
+	/**
+	 * Variables registering the bounds of the path cache of any world.
+	 */
+	private static int maxNbCachedPaths = 256;
+	private static int maxNbCachedCubes = 1 << 16;
+	
+	/**
+	 * Return the support analysis of this world.
+	 */
+	@Basic @Raw @Immutable
+	public SupportAnalysis getSupportAnalysis() {
+		return this.supportAnalysis;
+	}
+	
+	/**
+	 * Variable registering the support analysis of this world.
+	 */
+	private final SupportAnalysis supportAnalysis;
+	
+	/**
+	 * Variable registering the maximum number of cached support results of any world.
+	 */
+	private static int maxNbSupportEntries = 1024;
+	
+	/**
+	 * Return the cave-in scheduler of this world.
+	 */
+	@Basic @Raw @Immutable
+	public CaveInScheduler getCaveInScheduler() {
+		return this.caveInScheduler;
+	}
+	
+	/**
+	 * Variable registering the cave-in scheduler of this world.
+	 */
+	private final CaveInScheduler caveInScheduler;
+	
+	/**
+	 * Variables registering the initial budget per advance of time of the cave-in scheduler of any world.
+	 */
+	private static int maxNbCaveInStepsPerAdvance = 1 << 14;
+	private static long maxNbCaveInMicrosPerAdvance = 2000;
+	
+	/**
+	 * Return the positions of the solid cubes that would cave-in together with the cube at the given position, if that cube
+	 * were removed.
+	 * @param x	The x coordinate of the targeted cube.
+	 * @param y	The y coordinate of the targeted cube.
+	 * @param z	The z coordinate of the targeted cube.
+	 * @return	The positions of the solid cubes other than the targeted cube that would no longer be connected to a border if the
+	 * 			targeted cube were passable, or an empty list if the targeted cube is passable.
+	 * 			| result == this.getSupportAnalysis().getUnsupported(x, y, z)
+	 * @throws	IllegalArgumentException
+	 * 			The given position is out of bounds.
+	 * @note	The terrain of this world is not changed, so work planners can compare the consequences of several cubes before
+	 * 			choosing one. Results are cached until a terrain change near the cubes they depend on.
+	 */
+	public List<PositionVector> getCubesUnsupportedWithout(int x, int y, int z) throws IllegalArgumentException {
+		return this.getSupportAnalysis().getUnsupported(x, y, z);
+	}
+	
+	/**
+	 * Return the number of solid cubes that would cave-in together with the cube at the given position, if that cube were
+	 * removed.
+	 * @param x	The x coordinate of the targeted cube.
+	 * @param y	The y coordinate of the targeted cube.
+	 * @param z	The z coordinate of the targeted cube.
+	 * @return	| result == this.getCubesUnsupportedWithout(x, y, z).size()
+	 * @throws	IllegalArgumentException
+	 * 			The given position is out of bounds.
+	 */
+	public int getNbCubesUnsupportedWithout(int x, int y, int z) throws IllegalArgumentException {
+		return this.getSupportAnalysis().getNbUnsupported(x, y, z);
 	}
 	
 	/**
@@ -9,6 +9,7 @@ import hillbillies.model.PositionVector;
 import hillbillies.model.Unit;
 import hillbillies.model.World;
 import hillbillies.part2.listener.TerrainChangeListener;
+import hillbillies.util.VoxelStore;
 import ogp.framework.util.ModelException;
 
 public class Facade implements IFacade {
@@ -206,6 +207,21 @@ public class Facade implements IFacade {
 		}
 	}
 
+	@Override
+	public void moveTo(Set<Unit> units, int[] cube) throws ModelException {
+		if(units.isEmpty())
+			return;
+		try{
+			units.iterator().next().getWorld().moveGroupTo(units, new PositionVector(cube[0], cube[1], cube[2]));
+		}
+		catch (IllegalArgumentException exc){
+			throw new ModelException("Move problem");
+		}
+		catch (NullPointerException exc){
+			throw new ModelException("Move problem");
+		}
+	}
+
 	@Override
 	public void work(Unit unit) throws ModelException {
 
@@ -286,6 +302,16 @@ public class Facade implements IFacade {
 		}
 	}
 
+	@Override
+	public World createWorld(VoxelStore terrain, TerrainChangeListener modelListener) throws ModelException {
+		try{
+			return new World(terrain, modelListener);
+		}
+		catch (NullPointerException | IllegalArgumentException exc){
+			throw new ModelException(exc);
+		}
+	}
+
 	@Override
 	public int getNbCubesX(World world) throws ModelException {
 		return world.getNbCubesX();
@@ -311,6 +337,16 @@ public class Facade implements IFacade {
 		}
 	}
 
+	@Override
+	public void startAsynchronousPathPlanning(World world, int nbWorkers) throws ModelException {
+		try{
+			world.startAsynchronousPathPlanning(nbWorkers);
+		}
+		catch (IllegalArgumentException exc){
+			throw new ModelException(exc);
+		}
+	}
+
 	@Override
 	public int getCubeType(World world, int x, int y, int z) throws ModelException {
 		try{
@@ -341,9 +377,24 @@ public class Facade implements IFacade {
 		}
 	}
 
+	@Override
+	public int getTerrainZAtOrBelow(World world, int x, int y, int z) throws ModelException {
+		try{
+			return world.getTerrainZAtOrBelow(x, y, z);
+		}
+		catch (IllegalArgumentException exc){
+			throw new ModelException(exc);
+		}
+	}
+
 	@Override
 	public Unit spawnUnit(World world, boolean enableDefaultBehavior) throws ModelException {
-		return world.spawnUnit(enableDefaultBehavior);
+		try{
+			return world.spawnUnit(enableDefaultBehavior);
+		}
+		catch (IllegalStateException exc){
+			throw new ModelException(exc);
+		}
 	}
 
 	@Override
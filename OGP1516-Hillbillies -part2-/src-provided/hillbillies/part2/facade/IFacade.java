@@ -5,6 +5,7 @@ import java.util.Set;
 import hillbillies.model.*;
 
 import hillbillies.part2.listener.TerrainChangeListener;
+import hillbillies.util.VoxelStore;
 import ogp.framework.util.ModelException;
 
 /**
@@ -117,6 +118,24 @@ public interface IFacade extends hillbillies.part1.facade.IFacade {
 	 */
 	public World createWorld(int[][][] terrainTypes, TerrainChangeListener modelListener) throws ModelException;
 
+	/**
+	 * Create a new world of which the terrain is kept in the given store.
+	 * 
+	 * @param terrain
+	 *            The store holding the terrain type of each cube, encoded as
+	 *            in {@link #createWorld(int[][][], TerrainChangeListener)}.
+	 *            The world reads and writes its terrain types in this store, so
+	 *            the store keeps following the terrain of the world after the
+	 *            world is created.
+	 * @param modelListener
+	 *            The listener to notify of terrain changes, as in
+	 *            {@link #createWorld(int[][][], TerrainChangeListener)}.
+	 * @return The new world.
+	 * @throws ModelException
+	 *             A precondition was violated or an exception was thrown.
+	 */
+	public World createWorld(VoxelStore terrain, TerrainChangeListener modelListener) throws ModelException;
+
 	/**
 	 * Return the number of cubes in the world in the x-direction.
 	 * 
@@ -163,6 +182,19 @@ public interface IFacade extends hillbillies.part1.facade.IFacade {
 	 */
 	public void advanceTime(World world, double dt) throws ModelException;
 
+	/**
+	 * Let the given world plan the paths of its units asynchronously, on the
+	 * given number of worker threads.
+	 * 
+	 * @param world
+	 *            The world that must plan paths asynchronously.
+	 * @param nbWorkers
+	 *            The number of worker threads, which is strictly positive.
+	 * @throws ModelException
+	 *             A precondition was violated or an exception was thrown.
+	 */
+	public void startAsynchronousPathPlanning(World world, int nbWorkers) throws ModelException;
+
 	/**
 	 * Return the terrain type of the cube at the given coordinates.
 	 * 
@@ -224,6 +256,26 @@ public interface IFacade extends hillbillies.part1.facade.IFacade {
 	 */
 	public boolean isSolidConnectedToBorder(World world, int x, int y, int z) throws ModelException;
 
+	/**
+	 * Return the z-coordinate of the highest cube of the given column at or
+	 * below the given z-coordinate that is not air.
+	 * 
+	 * @param world
+	 *            The world to which the column belongs
+	 * @param x
+	 *            The x-coordinate of the column
+	 * @param y
+	 *            The y-coordinate of the column
+	 * @param z
+	 *            The highest z-coordinate to consider
+	 * @return The z-coordinate of the highest cube of the column at or below
+	 *         the given z-coordinate of which the terrain type is not air, or
+	 *         -1 if there is no such cube.
+	 * @throws ModelException
+	 *             A precondition was violated or an exception was thrown.
+	 */
+	public int getTerrainZAtOrBelow(World world, int x, int y, int z) throws ModelException;
+
 	/* UNITS */
 
 	/**
@@ -346,6 +398,25 @@ public interface IFacade extends hillbillies.part1.facade.IFacade {
 		throw new NoSuchMethodError("This method no longer needs to be supported");
 	}
 
+	/**
+	 * Start moving the given units to the given cube, as a group.
+	 * 
+	 * @param units
+	 *            The units that should start moving
+	 * @param cube
+	 *            The coordinate of the cube to move to, as an array of integers
+	 *            {x, y, z}.
+	 * @throws ModelException
+	 *             A precondition was violated or an exception was thrown.
+	 * 
+	 * @note By default, every unit is moved on its own. Implementations may
+	 *       share the work of finding a path between the units.
+	 */
+	default void moveTo(Set<Unit> units, int[] cube) throws ModelException {
+		for (Unit unit : units)
+			moveTo(unit, cube);
+	}
+
 	/* FACTIONS */
 	/**
 	 * Return the current faction of the given unit.
@@ -1,5 +1,6 @@
 package hillbillies.part2.internal.controller;
 
+import java.util.Set;
 import java.util.function.Consumer;
 
 import hillbillies.common.internal.controller.UnitSelectionMode;
@@ -59,7 +60,17 @@ public class ActionExecutorPart2 extends ActionExecutorPart1 {
 	public void moveTo(int cubeX, int cubeY, int cubeZ) {
 		if (!canControlSelectedUnits())
 			return;
-		super.moveTo(cubeX, cubeY, cubeZ);
+		Set<Unit> units = getSelection().getObjects(Unit.class);
+		if (units.size() <= 1) {
+			super.moveTo(cubeX, cubeY, cubeZ);
+			return;
+		}
+		try {
+			getFacade().moveTo(units, new int[] { cubeX, cubeY, cubeZ });
+			getGame().getView().setStatusText("Moving to selected cube");
+		} catch (ModelException e) {
+			handleError(e);
+		}
 	}
 
 	@Override
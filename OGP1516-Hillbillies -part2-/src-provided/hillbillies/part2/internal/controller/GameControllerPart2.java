@@ -7,6 +7,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.stream.Collectors;
 
 import hillbillies.common.internal.controller.GameController;
@@ -20,12 +21,14 @@ import hillbillies.model.World;
 import hillbillies.part2.facade.IFacade;
 import hillbillies.part2.internal.Constants;
 import hillbillies.part2.internal.Part2Options;
+import hillbillies.part2.internal.map.ByteMap3D;
 import hillbillies.part2.internal.map.CubeType;
 import hillbillies.part2.internal.map.GameMap;
 import hillbillies.part2.internal.providers.IGameObjectInfoProvider;
 import hillbillies.part2.internal.providers.WorldInfoProvider2;
 import hillbillies.part2.internal.ui.IHillbilliesView2;
 import hillbillies.part2.internal.ui.ViewProviders2;
+import hillbillies.part2.listener.TerrainChangeBatch;
 import hillbillies.part2.listener.TerrainChangeListener;
 import ogp.framework.util.ModelException;
 
@@ -35,37 +38,59 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 
 	private final GameMap map;
 
-	private final Set<TerrainChangeListener> listeners = new HashSet<>();
+	// listeners are added and removed rarely but notified every advance of time, so iterating must not copy the set
+	private final Set<TerrainChangeListener> listeners = new CopyOnWriteArraySet<>();
 	private TerrainChangeListener modelListener = new TerrainChangeListener() {
 
 		@Override
 		public void notifyTerrainChanged(int x, int y, int z) {
-			for (TerrainChangeListener listener : new HashSet<>(listeners)) {
+			for (TerrainChangeListener listener : listeners) {
 				listener.notifyTerrainChanged(x, y, z);
 			}
 		}
+
+		@Override
+		public void notifyTerrainChanged(TerrainChangeBatch batch) {
+			for (TerrainChangeListener listener : listeners) {
+				listener.notifyTerrainChanged(batch);
+			}
+		}
 	};
 
 	public GameControllerPart2(IFacade facade, Part2Options options, GameMap map) throws ModelException {
 		super(facade, options);
 		this.map = map;
 
-		int[][][] types = new int[map.getNbTilesX()][map.getNbTilesY()][map.getNbTilesZ()];
-
-		for (int x = 0; x < types.length; x++) {
-			for (int y = 0; y < types[x].length; y++) {
-				for (int z = 0; z < types[x][y].length; z++) {
-					CubeType type = map.getTypeAt(x, y, z);
-					types[x][y][z] = type.getByteValue();
-				}
-			}
-		}
-
-		world = facade.createWorld(types, modelListener);
+		// the byte values of the cube types are the terrain types of the world, so the world keeps its terrain in the
+		// array of the game map itself instead of in a copy; the game map follows the terrain of the world from now on,
+		// and copyCubeTypesTo(ByteMap3D) copies the terrain of the world from that array
+		world = facade.createWorld(map.getMap().asVoxelStore(), modelListener);
+		// plan paths off the animation thread, so that long searches do not freeze rendering
+		facade.startAsynchronousPathPlanning(world, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
 
 		getSelectionProvider().addListener(e -> selectionUpdated());
 	}
 
+	/**
+	 * Check whether the given map holds the cube type of the corners and the
+	 * center of the world; checking every cube would take a call through the
+	 * facade per cube.
+	 */
+	private boolean isTerrainOfWorld(ByteMap3D terrain) {
+		int maxX = terrain.getNbX() - 1, maxY = terrain.getNbY() - 1, maxZ = terrain.getNbZ() - 1;
+		int[][] samples = { { 0, 0, 0 }, { maxX, 0, 0 }, { 0, maxY, 0 }, { maxX, maxY, 0 }, { 0, 0, maxZ },
+				{ maxX, 0, maxZ }, { 0, maxY, maxZ }, { maxX, maxY, maxZ }, { maxX / 2, maxY / 2, maxZ / 2 } };
+		try {
+			for (int[] cube : samples)
+				if (terrain.getValue(cube[0], cube[1], cube[2]) != (byte) getFacade().getCubeType(world, cube[0], cube[1],
+						cube[2]))
+					return false;
+			return true;
+		} catch (ModelException e) {
+			return false;
+		}
+	}
+
 	@Override
 	public Part2Options getOptions() {
 		return (Part2Options) super.getOptions();
@@ -153,6 +178,35 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 			return false;
 		};
 
+		@Override
+		public void copyCubeTypesTo(ByteMap3D target) {
+			// the array of the game map is the terrain of the world (see the constructor)
+			assert isTerrainOfWorld(map.getMap());
+			target.copyFrom(map.getMap());
+		}
+
+		@Override
+		public void copyCubeTypesTo(ByteMap3D target, TerrainChangeBatch batch) {
+			try {
+				for (int i = 0; i < batch.getNbCubes(); i++) {
+					int x = batch.getX(i), y = batch.getY(i), z = batch.getZ(i);
+					target.setValue(x, y, z, (byte) getFacade().getCubeType(world, x, y, z));
+				}
+			} catch (ModelException e) {
+				handleError(e);
+			}
+		}
+
+		@Override
+		public int getHighestNonEmptyZ(int x, int y, int z) {
+			try {
+				return getFacade().getTerrainZAtOrBelow(world, x, y, z);
+			} catch (ModelException e) {
+				handleError(e);
+				return -1;
+			}
+		}
+
 		@Override
 		public Set<?> getObjectsInBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
 			Set<Object> result = new HashSet<>();
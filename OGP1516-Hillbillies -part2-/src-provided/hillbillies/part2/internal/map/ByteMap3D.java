@@ -4,6 +4,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 import hillbillies.common.internal.map.IByteMap3D;
+import hillbillies.util.ArrayVoxelStore;
+import hillbillies.util.VoxelStore;
 
 /**
  * A memory-efficient 3D map structure.
@@ -67,6 +69,29 @@ public class ByteMap3D implements IByteMap3D {
 		}
 	}
 	
+	/**
+	 * Copy all values of the given map, which must have the same dimensions,
+	 * into this map. Without listeners, this is a single array copy.
+	 */
+	public void copyFrom(ByteMap3D source) {
+		if (source.nbX != nbX || source.nbY != nbY || source.nbZ != nbZ)
+			throw new IllegalArgumentException("Maps have different dimensions");
+		if (listeners.isEmpty()) {
+			System.arraycopy(source.tileTypes, 0, tileTypes, 0, tileTypes.length);
+		} else {
+			fill(source::getValue);
+		}
+	}
+
+	/**
+	 * A voxel store that shares the array of this map, so that no copy of the
+	 * values is made. Changes made through the store do not notify the
+	 * listeners of this map.
+	 */
+	public VoxelStore asVoxelStore() {
+		return new ArrayVoxelStore(tileTypes, nbX, nbY, nbZ);
+	}
+
 	private void fireChange(int x, int y, int z, byte oldValue, byte newValue) {
 		for (Listener listener : listeners) {
 			listener.onChange(x, y, z, oldValue, newValue);
@@ -1,7 +1,9 @@
 package hillbillies.part2.internal.providers;
 
 import hillbillies.common.internal.providers.WorldInfoProvider;
+import hillbillies.part2.internal.map.ByteMap3D;
 import hillbillies.part2.internal.map.CubeType;
+import hillbillies.part2.listener.TerrainChangeBatch;
 import hillbillies.part2.listener.TerrainChangeListener;
 
 public interface WorldInfoProvider2 extends WorldInfoProvider {
@@ -11,4 +13,22 @@ public interface WorldInfoProvider2 extends WorldInfoProvider {
 	public void removeTerrainChangeListener(TerrainChangeListener listener);
 
 	public boolean isAnchored(int x, int y, int z);
+
+	/**
+	 * The highest z-level at or below the given z-level of which the cube at
+	 * (x, y) is not empty, or -1 if all those cubes are empty.
+	 */
+	public int getHighestNonEmptyZ(int x, int y, int z);
+
+	/**
+	 * Copy the byte value of the cube type of every cube into the given map,
+	 * which has the dimensions of the world.
+	 */
+	public void copyCubeTypesTo(ByteMap3D map);
+
+	/**
+	 * Copy the byte value of the cube type of each cube of the given batch into
+	 * the given map, which has the dimensions of the world.
+	 */
+	public void copyCubeTypesTo(ByteMap3D map, TerrainChangeBatch batch);
 }
@@ -16,6 +16,8 @@ import hillbillies.part2.internal.providers.WorldInfoProvider2;
 import hillbillies.part2.internal.ui.sprites.BoulderSprite;
 import hillbillies.part2.internal.ui.sprites.LogSprite;
 import hillbillies.part2.internal.ui.sprites.UnitSprite2;
+import hillbillies.part2.listener.TerrainChangeBatch;
+import hillbillies.part2.listener.TerrainChangeListener;
 import javafx.geometry.Rectangle2D;
 import ogp.framework.util.internal.Matrix;
 
@@ -26,7 +28,18 @@ public class ViewModelPart2 extends ViewModel implements IViewModel2 {
 
 	public ViewModelPart2(WorldInfoProvider2 wip, IGameObjectInfoProvider uip, Rectangle2D initialView, int tileSize) {
 		super(wip, uip, initialView, tileSize);
-		getWorldInfoProvider().addTerrainChangeListener(this::updateMapCacheAt);
+		getWorldInfoProvider().addTerrainChangeListener(new TerrainChangeListener() {
+
+			@Override
+			public void notifyTerrainChanged(int x, int y, int z) {
+				updateMapCacheAt(x, y, z);
+			}
+
+			@Override
+			public void notifyTerrainChanged(TerrainChangeBatch batch) {
+				updateMapCache(batch);
+			}
+		});
 		this.depthValues = new Matrix<>(getNbVisibleTilesX(), getNbVisibleTilesY(), 0);
 		this.anchored = new Matrix<>(getNbVisibleTilesX(), getNbVisibleTilesY(), false);
 	}
@@ -95,13 +108,27 @@ public class ViewModelPart2 extends ViewModel implements IViewModel2 {
 
 	@Override
 	protected void fillMapCache() {
-		getMap().fill((x, y, z) -> getWorldInfoProvider().getCubeTypeAt(x, y, z).getByteValue());
+		if (getMap() instanceof ByteMap3D) {
+			getWorldInfoProvider().copyCubeTypesTo((ByteMap3D) getMap());
+		} else {
+			getMap().fill((x, y, z) -> getWorldInfoProvider().getCubeTypeAt(x, y, z).getByteValue());
+		}
 	}
 
 	protected void updateMapCacheAt(int x, int y, int z) {
 		getMap().setValue(x, y, z, getWorldInfoProvider().getCubeTypeAt(x, y, z).getByteValue());
 	}
 
+	protected void updateMapCache(TerrainChangeBatch batch) {
+		if (getMap() instanceof ByteMap3D) {
+			getWorldInfoProvider().copyCubeTypesTo((ByteMap3D) getMap(), batch);
+		} else {
+			for (int i = 0; i < batch.getNbCubes(); i++) {
+				updateMapCacheAt(batch.getX(i), batch.getY(i), batch.getZ(i));
+			}
+		}
+	}
+
 	@Override
 	public void update() {
 		// super.update(); // skip, to not fill entire map again (we're using
@@ -142,12 +169,13 @@ public class ViewModelPart2 extends ViewModel implements IViewModel2 {
 		int worldY = visibleTileToWorldTileY(visibleY);
 
 		int currentZ = getCurrentZLevel();
-		CubeType type = readTypeFromMap(worldX, worldY, currentZ);
-		while (currentZ > 0 && (type == null || type == CubeType.EMPTY)) {
-			currentZ -= 1;
-			type = readTypeFromMap(worldX, worldY, currentZ);
+		if (worldX < 0 || worldY < 0 || worldX >= getWorldInfoProvider().getNbXTiles()
+				|| worldY >= getWorldInfoProvider().getNbYTiles()) {
+			return Math.min(currentZ, 0);
 		}
-		return currentZ;
+		// the world keeps a height map per column, so there is no need to walk down the column
+		int z = getWorldInfoProvider().getHighestNonEmptyZ(worldX, worldY, currentZ);
+		return z < 0 ? Math.min(currentZ, 0) : z;
 	}
 
 	public CubeType readTypeFromMap(int worldX, int worldY, int z) {
@@ -0,0 +1,143 @@
+package hillbillies.part2.listener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The cubes of a world that changed type since the previous notification, in
+ * the order in which they first changed, each cube at most once.
+ *
+ * Cubes are identified by their index x + nbX*(y + nbY*z), which is also the
+ * index of the cube in a byte array holding the whole world, and the batch
+ * keeps the smallest box that contains all of them.
+ */
+public class TerrainChangeBatch {
+
+	/**
+	 * Create a new batch of the cubes with the given indices in a world of the
+	 * given dimensions.
+	 *
+	 * The array is not copied, so it must not be changed afterwards.
+	 *
+	 * @param nbX
+	 *            The number of cubes of the world in the x direction
+	 * @param nbY
+	 *            The number of cubes of the world in the y direction
+	 * @param indices
+	 *            The indices of the changed cubes, without duplicates
+	 * @throws IllegalArgumentException
+	 *             One of the given dimensions is not positive
+	 */
+	public TerrainChangeBatch(int nbX, int nbY, int[] indices) throws IllegalArgumentException {
+		if (nbX <= 0 || nbY <= 0)
+			throw new IllegalArgumentException("The dimensions of a world must be positive!");
+		this.nbX = nbX;
+		this.nbY = nbY;
+		this.indices = indices;
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+		int maxX = -1, maxY = -1, maxZ = -1;
+		for (int i = 0; i < indices.length; i++) {
+			minX = Math.min(minX, getX(i));
+			minY = Math.min(minY, getY(i));
+			minZ = Math.min(minZ, getZ(i));
+			maxX = Math.max(maxX, getX(i));
+			maxY = Math.max(maxY, getY(i));
+			maxZ = Math.max(maxZ, getZ(i));
+		}
+		this.bounds = new int[] { minX, minY, minZ, maxX, maxY, maxZ };
+	}
+
+	private final int nbX;
+	private final int nbY;
+	private final int[] indices;
+
+	/**
+	 * The smallest box containing all changed cubes, as {minX, minY, minZ,
+	 * maxX, maxY, maxZ}; the maxima are -1 in an empty batch.
+	 */
+	private final int[] bounds;
+
+	/**
+	 * Returns the number of cubes in this batch.
+	 */
+	public int getNbCubes() {
+		return indices.length;
+	}
+
+	/**
+	 * Returns whether this batch does not contain any cube.
+	 */
+	public boolean isEmpty() {
+		return indices.length == 0;
+	}
+
+	/**
+	 * Returns the index x + nbX*(y + nbY*z) of the i-th cube of this batch.
+	 */
+	public int getIndex(int i) throws ArrayIndexOutOfBoundsException {
+		return indices[i];
+	}
+
+	/**
+	 * Returns the x-coordinate of the i-th cube of this batch.
+	 */
+	public int getX(int i) throws ArrayIndexOutOfBoundsException {
+		return indices[i] % nbX;
+	}
+
+	/**
+	 * Returns the y-coordinate of the i-th cube of this batch.
+	 */
+	public int getY(int i) throws ArrayIndexOutOfBoundsException {
+		return (indices[i] / nbX) % nbY;
+	}
+
+	/**
+	 * Returns the z-coordinate of the i-th cube of this batch.
+	 */
+	public int getZ(int i) throws ArrayIndexOutOfBoundsException {
+		return indices[i] / (nbX * nbY);
+	}
+
+	public int getMinX() {
+		return bounds[0];
+	}
+
+	public int getMinY() {
+		return bounds[1];
+	}
+
+	public int getMinZ() {
+		return bounds[2];
+	}
+
+	public int getMaxX() {
+		return bounds[3];
+	}
+
+	public int getMaxY() {
+		return bounds[4];
+	}
+
+	public int getMaxZ() {
+		return bounds[5];
+	}
+
+	/**
+	 * Returns a new list with the coordinates of the cubes of this batch (where
+	 * each coordinate is an array {x, y, z}), in the order of this batch.
+	 */
+	public List<int[]> toList() {
+		List<int[]> result = new ArrayList<>(indices.length);
+		for (int i = 0; i < indices.length; i++) {
+			result.add(new int[] { getX(i), getY(i), getZ(i) });
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "TerrainChangeBatch[cubes=" + getNbCubes() + ", bounds=(" + getMinX() + ", " + getMinY() + ", " + getMinZ()
+				+ ")..(" + getMaxX() + ", " + getMaxY() + ", " + getMaxZ() + ")]";
+	}
+}
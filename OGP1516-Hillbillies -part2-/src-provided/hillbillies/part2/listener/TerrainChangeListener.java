@@ -3,9 +3,11 @@ package hillbillies.part2.listener;
 /**
  * A listener for communicating terrain changes to the GUI.
  * 
- * You must invoke the {@link #notifyTerrainChanged(int, int, int)} method from
- * your code whenever a cube in the world changes type, such that the GUI knows
- * update the display of that cube.
+ * You must invoke the {@link #notifyTerrainChanged(TerrainChangeBatch)}
+ * method from your code with the cubes that changed type, such that the GUI
+ * knows to update the display of those cubes. Listeners that do not handle
+ * batches only implement {@link #notifyTerrainChanged(int, int, int)}, which
+ * is then invoked for each cube of the batch.
  * 
  * You do not have to create an implementation of this interface yourself. For
  * testing purposes, you may use an instance of
@@ -25,4 +27,20 @@ public interface TerrainChangeListener {
 	 *            The z-coordinate of the cube that has changed type
 	 */
 	public void notifyTerrainChanged(int x, int y, int z);
+
+	/**
+	 * Notify the GUI that the terrain cubes of the given batch have been
+	 * changed since the previous notification. A world accumulates its changes
+	 * while time advances and notifies them once per advance of time.
+	 *
+	 * By default, each of the cubes is notified separately.
+	 *
+	 * @param batch
+	 *            The cubes that have changed type
+	 */
+	public default void notifyTerrainChanged(TerrainChangeBatch batch) {
+		for (int i = 0; i < batch.getNbCubes(); i++) {
+			notifyTerrainChanged(batch.getX(i), batch.getY(i), batch.getZ(i));
+		}
+	}
 }
@@ -0,0 +1,72 @@
+package hillbillies.util;
+
+/**
+ * A store of small values (0 to 255) for each voxel of a three dimensional grid, kept in a given byte array with one byte per
+ * voxel at index x + nbX*(y + nbY*z).
+ *
+ * The array is not copied, so a store can share the array of another structure with the same layout, and changes through
+ * either of them are visible in both.
+ */
+public class ArrayVoxelStore implements VoxelStore {
+
+	/**
+	 * Create a new store for a grid of the given dimensions that keeps its values in the given array.
+	 *
+	 * @param values
+	 *            The array holding the value of each voxel.
+	 * @throws NullPointerException
+	 *             The given array is not effective.
+	 * @throws IllegalArgumentException
+	 *             One of the given dimensions is not positive or the length of the given array does not match them.
+	 */
+	public ArrayVoxelStore(byte[] values, int nbX, int nbY, int nbZ) throws NullPointerException, IllegalArgumentException {
+		if ((nbX <= 0) || (nbY <= 0) || (nbZ <= 0))
+			throw new IllegalArgumentException("The dimensions of a voxel store must be positive!");
+		if (values.length != (long) nbX * nbY * nbZ)
+			throw new IllegalArgumentException("The given array does not match the dimensions of the store!");
+		this.values = values;
+		this.nbX = nbX;
+		this.nbY = nbY;
+		this.nbZ = nbZ;
+	}
+
+	@Override
+	public int getNbX() {
+		return this.nbX;
+	}
+
+	@Override
+	public int getNbY() {
+		return this.nbY;
+	}
+
+	@Override
+	public int getNbZ() {
+		return this.nbZ;
+	}
+
+	@Override
+	public int get(int x, int y, int z) throws ArrayIndexOutOfBoundsException {
+		return this.values[this.getIndex(x, y, z)] & 0xFF;
+	}
+
+	@Override
+	public void set(int x, int y, int z, int value) throws ArrayIndexOutOfBoundsException, IllegalArgumentException {
+		int index = this.getIndex(x, y, z);
+		if ((value < 0) || (value > 0xFF))
+			throw new IllegalArgumentException("Not a valid voxel value!");
+		this.values[index] = (byte) value;
+	}
+
+	private final byte[] values;
+
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	private int getIndex(int x, int y, int z) throws ArrayIndexOutOfBoundsException {
+		if ((x < 0) || (y < 0) || (z < 0) || (x >= this.nbX) || (y >= this.nbY) || (z >= this.nbZ))
+			throw new ArrayIndexOutOfBoundsException("Voxel (" + x + ", " + y + ", " + z + ") lies outside this store!");
+		return x + this.nbX * (y + this.nbY * z);
+	}
+}
@@ -0,0 +1,443 @@
+package hillbillies.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The depth-first searches for a path of directly adjacent solid cubes from a cube to a border of a world, shared by all
+ * structures of a world that need to know which solid cubes are connected to a border.
+ *
+ * Each structure searches with its own {@link Searcher}, which has its own test for solid cubes, its own stack and its own
+ * classifications of cubes as connected or not, but all searchers of a world mark the cubes they visit in a single array of
+ * marks, which only takes memory for the regions of the world that were searched.
+ *
+ * @note The mark of a cube holds the stamp of the search that last visited or classified it, the searcher of that search, and
+ *       whether the cube was classified and found to be connected. Stamps only grow, so marks never have to be cleared between
+ *       searches. A searcher only trusts its own classifications, so when a searcher overwrites the mark of a cube of another
+ *       searcher, the other searcher at worst visits that cube once more.
+ * @note A search can be taken one cube at a time, so it can be spread over several advances of time, or run to its end at
+ *       once.
+ */
+public class BorderSearch {
+
+	/**
+	 * Create a new border search for a world of the given dimensions.
+	 *
+	 * @param nbX
+	 *            The number of cubes of the world in the x direction.
+	 * @param nbY
+	 *            The number of cubes of the world in the y direction.
+	 * @param nbZ
+	 *            The number of cubes of the world in the z direction.
+	 * @throws IllegalArgumentException
+	 *             One of the given dimensions is not positive, or the world has 2^31 cubes or more.
+	 */
+	public BorderSearch(int nbX, int nbY, int nbZ) throws IllegalArgumentException {
+		if ((nbX <= 0) || (nbY <= 0) || (nbZ <= 0))
+			throw new IllegalArgumentException("The dimensions of a world must be positive!");
+		if ((long) nbX * nbY * nbZ > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The world is too large!");
+		this.nbX = nbX;
+		this.nbY = nbY;
+		this.nbZ = nbZ;
+		this.marks = new PagedIntArray(nbX * nbY * nbZ, 0);
+	}
+
+	public int getNbX() {
+		return this.nbX;
+	}
+
+	public int getNbY() {
+		return this.nbY;
+	}
+
+	public int getNbZ() {
+		return this.nbZ;
+	}
+
+	/**
+	 * Create a new searcher of this border search, that considers the cubes for which the given test succeeds as solid.
+	 *
+	 * @param isSolid
+	 *            The test that succeeds for the solid cubes.
+	 * @throws NullPointerException
+	 *             The given test is not effective.
+	 * @throws IllegalStateException
+	 *             This border search has the maximum number of searchers already.
+	 */
+	public Searcher newSearcher(ConnectedToBorder.CubeTest isSolid) throws NullPointerException, IllegalStateException {
+		if (isSolid == null)
+			throw new NullPointerException();
+		if (this.searchers.size() == MAX_NB_SEARCHERS)
+			throw new IllegalStateException("A border search cannot have more than " + MAX_NB_SEARCHERS + " searchers!");
+		Searcher searcher = new Searcher(this.searchers.size(), isSolid);
+		this.searchers.add(searcher);
+		return searcher;
+	}
+
+	/**
+	 * Return the number of pages of marks of this border search that are allocated.
+	 */
+	public int getNbAllocatedPages() {
+		return this.marks.getNbAllocatedPages();
+	}
+
+	/**
+	 * The result of a step of a search that has not ended yet.
+	 */
+	public static final int IN_PROGRESS = -1;
+
+	/**
+	 * The result of a search that did not find a path to a border.
+	 */
+	public static final int NOT_CONNECTED = 0;
+
+	/**
+	 * The result of a search that found a path to a border.
+	 */
+	public static final int CONNECTED = 1;
+
+	/**
+	 * The number of directly adjacent cubes of a cube.
+	 */
+	public static final int NB_DIRECTIONS = 6;
+
+	/**
+	 * The maximum number of searchers of a border search.
+	 */
+	public static final int MAX_NB_SEARCHERS = 4;
+
+	/**
+	 * A searcher of a border search, which searches one path to a border at a time and keeps the classifications of the cubes
+	 * its searches visited since it last started classifying.
+	 */
+	public class Searcher {
+
+		private Searcher(int owner, ConnectedToBorder.CubeTest isSolid) {
+			this.owner = owner << OWNER_SHIFT;
+			this.isSolid = isSolid;
+			this.resetBounds();
+		}
+
+		/**
+		 * Drop all classifications of this searcher, and abandon the search in progress, if any.
+		 *
+		 * @note Classifications only depend on the solidity of the cubes that were visited and of the cubes adjacent to
+		 *       those, so they must be dropped when such a cube changes.
+		 */
+		public void startClassification() {
+			this.firstStamp = nextStamp();
+			this.resetBounds();
+			this.cancel();
+		}
+
+		/**
+		 * Return whether the cube with the given index was classified by this searcher since it last started classifying.
+		 */
+		public boolean isClassified(int index) {
+			return this.isOwnClassification(marks.get(index));
+		}
+
+		/**
+		 * Return whether the cube with the given index was found to be connected to a border by this searcher since it last
+		 * started classifying.
+		 */
+		public boolean isConnected(int index) {
+			int mark = marks.get(index);
+			return this.isOwnClassification(mark) && ((mark & CONNECTED_BIT) != 0);
+		}
+
+		/**
+		 * Return whether the cube with the given coordinates lies within or next to the smallest box that contains all
+		 * cubes visited by this searcher since it last started classifying.
+		 */
+		public boolean isNearVisited(int x, int y, int z) {
+			return (x >= this.bounds[0] - 1) && (y >= this.bounds[1] - 1) && (z >= this.bounds[2] - 1)
+					&& (x <= this.bounds[3] + 1) && (y <= this.bounds[4] + 1) && (z <= this.bounds[5] + 1);
+		}
+
+		/**
+		 * Return the smallest box that contains all cubes visited by this searcher since it last started classifying, as a
+		 * new array {minX, minY, minZ, maxX, maxY, maxZ}; the maxima are smaller than the minima if no cube was visited.
+		 */
+		public int[] getBounds() {
+			return this.bounds.clone();
+		}
+
+		/**
+		 * Start a new search from the directly adjacent cube of the cube with the given index in the given direction, if
+		 * that cube lies within the world, is solid, is not excluded and was not classified yet. The directly adjacent cube
+		 * below a cube has the last direction, so that it is searched first: most solid cubes rest on the bottom of the
+		 * world, which is a border.
+		 *
+		 * @param index
+		 *            The index of the cube.
+		 * @param direction
+		 *            The direction, between 0 (inclusive) and NB_DIRECTIONS (exclusive).
+		 * @param excluded
+		 *            The index of a cube that the search must consider passable, or -1 if there is none.
+		 * @return true if and only if a search was started; in that case any search that was in progress is abandoned.
+		 */
+		public boolean startFromNeighbour(int index, int direction, int excluded) {
+			int[] offset = DIRECT_OFFSETS[direction];
+			int x = index % nbX + offset[0], y = (index / nbX) % nbY + offset[1], z = index / (nbX * nbY) + offset[2];
+			if (!isInWorld(x, y, z))
+				return false;
+			int neighbour = getIndex(x, y, z);
+			if ((neighbour == excluded) || !this.isSolid.test(x, y, z) || this.isClassified(neighbour))
+				return false;
+			this.origin = neighbour;
+			this.excluded = excluded;
+			this.isSearching = true;
+			this.restart(nextStamp());
+			return true;
+		}
+
+		/**
+		 * Return whether this searcher has a search in progress.
+		 */
+		public boolean isSearching() {
+			return this.isSearching;
+		}
+
+		/**
+		 * Visit the next cube of the search in progress.
+		 *
+		 * @return CONNECTED if the search reached a border or a cube that was classified as connected, NOT_CONNECTED if it
+		 *         ran out of cubes or reached a cube that was classified as not connected, and IN_PROGRESS otherwise.
+		 * @throws IllegalStateException
+		 *             There is no search in progress.
+		 */
+		public int step() throws IllegalStateException {
+			if (!this.isSearching)
+				throw new IllegalStateException("There is no search in progress!");
+			if (this.size == 0)
+				return NOT_CONNECTED;
+			int cube = this.stack[--this.size];
+			int mark = marks.get(cube);
+			if (this.isOwnClassification(mark))
+				return ((mark & CONNECTED_BIT) != 0) ? CONNECTED : NOT_CONNECTED;
+			int cx = cube % nbX, cy = (cube / nbX) % nbY, cz = cube / (nbX * nbY);
+			if ((cx == 0) || (cy == 0) || (cz == 0) || (cx == nbX - 1) || (cy == nbY - 1) || (cz == nbZ - 1))
+				return CONNECTED;
+			for (int[] offset : DIRECT_OFFSETS) {
+				int nx = cx + offset[0], ny = cy + offset[1], nz = cz + offset[2];
+				if (!isInWorld(nx, ny, nz))
+					continue;
+				int neighbour = getIndex(nx, ny, nz);
+				int neighbourMark = marks.get(neighbour);
+				if ((neighbour == this.excluded) || (neighbourMark == this.visitedMark) || !this.isSolid.test(nx, ny, nz))
+					continue;
+				if (!this.isOwnClassification(neighbourMark)) {
+					marks.set(neighbour, this.visitedMark);
+					this.addVisited(neighbour);
+				}
+				this.push(neighbour);
+			}
+			return IN_PROGRESS;
+		}
+
+		/**
+		 * Visit the cubes of the search in progress until it ends, and return whether it found a path to a border.
+		 *
+		 * @throws IllegalStateException
+		 *             There is no search in progress, or the current thread was interrupted.
+		 */
+		public boolean run() throws IllegalStateException {
+			int result = this.step();
+			while (result == IN_PROGRESS) {
+				// this might take a long time - check if the impatient user has
+				// stopped us yet
+				if (Thread.currentThread().isInterrupted())
+					throw new IllegalStateException();
+				result = this.step();
+			}
+			return result == CONNECTED;
+		}
+
+		/**
+		 * End the search in progress, classifying all cubes it visited as connected or not.
+		 *
+		 * @note A cube of which another searcher overwrote the mark may have been visited twice; it is classified and
+		 *       listed among the visited cubes once.
+		 * @throws IllegalStateException
+		 *             There is no search in progress.
+		 */
+		public void finish(boolean isConnected) throws IllegalStateException {
+			if (!this.isSearching)
+				throw new IllegalStateException("There is no search in progress!");
+			int classification = this.visitedMark | CLASSIFIED_BIT | (isConnected ? CONNECTED_BIT : 0);
+			int nbClassified = 0;
+			for (int i = 0; i < this.nbVisited; i++) {
+				int cube = this.visited[i];
+				if (marks.get(cube) == classification)
+					continue;
+				marks.set(cube, classification);
+				this.visited[nbClassified++] = cube;
+			}
+			this.nbVisited = nbClassified;
+			this.isSearching = false;
+		}
+
+		/**
+		 * Abandon the search in progress, if any, without classifying any cube.
+		 */
+		public void cancel() {
+			this.isSearching = false;
+			this.nbVisited = 0;
+		}
+
+		/**
+		 * Return the number of cubes visited by the search in progress, or by the last search if it has ended.
+		 */
+		public int getNbVisited() {
+			return this.nbVisited;
+		}
+
+		/**
+		 * Return the index of the i-th cube visited by the search in progress, or by the last search if it has ended.
+		 *
+		 * @throws ArrayIndexOutOfBoundsException
+		 *             The given number is negative or not smaller than the number of visited cubes.
+		 */
+		public int getVisited(int i) throws ArrayIndexOutOfBoundsException {
+			if ((i < 0) || (i >= this.nbVisited))
+				throw new ArrayIndexOutOfBoundsException();
+			return this.visited[i];
+		}
+
+		/**
+		 * Start the search in progress over from its origin, with the given stamp.
+		 */
+		private void restart(int stamp) {
+			this.visitedMark = (stamp << STAMP_SHIFT) | this.owner;
+			this.nbVisited = 0;
+			this.size = 0;
+			marks.set(this.origin, this.visitedMark);
+			this.addVisited(this.origin);
+			this.push(this.origin);
+		}
+
+		private boolean isOwnClassification(int mark) {
+			return ((mark & CLASSIFIED_BIT) != 0) && ((mark & OWNER_MASK) == this.owner)
+					&& ((mark >>> STAMP_SHIFT) >= this.firstStamp);
+		}
+
+		private void addVisited(int index) {
+			if (this.nbVisited == this.visited.length)
+				this.visited = Arrays.copyOf(this.visited, 2 * this.nbVisited);
+			this.visited[this.nbVisited++] = index;
+			int x = index % nbX, y = (index / nbX) % nbY, z = index / (nbX * nbY);
+			this.bounds[0] = Math.min(this.bounds[0], x);
+			this.bounds[1] = Math.min(this.bounds[1], y);
+			this.bounds[2] = Math.min(this.bounds[2], z);
+			this.bounds[3] = Math.max(this.bounds[3], x);
+			this.bounds[4] = Math.max(this.bounds[4], y);
+			this.bounds[5] = Math.max(this.bounds[5], z);
+		}
+
+		private void push(int index) {
+			if (this.size == this.stack.length)
+				this.stack = Arrays.copyOf(this.stack, 2 * this.size);
+			this.stack[this.size++] = index;
+		}
+
+		private void resetBounds() {
+			this.bounds = new int[] { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE,
+					Integer.MIN_VALUE, Integer.MIN_VALUE };
+		}
+
+		/**
+		 * The owner bits of the marks of this searcher.
+		 */
+		private final int owner;
+
+		private final ConnectedToBorder.CubeTest isSolid;
+
+		/**
+		 * The first stamp of which the classifications of this searcher are still valid.
+		 */
+		private int firstStamp = 1;
+
+		/**
+		 * The smallest box containing the cubes visited since this searcher last started classifying, as {minX, minY, minZ,
+		 * maxX, maxY, maxZ}.
+		 */
+		private int[] bounds;
+
+		/**
+		 * The search in progress: whether there is one, the cube it started from, the cube it considers passable (or -1),
+		 * the mark of the cubes it visited, its stack and the cubes it visited.
+		 */
+		private boolean isSearching;
+		private int origin;
+		private int excluded;
+		private int visitedMark;
+		private int[] stack = new int[64];
+		private int size;
+		private int[] visited = new int[64];
+		private int nbVisited;
+	}
+
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	/**
+	 * The mark of each cube, by index x + nbX*(y + nbY*z): the stamp of the search that last visited or classified it, shifted
+	 * left by STAMP_SHIFT, the owner bits of its searcher, and the classified and connected bits.
+	 */
+	private final PagedIntArray marks;
+
+	/**
+	 * The stamp of the next search.
+	 */
+	private int stamp = 1;
+
+	private final List<Searcher> searchers = new ArrayList<>();
+
+	private static final int CONNECTED_BIT = 1;
+	private static final int CLASSIFIED_BIT = 2;
+	private static final int OWNER_SHIFT = 2;
+	private static final int OWNER_MASK = 3 << OWNER_SHIFT;
+	private static final int STAMP_SHIFT = 4;
+
+	/**
+	 * The offsets of the directly adjacent cubes. The cube below comes last, so that it is searched first.
+	 */
+	private static final int[][] DIRECT_OFFSETS = new int[][] { { 0, 0, +1 }, { -1, 0, 0 }, { +1, 0, 0 }, { 0, -1, 0 },
+			{ 0, +1, 0 }, { 0, 0, -1 } };
+
+	/**
+	 * Return the stamp of the next search. When the stamps would overflow, all marks are cleared, all classifications are
+	 * dropped and the searches in progress start over.
+	 */
+	private int nextStamp() {
+		if (this.stamp == (Integer.MAX_VALUE >>> STAMP_SHIFT)) {
+			this.marks.clear();
+			this.stamp = 1;
+			for (Searcher searcher : this.searchers) {
+				searcher.firstStamp = this.stamp++;
+				searcher.resetBounds();
+				if (searcher.isSearching)
+					searcher.restart(this.stamp++);
+			}
+		}
+		return this.stamp++;
+	}
+
+	private boolean isInWorld(int x, int y, int z) {
+		return (x >= 0) && (y >= 0) && (z >= 0) && (x < this.nbX) && (y < this.nbY) && (z < this.nbZ);
+	}
+
+	private int getIndex(int x, int y, int z) {
+		return x + this.nbX * (y + this.nbY * z);
+	}
+
+	@Override
+	public String toString() {
+		return "BorderSearch[" + this.nbX + "x" + this.nbY + "x" + this.nbZ + ", searchers=" + this.searchers.size() + ", pages="
+				+ this.getNbAllocatedPages() + "]";
+	}
+}
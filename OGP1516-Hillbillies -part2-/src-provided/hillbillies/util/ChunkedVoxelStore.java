@@ -0,0 +1,286 @@
+package hillbillies.util;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A store of small values (0 to 255) for each voxel of a three dimensional grid, kept in chunks of 16x16x16 voxels.
+ *
+ * Each chunk is either homogeneous, in which case it only stores its single value, or holds a small palette of the distinct
+ * values in it together with one bit-packed palette index per voxel. The number of bits per index (1, 2, 4 or 8) grows with
+ * the number of distinct values in the chunk, and a chunk collapses back to a single value as soon as all of its voxels have
+ * the same value again.
+ *
+ * @note Terrain is mostly made of large regions of air and rock, so most chunks of a large world are homogeneous and cost a
+ *       few bytes, while the other chunks typically hold at most four distinct values and cost two bits per voxel.
+ */
+public class ChunkedVoxelStore implements VoxelStore {
+
+	/**
+	 * Create a new store for a grid of the given dimensions, in which every voxel has the given value.
+	 *
+	 * @param nbX
+	 *            The number of voxels in the x direction.
+	 * @param nbY
+	 *            The number of voxels in the y direction.
+	 * @param nbZ
+	 *            The number of voxels in the z direction.
+	 * @param value
+	 *            The initial value of every voxel.
+	 * @throws IllegalArgumentException
+	 *             One of the given dimensions is not positive or the given value is not a valid value.
+	 */
+	public ChunkedVoxelStore(int nbX, int nbY, int nbZ, int value) throws IllegalArgumentException {
+		if ((nbX <= 0) || (nbY <= 0) || (nbZ <= 0))
+			throw new IllegalArgumentException("The dimensions of a voxel store must be positive!");
+		if (!isValidValue(value))
+			throw new IllegalArgumentException("Not a valid voxel value!");
+		this.nbX = nbX;
+		this.nbY = nbY;
+		this.nbZ = nbZ;
+		this.nbChunksX = (nbX + CHUNK_SIZE - 1) >> CHUNK_BITS;
+		this.nbChunksY = (nbY + CHUNK_SIZE - 1) >> CHUNK_BITS;
+		int nbChunks = this.nbChunksX * this.nbChunksY * ((nbZ + CHUNK_SIZE - 1) >> CHUNK_BITS);
+		this.values = new byte[nbChunks];
+		this.chunks = new Chunk[nbChunks];
+		Arrays.fill(this.values, (byte) value);
+	}
+
+	@Override
+	public int getNbX() {
+		return this.nbX;
+	}
+
+	@Override
+	public int getNbY() {
+		return this.nbY;
+	}
+
+	@Override
+	public int getNbZ() {
+		return this.nbZ;
+	}
+
+	/**
+	 * Check whether the given value can be stored for a voxel.
+	 *
+	 * @return true if and only if the given value lies between 0 and 255.
+	 */
+	public static boolean isValidValue(int value) {
+		return (value >= 0) && (value <= MAX_VALUE);
+	}
+
+	@Override
+	public int get(int x, int y, int z) throws ArrayIndexOutOfBoundsException {
+		this.checkBounds(x, y, z);
+		int chunkIndex = this.getChunkIndex(x, y, z);
+		Chunk chunk = this.chunks[chunkIndex];
+		if (chunk == null)
+			return this.values[chunkIndex] & MAX_VALUE;
+		return chunk.get(getLocalIndex(x, y, z));
+	}
+
+	@Override
+	public void set(int x, int y, int z, int value) throws ArrayIndexOutOfBoundsException, IllegalArgumentException {
+		this.checkBounds(x, y, z);
+		if (!isValidValue(value))
+			throw new IllegalArgumentException("Not a valid voxel value!");
+		int chunkIndex = this.getChunkIndex(x, y, z);
+		Chunk chunk = this.chunks[chunkIndex];
+		if (chunk == null) {
+			int uniformValue = this.values[chunkIndex] & MAX_VALUE;
+			if (uniformValue == value)
+				return;
+			chunk = new Chunk(uniformValue);
+			this.chunks[chunkIndex] = chunk;
+		}
+		if (chunk.set(getLocalIndex(x, y, z), value)) {
+			this.values[chunkIndex] = (byte) value;
+			this.chunks[chunkIndex] = null;
+		}
+	}
+
+	/**
+	 * Set the value of every voxel of this store to the value the given provider gives for it.
+	 *
+	 * @throws IllegalArgumentException
+	 *             The given provider gives a value that is not a valid value.
+	 * @note Each layer of chunks is filled by a separate task of the common fork/join pool. Tasks never write the same chunk, so
+	 *       they need no locking, but the given provider may be called from several threads at once.
+	 */
+	@Override
+	public void fill(ValueProvider provider) throws IllegalArgumentException {
+		int nbLayers = (this.nbZ + CHUNK_SIZE - 1) >> CHUNK_BITS;
+		IntStream.range(0, nbLayers).parallel().forEach(layer -> {
+			int maxZ = Math.min(this.nbZ, (layer + 1) << CHUNK_BITS);
+			for (int z = layer << CHUNK_BITS; z < maxZ; z++)
+				for (int y = 0; y < this.nbY; y++)
+					for (int x = 0; x < this.nbX; x++)
+						this.set(x, y, z, provider.getValue(x, y, z));
+		});
+	}
+
+	/**
+	 * Return the number of chunks of this store that are not homogeneous.
+	 */
+	public int getNbMixedChunks() {
+		int nbMixedChunks = 0;
+		for (Chunk chunk : this.chunks)
+			if (chunk != null)
+				nbMixedChunks++;
+		return nbMixedChunks;
+	}
+
+	/**
+	 * Return the total number of chunks of this store.
+	 */
+	public int getNbChunks() {
+		return this.chunks.length;
+	}
+
+	/**
+	 * The number of bits of each coordinate that select a voxel within its chunk.
+	 */
+	private static final int CHUNK_BITS = 4;
+
+	/**
+	 * The number of voxels along each side of a chunk.
+	 */
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	/**
+	 * The number of voxels in a chunk.
+	 */
+	private static final int CHUNK_VOLUME = CHUNK_SIZE * CHUNK_SIZE * CHUNK_SIZE;
+
+	/**
+	 * The largest value that can be stored for a voxel.
+	 */
+	private static final int MAX_VALUE = 0xFF;
+
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	private final int nbChunksX;
+	private final int nbChunksY;
+
+	/**
+	 * The value of each homogeneous chunk, by chunk index.
+	 */
+	private final byte[] values;
+
+	/**
+	 * The palette and indices of each chunk that is not homogeneous, by chunk index; null for homogeneous chunks.
+	 */
+	private final Chunk[] chunks;
+
+	private void checkBounds(int x, int y, int z) throws ArrayIndexOutOfBoundsException {
+		if ((x < 0) || (y < 0) || (z < 0) || (x >= this.nbX) || (y >= this.nbY) || (z >= this.nbZ))
+			throw new ArrayIndexOutOfBoundsException("Voxel (" + x + ", " + y + ", " + z + ") lies outside this store!");
+	}
+
+	private int getChunkIndex(int x, int y, int z) {
+		return (x >> CHUNK_BITS) + this.nbChunksX * ((y >> CHUNK_BITS) + this.nbChunksY * (z >> CHUNK_BITS));
+	}
+
+	private static int getLocalIndex(int x, int y, int z) {
+		int mask = CHUNK_SIZE - 1;
+		return (x & mask) | ((y & mask) << CHUNK_BITS) | ((z & mask) << (2 * CHUNK_BITS));
+	}
+
+	/**
+	 * A chunk that is not homogeneous, holding a palette of values, the number of voxels using each palette entry and
+	 * one bit-packed palette index per voxel.
+	 */
+	private static final class Chunk {
+
+		/**
+		 * Create a chunk of which all voxels have the given value.
+		 */
+		Chunk(int value) {
+			this.palette = new int[2];
+			this.counts = new int[2];
+			this.palette[0] = value;
+			this.counts[0] = CHUNK_VOLUME;
+			this.paletteSize = 1;
+			this.bitsPerIndex = 1;
+			this.indices = new long[CHUNK_VOLUME / 64];
+		}
+
+		int get(int localIndex) {
+			return this.palette[this.getPaletteIndex(localIndex)];
+		}
+
+		/**
+		 * Set the value of the voxel with the given local index, returning whether all voxels of this chunk now have the
+		 * given value.
+		 */
+		boolean set(int localIndex, int value) {
+			int oldPaletteIndex = this.getPaletteIndex(localIndex);
+			if (this.palette[oldPaletteIndex] == value)
+				return false;
+			int newPaletteIndex = this.getOrAddPaletteIndex(value);
+			this.counts[oldPaletteIndex]--;
+			this.counts[newPaletteIndex]++;
+			this.setPaletteIndex(localIndex, newPaletteIndex);
+			return this.counts[newPaletteIndex] == CHUNK_VOLUME;
+		}
+
+		private int getOrAddPaletteIndex(int value) {
+			int free = -1;
+			for (int i = 0; i < this.paletteSize; i++) {
+				if (this.palette[i] == value)
+					return i;
+				if ((free < 0) && (this.counts[i] == 0))
+					free = i;
+			}
+			if (free >= 0) {
+				this.palette[free] = value;
+				return free;
+			}
+			if (this.paletteSize == this.palette.length) {
+				this.palette = Arrays.copyOf(this.palette, 2 * this.palette.length);
+				this.counts = Arrays.copyOf(this.counts, 2 * this.counts.length);
+			}
+			if (this.paletteSize == (1 << this.bitsPerIndex))
+				this.widenIndices();
+			this.palette[this.paletteSize] = value;
+			return this.paletteSize++;
+		}
+
+		/**
+		 * Double the number of bits of each palette index, repacking all indices.
+		 */
+		private void widenIndices() {
+			int oldBitsPerIndex = this.bitsPerIndex;
+			long[] oldIndices = this.indices;
+			this.bitsPerIndex = 2 * oldBitsPerIndex;
+			this.indices = new long[CHUNK_VOLUME * this.bitsPerIndex / 64];
+			for (int localIndex = 0; localIndex < CHUNK_VOLUME; localIndex++)
+				this.setPaletteIndex(localIndex, read(oldIndices, oldBitsPerIndex, localIndex));
+		}
+
+		private int getPaletteIndex(int localIndex) {
+			return read(this.indices, this.bitsPerIndex, localIndex);
+		}
+
+		private void setPaletteIndex(int localIndex, int paletteIndex) {
+			int bitIndex = localIndex * this.bitsPerIndex;
+			int shift = bitIndex & 63;
+			long mask = ((1L << this.bitsPerIndex) - 1) << shift;
+			this.indices[bitIndex >>> 6] = (this.indices[bitIndex >>> 6] & ~mask) | ((long) paletteIndex << shift);
+		}
+
+		private static int read(long[] indices, int bitsPerIndex, int localIndex) {
+			int bitIndex = localIndex * bitsPerIndex;
+			return (int) ((indices[bitIndex >>> 6] >>> (bitIndex & 63)) & ((1L << bitsPerIndex) - 1));
+		}
+
+		private int[] palette;
+		private int[] counts;
+		private int paletteSize;
+		private int bitsPerIndex;
+		private long[] indices;
+	}
+}
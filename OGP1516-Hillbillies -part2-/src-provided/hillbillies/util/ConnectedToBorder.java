@@ -3,14 +3,7 @@ package hillbillies.util;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Interface for a (somewhat efficient) algorithm that determines whether a
@@ -25,12 +18,20 @@ import java.util.stream.Stream;
  * to be completely composed of SOLID tiles. Update the algorithm state using
  * the {@link #changeSolidToPassable(int, int, int)} method. At any point, use
  * the {@link #isSolidConnectedToBorder(int, int, int)} method to find out if a
- * cube is connected to the world.
+ * cube is connected to the world. A whole world can also be loaded at once
+ * using the {@link #initialize(CubeTest)} method.
  * 
  * @author Koen Yskout
  * 
  * @note The problem to solve is an instance of the 'decremental dynamic
  *       connectivity' graph problem; better algorithms probably exist.
+ * 
+ * @note Cubes are identified by their index x + nbX*(y + nbY*z). The searches
+ *       for paths to the border are taken by a searcher of a
+ *       {@link BorderSearch}, which may be shared with other structures of the
+ *       same world, so that all of them mark the cubes they visit in a single
+ *       array. A change that does not disconnect any cube does not create any
+ *       object.
  */
 
 public class ConnectedToBorder {
@@ -44,11 +45,55 @@ public class ConnectedToBorder {
 	 * @param nbZ
 	 */
 	public ConnectedToBorder(int nbX, int nbY, int nbZ) {
-		this.nbX = nbX;
-		this.nbY = nbY;
-		this.nbZ = nbZ;
-		this.passable = new boolean[nbX * nbY * nbZ];
-		this.notConnected = new boolean[nbX * nbY * nbZ];
+		this(new ChunkedVoxelStore(nbX, nbY, nbZ, 0));
+	}
+
+	/**
+	 * Create a new instance of the algorithm that keeps its state in the given
+	 * store, which must have the dimensions of the world.
+	 * 
+	 * A store in which every value is 0 represents a world where all cubes are
+	 * solid. A store that was used by an earlier instance for the same world
+	 * continues from the state that instance left behind, until
+	 * {@link #initialize(CubeTest)} recomputes the state of every cube.
+	 * 
+	 * @param states
+	 *            The store holding the state of each cube
+	 * @throws IllegalArgumentException
+	 *             The given store has 2^31 voxels or more
+	 */
+	public ConnectedToBorder(VoxelStore states) throws IllegalArgumentException {
+		this(states, new BorderSearch(states.getNbX(), states.getNbY(), states.getNbZ()));
+	}
+
+	/**
+	 * Create a new instance of the algorithm that keeps its state in the given
+	 * store, which must have the dimensions of the world, and that searches
+	 * paths to the border with a new searcher of the given border search.
+	 * 
+	 * @param states
+	 *            The store holding the state of each cube
+	 * @param borderSearch
+	 *            The border search of the world
+	 * @throws IllegalArgumentException
+	 *             The given store has 2^31 voxels or more, or the given border
+	 *             search is for a world of other dimensions
+	 * @throws IllegalStateException
+	 *             The given border search has the maximum number of searchers
+	 *             already
+	 */
+	public ConnectedToBorder(VoxelStore states, BorderSearch borderSearch)
+			throws IllegalArgumentException, IllegalStateException {
+		if ((long) states.getNbX() * states.getNbY() * states.getNbZ() > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The world is too large!");
+		if (borderSearch.getNbX() != states.getNbX() || borderSearch.getNbY() != states.getNbY()
+				|| borderSearch.getNbZ() != states.getNbZ())
+			throw new IllegalArgumentException("The border search is for a world of other dimensions!");
+		this.nbX = states.getNbX();
+		this.nbY = states.getNbY();
+		this.nbZ = states.getNbZ();
+		this.states = states;
+		this.searcher = borderSearch.newSearcher((x, y, z) -> isSolid(x, y, z));
 	}
 
 	/**
@@ -67,8 +112,63 @@ public class ConnectedToBorder {
 	 * @return true if the cube is connected; false otherwise
 	 */
 	public boolean isSolidConnectedToBorder(int x, int y, int z) {
-		int index = getIndex(x, y, z);
-		return isSolid(index) && !notConnected[index];
+		int state = states.get(x, y, z);
+		return (state & PASSABLE) == 0 && (state & NOT_CONNECTED) == 0;
+	}
+
+	/**
+	 * Interface for a test on the cube at a given position.
+	 */
+	@FunctionalInterface
+	public static interface CubeTest {
+		public boolean test(int x, int y, int z);
+	}
+
+	/**
+	 * Make the cubes for which the given test succeeds passable, as well as
+	 * the solid cubes that are then not connected to a border of the world,
+	 * and return the list of coordinates of the latter cubes.
+	 * 
+	 * The state of every cube is recomputed, whatever state the cube had
+	 * before.
+	 * 
+	 * @note This operation labels the whole world in a single flood fill from
+	 *       the solid cubes at its border, so it visits each cube a constant
+	 *       number of times instead of searching the world for each passable
+	 *       cube. The given test may be called from several threads at once.
+	 * 
+	 * @param isPassable
+	 *            The test that succeeds for the cubes that must be passable
+	 * 
+	 * @return The list of cube coordinates (where each coordinate is an array
+	 *         {x, y, z}) of the solid cubes that were not connected to the
+	 *         border, and that have been made passable.
+	 */
+	public List<int[]> initialize(CubeTest isPassable) {
+		states.fill((x, y, z) -> isPassable.test(x, y, z) ? PASSABLE | NOT_CONNECTED : NOT_CONNECTED);
+		for (int z = 0; z < nbZ; z++) {
+			for (int y = 0; y < nbY; y++) {
+				// of the other rows, only the first and the last cube lie on the border
+				boolean isBorderRow = z == 0 || z == nbZ - 1 || y == 0 || y == nbY - 1;
+				for (int x = 0; x < nbX; x += (isBorderRow || x == nbX - 1) ? 1 : nbX - 1) {
+					if (states.get(x, y, z) == NOT_CONNECTED) {
+						connectAll(x, y, z);
+					}
+				}
+			}
+		}
+		List<int[]> result = new ArrayList<>();
+		for (int z = 0; z < nbZ; z++) {
+			for (int y = 0; y < nbY; y++) {
+				for (int x = 0; x < nbX; x++) {
+					if (states.get(x, y, z) == NOT_CONNECTED) {
+						states.set(x, y, z, PASSABLE | NOT_CONNECTED);
+						result.add(new int[] { x, y, z });
+					}
+				}
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -92,39 +192,33 @@ public class ConnectedToBorder {
 	 *         coordinate itself.
 	 */
 	public List<int[]> changePassableToSolid(int x, int y, int z) {
-		int index = getIndex(x, y, z);
-		if (isSolid(index)) {
+		if (isSolid(x, y, z)) {
 			return Collections.emptyList();
 		}
-		passable[index] = false;
-		List<Integer> coord = Arrays.asList(x, y, z);
+		clearState(x, y, z, PASSABLE);
 		// if the coordinate is at the border, or one of its solid neighbours is known to be connected, the coordinate becomes connected as well
 		// any adjacent non-connected neighbours now also become connected, and this repeats recursively
-		if (isBorder(coord) || getDirectlyAdjacentSolids(coord).stream().anyMatch(c -> isSolidConnectedToBorder(c.get(0), c.get(1), c.get(2)))) {
-			List<int[]> result = new ArrayList<>();
-			Set<List<Integer>> alreadyMadeConnected = new HashSet<>();
-			Queue<List<Integer>> stillToMakeConnected = new LinkedList<>();
-			stillToMakeConnected.add(coord);
-			while (!stillToMakeConnected.isEmpty()) {
-				List<Integer> coordToMakeConnected = stillToMakeConnected.poll();
-				if (alreadyMadeConnected.contains(coordToMakeConnected)) {
-					continue;
-				}
-				notConnected[getIndex(coordToMakeConnected)] = false;
-				alreadyMadeConnected.add(coordToMakeConnected);
-				result.add(new int[] { coordToMakeConnected.get(0), coordToMakeConnected.get(1), coordToMakeConnected.get(2) });
-				for (List<Integer> neighbour : getDirectlyAdjacentSolids(coordToMakeConnected)) {
-					if (!alreadyMadeConnected.contains(neighbour) && !isSolidConnectedToBorder(neighbour.get(0), neighbour.get(1), neighbour.get(2))) {
-						stillToMakeConnected.add(neighbour);
-					}
+		if (!isBorder(x, y, z) && !hasConnectedNeighbour(x, y, z)) {
+			return Collections.emptyList();
+		}
+		List<int[]> result = new ArrayList<>();
+		clearState(x, y, z, NOT_CONNECTED);
+		int size = push(0, getIndex(x, y, z));
+		while (size > 0) {
+			int index = stack[--size];
+			int cx = index % nbX, cy = (index / nbX) % nbY, cz = index / (nbX * nbY);
+			result.add(new int[] { cx, cy, cz });
+			for (int[] offset : directAdjacentOffsets) {
+				int nx = cx + offset[0], ny = cy + offset[1], nz = cz + offset[2];
+				if (isInWorld(nx, ny, nz) && states.get(nx, ny, nz) == NOT_CONNECTED) {
+					clearState(nx, ny, nz, NOT_CONNECTED);
+					size = push(size, getIndex(nx, ny, nz));
 				}
 			}
-			return result;
 		}
-		return Collections.emptyList();
+		return result;
 	}
 
-	
 	/**
 	 * Make the cube at the given position passable instead of solid, and return
 	 * the list of coordinates that are no longer connected to a border of the
@@ -145,48 +239,88 @@ public class ConnectedToBorder {
 	 *         performing this change.
 	 */
 	public List<int[]> changeSolidToPassable(int x, int y, int z) {
-		int index = getIndex(x, y, z);
-		if (passable[index])
+		if (!isSolid(x, y, z))
 			return Collections.emptyList();
 
-		passable[index] = true;
-		notConnected[index] = true;
-
-		Set<List<Integer>> knownConnectedToBorder = new HashSet<>();
-		Set<List<Integer>> knownNotConnectedToBorder = new HashSet<>();
-		List<int[]> changed = new ArrayList<>();
-		// get all solid neighbours
-		for (List<Integer> neighbour : getDirectlyAdjacentSolids(Arrays.asList(x, y, z))) {
-			if (knownConnectedToBorder.contains(neighbour) || knownNotConnectedToBorder.contains(neighbour)) {
-				// if we already know the state of this neighbour, go to the
-				// next one
-				continue;
-			} else {
-				// if we don't already know the state of this neighbour, try to
-				// find a path to the border
-				// We want to keep track of all cubes tested while trying to
-				// find a path.
-				Set<List<Integer>> testedWhenFindingPath = new HashSet<>();
-				if (!existsPathToBorder(neighbour, knownConnectedToBorder, knownNotConnectedToBorder,
-						testedWhenFindingPath)) {
-					// no path is found, so all tested cubes are definitely NOT
-					// connected to the border
-					for (List<Integer> testedCoord : testedWhenFindingPath) {
-						knownNotConnectedToBorder.add(testedCoord);
-						notConnected[getIndex(testedCoord)] = true;
-						changed.add(new int[] { testedCoord.get(0), testedCoord.get(1), testedCoord.get(2) });
-					}
-				} else {
-					// neighbour is still connected via some path; don't
-					// change anything (but now we also know that all tested
-					// cubes are also definitely connected)
-					knownConnectedToBorder.addAll(testedWhenFindingPath);
-				}
+		setState(x, y, z, PASSABLE | NOT_CONNECTED);
+
+		// only cubes classified by the searches of this change are trusted
+		searcher.startClassification();
+		List<int[]> changed = disconnectNeighbours(x, y, z, null);
+		return (changed == null) ? Collections.<int[]> emptyList() : changed;
+	}
+
+	/**
+	 * Make the cubes at the given positions passable instead of solid, as well
+	 * as all solid cubes that are no longer connected to a border of the world
+	 * due to this change, and return the list of coordinates of the latter
+	 * cubes.
+	 * 
+	 * Cubes at the given positions that are passable already are left
+	 * unchanged.
+	 * 
+	 * @note All searches of this change share what they have found, so a cube
+	 *       is searched at most once, however many of the given cubes it is
+	 *       adjacent to. Since a cube adjacent to a cube that is not connected
+	 *       is not connected either, the cubes that became disconnected can be
+	 *       made passable without any further search.
+	 * 
+	 * @param cubes
+	 *            The coordinates of the cubes to make passable (where each
+	 *            coordinate is an array {x, y, z})
+	 * 
+	 * @return The list of cube coordinates (where each coordinate is an array
+	 *         {x, y, z}) that have become disconnected from the border by
+	 *         performing this change, and that have been made passable.
+	 */
+	public List<int[]> changeAllSolidToPassable(List<int[]> cubes) {
+		for (int[] cube : cubes) {
+			if (isSolid(cube[0], cube[1], cube[2])) {
+				setState(cube[0], cube[1], cube[2], PASSABLE | NOT_CONNECTED);
 			}
 		}
+		searcher.startClassification();
+		List<int[]> changed = null;
+		for (int[] cube : cubes) {
+			changed = disconnectNeighbours(cube[0], cube[1], cube[2], changed);
+		}
+		if (changed == null) {
+			return Collections.emptyList();
+		}
+		for (int[] cube : changed) {
+			setState(cube[0], cube[1], cube[2], PASSABLE);
+		}
 		return changed;
 	}
 
+	/**
+	 * Make the cube at the given position passable instead of solid, without
+	 * searching which solid cubes are no longer connected to a border of the
+	 * world due to this change.
+	 *
+	 * A cube at the given position that is passable already is left
+	 * unchanged.
+	 *
+	 * @note The cubes that become disconnected by this change are still
+	 *       reported as connected, until the caller has found them (for
+	 *       instance over several steps) and made them passable as well. Since
+	 *       a cube that is not connected is on no path to the border, making
+	 *       those cubes passable with this method does not disconnect any other
+	 *       cube.
+	 *
+	 * @param x
+	 *            The x-coordinate of the cube to make passable
+	 * @param y
+	 *            The y-coordinate of the cube to make passable
+	 * @param z
+	 *            The z-coordinate of the cube to make passable
+	 */
+	public void markPassable(int x, int y, int z) {
+		if (isSolid(x, y, z)) {
+			setState(x, y, z, PASSABLE | NOT_CONNECTED);
+		}
+	}
+
 	/*
 	 * THE FIELDS AND OPERATIONS BELOW ARE PRIVATE AND MAY NOT BE USED BY YOUR
 	 * IMPLEMENTATION
@@ -196,79 +330,132 @@ public class ConnectedToBorder {
 	private final int nbY;
 	private final int nbZ;
 
-	private final boolean[] passable;
-	private final boolean[] notConnected;
+	/**
+	 * The passable and not connected bits of each cube. By default they are
+	 * kept in chunks, so that large solid or passable regions take almost no
+	 * memory.
+	 */
+	private final VoxelStore states;
+
+	private static final int PASSABLE = 1;
+	private static final int NOT_CONNECTED = 2;
 
-	private int getIndex(List<Integer> coord) {
-		return getIndex(coord.get(0), coord.get(1), coord.get(2));
+	/**
+	 * The searcher that searches paths to the border, and keeps which cubes it
+	 * classified since the current change started.
+	 */
+	private final BorderSearch.Searcher searcher;
+
+	/**
+	 * The reusable stack of cube indices of the connecting searches.
+	 */
+	private int[] stack = new int[64];
+
+	private void setState(int x, int y, int z, int bits) {
+		states.set(x, y, z, states.get(x, y, z) | bits);
 	}
 
-	private int getIndex(int x, int y, int z) {
-		return x + y * nbX + z * (nbX * nbY);
+	private void clearState(int x, int y, int z, int bits) {
+		states.set(x, y, z, states.get(x, y, z) & ~bits);
 	}
 
-	private boolean isSolid(int index) {
-		return !passable[index];
+	private boolean isSolid(int x, int y, int z) {
+		return (states.get(x, y, z) & PASSABLE) == 0;
 	}
 
-	private boolean isBorder(List<Integer> coord) {
-		int x = coord.get(0);
-		int y = coord.get(1);
-		int z = coord.get(2);
+	private boolean isInWorld(int x, int y, int z) {
+		return x >= 0 && x < nbX && y >= 0 && y < nbY && z >= 0 && z < nbZ;
+	}
+
+	private boolean isBorder(int x, int y, int z) {
 		return x == 0 || x == nbX - 1 || y == 0 || y == nbY - 1 || z == 0 || z == nbZ - 1;
 	}
 
-	private final int[][] directAdjacentOffsets = new int[][] { { -1, 0, 0 }, { +1, 0, 0 }, { 0, -1, 0 }, { 0, +1, 0 },
-			{ 0, 0, -1 }, { 0, 0, +1 } };
-
-	private boolean existsPathToBorder(List<Integer> origin, Set<List<Integer>> knownAdjacent,
-			Set<List<Integer>> knownNonAdjacent, Set<List<Integer>> visited) {
-		// visited == part of solid blob connected to origin that has been
-		// visited (but not necessarily tested)
-		Deque<List<Integer>> cubesToVisit = new LinkedList<>();
-		cubesToVisit.add(origin);
-		visited.add(origin);
-		while (!cubesToVisit.isEmpty()) {
-			// this might take a long time - check if the impatient user has
-			// stopped us yet
-			if (Thread.currentThread().isInterrupted()) {
-				throw new IllegalStateException();
-			}
-			List<Integer> cube = cubesToVisit.pollFirst();
-			if (knownAdjacent.contains(cube)) {
-				return true;
-			}
-			if (knownNonAdjacent.contains(cube)) {
-				return false;
-			}
-			if (isBorder(cube)) {
-				knownAdjacent.add(cube);
+	private int getIndex(int x, int y, int z) {
+		return x + nbX * (y + nbY * z);
+	}
+
+	private boolean hasConnectedNeighbour(int x, int y, int z) {
+		for (int[] offset : directAdjacentOffsets) {
+			int nx = x + offset[0], ny = y + offset[1], nz = z + offset[2];
+			if (isInWorld(nx, ny, nz) && isSolidConnectedToBorder(nx, ny, nz)) {
 				return true;
 			}
-			for (List<Integer> neighbour : getDirectlyAdjacentSolids(cube)) {
-				if (!visited.contains(neighbour)) {
-					visited.add(neighbour);
-					cubesToVisit.addFirst(neighbour);
-				}
-			}
 		}
 		return false;
 	}
 
-	private List<List<Integer>> getDirectlyAdjacentSolids(List<Integer> coord) {
-		return getDirectlyAdjacentCoordinates(coord).filter(c -> {
-			int x = c.get(0);
-			int y = c.get(1);
-			int z = c.get(2);
-			return x >= 0 && x < nbX && y >= 0 && y < nbY && z >= 0 && z < nbZ && isSolid(getIndex(c));
-		}).collect(Collectors.toList());
+	/**
+	 * The offsets of the directly adjacent cubes.
+	 */
+	private final int[][] directAdjacentOffsets = new int[][] { { 0, 0, +1 }, { -1, 0, 0 }, { +1, 0, 0 }, { 0, -1, 0 },
+			{ 0, +1, 0 }, { 0, 0, -1 } };
+
+	/**
+	 * Push the given cube index on the stack, which holds the given number of
+	 * elements, and return the new number of elements.
+	 */
+	private int push(int size, int index) {
+		if (size == stack.length) {
+			stack = Arrays.copyOf(stack, 2 * size);
+		}
+		stack[size] = index;
+		return size + 1;
 	}
 
-	private Stream<List<Integer>> getDirectlyAdjacentCoordinates(List<Integer> coord) {
-		List<int[]> shuffledOffsets = new ArrayList<>(Arrays.asList(directAdjacentOffsets));
-		Collections.shuffle(shuffledOffsets);
-		return shuffledOffsets.stream().map(
-				offset -> Arrays.asList(coord.get(0) + offset[0], coord.get(1) + offset[1], coord.get(2) + offset[2]));
+	/**
+	 * Search a path to the border from each solid neighbour of the given cube
+	 * that was not classified yet since the current change started, mark the
+	 * cubes that turn out not to be connected as such, and add their
+	 * coordinates to the given list, which is created if it is null. Return
+	 * the (possibly created) list.
+	 */
+	private List<int[]> disconnectNeighbours(int x, int y, int z, List<int[]> changed) {
+		int index = getIndex(x, y, z);
+		for (int direction = 0; direction < BorderSearch.NB_DIRECTIONS; direction++) {
+			if (!searcher.startFromNeighbour(index, direction, -1)) {
+				// outside the world, passable, or already classified
+				continue;
+			}
+			boolean isConnected = searcher.run();
+			// all visited cubes are now known to be connected or not
+			searcher.finish(isConnected);
+			if (!isConnected) {
+				for (int i = 0; i < searcher.getNbVisited(); i++) {
+					int visited = searcher.getVisited(i);
+					int vx = visited % nbX, vy = (visited / nbX) % nbY, vz = visited / (nbX * nbY);
+					setState(vx, vy, vz, NOT_CONNECTED);
+					if (changed == null) {
+						changed = new ArrayList<>();
+					}
+					changed.add(new int[] { vx, vy, vz });
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Mark the given solid cube and all solid cubes that can be reached from
+	 * it through other solid cubes that are not yet marked as connected.
+	 */
+	private void connectAll(int x, int y, int z) {
+		states.set(x, y, z, 0);
+		int size = push(0, getIndex(x, y, z));
+		while (size > 0) {
+			if (Thread.currentThread().isInterrupted()) {
+				throw new IllegalStateException();
+			}
+			int index = stack[--size];
+			int cx = index % nbX, cy = (index / nbX) % nbY, cz = index / (nbX * nbY);
+			for (int[] offset : directAdjacentOffsets) {
+				int nx = cx + offset[0], ny = cy + offset[1], nz = cz + offset[2];
+				if (isInWorld(nx, ny, nz) && states.get(nx, ny, nz) == NOT_CONNECTED) {
+					states.set(nx, ny, nz, 0);
+					size = push(size, getIndex(nx, ny, nz));
+				}
+			}
+		}
 	}
 
 	@Override
@@ -277,8 +464,7 @@ public class ConnectedToBorder {
 		for (int z = 0; z < nbZ; z++) {
 			for (int y = 0; y < nbY; y++) {
 				for (int x = 0; x < nbX; x++) {
-					int index = getIndex(x, y, z);
-					result.append((isSolidConnectedToBorder(x, y, z) ? "@@" : (isSolid(index) ? "oo" : "..")));
+					result.append((isSolidConnectedToBorder(x, y, z) ? "@@" : (isSolid(x, y, z) ? "oo" : "..")));
 				}
 				result.append("\n");
 			}
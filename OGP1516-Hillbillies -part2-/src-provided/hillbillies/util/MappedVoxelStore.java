@@ -0,0 +1,231 @@
+package hillbillies.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A store of small values (0 to 255) for each voxel of a three dimensional grid, kept outside the Java heap in a memory-mapped
+ * file with one byte per voxel.
+ *
+ * The file starts with a header of {@link #HEADER_SIZE} bytes holding a magic number and the dimensions of the grid, followed
+ * by the value of each voxel at offset x + nbX*(y + nbY*z). The operating system pages the file in lazily as voxels are
+ * accessed, so opening a store takes constant time, and the garbage collector never scans its contents.
+ *
+ * A store is opened either shared, in which case changes are written through to the file, private, in which case the
+ * file is never written and changes are kept in copy-on-write pages of this process, or read-only, in which case the store
+ * cannot be changed at all. Several processes can open the same file privately or read-only and share its unchanged pages.
+ * Shared and private stores need a file that can be written, since a private mapping requires a channel opened for writing;
+ * a read-only store only needs a file that can be read.
+ *
+ * Only the bytes of the store live in the mapped file. A world built on mapped stores still builds the maps it derives from
+ * its terrain on the heap.
+ *
+ * @note Files larger than 1 GiB are mapped in several segments, so grids of more than 2^31 voxels are supported.
+ */
+public class MappedVoxelStore implements VoxelStore {
+
+	/**
+	 * Create a new file with the given path for a grid of the given dimensions in which every voxel has the value 0, and
+	 * open it shared.
+	 *
+	 * @throws IOException
+	 *             The file could not be created or mapped.
+	 * @throws IllegalArgumentException
+	 *             One of the given dimensions is not positive.
+	 */
+	public static MappedVoxelStore create(Path file, int nbX, int nbY, int nbZ) throws IOException, IllegalArgumentException {
+		if ((nbX <= 0) || (nbY <= 0) || (nbZ <= 0))
+			throw new IllegalArgumentException("The dimensions of a voxel store must be positive!");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(nbX).putInt(nbY).putInt(nbZ).flip();
+			channel.write(header, 0);
+			long size = HEADER_SIZE + (long) nbX * nbY * nbZ;
+			channel.write(ByteBuffer.allocate(1), size - 1);
+			return new MappedVoxelStore(channel, MapMode.READ_WRITE, nbX, nbY, nbZ);
+		}
+	}
+
+	/**
+	 * Open the existing file with the given path.
+	 *
+	 * @param file
+	 *            The path of the file.
+	 * @param isPrivate
+	 *            Whether changes to the store must be kept in this process instead of being written to the file.
+	 * @throws IOException
+	 *             The file could not be opened or mapped.
+	 * @throws IllegalArgumentException
+	 *             The file is not a voxel store file.
+	 */
+	public static MappedVoxelStore open(Path file, boolean isPrivate) throws IOException, IllegalArgumentException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			int[] dimensions = readDimensions(channel);
+			return new MappedVoxelStore(channel, isPrivate ? MapMode.PRIVATE : MapMode.READ_WRITE, dimensions[0],
+					dimensions[1], dimensions[2]);
+		}
+	}
+
+	/**
+	 * Open the existing file with the given path for reading only.
+	 *
+	 * @param file
+	 *            The path of the file, which does not have to be writable.
+	 * @throws IOException
+	 *             The file could not be opened or mapped.
+	 * @throws IllegalArgumentException
+	 *             The file is not a voxel store file.
+	 * @note A world changes its terrain, so it cannot be built on a read-only store.
+	 */
+	public static MappedVoxelStore openReadOnly(Path file) throws IOException, IllegalArgumentException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			int[] dimensions = readDimensions(channel);
+			return new MappedVoxelStore(channel, MapMode.READ_ONLY, dimensions[0], dimensions[1], dimensions[2]);
+		}
+	}
+
+	/**
+	 * Read the header of the given channel and return the dimensions it holds, as {nbX, nbY, nbZ}.
+	 *
+	 * @throws IllegalArgumentException
+	 *             The channel does not hold a voxel store file.
+	 */
+	private static int[] readDimensions(FileChannel channel) throws IOException, IllegalArgumentException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (header.hasRemaining())
+			if (channel.read(header, header.position()) < 0)
+				throw new IllegalArgumentException("Not a voxel store file!");
+		header.flip();
+		if (header.getInt() != MAGIC)
+			throw new IllegalArgumentException("Not a voxel store file!");
+		int nbX = header.getInt(), nbY = header.getInt(), nbZ = header.getInt();
+		if ((nbX <= 0) || (nbY <= 0) || (nbZ <= 0) || (channel.size() < HEADER_SIZE + (long) nbX * nbY * nbZ))
+			throw new IllegalArgumentException("Not a voxel store file!");
+		return new int[] { nbX, nbY, nbZ };
+	}
+
+	/**
+	 * Map the voxels of the given channel with the given mode.
+	 */
+	private MappedVoxelStore(FileChannel channel, MapMode mode, int nbX, int nbY, int nbZ) throws IOException {
+		this.nbX = nbX;
+		this.nbY = nbY;
+		this.nbZ = nbZ;
+		this.isPrivate = (mode == MapMode.PRIVATE);
+		this.isReadOnly = (mode == MapMode.READ_ONLY);
+		long size = (long) nbX * nbY * nbZ;
+		this.segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >> SEGMENT_BITS)];
+		for (int i = 0; i < this.segments.length; i++) {
+			long offset = (long) i << SEGMENT_BITS;
+			this.segments[i] = channel.map(mode, HEADER_SIZE + offset, Math.min(SEGMENT_SIZE, size - offset));
+		}
+	}
+
+	@Override
+	public int getNbX() {
+		return this.nbX;
+	}
+
+	@Override
+	public int getNbY() {
+		return this.nbY;
+	}
+
+	@Override
+	public int getNbZ() {
+		return this.nbZ;
+	}
+
+	@Override
+	public int get(int x, int y, int z) throws ArrayIndexOutOfBoundsException {
+		long index = this.getIndex(x, y, z);
+		return this.segments[(int) (index >>> SEGMENT_BITS)].get((int) (index & (SEGMENT_SIZE - 1))) & 0xFF;
+	}
+
+	/**
+	 * Set the value of the voxel with the given coordinates to the given value.
+	 *
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             The given coordinates lie outside this store.
+	 * @throws IllegalArgumentException
+	 *             The given value does not lie between 0 and 255.
+	 * @throws IllegalStateException
+	 *             This store is read-only.
+	 */
+	@Override
+	public void set(int x, int y, int z, int value)
+			throws ArrayIndexOutOfBoundsException, IllegalArgumentException, IllegalStateException {
+		if (this.isReadOnly)
+			throw new IllegalStateException("This store is read-only!");
+		long index = this.getIndex(x, y, z);
+		if ((value < 0) || (value > 0xFF))
+			throw new IllegalArgumentException("Not a valid voxel value!");
+		this.segments[(int) (index >>> SEGMENT_BITS)].put((int) (index & (SEGMENT_SIZE - 1)), (byte) value);
+	}
+
+	/**
+	 * Return whether the changes to this store are kept in this process instead of being written to its file.
+	 */
+	public boolean isPrivate() {
+		return this.isPrivate;
+	}
+
+	/**
+	 * Return whether this store cannot be changed.
+	 */
+	public boolean isReadOnly() {
+		return this.isReadOnly;
+	}
+
+	/**
+	 * Write all changes to this store through to the storage device holding its file, if this store is shared.
+	 */
+	public void force() {
+		if (this.isPrivate || this.isReadOnly)
+			return;
+		for (MappedByteBuffer segment : this.segments)
+			segment.force();
+	}
+
+	/**
+	 * The number of bytes of the header of each voxel store file.
+	 */
+	public static final int HEADER_SIZE = 16;
+
+	/**
+	 * The magic number at the start of each voxel store file.
+	 */
+	private static final int MAGIC = 0x48425658;
+
+	/**
+	 * The number of bits of the offset of a voxel within its segment.
+	 */
+	private static final int SEGMENT_BITS = 30;
+
+	/**
+	 * The number of voxels of each mapped segment.
+	 */
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	private final boolean isPrivate;
+
+	private final boolean isReadOnly;
+
+	private final MappedByteBuffer[] segments;
+
+	private long getIndex(int x, int y, int z) throws ArrayIndexOutOfBoundsException {
+		if ((x < 0) || (y < 0) || (z < 0) || (x >= this.nbX) || (y >= this.nbY) || (z >= this.nbZ))
+			throw new ArrayIndexOutOfBoundsException("Voxel (" + x + ", " + y + ", " + z + ") lies outside this store!");
+		return x + (long) this.nbX * (y + (long) this.nbY * z);
+	}
+}
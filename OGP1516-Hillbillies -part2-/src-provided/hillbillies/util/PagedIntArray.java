@@ -0,0 +1,262 @@
+package hillbillies.util;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * An array of int values of a fixed length, kept in pages of consecutive indices that are only allocated once one of their
+ * values differs from a default value.
+ *
+ * A page that was never written holds the default value at each of its indices and costs a single null reference, so a large
+ * array of which only a few regions hold other values, such as the masks of the cubes along the surface of a world, only
+ * takes memory for those regions.
+ *
+ * @note Cubes of a world are identified by their index x + nbX*(y + nbY*z), so a page holds a few complete rows of cubes
+ *       of a world, and the values of a search that stays in a region of the world end up in a few pages.
+ * @note A snapshot of an array shares the pages of that array. A page that is shared is copied before it is written, by
+ *       whichever of both arrays writes it first, so taking a snapshot only costs a reference per page and each later write
+ *       copies at most one page.
+ */
+public class PagedIntArray {
+
+	/**
+	 * Create a new array of the given length, in which every value is the given default value.
+	 *
+	 * @param length
+	 *            The number of values of the new array.
+	 * @param defaultValue
+	 *            The value of each index of the new array that was never written.
+	 * @throws IllegalArgumentException
+	 *             The given length is negative.
+	 */
+	public PagedIntArray(int length, int defaultValue) throws IllegalArgumentException {
+		if (length < 0)
+			throw new IllegalArgumentException("The length of an array must not be negative!");
+		this.length = length;
+		this.defaultValue = defaultValue;
+		this.pages = new int[(int) (((long) length + PAGE_SIZE - 1) >> PAGE_BITS)][];
+	}
+
+	/**
+	 * Create a new array with the same length, default value and values as the given array.
+	 *
+	 * @param other
+	 *            The array to copy.
+	 * @throws NullPointerException
+	 *             The given array is not effective.
+	 * @note Only the allocated pages of the given array are copied.
+	 */
+	public PagedIntArray(PagedIntArray other) throws NullPointerException {
+		this.length = other.length;
+		this.defaultValue = other.defaultValue;
+		this.pages = new int[other.pages.length][];
+		for (int pageIndex = 0; pageIndex < this.pages.length; pageIndex++)
+			if (other.pages[pageIndex] != null)
+				this.pages[pageIndex] = other.pages[pageIndex].clone();
+	}
+
+	/**
+	 * Return a snapshot of the current values of this array.
+	 *
+	 * @return A new array with the same length, default value and values as this array, that shares all allocated pages with
+	 *         this array. Later changes of either array are not visible in the other.
+	 * @note A snapshot that is no longer written can be read from other threads while this array is written, since the pages
+	 *       it shares are never written again.
+	 */
+	public PagedIntArray snapshot() {
+		PagedIntArray result = new PagedIntArray(this.length, this.defaultValue);
+		System.arraycopy(this.pages, 0, result.pages, 0, this.pages.length);
+		if (this.isShared == null)
+			this.isShared = new boolean[this.pages.length];
+		result.isShared = new boolean[this.pages.length];
+		for (int pageIndex = 0; pageIndex < this.pages.length; pageIndex++) {
+			if (this.pages[pageIndex] != null) {
+				this.isShared[pageIndex] = true;
+				result.isShared[pageIndex] = true;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the number of values of this array.
+	 */
+	public int getLength() {
+		return this.length;
+	}
+
+	/**
+	 * Return the value of each index of this array that was never written.
+	 */
+	public int getDefaultValue() {
+		return this.defaultValue;
+	}
+
+	/**
+	 * Return the value at the given index.
+	 *
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             The given index lies outside this array.
+	 */
+	public int get(int index) throws ArrayIndexOutOfBoundsException {
+		this.checkBounds(index);
+		int[] page = this.pages[index >>> PAGE_BITS];
+		if (page == null)
+			return this.defaultValue;
+		return page[index & PAGE_MASK];
+	}
+
+	/**
+	 * Set the value at the given index to the given value.
+	 *
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             The given index lies outside this array.
+	 * @note Writing the default value to a page that was never written does not allocate it.
+	 */
+	public void set(int index, int value) throws ArrayIndexOutOfBoundsException {
+		this.checkBounds(index);
+		int pageIndex = index >>> PAGE_BITS;
+		int[] page = this.pages[pageIndex];
+		if (page == null) {
+			if (value == this.defaultValue)
+				return;
+			page = this.newPage();
+			this.pages[pageIndex] = page;
+		} else if ((this.isShared != null) && this.isShared[pageIndex]) {
+			if (page[index & PAGE_MASK] == value)
+				return;
+			page = this.unshare(pageIndex);
+		}
+		page[index & PAGE_MASK] = value;
+	}
+
+	/**
+	 * Set the value at each index of this array to the value the given operator gives for that index.
+	 *
+	 * @note Each page is filled by a separate task of the common fork/join pool, so the given operator may be called from several
+	 *       threads at once. Pages that would only hold the default value are not allocated. The operator may read this array,
+	 *       in which case a value of another page is either its value before or after this fill.
+	 */
+	public void fill(IntUnaryOperator operator) {
+		IntStream.range(0, this.pages.length).parallel().forEach(pageIndex -> {
+			int first = pageIndex << PAGE_BITS;
+			int last = (int) Math.min(this.length, (long) first + PAGE_SIZE);
+			int[] page = this.pages[pageIndex];
+			if ((page != null) && (this.isShared != null) && this.isShared[pageIndex])
+				page = this.unshare(pageIndex);
+			if (page != null) {
+				for (int index = first; index < last; index++)
+					page[index - first] = operator.applyAsInt(index);
+				return;
+			}
+			for (int index = first; index < last; index++) {
+				int value = operator.applyAsInt(index);
+				if ((value != this.defaultValue) && (page == null)) {
+					page = this.newPage();
+					this.pages[pageIndex] = page;
+				}
+				if (page != null)
+					page[index - first] = value;
+			}
+		});
+	}
+
+	/**
+	 * Set every value of this array back to the default value, releasing all pages.
+	 */
+	public void clear() {
+		Arrays.fill(this.pages, null);
+		this.isShared = null;
+	}
+
+	/**
+	 * Return the given index if its page is allocated, otherwise the first index of the next allocated page, or the length of
+	 * this array if there is no such page.
+	 *
+	 * @note All values between the given index and the returned index are the default value, so a scan for other values can
+	 *       skip them.
+	 */
+	public int skipDefaultPages(int index) {
+		int pageIndex = index >>> PAGE_BITS;
+		if ((pageIndex < this.pages.length) && (this.pages[pageIndex] != null))
+			return index;
+		for (pageIndex++; pageIndex < this.pages.length; pageIndex++)
+			if (this.pages[pageIndex] != null)
+				return pageIndex << PAGE_BITS;
+		return this.length;
+	}
+
+	/**
+	 * Return the number of pages of this array that are allocated.
+	 */
+	public int getNbAllocatedPages() {
+		int nbAllocatedPages = 0;
+		for (int[] page : this.pages)
+			if (page != null)
+				nbAllocatedPages++;
+		return nbAllocatedPages;
+	}
+
+	/**
+	 * Return the total number of pages of this array.
+	 */
+	public int getNbPages() {
+		return this.pages.length;
+	}
+
+	/**
+	 * The number of bits of an index that select a value within its page.
+	 */
+	private static final int PAGE_BITS = 12;
+
+	/**
+	 * The number of values in a page.
+	 */
+	public static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	private final int length;
+
+	private final int defaultValue;
+
+	/**
+	 * The values of each page, by page index; null for pages that only hold the default value.
+	 */
+	private final int[][] pages;
+
+	/**
+	 * Whether each page is shared with a snapshot or with the array this array is a snapshot of, by page index; null if no
+	 * page is shared.
+	 */
+	private boolean[] isShared;
+
+	private int[] newPage() {
+		int[] page = new int[PAGE_SIZE];
+		if (this.defaultValue != 0)
+			Arrays.fill(page, this.defaultValue);
+		return page;
+	}
+
+	/**
+	 * Replace the shared page with the given index by a copy of it, and return that copy.
+	 */
+	private int[] unshare(int pageIndex) {
+		int[] page = this.pages[pageIndex].clone();
+		this.pages[pageIndex] = page;
+		this.isShared[pageIndex] = false;
+		return page;
+	}
+
+	private void checkBounds(int index) throws ArrayIndexOutOfBoundsException {
+		if ((index < 0) || (index >= this.length))
+			throw new ArrayIndexOutOfBoundsException("Index " + index + " lies outside this array!");
+	}
+
+	@Override
+	public String toString() {
+		return "PagedIntArray[length=" + this.length + ", default=" + this.defaultValue + ", pages=" + this.getNbAllocatedPages()
+				+ "/" + this.pages.length + "]";
+	}
+}
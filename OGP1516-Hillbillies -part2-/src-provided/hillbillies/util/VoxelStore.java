@@ -0,0 +1,69 @@
+package hillbillies.util;
+
+/**
+ * Interface for a store of small values (0 to 255) for each voxel of a three
+ * dimensional grid.
+ *
+ * Voxels are addressed by their x, y and z coordinates, which must lie between
+ * 0 (inclusive) and the number of voxels of the store in that direction
+ * (exclusive).
+ */
+public interface VoxelStore {
+
+	/**
+	 * Interface for a function that gives a value for each voxel.
+	 */
+	@FunctionalInterface
+	public static interface ValueProvider {
+		public int getValue(int x, int y, int z);
+	}
+
+	/**
+	 * Return the number of voxels of this store in the x direction.
+	 */
+	int getNbX();
+
+	/**
+	 * Return the number of voxels of this store in the y direction.
+	 */
+	int getNbY();
+
+	/**
+	 * Return the number of voxels of this store in the z direction.
+	 */
+	int getNbZ();
+
+	/**
+	 * Return the value of the voxel with the given coordinates.
+	 *
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             The given coordinates lie outside this store.
+	 */
+	int get(int x, int y, int z) throws ArrayIndexOutOfBoundsException;
+
+	/**
+	 * Set the value of the voxel with the given coordinates to the given value.
+	 *
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             The given coordinates lie outside this store.
+	 * @throws IllegalArgumentException
+	 *             The given value does not lie between 0 and 255.
+	 */
+	void set(int x, int y, int z, int value) throws ArrayIndexOutOfBoundsException, IllegalArgumentException;
+
+	/**
+	 * Set the value of every voxel of this store to the value the given
+	 * provider gives for it.
+	 *
+	 * @throws IllegalArgumentException
+	 *             The given provider gives a value that does not lie between 0
+	 *             and 255.
+	 */
+	default void fill(ValueProvider provider) throws IllegalArgumentException {
+		for (int z = 0; z < getNbZ(); z++)
+			for (int y = 0; y < getNbY(); y++)
+				for (int x = 0; x < getNbX(); x++)
+					set(x, y, z, provider.getValue(x, y, z));
+	}
+
+}
@@ -0,0 +1,97 @@
+package hillbillies.tests.model;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.ComponentMap;
+import hillbillies.model.PositionVector;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+public class ComponentMapTest {
+
+	private static final int TYPE_AIR = 0;
+	private static final int TYPE_ROCK = 1;
+
+	private World world;
+
+	@Before
+	public void setup() {
+		int[][][] types = new int[10][10][4];
+		for (int x = 0; x < 10; x++)
+			for (int y = 0; y < 10; y++)
+				types[x][y][0] = TYPE_ROCK;
+		this.world = new World(types, new DefaultTerrainChangeListener());
+	}
+
+	@Test
+	public void testWallSplitsComponent() {
+		PositionVector left = new PositionVector(1, 5, 1);
+		PositionVector right = new PositionVector(8, 5, 1);
+		assertTrue(world.getComponentMap().areConnected(left, right));
+		for (int y = 0; y < 10; y++)
+			for (int z = 1; z < 4; z++)
+				world.setCubeType(5, y, z, TYPE_ROCK);
+		assertFalse(world.getComponentMap().areConnected(left, right));
+		assertTrue(world.determinePath(left, right).isEmpty());
+		world.setCubeType(5, 5, 1, TYPE_AIR);
+		assertTrue(world.getComponentMap().areConnected(left, right));
+		assertFalse(world.determinePath(left, right).isEmpty());
+	}
+
+	@Test
+	public void testLocalUpdateMatchesRebuild() {
+		Random random = new Random(7);
+		for (int i = 0; i < 200; i++) {
+			int x = random.nextInt(10), y = random.nextInt(10), z = 1 + random.nextInt(3);
+			world.setCubeType(x, y, z, world.isSolidCube(x, y, z) ? TYPE_AIR : TYPE_ROCK);
+			if (i % 20 == 0)
+				assertSamePartition(new ComponentMap(world), world.getComponentMap());
+		}
+		assertSamePartition(new ComponentMap(world), world.getComponentMap());
+	}
+
+	@Test
+	public void testRandomStandingPositionInOwnComponent() {
+		for (int x = 0; x < 10; x++)
+			for (int y = 0; y < 10; y++)
+				if ((x == 2) || (x == 7) || (y == 2) || (y == 7))
+					for (int z = 1; z < 4; z++)
+						world.setCubeType(x, y, z, TYPE_ROCK);
+		PositionVector position = new PositionVector(0, 0, 1);
+		for (int i = 0; i < 50; i++) {
+			PositionVector random = world.randomStandingPosition(position);
+			assertTrue(world.isValidStandingPosition(random));
+			assertTrue(world.getComponentMap().areConnected(position, random));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRandomStandingPositionIllegal() {
+		world.randomStandingPosition(new PositionVector(5, 5, 3));
+	}
+
+	private void assertSamePartition(ComponentMap expected, ComponentMap actual) {
+		Map<Integer, Integer> forward = new HashMap<Integer, Integer>();
+		Map<Integer, Integer> backward = new HashMap<Integer, Integer>();
+		for (int x = 0; x < 10; x++)
+			for (int y = 0; y < 10; y++)
+				for (int z = 0; z < 4; z++) {
+					int e = expected.getComponent(x, y, z);
+					int a = actual.getComponent(x, y, z);
+					assertEquals(e == ComponentMap.NO_COMPONENT, a == ComponentMap.NO_COMPONENT);
+					if (e == ComponentMap.NO_COMPONENT)
+						continue;
+					assertEquals((Integer) a, forward.getOrDefault(e, a));
+					assertEquals((Integer) e, backward.getOrDefault(a, e));
+					forward.put(e, a);
+					backward.put(a, e);
+				}
+	}
+}
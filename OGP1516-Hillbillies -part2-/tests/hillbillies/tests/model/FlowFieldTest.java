@@ -0,0 +1,94 @@
+package hillbillies.tests.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.FlowField;
+import hillbillies.model.PositionVector;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.facade.Facade;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import ogp.framework.util.ModelException;
+
+public class FlowFieldTest {
+
+	private static final int TYPE_ROCK = 1;
+
+	private Facade facade;
+
+	private World world;
+
+	private Set<Unit> units;
+
+	@Before
+	public void setup() throws ModelException {
+		this.facade = new Facade();
+		int[][][] types = new int[12][12][3];
+		// a wall at x = 5 with a single gap at y = 10
+		for (int y = 0; y < 12; y++)
+			for (int z = 0; z < 3; z++)
+				if (y != 10)
+					types[5][y][z] = TYPE_ROCK;
+		this.world = facade.createWorld(types, new DefaultTerrainChangeListener());
+		this.units = new HashSet<>();
+		for (int y = 0; y < 5; y++) {
+			Unit unit = facade.createUnit("Test", new int[] { 1, y, 0 }, 50, 50, 50, 50, false);
+			facade.addUnit(unit, world);
+			units.add(unit);
+		}
+	}
+
+	@Test
+	public void testGroupSharesOneField() {
+		world.moveGroupTo(units, new PositionVector(9, 1, 0));
+		assertEquals(1, world.getNbFlowFields());
+		FlowField flowField = units.iterator().next().getFlowField();
+		assertNotNull(flowField);
+		assertEquals(units.size(), flowField.getNbUsers());
+		for (Unit unit : units)
+			assertSame(flowField, unit.getFlowField());
+		assertEquals(0, world.getPathCache().getNbMisses());
+	}
+
+	@Test
+	public void testFieldPathIsWalkable() {
+		FlowField flowField = world.acquireFlowField(new PositionVector(9, 1, 0),
+				Arrays.asList(new PositionVector(1, 1, 0)));
+		List<PositionVector> path = flowField.getPath(new PositionVector(1, 1, 0));
+		assertEquals(new PositionVector(1, 1, 0), path.get(0));
+		assertEquals(new PositionVector(9, 1, 0), path.get(path.size() - 1));
+		for (int i = 1; i < path.size(); i++)
+			assertTrue(world.getReachableAdjacents(path.get(i - 1)).contains(path.get(i)));
+		assertEquals(world.getPathFinder().findPath(new PositionVector(1, 1, 0), new PositionVector(9, 1, 0)).size(),
+				path.size());
+	}
+
+	@Test
+	public void testFieldIsDroppedWhenAllArrived() throws ModelException {
+		world.moveGroupTo(units, new PositionVector(9, 1, 0));
+		for (int i = 0; i < 1000; i++)
+			facade.advanceTime(world, 0.1);
+		assertEquals(0, world.getNbFlowFields());
+		for (Unit unit : units) {
+			assertEquals(new PositionVector(9, 1, 0), unit.getCubePositionVector());
+			assertNull(unit.getFlowField());
+		}
+	}
+
+	@Test
+	public void testFieldIsDroppedWhenTerrainChanges() {
+		world.moveGroupTo(units, new PositionVector(9, 1, 0));
+		FlowField flowField = units.iterator().next().getFlowField();
+		world.setCubeType(9, 9, 2, TYPE_ROCK);
+		assertEquals(0, world.getNbFlowFields());
+		assertFalse(flowField.isValid());
+	}
+}
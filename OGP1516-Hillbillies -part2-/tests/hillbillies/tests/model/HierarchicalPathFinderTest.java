@@ -0,0 +1,69 @@
+package hillbillies.tests.model;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.HierarchicalPathFinder;
+import hillbillies.model.PositionVector;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+public class HierarchicalPathFinderTest {
+
+	private static final int TYPE_ROCK = 1;
+
+	private World world;
+
+	@Before
+	public void setup() {
+		int[][][] types = new int[40][40][3];
+		// a wall at x = 20 with a single gap at y = 35
+		for (int y = 0; y < 40; y++)
+			for (int z = 0; z < 3; z++)
+				if (y != 35)
+					types[20][y][z] = TYPE_ROCK;
+		this.world = new World(types, new DefaultTerrainChangeListener());
+	}
+
+	@Test
+	public void testLongPathIsWalkable() {
+		PositionVector start = new PositionVector(2, 2, 0);
+		PositionVector destination = new PositionVector(37, 2, 0);
+		List<PositionVector> path = world.getHierarchicalPathFinder().findPath(start, destination);
+		assertFalse(path.isEmpty());
+		assertEquals(start, path.get(0));
+		assertEquals(destination, path.get(path.size() - 1));
+		for (int i = 1; i < path.size(); i++)
+			assertTrue(world.getReachableAdjacents(path.get(i - 1)).contains(path.get(i)));
+		assertTrue(path.size() <= world.getPathFinder().findPath(start, destination).size() * 3 / 2);
+	}
+
+	@Test
+	public void testPathOverFewClustersIsShortest() {
+		PositionVector start = new PositionVector(2, 2, 0);
+		PositionVector destination = new PositionVector(18, 30, 0);
+		assertEquals(world.getPathFinder().findPath(start, destination), world.determinePath(start, destination));
+	}
+
+	@Test
+	public void testUnreachableDestination() {
+		for (int z = 0; z < 3; z++)
+			world.setCubeType(20, 35, z, TYPE_ROCK);
+		assertTrue(world.determinePath(new PositionVector(2, 2, 0), new PositionVector(37, 2, 0)).isEmpty());
+	}
+
+	@Test
+	public void testOnlyChangedClustersAreUpdated() {
+		HierarchicalPathFinder finder = world.getHierarchicalPathFinder();
+		finder.findPath(new PositionVector(2, 2, 0), new PositionVector(37, 2, 0));
+		long nbUpdates = finder.getNbClusterUpdates();
+		world.setCubeType(10, 10, 0, TYPE_ROCK);
+		List<PositionVector> path = finder.findPath(new PositionVector(2, 2, 0), new PositionVector(37, 2, 0));
+		assertFalse(path.isEmpty());
+		assertTrue(finder.getNbClusterUpdates() - nbUpdates <= 2);
+	}
+}
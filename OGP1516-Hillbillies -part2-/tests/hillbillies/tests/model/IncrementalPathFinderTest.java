@@ -0,0 +1,116 @@
+package hillbillies.tests.model;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.IncrementalPathFinder;
+import hillbillies.model.PositionVector;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.facade.Facade;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import ogp.framework.util.ModelException;
+
+public class IncrementalPathFinderTest {
+
+	private static final int TYPE_AIR = 0;
+	private static final int TYPE_ROCK = 1;
+
+	private World world;
+
+	@Before
+	public void setup() {
+		int[][][] types = new int[20][20][3];
+		for (int x = 0; x < 20; x++)
+			for (int y = 0; y < 20; y++)
+				types[x][y][0] = TYPE_ROCK;
+		this.world = new World(types, new DefaultTerrainChangeListener());
+	}
+
+	@Test
+	public void testRepairedPathsAreShortest() {
+		Random random = new Random(11);
+		PositionVector start = new PositionVector(0, 0, 1);
+		PositionVector destination = new PositionVector(19, 19, 1);
+		IncrementalPathFinder pathFinder = new IncrementalPathFinder(world, destination);
+		for (int i = 0; i < 40; i++) {
+			int x = 1 + random.nextInt(18), y = 1 + random.nextInt(18);
+			world.setCubeType(x, y, 1, world.isSolidCube(x, y, 1) ? TYPE_AIR : TYPE_ROCK);
+			world.setCubeType(x, y, 2, world.isSolidCube(x, y, 2) ? TYPE_AIR : TYPE_ROCK);
+			pathFinder.markChanged(x, y, 1);
+			pathFinder.markChanged(x, y, 2);
+			List<PositionVector> expected = world.getPathFinder().findPath(start, destination);
+			List<PositionVector> actual = pathFinder.findPath(start);
+			assertEquals(expected.isEmpty(), actual.isEmpty());
+			assertEquals(cost(expected), cost(actual), 1e-4);
+		}
+	}
+
+	@Test
+	public void testRepairExpandsFewerCubes() {
+		Random random = new Random(11);
+		PositionVector start = new PositionVector(0, 0, 1);
+		PositionVector destination = new PositionVector(19, 19, 1);
+		IncrementalPathFinder pathFinder = new IncrementalPathFinder(world, destination);
+		pathFinder.findPath(start);
+		int nbRepairNodes = 0;
+		int nbFreshNodes = 0;
+		for (int i = 0; i < 40; i++) {
+			int x = 1 + random.nextInt(18), y = 1 + random.nextInt(18);
+			world.setCubeType(x, y, 1, world.isSolidCube(x, y, 1) ? TYPE_AIR : TYPE_ROCK);
+			pathFinder.markChanged(x, y, 1);
+			pathFinder.findPath(start);
+			nbRepairNodes += pathFinder.getNbExpandedNodes();
+			IncrementalPathFinder fresh = new IncrementalPathFinder(world, destination);
+			fresh.findPath(start);
+			nbFreshNodes += fresh.getNbExpandedNodes();
+		}
+		assertTrue(nbRepairNodes < nbFreshNodes);
+	}
+
+	@Test
+	public void testChangeAwayFromPath() {
+		PositionVector start = new PositionVector(0, 10, 1);
+		IncrementalPathFinder pathFinder = new IncrementalPathFinder(world, new PositionVector(19, 10, 1));
+		List<PositionVector> path = pathFinder.findPath(start);
+		world.setCubeType(5, 2, 1, TYPE_ROCK);
+		pathFinder.markChanged(5, 2, 1);
+		assertTrue(pathFinder.hasChanges());
+		assertEquals(cost(path), cost(pathFinder.findPath(start)), 1e-4);
+		assertEquals(0, pathFinder.getNbExpandedNodes());
+		assertFalse(pathFinder.hasChanges());
+	}
+
+	@Test
+	public void testUnitRepairsPathAfterChange() throws ModelException {
+		Facade facade = new Facade();
+		world.setIncrementalReplanning(true);
+		Unit unit = facade.createUnit("Test", new int[] { 0, 10, 1 }, 50, 50, 50, 50, false);
+		facade.addUnit(unit, world);
+		unit.moveTo(new PositionVector(19.5, 10.5, 1.5));
+		assertNotNull(unit.getIncrementalPathFinder());
+		assertEquals(1, world.getNbIncrementalPathFinders());
+		for (int y = 5; y < 15; y++)
+			world.setCubeType(12, y, 1, TYPE_ROCK);
+		assertTrue(unit.getIncrementalPathFinder().hasChanges());
+		for (int i = 0; i < 2000; i++)
+			unit.advanceTime(0.1);
+		assertEquals(new PositionVector(19, 10, 1), unit.getCubePositionVector());
+		assertNull(unit.getIncrementalPathFinder());
+		assertEquals(0, world.getNbIncrementalPathFinders());
+	}
+
+	private static double cost(List<PositionVector> path) {
+		double cost = 0;
+		for (int i = 1; i < path.size(); i++)
+			cost += Math.sqrt(Math.abs(path.get(i).getXArgument() - path.get(i - 1).getXArgument())
+					+ Math.abs(path.get(i).getYArgument() - path.get(i - 1).getYArgument())
+					+ Math.abs(path.get(i).getZArgument() - path.get(i - 1).getZArgument()));
+		return cost;
+	}
+}
@@ -0,0 +1,61 @@
+package hillbillies.tests.model;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.PathCache;
+import hillbillies.model.PositionVector;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+public class PathCacheTest {
+
+	private static final int TYPE_ROCK = 1;
+
+	private World world;
+
+	@Before
+	public void setup() {
+		this.world = new World(new int[20][20][3], new DefaultTerrainChangeListener());
+	}
+
+	@Test
+	public void testRepeatedPathIsHit() {
+		PathCache cache = world.getPathCache();
+		List<PositionVector> first = world.determinePath(new PositionVector(0, 0, 0), new PositionVector(10, 0, 0));
+		List<PositionVector> second = world.determinePath(new PositionVector(0, 0, 0), new PositionVector(10, 0, 0));
+		assertEquals(first, second);
+		assertEquals(1, cache.getNbMisses());
+		assertEquals(1, cache.getNbHits());
+		second.remove(0);
+		assertEquals(first, world.determinePath(new PositionVector(0, 0, 0), new PositionVector(10, 0, 0)));
+	}
+
+	@Test
+	public void testOnlyBorderingPathsAreInvalidated() {
+		PathCache cache = world.getPathCache();
+		world.determinePath(new PositionVector(0, 0, 0), new PositionVector(10, 0, 0));
+		world.determinePath(new PositionVector(0, 15, 0), new PositionVector(10, 15, 0));
+		world.setCubeType(5, 1, 0, TYPE_ROCK);
+		assertEquals(1, cache.getNbInvalidations());
+		assertEquals(1, cache.getNbPaths());
+		world.determinePath(new PositionVector(0, 15, 0), new PositionVector(10, 15, 0));
+		assertEquals(1, cache.getNbHits());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedPathIsEvicted() {
+		PathCache cache = new PathCache(world, 2, 1000);
+		cache.put(world.getPathFinder().findPath(new PositionVector(0, 0, 0), new PositionVector(5, 0, 0)));
+		cache.put(world.getPathFinder().findPath(new PositionVector(0, 1, 0), new PositionVector(5, 1, 0)));
+		assertNotNull(cache.get(new PositionVector(0, 0, 0), new PositionVector(5, 0, 0)));
+		cache.put(world.getPathFinder().findPath(new PositionVector(0, 2, 0), new PositionVector(5, 2, 0)));
+		assertEquals(1, cache.getNbEvictions());
+		assertNull(cache.get(new PositionVector(0, 1, 0), new PositionVector(5, 1, 0)));
+		assertNotNull(cache.get(new PositionVector(0, 0, 0), new PositionVector(5, 0, 0)));
+	}
+}
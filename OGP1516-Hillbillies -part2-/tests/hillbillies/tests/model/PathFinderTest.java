@@ -0,0 +1,145 @@
+package hillbillies.tests.model;
+
+import static org.junit.Assert.*;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.Log;
+import hillbillies.model.PositionVector;
+import hillbillies.model.TerrainType;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+public class PathFinderTest {
+
+	private static final int TYPE_ROCK = 1;
+
+	private World world;
+
+	@Before
+	public void setup() {
+		int[][][] types = new int[12][12][4];
+		// a wall at x = 5 with a single gap at y = 10
+		for (int y = 0; y < 12; y++)
+			for (int z = 0; z < 4; z++)
+				if (y != 10)
+					types[5][y][z] = TYPE_ROCK;
+		this.world = new World(types, new DefaultTerrainChangeListener());
+	}
+
+	@Test
+	public void testPathIsWalkable() {
+		PositionVector start = new PositionVector(1, 1, 0);
+		PositionVector destination = new PositionVector(9, 1, 0);
+		List<PositionVector> path = world.determinePath(start, destination);
+		assertFalse(path.isEmpty());
+		assertEquals(start, path.get(0));
+		assertEquals(destination, path.get(path.size() - 1));
+		for (int i = 1; i < path.size(); i++)
+			assertTrue(world.getReachableAdjacents(path.get(i - 1)).contains(path.get(i)));
+	}
+
+	@Test
+	public void testPathIsAsShortAsFloodFill() {
+		PositionVector start = new PositionVector(1, 1, 0);
+		PositionVector destination = new PositionVector(9, 1, 0);
+		List<PositionVector> path = world.determinePath(start, destination);
+		// the search minimizes the distance walked, not the number of steps, so the path has the length of a weighted
+		// flood fill and at least as many steps as the breadth-first flood fill of the world
+		assertEquals(floodFillLength(start, destination), length(path), 1e-4);
+		Map<PositionVector, Integer> possibilities = world.getAllPathPossibilities(start, destination);
+		assertTrue(path.size() - 1 >= possibilities.get(start));
+	}
+
+	@Test
+	public void testStraightPathHasFloodFillSteps() {
+		// without a wall in between, every shortest path is a straight line of unit steps
+		PositionVector start = new PositionVector(1, 1, 0);
+		PositionVector destination = new PositionVector(4, 1, 0);
+		List<PositionVector> path = world.determinePath(start, destination);
+		Map<PositionVector, Integer> possibilities = world.getAllPathPossibilities(start, destination);
+		assertEquals((int) possibilities.get(start), path.size() - 1);
+		assertEquals(floodFillLength(start, destination), length(path), 1e-4);
+	}
+
+	@Test
+	public void testUnreachableDestination() {
+		world.setCubeType(5, 10, 0, TYPE_ROCK);
+		world.setCubeType(5, 10, 1, TYPE_ROCK);
+		world.setCubeType(5, 10, 2, TYPE_ROCK);
+		world.setCubeType(5, 10, 3, TYPE_ROCK);
+		List<PositionVector> path = world.determinePath(new PositionVector(1, 1, 0), new PositionVector(9, 1, 0));
+		assertTrue(path.isEmpty());
+	}
+
+	@Test
+	public void testFindNearestLog() {
+		world.addMaterial(new Log(new PositionVector(9.5, 1.5, 0.5)));
+		world.addMaterial(new Log(new PositionVector(1.5, 8.5, 0.5)));
+		List<PositionVector> path = world.findNearest(new PositionVector(1, 1, 0), index -> world.containsLog(index));
+		assertEquals(new PositionVector(1, 8, 0), path.get(path.size() - 1));
+		assertEquals(new PositionVector(1, 1, 0), path.get(0));
+		for (int i = 1; i < path.size(); i++)
+			assertTrue(world.getReachableAdjacents(path.get(i - 1)).contains(path.get(i)));
+		// the log behind the wall is nearer as the crow flies, but not when walking
+		path = world.findNearest(new PositionVector(4, 1, 0), index -> world.containsLog(index));
+		assertEquals(new PositionVector(1, 8, 0), path.get(path.size() - 1));
+	}
+
+	@Test
+	public void testFindNearestBounded() {
+		world.addMaterial(new Log(new PositionVector(9.5, 1.5, 0.5)));
+		assertTrue(world.findNearest(new PositionVector(1, 1, 0), index -> world.containsLog(index), 5).isEmpty());
+		assertFalse(world.findNearest(new PositionVector(1, 1, 0), index -> world.containsLog(index), 30).isEmpty());
+		assertTrue(world.findNearest(new PositionVector(1, 1, 0),
+				index -> world.getTerrainType(index) == TerrainType.WORKSHOP).isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSolidDestination() {
+		world.determinePath(new PositionVector(1, 1, 0), new PositionVector(5, 1, 0));
+	}
+
+	/**
+	 * Returns the length of the shortest walkable path between both positions, by a flood fill that expands the
+	 * positions in the order of their distance from the start.
+	 */
+	private double floodFillLength(PositionVector start, PositionVector destination) {
+		Map<PositionVector, Double> distances = new HashMap<>();
+		PriorityQueue<Map.Entry<PositionVector, Double>> queue = new PriorityQueue<>(Map.Entry.comparingByValue());
+		Set<PositionVector> expanded = new HashSet<>();
+		distances.put(start, 0.0);
+		queue.add(new AbstractMap.SimpleImmutableEntry<>(start, 0.0));
+		while (!queue.isEmpty()) {
+			PositionVector current = queue.poll().getKey();
+			if (!expanded.add(current))
+				continue;
+			if (current.equals(destination))
+				return distances.get(current);
+			for (PositionVector next : world.getReachableAdjacents(current)) {
+				double distance = distances.get(current) + PositionVector.calcDistance(current, next);
+				if (!distances.containsKey(next) || distance < distances.get(next)) {
+					distances.put(next, distance);
+					queue.add(new AbstractMap.SimpleImmutableEntry<>(next, distance));
+				}
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	private static double length(List<PositionVector> path) {
+		double length = 0;
+		for (int i = 1; i < path.size(); i++)
+			length += PositionVector.calcDistance(path.get(i - 1), path.get(i));
+		return length;
+	}
+}
@@ -0,0 +1,111 @@
+package hillbillies.tests.model;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.PathPlanner;
+import hillbillies.model.PositionVector;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.facade.Facade;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import ogp.framework.util.ModelException;
+
+public class PathPlannerTest {
+
+	private static final int TYPE_ROCK = 1;
+
+	private Facade facade;
+
+	private World world;
+
+	private Unit unit;
+
+	@Before
+	public void setup() throws ModelException {
+		this.facade = new Facade();
+		this.world = facade.createWorld(new int[12][12][3], new DefaultTerrainChangeListener());
+		this.unit = facade.createUnit("Test", new int[] { 1, 1, 0 }, 50, 50, 50, 50, false);
+		facade.addUnit(unit, world);
+		world.startAsynchronousPathPlanning(2);
+	}
+
+	@After
+	public void tearDown() {
+		world.stopAsynchronousPathPlanning();
+	}
+
+	@Test
+	public void testUnitWaitsWhilePlanning() throws Exception {
+		unit.moveTo(new PositionVector(9, 1, 0));
+		assertTrue(unit.isPlanning());
+		awaitCompletion(world.getPathPlanner());
+		assertTrue(unit.isPlanning());
+		world.advanceTime(0.01);
+		assertFalse(unit.isPlanning());
+		assertTrue(facade.isMoving(unit));
+	}
+
+	@Test
+	public void testUnrelatedChangeKeepsResult() throws Exception {
+		PathPlanner planner = world.getPathPlanner();
+		unit.moveTo(new PositionVector(9, 1, 0));
+		awaitCompletion(planner);
+		world.setCubeType(5, 5, 0, TYPE_ROCK);
+		world.advanceTime(0.01);
+		assertEquals(0, planner.getNbStaleResults());
+		assertFalse(unit.isPlanning());
+		assertFalse(planner.hasPendingRequest(unit));
+	}
+
+	@Test
+	public void testStaleResultIsRequeued() throws Exception {
+		PathPlanner planner = world.getPathPlanner();
+		unit.moveTo(new PositionVector(9, 1, 0));
+		awaitCompletion(planner);
+		world.setCubeType(5, 1, 0, TYPE_ROCK);
+		world.advanceTime(0.01);
+		assertEquals(1, planner.getNbStaleResults());
+		assertTrue(unit.isPlanning());
+		assertTrue(planner.hasPendingRequest(unit));
+		awaitCompletion(planner);
+		world.advanceTime(0.01);
+		assertFalse(unit.isPlanning());
+	}
+
+	@Test
+	public void testNewOrderSupersedesRequest() throws Exception {
+		PathPlanner planner = world.getPathPlanner();
+		unit.moveTo(new PositionVector(9, 1, 0));
+		unit.moveTo(new PositionVector(1, 9, 0));
+		for (int i = 0; (i < 1000) && unit.isPlanning(); i++) {
+			Thread.sleep(1);
+			world.advanceTime(0.01);
+		}
+		assertFalse(planner.hasPendingRequest(unit));
+		for (int i = 0; i < 1000; i++)
+			world.advanceTime(0.1);
+		assertEquals(new PositionVector(1, 9, 0), unit.getCubePositionVector());
+	}
+
+	@Test
+	public void testCancelledRequestIsNotApplied() throws Exception {
+		PathPlanner planner = world.getPathPlanner();
+		unit.moveTo(new PositionVector(9, 1, 0));
+		planner.cancel(unit);
+		assertFalse(unit.isPlanning());
+		Thread.sleep(50);
+		world.advanceTime(0.01);
+		assertFalse(facade.isMoving(unit));
+		assertEquals(new PositionVector(1, 1, 0), unit.getCubePositionVector());
+	}
+
+	private static void awaitCompletion(PathPlanner planner) throws InterruptedException {
+		for (int i = 0; (i < 5000) && (planner.getNbCompletedRequests() == 0); i++)
+			Thread.sleep(1);
+		assertEquals(1, planner.getNbCompletedRequests());
+	}
+}
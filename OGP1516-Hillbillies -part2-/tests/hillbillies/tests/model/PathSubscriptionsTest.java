@@ -0,0 +1,79 @@
+package hillbillies.tests.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.PathSubscriptions;
+import hillbillies.model.PositionVector;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.facade.Facade;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import ogp.framework.util.ModelException;
+
+public class PathSubscriptionsTest {
+
+	private static final int TYPE_ROCK = 1;
+
+	private World world;
+
+	private Unit unit;
+
+	@Before
+	public void setup() throws ModelException {
+		int[][][] types = new int[20][20][3];
+		for (int x = 0; x < 20; x++)
+			for (int y = 0; y < 20; y++)
+				types[x][y][0] = TYPE_ROCK;
+		this.world = new World(types, new DefaultTerrainChangeListener());
+		Facade facade = new Facade();
+		this.unit = facade.createUnit("Test", new int[] { 0, 10, 1 }, 50, 50, 50, 50, false);
+		facade.addUnit(unit, world);
+	}
+
+	@Test
+	public void testSubscribe() {
+		PathSubscriptions subscriptions = world.getPathSubscriptions();
+		List<PositionVector> path = new ArrayList<PositionVector>();
+		for (int x = 0; x < 5; x++)
+			path.add(new PositionVector(x, 10, 1));
+		subscriptions.subscribe(unit, path);
+		assertTrue(subscriptions.isSubscribed(unit, new PositionVector(3, 10, 1)));
+		assertTrue(subscriptions.getAffectedUnits(3, 11, 2).contains(unit));
+		assertTrue(subscriptions.getAffectedUnits(6, 10, 1).isEmpty());
+		subscriptions.unsubscribe(unit, new PositionVector(4, 10, 1));
+		assertTrue(subscriptions.getAffectedUnits(5, 10, 1).isEmpty());
+		subscriptions.unsubscribe(unit);
+		assertEquals(0, subscriptions.getNbSubscribedUnits());
+		assertTrue(subscriptions.getAffectedUnits(3, 10, 1).isEmpty());
+	}
+
+	@Test
+	public void testUnitSubscribesToRemainingPath() {
+		unit.moveTo(new PositionVector(19.5, 10.5, 1.5));
+		assertTrue(world.getPathSubscriptions().isSubscribed(unit, new PositionVector(19, 10, 1)));
+		assertFalse(world.getPathSubscriptions().isSubscribed(unit, new PositionVector(0, 10, 1)));
+		for (int i = 0; i < 2000; i++)
+			unit.advanceTime(0.1);
+		assertEquals(new PositionVector(19, 10, 1), unit.getCubePositionVector());
+		assertEquals(0, world.getPathSubscriptions().getNbSubscribedUnits());
+	}
+
+	@Test
+	public void testOnlyAffectedUnitsInvalidated() {
+		unit.moveTo(new PositionVector(19.5, 10.5, 1.5));
+		world.setCubeType(10, 2, 1, TYPE_ROCK);
+		assertFalse(unit.isPathInvalidated());
+		for (int y = 5; y < 15; y++)
+			world.setCubeType(12, y, 1, TYPE_ROCK);
+		assertTrue(unit.isPathInvalidated());
+		for (int i = 0; i < 2000; i++)
+			unit.advanceTime(0.1);
+		assertEquals(new PositionVector(19, 10, 1), unit.getCubePositionVector());
+	}
+}
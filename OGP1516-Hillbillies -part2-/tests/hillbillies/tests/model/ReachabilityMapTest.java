@@ -0,0 +1,78 @@
+package hillbillies.tests.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.PositionVector;
+import hillbillies.model.ReachabilityMap;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+public class ReachabilityMapTest {
+
+	private static final int TYPE_AIR = 0;
+	private static final int TYPE_ROCK = 1;
+
+	private World world;
+
+	@Before
+	public void setup() {
+		Random random = new Random(3);
+		int[][][] types = new int[10][10][6];
+		for (int x = 0; x < 10; x++)
+			for (int y = 0; y < 10; y++)
+				for (int z = 0; z < 6; z++)
+					if ((z < 2) || (random.nextInt(5) == 0))
+						types[x][y][z] = TYPE_ROCK;
+		this.world = new World(types, new DefaultTerrainChangeListener());
+	}
+
+	@Test
+	public void testMasksMatchTerrain() {
+		ReachabilityMap map = world.getReachabilityMap();
+		for (int x = 0; x < 10; x++)
+			for (int y = 0; y < 10; y++)
+				for (int z = 0; z < 6; z++) {
+					PositionVector position = new PositionVector(x, y, z);
+					assertEquals(world.isValidStandingPosition(position), map.isStanding(x, y, z));
+					for (int dx = -1; dx <= 1; dx++)
+						for (int dy = -1; dy <= 1; dy++)
+							for (int dz = -1; dz <= 1; dz++) {
+								if ((dx == 0) && (dy == 0) && (dz == 0))
+									continue;
+								PositionVector adjacent = new PositionVector(x + dx, y + dy, z + dz);
+								boolean expected = world.isValidPosition(adjacent) && (!world.isSolidCube(x, y, z))
+										&& world.isValidStandingPosition(adjacent) && isClear(x, y, z, dx, dy, dz);
+								int direction = (dz + 1) * 9 + (dy + 1) * 3 + (dx + 1);
+								assertEquals(expected, map.canStep(x, y, z, (direction > 13) ? direction - 1 : direction));
+							}
+				}
+	}
+
+	@Test
+	public void testLocalUpdateMatchesRebuild() {
+		Random random = new Random(5);
+		for (int i = 0; i < 50; i++) {
+			int x = random.nextInt(10), y = random.nextInt(10), z = 2 + random.nextInt(4);
+			world.setCubeType(x, y, z, world.isSolidCube(x, y, z) ? TYPE_AIR : TYPE_ROCK);
+		}
+		ReachabilityMap rebuilt = new ReachabilityMap(world);
+		for (int x = 0; x < 10; x++)
+			for (int y = 0; y < 10; y++)
+				for (int z = 0; z < 6; z++)
+					assertEquals(rebuilt.getMask(x, y, z), world.getReachabilityMap().getMask(x, y, z));
+	}
+
+	private boolean isClear(int x, int y, int z, int dx, int dy, int dz) {
+		for (int cx = Math.min(0, dx); cx <= Math.max(0, dx); cx++)
+			for (int cy = Math.min(0, dy); cy <= Math.max(0, dy); cy++)
+				for (int cz = Math.min(0, dz); cz <= Math.max(0, dz); cz++)
+					if (world.isSolidCube(x + cx, y + cy, z + cz))
+						return false;
+		return true;
+	}
+}
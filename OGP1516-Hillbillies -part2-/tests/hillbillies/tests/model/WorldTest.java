@@ -0,0 +1,514 @@
+package hillbillies.tests.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.Boulder;
+import hillbillies.model.Cube;
+import hillbillies.model.Log;
+import hillbillies.model.PositionVector;
+import hillbillies.model.TerrainType;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.facade.Facade;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.part2.listener.TerrainChangeBatch;
+import hillbillies.part2.listener.TerrainChangeListener;
+import hillbillies.util.ChunkedVoxelStore;
+import hillbillies.util.PagedIntArray;
+import ogp.framework.util.ModelException;
+
+public class WorldTest {
+
+	private static final int TYPE_AIR = 0;
+	private static final int TYPE_ROCK = 1;
+	private static final int TYPE_TREE = 2;
+	private static final int TYPE_WORKSHOP = 3;
+
+	private World world;
+
+	@Before
+	public void setup() {
+		int[][][] types = new int[10][8][4];
+		for (int x = 0; x < 10; x++)
+			for (int y = 0; y < 8; y++)
+				types[x][y][0] = TYPE_ROCK;
+		types[4][4][1] = TYPE_WORKSHOP;
+		this.world = new World(types, new DefaultTerrainChangeListener());
+	}
+
+	@Test
+	public void testTerrainTypes() {
+		assertEquals(10, world.getNbCubesX());
+		assertEquals(8, world.getNbCubesY());
+		assertEquals(4, world.getNbCubesZ());
+		assertEquals(TYPE_ROCK, world.getCubeType(3, 7, 0));
+		assertEquals(TYPE_WORKSHOP, world.getCubeType(4, 4, 1));
+		assertTrue(world.isWorkshop(new PositionVector(4, 4, 1)));
+		assertEquals(TYPE_AIR, world.getCubeType(9, 7, 3));
+		world.setCubeType(2, 2, 1, TYPE_ROCK);
+		assertEquals(TYPE_ROCK, world.getCubeType(2, 2, 1));
+		assertTrue(world.isSolidCube(2, 2, 1));
+		assertTrue(world.getCube(2, 2, 1).isSolid());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCubeOutsideWorld() {
+		world.getCube(10, 0, 0);
+	}
+
+	@Test
+	public void testCubeContentFollowsUnits() throws ModelException {
+		Facade facade = new Facade();
+		Unit unit = facade.createUnit("Test", new int[] { 1, 1, 1 }, 50, 50, 50, 50, false);
+		facade.addUnit(unit, world);
+		Cube cube = world.getCube(1, 1, 1);
+		assertTrue(cube.getContent().contains(unit));
+		unit.moveTo(new PositionVector(5.5, 1.5, 1.5));
+		for (int i = 0; i < 200; i++)
+			unit.advanceTime(0.1);
+		assertEquals(new PositionVector(5, 1, 1), unit.getCubePositionVector());
+		assertFalse(world.getCube(1, 1, 1).getContent().contains(unit));
+		assertTrue(world.getCube(5, 1, 1).getContent().contains(unit));
+	}
+
+	@Test
+	public void testMaterialOccupancy() {
+		PositionVector position = new PositionVector(3, 3, 1);
+		assertFalse(world.containsBoulder(position));
+		Boulder boulder = new Boulder(PositionVector.centrePosition(position));
+		world.addMaterial(boulder);
+		Log log = new Log(PositionVector.centrePosition(position));
+		world.addMaterial(log);
+		assertTrue(world.containsBoulder(position));
+		assertTrue(world.containsLog(position));
+		assertSame(boulder, world.getABoulder(position));
+		assertSame(log, world.getALog(position));
+		assertEquals(2, world.getCube(3, 3, 1).getContent().size());
+		assertTrue(world.getBoulders().contains(boulder));
+		assertFalse(world.getLogs().contains(boulder));
+		world.removeMaterial(boulder);
+		assertFalse(world.containsBoulder(position));
+		assertTrue(world.containsLog(position));
+		assertTrue(world.getBoulders().isEmpty());
+		world.removeMaterial(log);
+		assertTrue(world.getCube(3, 3, 1).getContent().isEmpty());
+	}
+
+	@Test
+	public void testTerrainTypeDescriptors() {
+		assertSame(TerrainType.WORKSHOP, world.getTerrainType(4, 4, 1));
+		assertSame(TerrainType.AIR, TerrainType.fromNumber(7));
+		world.setCubeType(6, 6, 1, 7);
+		assertSame(TerrainType.AIR, world.getTerrainType(6, 6, 1));
+		world.setCubeType(6, 6, 1, TYPE_ROCK);
+		assertSame(TerrainType.ROCK, world.getTerrainType(6, 6, 1));
+		world.collapse(new PositionVector(6, 6, 1));
+		assertSame(TerrainType.AIR, world.getTerrainType(6, 6, 1));
+		assertTrue(world.containsBoulder(new PositionVector(6, 6, 1)));
+	}
+
+	@Test
+	public void testSolidAndStandingFollowChanges() {
+		assertFalse(world.hasSolidAdjacent(7, 5, 3));
+		assertFalse(world.isValidStandingPosition(new PositionVector(7, 5, 3)));
+		world.setCubeType(7, 5, 2, TYPE_ROCK);
+		world.setCubeType(7, 5, 1, TYPE_ROCK);
+		assertTrue(world.isSolidCube(7, 5, 2));
+		assertTrue(world.hasSolidAdjacent(7, 5, 3));
+		assertTrue(world.isValidStandingPosition(new PositionVector(7, 5, 3)));
+		world.setCubeType(7, 5, 2, TYPE_AIR);
+		assertFalse(world.isSolidCube(7, 5, 2));
+		assertFalse(world.isValidStandingPosition(new PositionVector(7, 5, 3)));
+		assertTrue(world.isValidStandingPosition(new PositionVector(7, 5, 2)));
+	}
+
+	@Test
+	public void testSamplersFollowChanges() {
+		Random random = new Random(5);
+		for (int i = 0; i < 100; i++) {
+			int x = random.nextInt(10), y = random.nextInt(8), z = 1 + random.nextInt(3);
+			world.setCubeType(x, y, z, world.isSolidCube(x, y, z) ? TYPE_AIR : TYPE_ROCK);
+		}
+		int nbStanding = 0, nbSpawn = 0;
+		for (int x = 0; x < 10; x++)
+			for (int y = 0; y < 8; y++)
+				for (int z = 0; z < 4; z++) {
+					PositionVector position = new PositionVector(x, y, z);
+					if (world.isValidStandingPosition(position))
+						nbStanding++;
+					if (!world.isSolidCube(x, y, z) && (z <= 1 || world.isSolidCube(x, y, z - 1)))
+						nbSpawn++;
+				}
+		assertEquals(nbStanding, world.getNbStandingPositions());
+		assertEquals(nbSpawn, world.getNbSpawnPositions());
+		for (int i = 0; i < 50; i++) {
+			assertTrue(world.isValidStandingPosition(world.randomStandingPosition()));
+			PositionVector spawn = world.randomSpawnPosition();
+			assertFalse(world.isSolidPosition(spawn));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNoSpawnPosition() {
+		int[][][] types = new int[3][3][2];
+		for (int x = 0; x < 3; x++)
+			for (int y = 0; y < 3; y++)
+				for (int z = 0; z < 2; z++)
+					types[x][y][z] = TYPE_ROCK;
+		World solid = new World(types, new DefaultTerrainChangeListener());
+		assertEquals(0, solid.getNbStandingPositions());
+		solid.spawnUnit(false);
+	}
+
+	@Test
+	public void testHeightMapsFollowChanges() {
+		Random random = new Random(7);
+		for (int i = 0; i < 100; i++) {
+			int x = random.nextInt(10), y = random.nextInt(8), z = 1 + random.nextInt(3);
+			world.setCubeType(x, y, z, random.nextInt(4));
+		}
+		for (int x = 0; x < 10; x++)
+			for (int y = 0; y < 8; y++) {
+				int highestSolid = -1, highestTerrain = -1;
+				for (int z = 0; z < 4; z++) {
+					if (world.isSolidCube(x, y, z))
+						highestSolid = z;
+					if (world.getCubeType(x, y, z) != TYPE_AIR)
+						highestTerrain = z;
+					assertEquals(highestSolid, world.getSolidZAtOrBelow(x, y, z));
+					assertEquals(highestTerrain, world.getTerrainZAtOrBelow(x, y, z));
+				}
+				assertEquals(highestSolid, world.getHighestSolidZ(x, y));
+				assertEquals(highestSolid, world.getSolidZAtOrBelow(x, y, 100));
+				assertEquals(-1, world.getSolidZAtOrBelow(x, y, -1));
+			}
+	}
+
+	@Test
+	public void testFloatingCubesCaveInOnCreation() {
+		int[][][] types = new int[6][6][6];
+		for (int x = 0; x < 6; x++)
+			for (int y = 0; y < 6; y++)
+				types[x][y][0] = TYPE_ROCK;
+		types[3][3][3] = TYPE_ROCK;
+		types[3][3][4] = TYPE_TREE;
+		types[1][1][1] = TYPE_ROCK;
+		World created = new World(types, new DefaultTerrainChangeListener());
+		assertEquals(TYPE_AIR, created.getCubeType(3, 3, 3));
+		assertEquals(TYPE_AIR, created.getCubeType(3, 3, 4));
+		assertEquals(TYPE_ROCK, created.getCubeType(1, 1, 1));
+		assertTrue(created.isSolidConnectedToBorder(new PositionVector(1, 1, 1)));
+		assertFalse(created.isSolidConnectedToBorder(new PositionVector(3, 3, 3)));
+		assertEquals(0, created.getSolidZAtOrBelow(3, 3, 5));
+		assertTrue(created.getBoulders().size() + created.getLogs().size() <= 2);
+	}
+
+	@Test
+	public void testBatchCaveIn() {
+		RecordingListener listener = new RecordingListener();
+		World overhang = createOverhang(listener);
+		// removing one pillar leaves the overhang standing on the other one
+		overhang.caveInAll(Arrays.asList(new PositionVector(2, 3, 1), new PositionVector(3, 3, 1)));
+		List<List<int[]>> batches = listener.getBatches();
+		assertEquals(1, batches.size());
+		assertEquals(1, batches.get(0).size());
+		assertEquals(TYPE_TREE, overhang.getCubeType(5, 3, 4));
+		overhang.caveInAll(Arrays.asList(new PositionVector(4, 3, 1)));
+		batches = listener.getBatches();
+		assertEquals(2, batches.size());
+		// the other pillar falls together with both pillar remains and the whole overhang
+		assertEquals(1 + 2 + 2 + 4, batches.get(1).size());
+		for (int x = 0; x < 7; x++)
+			for (int z = 1; z < 6; z++)
+				assertEquals(TYPE_AIR, overhang.getCubeType(x, 3, z));
+		assertTrue(overhang.isSolidConnectedToBorder(new PositionVector(4, 3, 0)));
+		assertFalse(overhang.isSolidConnectedToBorder(new PositionVector(4, 3, 2)));
+	}
+
+	@Test
+	public void testSupportAnalysis() {
+		RecordingListener listener = new RecordingListener();
+		World overhang = createOverhang(listener);
+		// both pillars carry the overhang
+		assertEquals(0, overhang.getNbCubesUnsupportedWithout(4, 3, 1));
+		assertEquals(0, overhang.getNbCubesUnsupportedWithout(2, 3, 1));
+		assertEquals(1, overhang.getNbCubesUnsupportedWithout(5, 3, 4) + overhang.getNbCubesUnsupportedWithout(4, 3, 4));
+		assertEquals(0, overhang.getNbCubesUnsupportedWithout(3, 3, 3));
+		assertEquals(0, overhang.getSupportAnalysis().getNbHits());
+		assertEquals(0, overhang.getNbCubesUnsupportedWithout(4, 3, 1));
+		assertEquals(1, overhang.getSupportAnalysis().getNbHits());
+		overhang.caveIn(2, 3, 1);
+		assertTrue(overhang.getSupportAnalysis().getNbInvalidations() > 0);
+		// now one pillar carries the overhang and the remains of the other pillar
+		Set<PositionVector> predicted = new HashSet<>(overhang.getCubesUnsupportedWithout(4, 3, 1));
+		assertEquals(2 + 2 + 4, predicted.size());
+		for (int x = 0; x < 7; x++)
+			for (int y = 0; y < 7; y++)
+				assertEquals(TYPE_ROCK, overhang.getCubeType(x, y, 0));
+		overhang.caveIn(4, 3, 1);
+		Set<PositionVector> fallen = new HashSet<>();
+		List<List<int[]>> batches = listener.getBatches();
+		for (int[] cube : batches.get(batches.size() - 1))
+			if (cube[0] != 4 || cube[1] != 3 || cube[2] != 1)
+				fallen.add(new PositionVector(cube[0], cube[1], cube[2]));
+		assertEquals(predicted, fallen);
+		assertEquals(0, overhang.getNbCubesUnsupportedWithout(4, 3, 2));
+	}
+
+	@Test
+	public void testSupportAnalysisOnlyDropsNearbyResults() {
+		int[][][] types = new int[40][40][4];
+		for (int x = 0; x < 40; x++)
+			for (int y = 0; y < 40; y++)
+				types[x][y][0] = TYPE_ROCK;
+		for (int z = 1; z < 3; z++) {
+			types[2][2][z] = TYPE_ROCK;
+			types[35][35][z] = TYPE_ROCK;
+		}
+		World pillars = new World(types, new DefaultTerrainChangeListener());
+		assertEquals(1, pillars.getNbCubesUnsupportedWithout(2, 2, 1));
+		assertEquals(1, pillars.getNbCubesUnsupportedWithout(35, 35, 1));
+		assertEquals(2, pillars.getSupportAnalysis().getNbEntries());
+		// a change in another chunk, and a change in the same chunk but away
+		// from both results, keep both
+		pillars.setCubeType(20, 20, 1, TYPE_ROCK);
+		pillars.setCubeType(8, 8, 1, TYPE_ROCK);
+		assertEquals(2, pillars.getSupportAnalysis().getNbEntries());
+		assertEquals(0, pillars.getSupportAnalysis().getNbInvalidations());
+		// a change next to a result drops it: the new cube hangs from the
+		// pillar
+		pillars.setCubeType(3, 2, 2, TYPE_ROCK);
+		assertEquals(1, pillars.getSupportAnalysis().getNbEntries());
+		assertEquals(1, pillars.getSupportAnalysis().getNbInvalidations());
+		assertEquals(2, pillars.getNbCubesUnsupportedWithout(2, 2, 1));
+		assertEquals(1, pillars.getNbCubesUnsupportedWithout(35, 35, 1));
+		assertEquals(1, pillars.getSupportAnalysis().getNbHits());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSupportAnalysisOutOfBounds() {
+		world.getNbCubesUnsupportedWithout(0, 0, 4);
+	}
+
+	@Test
+	public void testScheduledCaveIn() {
+		List<List<int[]>> fastOrder = collapseOverhang(1 << 14);
+		assertEquals(1, fastOrder.size());
+		List<List<int[]>> slowOrder = collapseOverhang(3);
+		assertTrue(slowOrder.size() > 1);
+		List<int[]> fast = fastOrder.get(0);
+		List<int[]> slow = new ArrayList<>();
+		for (List<int[]> batch : slowOrder) {
+			assertTrue(batch.size() <= 3);
+			slow.addAll(batch);
+		}
+		// the cubes cave-in in the same order, whatever the budget
+		assertEquals(2 + 2 + 4, fast.size());
+		assertEquals(fast.size(), slow.size());
+		for (int i = 0; i < fast.size(); i++)
+			assertArrayEquals(fast.get(i), slow.get(i));
+	}
+
+	private static List<List<int[]>> collapseOverhang(int maxNbSteps) {
+		RecordingListener listener = new RecordingListener();
+		World overhang = createOverhang(listener);
+		overhang.getCaveInScheduler().setBudget(maxNbSteps, 0);
+		overhang.caveIn(2, 3, 1);
+		overhang.collapse(new PositionVector(4, 3, 1));
+		listener.clear();
+		// the collapse itself does not search
+		assertEquals(TYPE_ROCK, overhang.getCubeType(4, 3, 2));
+		assertFalse(overhang.getCaveInScheduler().isIdle());
+		for (int i = 0; i < 100 && !overhang.getCaveInScheduler().isIdle(); i++)
+			overhang.advanceTime(0.01);
+		assertTrue(overhang.getCaveInScheduler().isIdle());
+		for (int x = 0; x < 7; x++)
+			for (int z = 1; z < 6; z++)
+				assertEquals(TYPE_AIR, overhang.getCubeType(x, 3, z));
+		assertFalse(overhang.isSolidConnectedToBorder(new PositionVector(4, 3, 2)));
+		return listener.getBatches();
+	}
+
+	@Test
+	public void testUnrelatedChangesDuringScheduledCaveIn() {
+		int nbAdvances = countAdvancesOfCollapse(false);
+		assertTrue(nbAdvances > 2);
+		// a change far from the searches, between each two advances, neither
+		// restarts the search in progress nor delays the cave-ins
+		assertEquals(nbAdvances, countAdvancesOfCollapse(true));
+	}
+
+	private static int countAdvancesOfCollapse(boolean isChangingElsewhere) {
+		World overhang = createOverhang(new RecordingListener());
+		overhang.getCaveInScheduler().setBudget(1, 0);
+		overhang.caveIn(2, 3, 1);
+		overhang.collapse(new PositionVector(4, 3, 1));
+		int nbAdvances = 0;
+		while (!overhang.getCaveInScheduler().isIdle()) {
+			assertTrue(nbAdvances < 1000);
+			overhang.advanceTime(0.01);
+			nbAdvances++;
+			if (isChangingElsewhere)
+				overhang.setCubeType(0, 0, 1, (nbAdvances % 2 == 0) ? TYPE_AIR : TYPE_WORKSHOP);
+		}
+		for (int x = 0; x < 7; x++)
+			for (int z = 1; z < 6; z++)
+				assertEquals(TYPE_AIR, overhang.getCubeType(x, 3, z));
+		return nbAdvances;
+	}
+
+	@Test
+	public void testNearbySolidificationSearchesPendingCaveInsAgain() {
+		World overhang = createOverhang(new RecordingListener());
+		overhang.getCaveInScheduler().setBudget(1, 0);
+		overhang.caveIn(2, 3, 1);
+		overhang.collapse(new PositionVector(4, 3, 1));
+		while (overhang.getCaveInScheduler().getNbPendingCaveIns() == 0)
+			overhang.advanceTime(0.01);
+		// supporting the overhang again keeps its remaining cubes up
+		overhang.setCubeType(4, 3, 1, TYPE_ROCK);
+		for (int i = 0; i < 1000 && !overhang.getCaveInScheduler().isIdle(); i++)
+			overhang.advanceTime(0.01);
+		assertTrue(overhang.getCaveInScheduler().isIdle());
+		assertTrue(overhang.isSolidConnectedToBorder(new PositionVector(4, 3, 2)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCaveInBudgetNotPositive() {
+		world.getCaveInScheduler().setBudget(0, 1000);
+	}
+
+	@Test
+	public void testTerrainChangesBatchedPerAdvance() {
+		RecordingListener listener = new RecordingListener();
+		World overhang = createOverhang(listener);
+		overhang.getCaveInScheduler().setBudget(1 << 14, 0);
+		// changes outside an advance of time are notified right away
+		overhang.setCubeType(1, 1, 1, TYPE_ROCK);
+		overhang.caveIn(2, 3, 1);
+		overhang.collapse(new PositionVector(4, 3, 1));
+		List<TerrainChangeBatch> batches = listener.getTerrainChangeBatches();
+		assertEquals(3, batches.size());
+		assertEquals(1, batches.get(2).getNbCubes());
+		assertEquals(4 + 7 * (3 + 7 * 1), batches.get(2).getIndex(0));
+		// the cave-ins of an advance of time are notified once, at its end
+		overhang.advanceTime(0.01);
+		overhang.advanceTime(0.01);
+		assertEquals(4, batches.size());
+		TerrainChangeBatch batch = batches.get(3);
+		assertEquals(2 + 2 + 4, batch.getNbCubes());
+		assertEquals(2, batch.getMinX());
+		assertEquals(5, batch.getMaxX());
+		assertEquals(3, batch.getMinY());
+		assertEquals(3, batch.getMaxY());
+		assertEquals(2, batch.getMinZ());
+		assertEquals(4, batch.getMaxZ());
+		for (int[] cube : batch.toList())
+			assertEquals(TYPE_AIR, overhang.getCubeType(cube[0], cube[1], cube[2]));
+	}
+
+	@Test
+	public void testReachabilitySnapshot() {
+		PagedIntArray snapshot = world.getReachabilitySnapshot();
+		assertSame(snapshot, world.getReachabilitySnapshot());
+		int index = 2 + 10 * (2 + 8 * 1);
+		assertTrue(snapshot.get(index) != 0);
+		world.setCubeType(2, 2, 1, TYPE_ROCK);
+		// the earlier snapshot still registers the terrain it was taken of
+		assertTrue(snapshot.get(index) != 0);
+		PagedIntArray changed = world.getReachabilitySnapshot();
+		assertNotSame(snapshot, changed);
+		assertEquals(0, changed.get(index));
+	}
+
+	@Test
+	public void testLargeWorldIsSparse() {
+		int nbX = 256, nbY = 256, nbZ = 64;
+		ChunkedVoxelStore terrain = new ChunkedVoxelStore(nbX, nbY, nbZ, TYPE_AIR);
+		terrain.fill((x, y, z) -> (z < 16) ? TYPE_ROCK : TYPE_AIR);
+		ChunkedVoxelStore borderStates = new ChunkedVoxelStore(nbX, nbY, nbZ, 0);
+		World large = new World(terrain, borderStates, new DefaultTerrainChangeListener());
+		// the surface lies on a chunk border, so every chunk of both stores holds a single value
+		assertEquals(0, terrain.getNbMixedChunks());
+		assertEquals(0, borderStates.getNbMixedChunks());
+		// only the pages of the layers around the surface hold reachability masks
+		int nbLayerPages = nbX * nbY / PagedIntArray.PAGE_SIZE;
+		assertTrue(large.getReachabilitySnapshot().getNbAllocatedPages() <= 2 * nbLayerPages);
+		// the border state is flooded without marking any cube of the border search
+		assertEquals(0, large.getBorderSearch().getNbAllocatedPages());
+		List<PositionVector> path = large.determinePath(new PositionVector(2, 2, 16), new PositionVector(250, 240, 16));
+		assertEquals(new PositionVector(250, 240, 16), path.get(path.size() - 1));
+		large.caveIn(100, 100, 15);
+		assertTrue(large.isValidStandingPosition(new PositionVector(100, 100, 15)));
+		// a single changed cube only splits the chunk that holds it
+		assertEquals(1, terrain.getNbMixedChunks());
+		assertEquals(1, borderStates.getNbMixedChunks());
+		assertTrue(large.getReachabilitySnapshot().getNbAllocatedPages() <= 2 * nbLayerPages + 2);
+		assertEquals(TYPE_ROCK, large.getCubeType(255, 255, 15));
+	}
+
+	/**
+	 * Returns a new world with an overhang of trees at z = 4 from x = 2 to
+	 * x = 5, carried by pillars of rock at x = 2 and x = 4, both at y = 3.
+	 */
+	private static World createOverhang(TerrainChangeListener listener) {
+		int[][][] types = new int[7][7][6];
+		for (int x = 0; x < 7; x++)
+			for (int y = 0; y < 7; y++)
+				types[x][y][0] = TYPE_ROCK;
+		for (int z = 1; z < 4; z++) {
+			types[2][3][z] = TYPE_ROCK;
+			types[4][3][z] = TYPE_ROCK;
+		}
+		for (int x = 2; x <= 5; x++)
+			types[x][3][4] = TYPE_TREE;
+		return new World(types, listener);
+	}
+
+	/**
+	 * A listener that records the batches of changed cubes, and fails if
+	 * cubes are notified one by one.
+	 */
+	private static class RecordingListener implements TerrainChangeListener {
+
+		private final List<TerrainChangeBatch> batches = new ArrayList<>();
+
+		@Override
+		public void notifyTerrainChanged(int x, int y, int z) {
+			fail("Cubes must be notified in batches!");
+		}
+
+		@Override
+		public void notifyTerrainChanged(TerrainChangeBatch batch) {
+			batches.add(batch);
+		}
+
+		public List<TerrainChangeBatch> getTerrainChangeBatches() {
+			return batches;
+		}
+
+		/**
+		 * Returns a new list with the cubes of each batch recorded so far.
+		 */
+		public List<List<int[]>> getBatches() {
+			List<List<int[]>> result = new ArrayList<>();
+			for (TerrainChangeBatch batch : batches)
+				result.add(batch.toList());
+			return result;
+		}
+
+		public void clear() {
+			batches.clear();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package hillbillies.tests.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.util.ArrayVoxelStore;
+import hillbillies.util.ChunkedVoxelStore;
+
+public class ArrayVoxelStoreTest {
+
+	private static final int TYPE_AIR = 0;
+	private static final int TYPE_ROCK = 1;
+
+	@Test
+	public void testSharesArray() {
+		byte[] values = new byte[4 * 3 * 2];
+		ArrayVoxelStore store = new ArrayVoxelStore(values, 4, 3, 2);
+		store.set(3, 2, 1, 200);
+		assertEquals((byte) 200, values[3 + 4 * (2 + 3 * 1)]);
+		values[1 + 4 * (1 + 3 * 0)] = 7;
+		assertEquals(7, store.get(1, 1, 0));
+		assertEquals(200, store.get(3, 2, 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testArrayDoesNotMatch() {
+		new ArrayVoxelStore(new byte[10], 4, 3, 2);
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testOutsideStore() {
+		new ArrayVoxelStore(new byte[24], 4, 3, 2).get(0, 3, 0);
+	}
+
+	@Test
+	public void testWorldWritesThrough() {
+		byte[] values = new byte[10 * 10 * 5];
+		for (int i = 0; i < 100; i++)
+			values[i] = TYPE_ROCK;
+		values[5 + 10 * (5 + 10 * 3)] = TYPE_ROCK;
+		World world = new World(new ArrayVoxelStore(values, 10, 10, 5), new ChunkedVoxelStore(10, 10, 5, 0),
+				new DefaultTerrainChangeListener());
+		assertEquals(TYPE_AIR, values[5 + 10 * (5 + 10 * 3)]);
+		world.setCubeType(2, 2, 1, TYPE_ROCK);
+		assertEquals(TYPE_ROCK, values[2 + 10 * (2 + 10 * 1)]);
+	}
+}
@@ -0,0 +1,126 @@
+package hillbillies.tests.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.util.BorderSearch;
+
+public class BorderSearchTest {
+
+	private static final int NB = 6;
+
+	private static final int UP = 0;
+	private static final int DOWN = 5;
+
+	private boolean[] solid;
+	private BorderSearch borderSearch;
+
+	@Before
+	public void setUp() {
+		solid = new boolean[NB * NB * NB];
+		// a floating block of two cubes
+		solid[index(2, 2, 2)] = true;
+		solid[index(2, 3, 2)] = true;
+		// a column standing on the bottom of the world
+		solid[index(4, 4, 0)] = true;
+		solid[index(4, 4, 1)] = true;
+		solid[index(4, 4, 2)] = true;
+		borderSearch = new BorderSearch(NB, NB, NB);
+	}
+
+	private static int index(int x, int y, int z) {
+		return x + NB * (y + NB * z);
+	}
+
+	private BorderSearch.Searcher newSearcher() {
+		return borderSearch.newSearcher((x, y, z) -> solid[index(x, y, z)]);
+	}
+
+	private static Set<Integer> getVisited(BorderSearch.Searcher searcher) {
+		Set<Integer> result = new HashSet<>();
+		for (int i = 0; i < searcher.getNbVisited(); i++)
+			assertTrue(result.add(searcher.getVisited(i)));
+		return result;
+	}
+
+	@Test
+	public void testFloatingBlockIsNotConnected() {
+		BorderSearch.Searcher searcher = newSearcher();
+		searcher.startClassification();
+		assertTrue(searcher.startFromNeighbour(index(2, 2, 3), DOWN, -1));
+		assertFalse(searcher.run());
+		searcher.finish(false);
+		assertEquals(new HashSet<>(Arrays.asList(index(2, 2, 2), index(2, 3, 2))), getVisited(searcher));
+		assertTrue(searcher.isClassified(index(2, 3, 2)));
+		assertFalse(searcher.isConnected(index(2, 3, 2)));
+		// classified cubes are not searched again
+		assertFalse(searcher.startFromNeighbour(index(2, 2, 3), DOWN, -1));
+		assertTrue(searcher.isNearVisited(1, 4, 3));
+		assertFalse(searcher.isNearVisited(4, 4, 2));
+		searcher.startClassification();
+		assertFalse(searcher.isClassified(index(2, 3, 2)));
+	}
+
+	@Test
+	public void testExcludedCube() {
+		BorderSearch.Searcher searcher = newSearcher();
+		searcher.startClassification();
+		assertTrue(searcher.startFromNeighbour(index(4, 4, 1), UP, index(4, 4, 1)));
+		assertFalse(searcher.run());
+		searcher.finish(false);
+		searcher.startClassification();
+		assertTrue(searcher.startFromNeighbour(index(4, 4, 1), UP, -1));
+		assertTrue(searcher.run());
+		searcher.finish(true);
+		assertTrue(searcher.isConnected(index(4, 4, 2)));
+	}
+
+	@Test
+	public void testClassificationsArePerSearcher() {
+		BorderSearch.Searcher first = newSearcher();
+		BorderSearch.Searcher second = newSearcher();
+		first.startClassification();
+		second.startClassification();
+		assertTrue(first.startFromNeighbour(index(4, 4, 3), DOWN, -1));
+		assertTrue(first.run());
+		first.finish(true);
+		assertTrue(first.isConnected(index(4, 4, 2)));
+		assertFalse(second.isClassified(index(4, 4, 2)));
+		assertTrue(second.startFromNeighbour(index(4, 4, 3), DOWN, -1));
+	}
+
+	@Test
+	public void testSearchInterleavedWithOtherSearcher() {
+		BorderSearch.Searcher first = newSearcher();
+		BorderSearch.Searcher second = newSearcher();
+		first.startClassification();
+		assertTrue(first.startFromNeighbour(index(2, 2, 3), DOWN, -1));
+		assertEquals(BorderSearch.IN_PROGRESS, first.step());
+		// the second searcher overwrites the marks of the search in progress
+		second.startClassification();
+		assertTrue(second.startFromNeighbour(index(2, 2, 3), DOWN, -1));
+		assertFalse(second.run());
+		second.finish(false);
+		int result = first.step();
+		while (result == BorderSearch.IN_PROGRESS)
+			result = first.step();
+		assertEquals(BorderSearch.NOT_CONNECTED, result);
+		first.finish(false);
+		assertEquals(2, getVisited(first).size());
+		assertEquals(2, first.getNbVisited());
+		assertTrue(first.isClassified(index(2, 2, 2)));
+		assertFalse(second.isClassified(index(2, 2, 2)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testTooManySearchers() {
+		for (int i = 0; i <= BorderSearch.MAX_NB_SEARCHERS; i++)
+			newSearcher();
+	}
+}
@@ -0,0 +1,71 @@
+package hillbillies.tests.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import hillbillies.util.ChunkedVoxelStore;
+
+public class ChunkedVoxelStoreTest {
+
+	@Test
+	public void testMatchesPlainArray() {
+		int nbX = 37, nbY = 20, nbZ = 18;
+		ChunkedVoxelStore store = new ChunkedVoxelStore(nbX, nbY, nbZ, 1);
+		int[] expected = new int[nbX * nbY * nbZ];
+		Arrays.fill(expected, 1);
+		Random random = new Random(3);
+		for (int i = 0; i < 100000; i++) {
+			int x = random.nextInt(nbX), y = random.nextInt(nbY), z = random.nextInt(nbZ);
+			int value = (i % 1000 < 900) ? random.nextInt(4) : random.nextInt(256);
+			store.set(x, y, z, value);
+			expected[x + nbX * (y + nbY * z)] = value;
+		}
+		for (int z = 0; z < nbZ; z++)
+			for (int y = 0; y < nbY; y++)
+				for (int x = 0; x < nbX; x++)
+					assertEquals(expected[x + nbX * (y + nbY * z)], store.get(x, y, z));
+	}
+
+	@Test
+	public void testHomogeneousChunksCollapse() {
+		ChunkedVoxelStore store = new ChunkedVoxelStore(32, 32, 32, 0);
+		assertEquals(8, store.getNbChunks());
+		assertEquals(0, store.getNbMixedChunks());
+		for (int z = 0; z < 16; z++)
+			for (int y = 0; y < 16; y++)
+				for (int x = 0; x < 16; x++)
+					store.set(x, y, z, 1);
+		assertEquals(0, store.getNbMixedChunks());
+		assertEquals(1, store.get(5, 5, 5));
+		store.set(20, 3, 3, 2);
+		assertEquals(1, store.getNbMixedChunks());
+		store.set(20, 3, 3, 0);
+		assertEquals(0, store.getNbMixedChunks());
+	}
+
+	@Test
+	public void testLargeWorldFitsInFewChunks() {
+		ChunkedVoxelStore store = new ChunkedVoxelStore(512, 512, 128, 0);
+		for (int y = 0; y < 512; y++)
+			for (int x = 0; x < 512; x++)
+				for (int z = 0; z < 40; z++)
+					store.set(x, y, z, 1);
+		assertEquals(1, store.get(100, 200, 39));
+		assertEquals(0, store.get(100, 200, 40));
+		assertEquals(32 * 32, store.getNbMixedChunks());
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testOutOfBounds() {
+		new ChunkedVoxelStore(4, 4, 4, 0).get(4, 0, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidValue() {
+		new ChunkedVoxelStore(4, 4, 4, 0).set(0, 0, 0, 256);
+	}
+}
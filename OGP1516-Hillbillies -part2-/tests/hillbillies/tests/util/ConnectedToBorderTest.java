@@ -0,0 +1,147 @@
+package hillbillies.tests.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import hillbillies.util.ConnectedToBorder;
+
+public class ConnectedToBorderTest {
+
+	@Test
+	public void testInitializeMatchesIncrementalChanges() {
+		int nbX = 20, nbY = 18, nbZ = 19;
+		boolean[][][] passable = new boolean[nbX][nbY][nbZ];
+		Random random = new Random(11);
+		for (int x = 0; x < nbX; x++)
+			for (int y = 0; y < nbY; y++)
+				for (int z = 0; z < nbZ; z++)
+					passable[x][y][z] = random.nextInt(3) != 0;
+		ConnectedToBorder incremental = new ConnectedToBorder(nbX, nbY, nbZ);
+		for (int x = 0; x < nbX; x++)
+			for (int y = 0; y < nbY; y++)
+				for (int z = 0; z < nbZ; z++)
+					if (passable[x][y][z])
+						incremental.changeSolidToPassable(x, y, z);
+		ConnectedToBorder bulk = new ConnectedToBorder(nbX, nbY, nbZ);
+		List<int[]> floating = bulk.initialize((x, y, z) -> passable[x][y][z]);
+		Set<Integer> floatingIndices = new HashSet<>();
+		for (int[] cube : floating) {
+			assertFalse(passable[cube[0]][cube[1]][cube[2]]);
+			assertFalse(incremental.isSolidConnectedToBorder(cube[0], cube[1], cube[2]));
+			floatingIndices.add(cube[0] + nbX * (cube[1] + nbY * cube[2]));
+		}
+		assertFalse(floating.isEmpty());
+		for (int x = 0; x < nbX; x++)
+			for (int y = 0; y < nbY; y++)
+				for (int z = 0; z < nbZ; z++) {
+					assertEquals(incremental.isSolidConnectedToBorder(x, y, z), bulk.isSolidConnectedToBorder(x, y, z));
+					boolean isFloating = !passable[x][y][z] && !incremental.isSolidConnectedToBorder(x, y, z);
+					assertEquals(isFloating, floatingIndices.contains(x + nbX * (y + nbY * z)));
+				}
+	}
+
+	@Test
+	public void testFloatingCubesBecomePassable() {
+		ConnectedToBorder connectedToBorder = new ConnectedToBorder(5, 5, 5);
+		List<int[]> floating = connectedToBorder.initialize((x, y, z) -> !(z == 0 || (x == 2 && y == 2 && z == 3)));
+		assertEquals(1, floating.size());
+		assertArrayEquals(new int[] { 2, 2, 3 }, floating.get(0));
+		assertTrue(connectedToBorder.isSolidConnectedToBorder(2, 2, 0));
+		// the floating cube is passable already
+		assertTrue(connectedToBorder.changeSolidToPassable(2, 2, 3).isEmpty());
+		assertEquals(1, connectedToBorder.changePassableToSolid(2, 2, 1).size());
+	}
+
+	@Test
+	public void testRandomChangesMatchFloodFill() {
+		int nbX = 12, nbY = 11, nbZ = 10;
+		boolean[][][] solid = new boolean[nbX][nbY][nbZ];
+		Random random = new Random(21);
+		// a sparse world, so that changes often connect or disconnect other cubes
+		for (int x = 0; x < nbX; x++)
+			for (int y = 0; y < nbY; y++)
+				for (int z = 0; z < nbZ; z++)
+					solid[x][y][z] = random.nextInt(10) < 3;
+		ConnectedToBorder connectedToBorder = new ConnectedToBorder(nbX, nbY, nbZ);
+		for (int[] cube : connectedToBorder.initialize((x, y, z) -> !solid[x][y][z]))
+			solid[cube[0]][cube[1]][cube[2]] = false;
+		for (int change = 0; change < 600; change++) {
+			boolean[][][] connectedBefore = floodFill(solid);
+			int x = random.nextInt(nbX), y = random.nextInt(nbY), z = random.nextInt(nbZ);
+			List<int[]> changed;
+			boolean isConnecting = !solid[x][y][z];
+			if (solid[x][y][z]) {
+				solid[x][y][z] = false;
+				if (random.nextInt(4) == 0) {
+					// the disconnected cubes are made passable as well
+					changed = connectedToBorder.changeAllSolidToPassable(Arrays.asList(new int[] { x, y, z }));
+					for (int[] cube : changed)
+						solid[cube[0]][cube[1]][cube[2]] = false;
+				} else {
+					changed = connectedToBorder.changeSolidToPassable(x, y, z);
+				}
+			} else {
+				solid[x][y][z] = true;
+				changed = connectedToBorder.changePassableToSolid(x, y, z);
+			}
+			boolean[][][] connectedAfter = floodFill(solid);
+			Set<Integer> changedIndices = new HashSet<>();
+			for (int[] cube : changed)
+				assertTrue(changedIndices.add(cube[0] + nbX * (cube[1] + nbY * cube[2])));
+			for (int cx = 0; cx < nbX; cx++)
+				for (int cy = 0; cy < nbY; cy++)
+					for (int cz = 0; cz < nbZ; cz++) {
+						assertEquals(connectedAfter[cx][cy][cz], connectedToBorder.isSolidConnectedToBorder(cx, cy, cz));
+						boolean isChanged = connectedBefore[cx][cy][cz] != connectedAfter[cx][cy][cz]
+								&& (cx != x || cy != y || cz != z || connectedAfter[cx][cy][cz]);
+						boolean isReported = changedIndices.contains(cx + nbX * (cy + nbY * cz));
+						if (isConnecting) {
+							assertEquals(isChanged, isReported);
+						} else {
+							// solid cubes that were disconnected already may be reported again
+							assertTrue(!isChanged || isReported);
+							assertTrue(!isReported || !connectedAfter[cx][cy][cz]);
+						}
+					}
+		}
+	}
+
+	/**
+	 * Returns for each cube whether it is solid and connected to a border of
+	 * the world through directly adjacent solid cubes, by a flood fill from the
+	 * solid cubes at the border.
+	 */
+	private static boolean[][][] floodFill(boolean[][][] solid) {
+		int nbX = solid.length, nbY = solid[0].length, nbZ = solid[0][0].length;
+		boolean[][][] connected = new boolean[nbX][nbY][nbZ];
+		Deque<int[]> queue = new ArrayDeque<>();
+		for (int x = 0; x < nbX; x++)
+			for (int y = 0; y < nbY; y++)
+				for (int z = 0; z < nbZ; z++)
+					if (solid[x][y][z] && (x == 0 || y == 0 || z == 0 || x == nbX - 1 || y == nbY - 1 || z == nbZ - 1)) {
+						connected[x][y][z] = true;
+						queue.add(new int[] { x, y, z });
+					}
+		int[][] offsets = { { 1, 0, 0 }, { -1, 0, 0 }, { 0, 1, 0 }, { 0, -1, 0 }, { 0, 0, 1 }, { 0, 0, -1 } };
+		while (!queue.isEmpty()) {
+			int[] cube = queue.poll();
+			for (int[] offset : offsets) {
+				int x = cube[0] + offset[0], y = cube[1] + offset[1], z = cube[2] + offset[2];
+				if (x >= 0 && y >= 0 && z >= 0 && x < nbX && y < nbY && z < nbZ && solid[x][y][z] && !connected[x][y][z]) {
+					connected[x][y][z] = true;
+					queue.add(new int[] { x, y, z });
+				}
+			}
+		}
+		return connected;
+	}
+}
@@ -0,0 +1,97 @@
+package hillbillies.tests.util;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hillbillies.model.PositionVector;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.util.MappedVoxelStore;
+
+public class MappedVoxelStoreTest {
+
+	private static final int TYPE_AIR = 0;
+	private static final int TYPE_ROCK = 1;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testValuesSurviveReopening() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("terrain.vox");
+		MappedVoxelStore store = MappedVoxelStore.create(file, 30, 20, 10);
+		assertEquals(0, store.get(29, 19, 9));
+		store.set(29, 19, 9, 255);
+		store.set(3, 4, 5, 2);
+		store.force();
+		MappedVoxelStore reopened = MappedVoxelStore.open(file, false);
+		assertEquals(30, reopened.getNbX());
+		assertEquals(20, reopened.getNbY());
+		assertEquals(10, reopened.getNbZ());
+		assertEquals(255, reopened.get(29, 19, 9));
+		assertEquals(2, reopened.get(3, 4, 5));
+	}
+
+	@Test
+	public void testPrivateChangesStayInStore() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("terrain.vox");
+		MappedVoxelStore.create(file, 8, 8, 8).set(1, 1, 1, 3);
+		MappedVoxelStore first = MappedVoxelStore.open(file, true);
+		MappedVoxelStore second = MappedVoxelStore.open(file, true);
+		assertTrue(first.isPrivate());
+		first.set(1, 1, 1, 1);
+		assertEquals(1, first.get(1, 1, 1));
+		assertEquals(3, second.get(1, 1, 1));
+	}
+
+	@Test
+	public void testReadOnlyFile() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("terrain.vox");
+		MappedVoxelStore.create(file, 8, 8, 8).set(1, 1, 1, 3);
+		assertTrue(file.toFile().setWritable(false));
+		MappedVoxelStore store = MappedVoxelStore.openReadOnly(file);
+		assertTrue(store.isReadOnly());
+		assertFalse(store.isPrivate());
+		assertEquals(3, store.get(1, 1, 1));
+		try {
+			store.set(1, 1, 1, 1);
+			fail();
+		} catch (IllegalStateException exc) {
+			assertEquals(3, store.get(1, 1, 1));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOpenOtherFile() throws IOException {
+		Path file = folder.newFile("other.txt").toPath();
+		MappedVoxelStore.open(file, true);
+	}
+
+	@Test
+	public void testWorldOnMappedStores() throws IOException {
+		Path terrainFile = folder.getRoot().toPath().resolve("terrain.vox");
+		Path borderFile = folder.getRoot().toPath().resolve("border.vox");
+		MappedVoxelStore terrain = MappedVoxelStore.create(terrainFile, 10, 10, 5);
+		for (int x = 0; x < 10; x++)
+			for (int y = 0; y < 10; y++)
+				terrain.set(x, y, 0, TYPE_ROCK);
+		terrain.set(5, 5, 3, TYPE_ROCK);
+		World world = new World(terrain, MappedVoxelStore.create(borderFile, 10, 10, 5), new DefaultTerrainChangeListener());
+		assertEquals(TYPE_AIR, world.getCubeType(5, 5, 3));
+		assertEquals(TYPE_AIR, terrain.get(5, 5, 3));
+		assertTrue(world.isSolidConnectedToBorder(new PositionVector(2, 2, 0)));
+
+		World shared = new World(MappedVoxelStore.open(terrainFile, true), MappedVoxelStore.open(borderFile, true),
+				new DefaultTerrainChangeListener());
+		assertEquals(TYPE_ROCK, shared.getCubeType(2, 2, 0));
+		shared.setCubeType(2, 2, 1, TYPE_ROCK);
+		assertTrue(shared.isSolidCube(2, 2, 1));
+		assertEquals(TYPE_AIR, terrain.get(2, 2, 1));
+	}
+}
@@ -0,0 +1,94 @@
+package hillbillies.tests.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import hillbillies.util.PagedIntArray;
+
+public class PagedIntArrayTest {
+
+	@Test
+	public void testMatchesPlainArray() {
+		int length = 5 * PagedIntArray.PAGE_SIZE + 123;
+		PagedIntArray array = new PagedIntArray(length, -1);
+		int[] expected = new int[length];
+		Arrays.fill(expected, -1);
+		Random random = new Random(5);
+		for (int i = 0; i < 20000; i++) {
+			int index = random.nextInt(length);
+			int value = random.nextInt(10) - 1;
+			array.set(index, value);
+			expected[index] = value;
+		}
+		for (int index = 0; index < length; index++)
+			assertEquals(expected[index], array.get(index));
+		array.clear();
+		assertEquals(0, array.getNbAllocatedPages());
+		assertEquals(-1, array.get(length - 1));
+	}
+
+	@Test
+	public void testPagesAllocatedOnDemand() {
+		PagedIntArray array = new PagedIntArray(512 * 512 * 128, 0);
+		assertEquals(512 * 512 * 128 / PagedIntArray.PAGE_SIZE, array.getNbPages());
+		array.set(100, 0);
+		assertEquals(0, array.getNbAllocatedPages());
+		array.set(3 * PagedIntArray.PAGE_SIZE + 7, 42);
+		assertEquals(1, array.getNbAllocatedPages());
+		assertEquals(3 * PagedIntArray.PAGE_SIZE, array.skipDefaultPages(0));
+		assertEquals(3 * PagedIntArray.PAGE_SIZE + 9, array.skipDefaultPages(3 * PagedIntArray.PAGE_SIZE + 9));
+		assertEquals(array.getLength(), array.skipDefaultPages(4 * PagedIntArray.PAGE_SIZE));
+	}
+
+	@Test
+	public void testFill() {
+		int length = 3 * PagedIntArray.PAGE_SIZE;
+		PagedIntArray array = new PagedIntArray(length, 0);
+		array.fill(index -> (index >= 2 * PagedIntArray.PAGE_SIZE) ? index : 0);
+		assertEquals(1, array.getNbAllocatedPages());
+		for (int index = 0; index < length; index++)
+			assertEquals((index >= 2 * PagedIntArray.PAGE_SIZE) ? index : 0, array.get(index));
+		PagedIntArray copy = new PagedIntArray(array);
+		array.set(length - 1, 0);
+		assertEquals(length - 1, copy.get(length - 1));
+	}
+
+	@Test
+	public void testSnapshotCopiesOnWrite() {
+		int length = 4 * PagedIntArray.PAGE_SIZE;
+		PagedIntArray array = new PagedIntArray(length, 0);
+		array.set(1, 10);
+		array.set(PagedIntArray.PAGE_SIZE + 1, 20);
+		PagedIntArray snapshot = array.snapshot();
+		assertEquals(2, snapshot.getNbAllocatedPages());
+		array.set(1, 11);
+		array.set(3 * PagedIntArray.PAGE_SIZE, 30);
+		snapshot.set(PagedIntArray.PAGE_SIZE + 1, 21);
+		assertEquals(10, snapshot.get(1));
+		assertEquals(0, snapshot.get(3 * PagedIntArray.PAGE_SIZE));
+		assertEquals(21, snapshot.get(PagedIntArray.PAGE_SIZE + 1));
+		assertEquals(11, array.get(1));
+		assertEquals(30, array.get(3 * PagedIntArray.PAGE_SIZE));
+		assertEquals(20, array.get(PagedIntArray.PAGE_SIZE + 1));
+		// filling the array does not change a snapshot either
+		PagedIntArray other = array.snapshot();
+		array.fill(index -> 0);
+		assertEquals(0, array.get(1));
+		assertEquals(11, other.get(1));
+		assertEquals(20, other.get(PagedIntArray.PAGE_SIZE + 1));
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testOutOfBounds() {
+		new PagedIntArray(10, 0).get(10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeLength() {
+		new PagedIntArray(-1, 0);
+	}
+}